@@ -0,0 +1,109 @@
+package simulador;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Custo das assinaturas do SM(m) numa thread (um núcleo), para cada esquema:
+ * assinaturas/s, verificações/s sem cache, cadeias completas de m + 1
+ * saltos por segundo sem cache (um VerificadorAssinaturas novo por cadeia) e
+ * com o cache já aquecido, como nas retransmissões.
+ *
+ * Cada operação é repetida por 'tempoMs' (depois de um aquecimento igual),
+ * pois o Ed25519 é milhares de vezes mais lento que o HMAC.
+ *
+ * Uso: java simulador.BenchmarkAssinaturas [ED25519,HMAC] [tempoMs] [m]
+ */
+public class BenchmarkAssinaturas {
+    private static final int VARIEDADE = 256;
+
+    // Evita que o JIT elimine o trabalho medido
+    private static long sumidouro;
+
+    public static void main(String[] args) {
+        String[] esquemas = (args.length > 0 ? args[0] : "ED25519,HMAC").split(",");
+        long tempoMs = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        int m = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        int[] ids = new int[m + 1];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        System.out.println("esquema   operação                        ops/s      µs/op");
+        for (String nome : esquemas) {
+            ChavesAssinatura.Esquema esquema = ChavesAssinatura.Esquema.valueOf(nome.trim().toUpperCase());
+            ChavesAssinatura chaves = ChavesAssinatura.gerar(esquema, ids, 42L);
+            Mensagem[] cadeias = cadeias(chaves, m);
+            VerificadorAssinaturas assinador = new VerificadorAssinaturas(chaves);
+
+            medir(esquema, "assinar", tempoMs,
+                    i -> assinador.assinar(0, i, Ordem.ATACAR, Caminho.de(0)).length > 0);
+
+            // Cada verificação é sobre dados diferentes: nada se repete
+            byte[][] dados = new byte[VARIEDADE][17];
+            byte[][] assinaturas = new byte[VARIEDADE][];
+            for (int i = 0; i < VARIEDADE; i++) {
+                dados[i][0] = (byte) i;
+                assinaturas[i] = chaves.assinar(0, dados[i]);
+            }
+            medir(esquema, "verificar", tempoMs,
+                    i -> chaves.verificar(0, dados[i % VARIEDADE], assinaturas[i % VARIEDADE]));
+
+            medir(esquema, "cadeia de " + (m + 1) + " (sem cache)", tempoMs,
+                    i -> new VerificadorAssinaturas(chaves).verificar(cadeias[i % VARIEDADE]));
+
+            VerificadorAssinaturas comCache = new VerificadorAssinaturas(chaves);
+            for (Mensagem cadeia : cadeias) {
+                comCache.verificar(cadeia);
+            }
+            medir(esquema, "cadeia de " + (m + 1) + " (com cache)", tempoMs,
+                    i -> comCache.verificar(cadeias[i % VARIEDADE]));
+        }
+        if (sumidouro == 42) {
+            System.out.println();
+        }
+    }
+
+    /**
+     * Executa a operação por 'tempoMs' para aquecer e de novo para medir.
+     */
+    private static void medir(ChavesAssinatura.Esquema esquema, String operacao, long tempoMs, IntPredicate op) {
+        executarPor(tempoMs, op);
+        long inicio = System.nanoTime();
+        long operacoes = executarPor(tempoMs, op);
+        long nanos = System.nanoTime() - inicio;
+        System.out.printf("%-9s %-28s %10.0f %10.2f%n", esquema, operacao, operacoes * 1e9 / nanos,
+                nanos / 1e3 / operacoes);
+    }
+
+    private static long executarPor(long tempoMs, IntPredicate op) {
+        long fim = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tempoMs);
+        long operacoes = 0;
+        do {
+            // Em blocos de 64, para não medir o relógio
+            for (int i = 0; i < 64; i++) {
+                sumidouro += op.test((int) operacoes++) ? 1 : 0;
+            }
+        } while (System.nanoTime() < fim);
+        return operacoes;
+    }
+
+    /**
+     * VARIEDADE mensagens com m + 1 saltos assinados (0, 1, ..., m), em instâncias diferentes.
+     */
+    private static Mensagem[] cadeias(ChavesAssinatura chaves, int m) {
+        VerificadorAssinaturas assinador = new VerificadorAssinaturas(chaves);
+        Mensagem[] cadeias = new Mensagem[VARIEDADE];
+        for (int v = 0; v < VARIEDADE; v++) {
+            long caminho = Caminho.de(0);
+            byte[][] assinaturas = new byte[m + 1][];
+            assinaturas[0] = assinador.assinar(0, v, Ordem.ATACAR, caminho);
+            for (int salto = 1; salto <= m; salto++) {
+                caminho = Caminho.anexar(caminho, salto);
+                assinaturas[salto] = assinador.assinar(salto, v, Ordem.ATACAR, caminho);
+            }
+            cadeias[v] = new Mensagem(TipoMensagem.ORDEM, v, m, Ordem.ATACAR, m + 1, caminho, assinaturas);
+        }
+        return cadeias;
+    }
+}
@@ -0,0 +1,125 @@
+package simulador;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * Compara o CodecMensagem com a serialização Java usada antes (um
+ * ObjectOutputStream novo por mensagem): bytes por mensagem, ns/op e bytes
+ * alocados por operação de codificação e decodificação.
+ *
+ * Uso: java simulador.BenchmarkCodec [iteracoes]
+ */
+public class BenchmarkCodec {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final int VARIEDADE = 1024;
+
+    // Evita que o JIT elimine o trabalho medido
+    private static long sumidouro;
+
+    public static void main(String[] args) throws Exception {
+        int iteracoes = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Mensagem msg = new Mensagem(3, Ordem.RECUAR, 2, 0L);
+
+        byte[] serializada = serializar(msg);
+        ByteBuffer quadro = ByteBuffer.allocate(CodecMensagem.TAMANHO_QUADRO);
+        CodecMensagem.codificar(msg, quadro);
+
+        System.out.println("formato           bytes  codificar(ns)  B/op   decodificar(ns)  B/op");
+        for (int aquecimento = 0; aquecimento < 3; aquecimento++) {
+            medirSerializacao(iteracoes / 10, msg, serializada, false);
+            medirCodec(iteracoes, quadro, false);
+        }
+        medirSerializacao(iteracoes / 10, msg, serializada, true);
+        medirCodec(iteracoes, quadro, true);
+        if (sumidouro == 42) {
+            System.out.println();
+        }
+    }
+
+    private static void medirSerializacao(int iteracoes, Mensagem msg, byte[] serializada, boolean imprimir)
+            throws Exception {
+        long alocadoAntes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long inicio = System.nanoTime();
+        for (int i = 0; i < iteracoes; i++) {
+            sumidouro += serializar(msg).length;
+        }
+        long codificar = System.nanoTime() - inicio;
+        long alocadoCodificar = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - alocadoAntes;
+
+        alocadoAntes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        inicio = System.nanoTime();
+        for (int i = 0; i < iteracoes; i++) {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serializada))) {
+                sumidouro += ((Mensagem) in.readObject()).getRemetenteId();
+            }
+        }
+        long decodificar = System.nanoTime() - inicio;
+        long alocadoDecodificar = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - alocadoAntes;
+
+        if (imprimir) {
+            imprimir("serializacao-java", serializada.length, iteracoes, codificar, alocadoCodificar,
+                    decodificar, alocadoDecodificar);
+        }
+    }
+
+    private static void medirCodec(int iteracoes, ByteBuffer quadro, boolean imprimir) {
+        // Mensagens e quadros variados, para o JIT não reaproveitar o resultado entre iterações
+        Mensagem[] mensagens = new Mensagem[VARIEDADE];
+        ByteBuffer quadros = ByteBuffer.allocate(VARIEDADE * CodecMensagem.TAMANHO_QUADRO);
+        for (int i = 0; i < VARIEDADE; i++) {
+            mensagens[i] = new Mensagem(i, (i % 2 == 0) ? Ordem.ATACAR : Ordem.RECUAR, i % 4, i * 31L);
+            CodecMensagem.codificar(mensagens[i], quadros);
+        }
+
+        long alocadoAntes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long inicio = System.nanoTime();
+        for (int i = 0; i < iteracoes; i++) {
+            quadro.clear();
+            CodecMensagem.codificar(mensagens[i & (VARIEDADE - 1)], quadro);
+            sumidouro += quadro.getLong(quadro.position() - 8);
+        }
+        long codificar = System.nanoTime() - inicio;
+        long alocadoCodificar = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - alocadoAntes;
+
+        alocadoAntes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        inicio = System.nanoTime();
+        for (int i = 0; i < iteracoes; i++) {
+            if ((i & (VARIEDADE - 1)) == 0) {
+                quadros.clear();
+            }
+            int tamanho = quadros.getInt();
+            Mensagem lida = CodecMensagem.decodificar(quadros, tamanho);
+            sumidouro += lida.getRemetenteId() + lida.getCaminho();
+        }
+        long decodificar = System.nanoTime() - inicio;
+        long alocadoDecodificar = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - alocadoAntes;
+
+        if (imprimir) {
+            imprimir("codec-binario", CodecMensagem.TAMANHO_QUADRO, iteracoes, codificar, alocadoCodificar,
+                    decodificar, alocadoDecodificar);
+        }
+    }
+
+    private static byte[] serializar(Mensagem msg) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(msg);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void imprimir(String nome, int bytes, int iteracoes, long codificar, long alocadoCodificar,
+                                 long decodificar, long alocadoDecodificar) {
+        System.out.printf("%-16s  %5d  %13.1f  %5d  %15.1f  %5d%n", nome, bytes,
+                (double) codificar / iteracoes, alocadoCodificar / iteracoes,
+                (double) decodificar / iteracoes, alocadoDecodificar / iteracoes);
+    }
+}
@@ -0,0 +1,86 @@
+package simulador;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Compara o envio com um socket por mensagem (caminho antigo) com o canal
+ * persistente do GerenciadorConexoes. Mede mensagens/s de ponta a ponta e a
+ * latência p99 de cada chamada de envio.
+ *
+ * Uso: java simulador.BenchmarkComunicador [mensagens] [porta]
+ */
+public class BenchmarkComunicador {
+
+    public static void main(String[] args) throws Exception {
+        int mensagens = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int porta = args.length > 1 ? Integer.parseInt(args[1]) : 9100;
+
+        Map<Integer, String[]> mapaRede = new HashMap<>();
+        mapaRede.put(1, new String[]{"127.0.0.1", String.valueOf(porta)});
+
+        BlockingQueue<Mensagem> fila = new LinkedBlockingQueue<>();
+        Comunicador receptor = new Comunicador(porta, mapaRede, fila);
+        receptor.iniciarServidor();
+        Thread.sleep(300);
+
+        Comunicador emissor = new Comunicador(porta + 1, mapaRede, new LinkedBlockingQueue<>());
+
+        // Aquecimento dos dois caminhos
+        executar("aquecimento", mensagens / 5, fila, i -> emissor.enviarMensagem("127.0.0.1", porta, msg(i)), false);
+        executar("aquecimento", mensagens / 5, fila, i -> emissor.enviarMensagem(1, msg(i)), false);
+
+        System.out.println("caminho               mensagens   msgs/s      p50(us)   p99(us)");
+        executar("socket-por-mensagem", mensagens, fila, i -> emissor.enviarMensagem("127.0.0.1", porta, msg(i)), true);
+        executar("canal-persistente", mensagens, fila, i -> emissor.enviarMensagem(1, msg(i)), true);
+
+        emissor.desligarServidor();
+        receptor.desligarServidor();
+    }
+
+    private static Mensagem msg(int i) {
+        return new Mensagem(0, (i % 2 == 0) ? Ordem.ATACAR : Ordem.RECUAR);
+    }
+
+    private interface Envio {
+        void enviar(int i) throws Exception;
+    }
+
+    private static void executar(String nome, int mensagens, BlockingQueue<Mensagem> fila, Envio envio, boolean imprimir)
+            throws Exception {
+        CountDownLatch recebidas = new CountDownLatch(mensagens);
+        Thread consumidor = new Thread(() -> {
+            try {
+                for (int i = 0; i < mensagens; i++) {
+                    fila.take();
+                    recebidas.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumidor.start();
+
+        long[] latencias = new long[mensagens];
+        long inicio = System.nanoTime();
+        for (int i = 0; i < mensagens; i++) {
+            long t0 = System.nanoTime();
+            envio.enviar(i);
+            latencias[i] = System.nanoTime() - t0;
+        }
+        recebidas.await();
+        long duracao = System.nanoTime() - inicio;
+
+        if (imprimir) {
+            Arrays.sort(latencias);
+            System.out.printf("%-20s  %9d  %10.0f  %8.1f  %8.1f%n", nome, mensagens,
+                    mensagens / (duracao / 1e9),
+                    latencias[mensagens / 2] / 1e3,
+                    latencias[(int) (mensagens * 0.99)] / 1e3);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package simulador;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decisão antecipada do OM contra esperar todas as mensagens da última
+ * rodada, num cluster de NoConsenso sobre a RedeMemoria com o último Tenente
+ * lento (EstrategiaTraidor.ATRASO: manda os valores certos, mas atrasados).
+ * Esperando todas, cada decisão anda no passo do mais lento; com a apuração
+ * incremental, no dos mais rápidos que já formam a maioria. Mostra
+ * decisões/s, latência da decisão dos Tenentes rápidos (p50, p99, máximo),
+ * rodadas expiradas e divergências. Com m > 1 só a última rodada encurta: nas
+ * outras cada Tenente ainda precisa de tudo para retransmitir.
+ *
+ * Uso: java simulador.BenchmarkDecisaoAntecipada [n] [m] [propostas] [latenciaMs] [atrasoMs] [prazoRodadaMs]
+ *   latenciaMs: "min-max" (ex.: "1-5") ou um valor fixo
+ *   atrasoMs: atraso do Tenente lento, ou 0 para nenhum
+ */
+public class BenchmarkDecisaoAntecipada {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int propostas = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        String[] latencia = (args.length > 3 ? args[3] : "1-5").split("-");
+        long atrasoMs = args.length > 4 ? Long.parseLong(args[4]) : 50;
+        long prazoRodadaMs = args.length > 5 ? Long.parseLong(args[5]) : 200;
+
+        System.out.println("OM(" + m + "), n = " + n + ", " + propostas + " propostas, latência "
+                + String.join("-", latencia) + " ms, prazo " + prazoRodadaMs + " ms, Tenente lento: "
+                + (atrasoMs > 0 ? (n - 1) + " (+" + atrasoMs + " ms)" : "nenhum"));
+        System.out.println("apuração     decisões/s  p50 (ms)  p99 (ms)  max (ms)  rodadas expiradas  divergências");
+        executar(n, m, propostas, false, latencia, atrasoMs, prazoRodadaMs);
+        executar(n, m, propostas, true, latencia, atrasoMs, prazoRodadaMs);
+    }
+
+    private static void executar(int n, int m, int propostas, boolean antecipada, String[] latencia, long atrasoMs,
+                                 long prazoRodadaMs) throws Exception {
+        Map<Integer, String[]> mapaRede = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            mapaRede.put(id, new String[]{"memoria", String.valueOf(id)});
+        }
+        RedeMemoria rede = new RedeMemoria(42L)
+                .comLatenciaMs(Double.parseDouble(latencia[0]), Double.parseDouble(latencia[latencia.length - 1]));
+        OpcoesProcesso opcoes = new OpcoesProcesso()
+                .comMaxTraidores(m)
+                .comRedeMemoria(rede)
+                .comPrazoRodadaMs(prazoRodadaMs)
+                .comDecisaoAntecipada(antecipada)
+                .comEstrategiaTraidor(EstrategiaTraidor.atraso(atrasoMs));
+
+        int lento = atrasoMs > 0 ? n - 1 : -1;
+        byte[][] decisoes = new byte[n][propostas];
+        CountDownLatch entregues = new CountDownLatch((n - (lento >= 0 ? 2 : 1)) * propostas);
+        List<NoConsenso> nos = new ArrayList<>();
+        for (int id = 0; id < n; id++) {
+            byte[] minhas = decisoes[id];
+            boolean rapido = id != lento;
+            nos.add(new NoConsenso(id, 0, !rapido, mapaRede, opcoes, (instancia, decisao) -> {
+                if (instancia <= minhas.length) {
+                    minhas[(int) instancia - 1] = decisao.codigo();
+                    if (rapido) {
+                        entregues.countDown();
+                    }
+                }
+            }));
+        }
+        for (NoConsenso no : nos) {
+            no.iniciar();
+        }
+
+        NoConsenso comandante = nos.get(0);
+        comandante.aguardarProntos(opcoes.getPrazoProntidaoMs());
+        long inicio = System.nanoTime();
+        for (int i = 0; i < propostas; i++) {
+            comandante.propor((i % 2 == 0) ? Ordem.ATACAR : Ordem.RECUAR);
+        }
+        boolean completo = entregues.await(300, TimeUnit.SECONDS);
+        long duracao = System.nanoTime() - inicio;
+
+        Histograma latencias = new Histograma();
+        int divergencias = 0;
+        long expiradas = 0;
+        for (int id = 1; id < n; id++) {
+            if (id == lento) {
+                continue;
+            }
+            for (int i = 0; i < propostas; i++) {
+                if (decisoes[id][i] != decisoes[1][i]) {
+                    divergencias++;
+                }
+            }
+            expiradas += nos.get(id).getRodadasExpiradas();
+            latencias.somar(nos.get(id).getMetricas().getDecisao());
+        }
+
+        System.out.printf("%-11s  %10.0f  %8.1f  %8.1f  %8.1f  %17d  %12d%s%n",
+                antecipada ? "antecipada" : "todas", propostas / (duracao / 1e9), latencias.percentil(0.50) / 1e6,
+                latencias.percentil(0.99) / 1e6, latencias.getMaximo() / 1e6, expiradas, divergencias,
+                completo ? "" : "  (incompleto)");
+
+        for (NoConsenso no : nos) {
+            no.desligar();
+        }
+    }
+}
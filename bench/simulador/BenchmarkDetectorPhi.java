@@ -0,0 +1,111 @@
+package simulador;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prazo fixo das rodadas contra o DetectorPhi num cluster de NoConsenso
+ * sobre a RedeMemoria, numa rede mais lenta do que o prazo fixo supõe: com
+ * o prazo fixo, mensagens leais chegam depois de a rodada fechar; o
+ * DetectorPhi estica o prazo conforme os tempos observados. Mostra
+ * decisões/s, latência da decisão dos Tenentes leais (p50, p99), rodadas
+ * expiradas e divergências para cada limiar de phi (0 = prazo fixo).
+ *
+ * Uso: java simulador.BenchmarkDetectorPhi [n] [m] [propostas] [limiares] [latenciaMs] [prazoRodadaMs] [estrategia]
+ *   latenciaMs: "min-max" (ex.: "1-5") ou um valor fixo
+ *   estrategia: do último Tenente, traidor (ex.: SILENCIO), ou "-" (o padrão) para nenhum traidor
+ */
+public class BenchmarkDetectorPhi {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int propostas = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        String[] limiares = (args.length > 3 ? args[3] : "0,8,12").split(",");
+        String[] latencia = (args.length > 4 ? args[4] : "5-60").split("-");
+        long prazoRodadaMs = args.length > 5 ? Long.parseLong(args[5]) : 20;
+        String estrategia = args.length > 6 ? args[6] : "-";
+
+        System.out.println("OM(" + m + "), n = " + n + ", " + propostas + " propostas, latência "
+                + String.join("-", latencia) + " ms, prazo fixo " + prazoRodadaMs + " ms, traidor: "
+                + (estrategia.equals("-") ? "nenhum" : (n - 1) + " " + estrategia));
+        System.out.println("limiar  decisões/s  p50 (ms)  p99 (ms)  rodadas expiradas  divergências");
+        for (String limiar : limiares) {
+            executar(n, m, propostas, Double.parseDouble(limiar.trim()), latencia, prazoRodadaMs, estrategia);
+        }
+    }
+
+    private static void executar(int n, int m, int propostas, double limiar, String[] latencia, long prazoRodadaMs,
+                                 String estrategia) throws Exception {
+        Map<Integer, String[]> mapaRede = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            mapaRede.put(id, new String[]{"memoria", String.valueOf(id)});
+        }
+        RedeMemoria rede = new RedeMemoria(42L)
+                .comLatenciaMs(Double.parseDouble(latencia[0]), Double.parseDouble(latencia[latencia.length - 1]));
+        boolean comTraidor = !estrategia.equals("-");
+        OpcoesProcesso opcoes = new OpcoesProcesso()
+                .comMaxTraidores(m)
+                .comRedeMemoria(rede)
+                .comPrazoRodadaMs(prazoRodadaMs)
+                .comLimiarPhi(limiar)
+                .comEstrategiaTraidor(comTraidor ? EstrategiaTraidor.deNome(estrategia) : EstrategiaTraidor.PADRAO);
+
+        int traidor = comTraidor ? n - 1 : -1;
+        byte[][] decisoes = new byte[n][propostas];
+        CountDownLatch entregues = new CountDownLatch((n - (comTraidor ? 2 : 1)) * propostas);
+        List<NoConsenso> nos = new ArrayList<>();
+        for (int id = 0; id < n; id++) {
+            byte[] minhas = decisoes[id];
+            boolean leal = id != traidor;
+            nos.add(new NoConsenso(id, 0, !leal, mapaRede, opcoes, (instancia, decisao) -> {
+                if (instancia <= minhas.length) {
+                    minhas[(int) instancia - 1] = decisao.codigo();
+                    if (leal) {
+                        entregues.countDown();
+                    }
+                }
+            }));
+        }
+        for (NoConsenso no : nos) {
+            no.iniciar();
+        }
+
+        NoConsenso comandante = nos.get(0);
+        comandante.aguardarProntos(opcoes.getPrazoProntidaoMs());
+        long inicio = System.nanoTime();
+        for (int i = 0; i < propostas; i++) {
+            comandante.propor((i % 2 == 0) ? Ordem.ATACAR : Ordem.RECUAR);
+        }
+        boolean completo = entregues.await(300, TimeUnit.SECONDS);
+        long duracao = System.nanoTime() - inicio;
+
+        Histograma latencias = new Histograma();
+        int divergencias = 0;
+        long expiradas = 0;
+        for (int id = 1; id < n; id++) {
+            if (id == traidor) {
+                continue;
+            }
+            for (int i = 0; i < propostas; i++) {
+                if (decisoes[id][i] != decisoes[1][i]) {
+                    divergencias++;
+                }
+            }
+            expiradas += nos.get(id).getRodadasExpiradas();
+            latencias.somar(nos.get(id).getMetricas().getDecisao());
+        }
+
+        System.out.printf("%6s  %10.0f  %8.1f  %8.1f  %17d  %12d%s%n", limiar == 0 ? "fixo" : String.valueOf(limiar),
+                propostas / (duracao / 1e9), latencias.percentil(0.50) / 1e6, latencias.percentil(0.99) / 1e6,
+                expiradas, divergencias, completo ? "" : "  (incompleto)");
+
+        for (NoConsenso no : nos) {
+            no.desligar();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package simulador;
+
+import java.util.Random;
+
+/**
+ * Banda por nó do SM(m) com as retransmissões enviadas direto a todos
+ * (Disseminacao.DIRETA) e pela Sobreposicao, na SimulacaoDiscreta: bytes
+ * enviados por Tenente (média e máximo), mensagens por execução, taxa de
+ * acordo com m traidores sorteados (que se calam como repassadores) e tempo
+ * virtual até a última decisão.
+ *
+ * Uso: java simulador.BenchmarkDisseminacao [n1,n2,...] [m] [execucoes] [latenciaMs] [prazoRodadaMs] [semente]
+ *   latenciaMs: "min-max" (ex.: "1-10") ou um valor fixo
+ */
+public class BenchmarkDisseminacao {
+
+    public static void main(String[] args) {
+        String[] tamanhos = (args.length > 0 ? args[0] : "16,64,256").split(",");
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int execucoes = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        String[] latencia = (args.length > 3 ? args[3] : "1-10").split("-");
+        long prazoRodadaMs = args.length > 4 ? Long.parseLong(args[4]) : 200;
+        long semente = args.length > 5 ? Long.parseLong(args[5]) : 42L;
+
+        System.out.println("SM(" + m + "), " + m + " traidor(es) sorteado(s), " + execucoes + " execuções por linha");
+        System.out.println("     n  disseminação   acordo  mensagens/exec  KB/Tenente (média)  KB/Tenente (máx)  grau  tempo (ms)");
+        for (String tamanho : tamanhos) {
+            int n = Integer.parseInt(tamanho.trim());
+            ChavesAssinatura chaves = ChavesAssinatura.gerar(ChavesAssinatura.Esquema.HMAC, idsAte(n), semente);
+            for (Disseminacao disseminacao : Disseminacao.values()) {
+                // A mesma semente nos dois modos: os mesmos traidores e latências sorteados
+                Random sorteio = new Random(semente);
+                SimulacaoDiscreta simulacao = new SimulacaoDiscreta(sorteio,
+                        (long) (Double.parseDouble(latencia[0]) * 1000),
+                        (long) (Double.parseDouble(latencia[latencia.length - 1]) * 1000),
+                        0.0, prazoRodadaMs * 1000)
+                        .comAssinaturas(chaves)
+                        .comDisseminacao(disseminacao);
+                medir(simulacao, new Random(semente + n), n, m, execucoes, disseminacao);
+            }
+        }
+    }
+
+    private static void medir(SimulacaoDiscreta simulacao, Random sorteioTraidores, int n, int m, int execucoes,
+                              Disseminacao disseminacao) {
+        int acordos = 0;
+        long mensagens = 0;
+        double bytesMedios = 0;
+        long bytesMaximo = 0;
+        long tempoVirtual = 0;
+        for (int e = 0; e < execucoes; e++) {
+            boolean[] traidores = new boolean[n];
+            for (int k = 0; k < m; ) {
+                int id = sorteioTraidores.nextInt(n);
+                if (!traidores[id]) {
+                    traidores[id] = true;
+                    k++;
+                }
+            }
+            SimulacaoDiscreta.Resultado r = simulacao.executar(n, m, traidores);
+            acordos += r.acordo ? 1 : 0;
+            mensagens += r.mensagens;
+            tempoVirtual += r.tempoVirtualMicros;
+            long soma = 0;
+            for (int id = 1; id < n; id++) {
+                soma += r.bytesEnviados[id];
+                bytesMaximo = Math.max(bytesMaximo, r.bytesEnviados[id]);
+            }
+            bytesMedios += (double) soma / (n - 1);
+        }
+        int grau = disseminacao == Disseminacao.SOBREPOSICAO
+                ? Sobreposicao.vizinhos(1, 0, idsAte(n), m).length
+                : n - 2;
+        System.out.printf("%6d  %-13s %6.1f%% %15.0f %19.1f %17.1f %5d %11.1f%n", n, disseminacao,
+                100.0 * acordos / execucoes, (double) mensagens / execucoes, bytesMedios / execucoes / 1024,
+                bytesMaximo / 1024.0, grau, tempoVirtual / 1000.0 / execucoes);
+    }
+
+    private static int[] idsAte(int n) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+        }
+        return ids;
+    }
+}
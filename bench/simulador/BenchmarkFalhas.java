@@ -0,0 +1,103 @@
+package simulador;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Acordo, validade e latência da decisão do OM(m) (ou do SM(m)) na
+ * SimulacaoDiscreta sob falhas injetadas: sem falhas, atraso com jitter,
+ * perda, uma partição que isola m Tenentes durante a primeira rodada e cada
+ * EstrategiaTraidor com m traidores sorteados. A latência é o instante
+ * virtual da última decisão de cada execução (p50 e p99 entre as execuções).
+ *
+ * Uso: java simulador.BenchmarkFalhas [n] [m] [execucoes] [latenciaMs] [prazoRodadaMs] [semente] [algoritmo]
+ *   latenciaMs: "min-max" (ex.: "1-10") ou um valor fixo
+ *   algoritmo: OM (padrão) ou SM (chaves HMAC)
+ */
+public class BenchmarkFalhas {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int execucoes = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        String[] latencia = (args.length > 3 ? args[3] : "1-10").split("-");
+        long prazoRodadaMs = args.length > 4 ? Long.parseLong(args[4]) : 100;
+        long semente = args.length > 5 ? Long.parseLong(args[5]) : 42L;
+        Algoritmo algoritmo = args.length > 6 ? Algoritmo.valueOf(args[6].toUpperCase()) : Algoritmo.OM;
+
+        StringBuilder isolados = new StringBuilder();
+        for (int id = n - m; id < n; id++) {
+            isolados.append(isolados.length() > 0 ? "+" : "").append(id);
+        }
+        // Cenários de rede sem traidores; cenários de traição sem falhas de rede
+        Map<String, Falhas> redes = new LinkedHashMap<>();
+        redes.put("sem falhas", null);
+        redes.put("atraso 5 + jitter 20", Falhas.deTexto("atraso=5,jitter=20"));
+        redes.put("jitter > prazo", Falhas.deTexto("jitter=" + 2 * prazoRodadaMs));
+        redes.put("perda 1%", Falhas.deTexto("perda=0.01"));
+        redes.put("perda 10%", Falhas.deTexto("perda=0.10"));
+        redes.put("partição " + m + " (rodada 1)", Falhas.deTexto("particao=" + isolados + "@0-" + prazoRodadaMs));
+        EstrategiaTraidor[] estrategias = {
+                EstrategiaTraidor.PADRAO, EstrategiaTraidor.SILENCIO, EstrategiaTraidor.EQUIVOCACAO,
+                EstrategiaTraidor.conluio(Ordem.RECUAR), EstrategiaTraidor.atraso(2 * prazoRodadaMs)};
+
+        ChavesAssinatura chaves = algoritmo == Algoritmo.SM
+                ? ChavesAssinatura.gerar(ChavesAssinatura.Esquema.HMAC, idsAte(n), semente) : null;
+        System.out.println(algoritmo + "(" + m + "), n = " + n + ", " + execucoes + " execuções por cenário, prazo "
+                + prazoRodadaMs + " ms, latência " + String.join("-", latencia) + " ms");
+        System.out.println("cenário                     traidores  acordo  validade  p50 (ms)  p99 (ms)  máx (ms)  perdidas/exec");
+        for (Map.Entry<String, Falhas> rede : redes.entrySet()) {
+            SimulacaoDiscreta simulacao = criar(latencia, prazoRodadaMs, semente, chaves).comFalhas(rede.getValue());
+            medir(rede.getKey(), simulacao, n, m, 0, execucoes, semente);
+        }
+        for (EstrategiaTraidor estrategia : estrategias) {
+            SimulacaoDiscreta simulacao = criar(latencia, prazoRodadaMs, semente, chaves).comEstrategiaTraidor(estrategia);
+            medir(estrategia.toString(), simulacao, n, m, m, execucoes, semente);
+        }
+    }
+
+    private static SimulacaoDiscreta criar(String[] latencia, long prazoRodadaMs, long semente, ChavesAssinatura chaves) {
+        // A mesma semente em todos os cenários: as mesmas latências e os mesmos traidores sorteados
+        SimulacaoDiscreta simulacao = new SimulacaoDiscreta(new Random(semente),
+                (long) (Double.parseDouble(latencia[0]) * 1000),
+                (long) (Double.parseDouble(latencia[latencia.length - 1]) * 1000),
+                0.0, prazoRodadaMs * 1000);
+        return chaves != null ? simulacao.comAssinaturas(chaves) : simulacao;
+    }
+
+    private static void medir(String cenario, SimulacaoDiscreta simulacao, int n, int m, int traidores, int execucoes,
+                              long semente) {
+        Random sorteioTraidores = new Random(semente + n);
+        Histograma tempos = new Histograma();
+        int acordos = 0;
+        int validas = 0;
+        long perdidas = 0;
+        for (int e = 0; e < execucoes; e++) {
+            boolean[] traidor = new boolean[n];
+            for (int k = 0; k < traidores; ) {
+                int id = sorteioTraidores.nextInt(n);
+                if (!traidor[id]) {
+                    traidor[id] = true;
+                    k++;
+                }
+            }
+            SimulacaoDiscreta.Resultado r = simulacao.executar(n, m, traidor);
+            acordos += r.acordo ? 1 : 0;
+            validas += r.validade ? 1 : 0;
+            perdidas += r.perdidas;
+            tempos.registrar(r.tempoVirtualMicros);
+        }
+        System.out.printf("%-27s %9d %6.1f%% %8.1f%% %9.1f %9.1f %9.1f %14.1f%n", cenario, traidores,
+                100.0 * acordos / execucoes, 100.0 * validas / execucoes, tempos.percentil(0.50) / 1000.0,
+                tempos.percentil(0.99) / 1000.0, tempos.getMaximo() / 1000.0, (double) perdidas / execucoes);
+    }
+
+    private static int[] idsAte(int n) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+        }
+        return ids;
+    }
+}
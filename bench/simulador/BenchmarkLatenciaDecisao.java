@@ -0,0 +1,68 @@
+package simulador;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sobe um cluster de n processos na mesma JVM (sem interface) e mede a
+ * latência de ponta a ponta da decisão de cada Tenente, de iniciar() até o
+ * voto, nos modos DEMONSTRACAO e RAPIDO.
+ *
+ * Uso: java simulador.BenchmarkLatenciaDecisao [n] [m] [portaBase] [modos]
+ */
+public class BenchmarkLatenciaDecisao {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int portaBase = args.length > 2 ? Integer.parseInt(args[2]) : 9600;
+        String modos = args.length > 3 ? args[3] : "DEMONSTRACAO,RAPIDO";
+
+        System.out.println("modo           n   m   decididos  media(ms)  max(ms)");
+        for (String modo : modos.split(",")) {
+            executar(ModoExecucao.valueOf(modo.trim()), n, m, portaBase);
+            portaBase += n;
+        }
+    }
+
+    private static void executar(ModoExecucao modo, int n, int m, int portaBase) throws Exception {
+        Map<Integer, String[]> mapaRede = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            mapaRede.put(id, new String[]{"127.0.0.1", String.valueOf(portaBase + id)});
+        }
+
+        List<Processo> processos = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int id = 0; id < n; id++) {
+            OpcoesProcesso opcoes = new OpcoesProcesso().comModoExecucao(modo).comMaxTraidores(m);
+            Processo p = new Processo(id, 0, false, mapaRede, null, opcoes);
+            processos.add(p);
+            threads.add(new Thread(p::iniciar));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        int decididos = 0;
+        long soma = 0;
+        long maximo = 0;
+        for (Processo p : processos) {
+            long latencia = p.getLatenciaDecisaoNanos();
+            if (latencia >= 0) {
+                decididos++;
+                soma += latencia;
+                maximo = Math.max(maximo, latencia);
+            }
+        }
+        System.out.printf("%-13s  %2d  %2d  %9d  %9.1f  %7.1f%n", modo, n, m, decididos,
+                decididos > 0 ? (double) TimeUnit.NANOSECONDS.toMicros(soma / decididos) / 1000 : 0.0,
+                TimeUnit.NANOSECONDS.toMicros(maximo) / 1000.0);
+        Thread.sleep(500);
+    }
+}
@@ -0,0 +1,63 @@
+package simulador;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Vazão do LogDecisoes ao anexar decisões e tempo para relê-lo. Para cada
+ * tamanho de lote, anexa 'decisoes' decisões numa thread e espera o disco
+ * (aguardarDuravel) a cada lote, como um Tenente que entrega várias
+ * instâncias de uma vez; o lote 0 só espera no fim. Depois fecha o log,
+ * abre de novo (a recuperação depois de uma queda) e confere todas as
+ * decisões relidas.
+ *
+ * Uso: java simulador.BenchmarkLogDecisoes [decisoes] [lote1,lote2,...] [pasta]
+ */
+public class BenchmarkLogDecisoes {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int decisoes = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String[] lotes = (args.length > 1 ? args[1] : "0,1024,64,8").split(",");
+        File pasta = new File(args.length > 2 ? args[2] : System.getProperty("java.io.tmpdir"));
+
+        System.out.println(decisoes + " decisões em " + pasta.getAbsolutePath());
+        System.out.println(" lote   decisões/s   forces   MB no log   recuperação (ms)   relidas/s   conferidas");
+        for (String texto : lotes) {
+            int lote = Integer.parseInt(texto.trim());
+            File arquivo = new File(pasta, "benchmark-decisoes.log");
+            LogDecisoes.apagar(arquivo);
+
+            LogDecisoes log = LogDecisoes.abrir(arquivo);
+            long inicio = System.nanoTime();
+            long posicao = 0;
+            for (int k = 1; k <= decisoes; k++) {
+                posicao = log.anexarDecisao(k, ordem(k));
+                if (lote > 0 && k % lote == 0) {
+                    log.aguardarDuravel(posicao);
+                }
+            }
+            log.aguardarDuravel(posicao);
+            double vazao = decisoes * 1e9 / (System.nanoTime() - inicio);
+            long forces = log.getForces();
+            long bytes = log.getTamanho();
+            log.fechar();
+
+            inicio = System.nanoTime();
+            LogDecisoes relido = LogDecisoes.abrir(arquivo);
+            long nanos = System.nanoTime() - inicio;
+            int certas = 0;
+            for (int k = 1; k <= decisoes; k++) {
+                certas += relido.decisao(k) == ordem(k) ? 1 : 0;
+            }
+            relido.fechar();
+            LogDecisoes.apagar(arquivo);
+            System.out.printf("%5s %12.0f %8d %11.1f %18.1f %11.0f   %s%n", lote == 0 ? "fim" : String.valueOf(lote),
+                    vazao, forces, bytes / 1048576.0, nanos / 1e6, relido.getRegistrosRecuperados() * 1e9 / nanos,
+                    certas == decisoes ? "ok" : (decisoes - certas) + " ERRADAS");
+        }
+    }
+
+    private static Ordem ordem(int k) {
+        return k % 3 == 0 ? Ordem.RECUAR : Ordem.ATACAR;
+    }
+}
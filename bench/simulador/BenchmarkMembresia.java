@@ -0,0 +1,67 @@
+package simulador;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Custo de achar o endereço de um destino a cada envio: pelo mapa de rede
+ * (Map<Integer, String[]>, parseInt da porta e um InetSocketAddress novo,
+ * que consulta o cache de nomes da JVM) e pela Visao da Membresia (um
+ * acesso ao vetor de endereços já resolvidos). Mede também quanto leva
+ * montar uma visão nova, como numa recarga do config.txt.
+ *
+ * Uso: java simulador.BenchmarkMembresia [processos] [consultas] [host]
+ */
+public class BenchmarkMembresia {
+
+    // Evita que o JIT elimine o trabalho medido
+    private static long sumidouro;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int consultas = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        String host = args.length > 2 ? args[2] : "localhost";
+
+        Map<Integer, String[]> mapaRede = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            mapaRede.put(id, new String[]{host, String.valueOf(8000 + id)});
+        }
+
+        System.out.println(n + " processos em " + host + ", " + consultas + " consultas");
+        System.out.println("consulta                      ns/consulta");
+        for (int aquecimento = 0; aquecimento < 3; aquecimento++) {
+            porMapa(mapaRede, n, consultas);
+            porVisao(Membresia.de(mapaRede).getVisao(), n, consultas);
+        }
+        System.out.printf("%-28s %12.1f%n", "mapa + parseInt + resolver", porMapa(mapaRede, n, consultas));
+        System.out.printf("%-28s %12.1f%n", "Membresia.Visao", porVisao(Membresia.de(mapaRede).getVisao(), n, consultas));
+
+        int recargas = 200;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < recargas; i++) {
+            sumidouro += Membresia.de(mapaRede).getVisao().getParticipantes().length;
+        }
+        System.out.printf("montar uma visão de %d: %.1f µs%n", n, (System.nanoTime() - inicio) / 1e3 / recargas);
+        if (sumidouro == 42) {
+            System.out.println();
+        }
+    }
+
+    private static double porMapa(Map<Integer, String[]> mapaRede, int n, int consultas) {
+        long inicio = System.nanoTime();
+        for (int i = 0; i < consultas; i++) {
+            String[] dest = mapaRede.get(i % n);
+            sumidouro += new InetSocketAddress(dest[0], Integer.parseInt(dest[1])).getPort();
+        }
+        return (double) (System.nanoTime() - inicio) / consultas;
+    }
+
+    private static double porVisao(Membresia.Visao visao, int n, int consultas) {
+        long inicio = System.nanoTime();
+        for (int i = 0; i < consultas; i++) {
+            sumidouro += visao.endereco(i % n).getPort();
+        }
+        return (double) (System.nanoTime() - inicio) / consultas;
+    }
+}
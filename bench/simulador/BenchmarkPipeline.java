@@ -0,0 +1,93 @@
+package simulador;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão de decisões de um cluster de NoConsenso na mesma JVM, variando a
+ * janela de instâncias em andamento. Com janela 1 cada decisão espera a
+ * anterior (como um Processo por decisão, mas reaproveitando as conexões);
+ * com janelas maiores as rodadas de várias instâncias se sobrepõem.
+ *
+ * Uso: java simulador.BenchmarkPipeline [n] [m] [propostas] [janelas] [portaBase]
+ * O transporte vem de -Dsimulador.transporte (BLOQUEANTE ou NIO).
+ */
+public class BenchmarkPipeline {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int propostas = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        String[] janelas = (args.length > 3 ? args[3] : "1,2,4,8,16,32").split(",");
+        int portaBase = args.length > 4 ? Integer.parseInt(args[4]) : 9700;
+
+        System.out.println("OM(" + m + "), n = " + n + ", " + propostas + " propostas, transporte "
+                + ModoTransporte.daPropriedade());
+        System.out.println("janela  decisões/s  tempo(ms)  divergências  rodadas expiradas");
+        for (String janela : janelas) {
+            executar(n, m, propostas, Integer.parseInt(janela.trim()), portaBase);
+            portaBase += n; // Evita portas ainda em TIME_WAIT
+        }
+    }
+
+    private static void executar(int n, int m, int propostas, int janela, int portaBase) throws Exception {
+        Map<Integer, String[]> mapaRede = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            mapaRede.put(id, new String[]{"127.0.0.1", String.valueOf(portaBase + id)});
+        }
+        OpcoesProcesso opcoes = new OpcoesProcesso()
+                .comMaxTraidores(m)
+                .comModoTransporte(ModoTransporte.daPropriedade())
+                .comJanela(janela);
+
+        // decisoes[tenente][instancia - 1] = código da ordem entregue
+        byte[][] decisoes = new byte[n][propostas];
+        CountDownLatch entregues = new CountDownLatch((n - 1) * propostas);
+        List<NoConsenso> nos = new ArrayList<>();
+        for (int id = 0; id < n; id++) {
+            byte[] minhas = decisoes[id];
+            nos.add(new NoConsenso(id, 0, false, mapaRede, opcoes, (instancia, decisao) -> {
+                if (instancia <= minhas.length) {
+                    minhas[(int) instancia - 1] = decisao.codigo();
+                    entregues.countDown();
+                }
+            }));
+        }
+        for (NoConsenso no : nos) {
+            no.iniciar();
+        }
+
+        NoConsenso comandante = nos.get(0);
+        comandante.aguardarProntos(opcoes.getPrazoProntidaoMs());
+        long inicio = System.nanoTime();
+        for (int i = 0; i < propostas; i++) {
+            comandante.propor((i % 2 == 0) ? Ordem.ATACAR : Ordem.RECUAR);
+        }
+        boolean completo = entregues.await(120, TimeUnit.SECONDS);
+        long duracao = System.nanoTime() - inicio;
+
+        int divergencias = 0;
+        long expiradas = 0;
+        for (int id = 1; id < n; id++) {
+            for (int i = 0; i < propostas; i++) {
+                if (decisoes[id][i] != decisoes[1][i]) {
+                    divergencias++;
+                }
+            }
+            expiradas += nos.get(id).getRodadasExpiradas();
+        }
+
+        System.out.printf("%6d  %10.0f  %9d  %12d  %17d%s%n", janela, propostas / (duracao / 1e9),
+                TimeUnit.NANOSECONDS.toMillis(duracao), divergencias, expiradas,
+                completo ? "" : "  (incompleto)");
+
+        for (NoConsenso no : nos) {
+            no.desligar();
+        }
+        Thread.sleep(500);
+    }
+}
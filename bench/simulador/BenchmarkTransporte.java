@@ -0,0 +1,90 @@
+package simulador;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sobe n transportes na mesma JVM e faz uma troca todos-para-todos (como a
+ * Rodada 2), comparando os modos BLOQUEANTE e NIO em vazão, threads e heap.
+ *
+ * Uso: java simulador.BenchmarkTransporte [n1,n2,...] [rodadas] [portaBase]
+ * Para n = 512 são abertas ~260 mil conexões: aumente o 'ulimit -n' antes.
+ */
+public class BenchmarkTransporte {
+
+    public static void main(String[] args) throws Exception {
+        String[] tamanhos = (args.length > 0 ? args[0] : "4,64").split(",");
+        int rodadas = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int portaBase = args.length > 2 ? Integer.parseInt(args[2]) : 9200;
+
+        System.out.println("modo        n     mensagens  msgs/s      threads  heap(MB)");
+        for (String tamanho : tamanhos) {
+            int n = Integer.parseInt(tamanho.trim());
+            for (ModoTransporte modo : ModoTransporte.values()) {
+                executar(modo, n, rodadas, portaBase);
+                portaBase += n; // Evita portas ainda em TIME_WAIT
+            }
+        }
+    }
+
+    private static void executar(ModoTransporte modo, int n, int rodadas, int portaBase) throws Exception {
+        Map<Integer, String[]> mapaRede = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            mapaRede.put(id, new String[]{"127.0.0.1", String.valueOf(portaBase + id)});
+        }
+
+        List<Transporte> transportes = new ArrayList<>();
+        List<BlockingQueue<Mensagem>> filas = new ArrayList<>();
+        for (int id = 0; id < n; id++) {
+            BlockingQueue<Mensagem> fila = new LinkedBlockingQueue<>();
+            Transporte t = Transporte.criar(modo, portaBase + id, mapaRede, fila);
+            t.iniciarServidor();
+            transportes.add(t);
+            filas.add(fila);
+        }
+        Thread.sleep(500);
+
+        long esperadas = (long) n * (n - 1) * rodadas;
+        long inicio = System.nanoTime();
+        for (int r = 0; r < rodadas; r++) {
+            for (int origem = 0; origem < n; origem++) {
+                Mensagem msg = new Mensagem(origem, (r % 2 == 0) ? Ordem.ATACAR : Ordem.RECUAR);
+                for (int destino = 0; destino < n; destino++) {
+                    if (destino != origem) {
+                        transportes.get(origem).enviarMensagem(destino, msg);
+                    }
+                }
+            }
+        }
+
+        long recebidas = 0;
+        for (BlockingQueue<Mensagem> fila : filas) {
+            for (int i = 0; i < (n - 1) * rodadas; i++) {
+                if (fila.poll(30, TimeUnit.SECONDS) == null) {
+                    break; // Mensagem perdida: contabiliza o que chegou
+                }
+                recebidas++;
+            }
+        }
+        long duracao = System.nanoTime() - inicio;
+
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        System.gc();
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        System.out.printf("%-10s  %4d  %9d  %10.0f  %7d  %8.1f%s%n", modo, n, recebidas,
+                recebidas / (duracao / 1e9), threads, heap / 1e6,
+                recebidas < esperadas ? "  (perdidas: " + (esperadas - recebidas) + ")" : "");
+
+        for (Transporte t : transportes) {
+            t.desligarServidor();
+        }
+        Thread.sleep(500);
+    }
+}
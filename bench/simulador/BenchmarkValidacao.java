@@ -0,0 +1,113 @@
+package simulador;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Vazão do EstagioValidacao com 1, 2, 4 e 8 núcleos no ForkJoinPool,
+ * comparada com a validação feita na própria thread do protocolo. Cada
+ * mensagem é uma ordem do SM com dois saltos assinados (Comandante e
+ * remetente), em instâncias diferentes para que o cache não ajude; a
+ * ordem de chegada de cada remetente é conferida na saída.
+ *
+ * Os núcleos além dos que a máquina tem (availableProcessors) não ajudam:
+ * as threads só dividem o mesmo processador.
+ *
+ * Uso: java simulador.BenchmarkValidacao [nucleos1,nucleos2,...] [mensagens] [remetentes] [ED25519|HMAC]
+ */
+public class BenchmarkValidacao {
+
+    public static void main(String[] args) throws InterruptedException {
+        String[] listaNucleos = (args.length > 0 ? args[0] : "1,2,4,8").split(",");
+        int total = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int remetentes = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        ChavesAssinatura.Esquema esquema = args.length > 3
+                ? ChavesAssinatura.Esquema.valueOf(args[3].toUpperCase()) : ChavesAssinatura.Esquema.ED25519;
+
+        int[] ids = new int[remetentes + 1];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        ChavesAssinatura chaves = ChavesAssinatura.gerar(esquema, ids, 42L);
+        Mensagem[] mensagens = assinar(chaves, total, remetentes);
+
+        System.out.println(esquema + ", " + total + " mensagens de " + remetentes + " remetentes, "
+                + Runtime.getRuntime().availableProcessors() + " processador(es) disponível(is)");
+        System.out.println("validação            msgs/s   aceleração   ordem");
+        // Aquecimento: o Ed25519 leva alguns segundos para ser todo compilado pelo JIT
+        for (int i = 0; i < 3; i++) {
+            medirNaThread(chaves, mensagens);
+            medirEstagio(chaves, mensagens, 2);
+        }
+
+        double base = medirNaThread(chaves, mensagens);
+        System.out.printf("%-18s %9.0f %11.2fx   %s%n", "thread do protocolo", base, 1.0, "-");
+        for (String texto : listaNucleos) {
+            int nucleos = Integer.parseInt(texto.trim());
+            long inicio = System.nanoTime();
+            boolean emOrdem = medirEstagio(chaves, mensagens, nucleos);
+            double vazao = total * 1e9 / (System.nanoTime() - inicio);
+            System.out.printf("%-18s %9.0f %11.2fx   %s%n", "pool de " + nucleos, vazao, vazao / base,
+                    emOrdem ? "ok" : "FORA DE ORDEM");
+        }
+    }
+
+    /**
+     * Mensagens com o caminho (0, remetente), numeradas por instância
+     * crescente para cada remetente.
+     */
+    private static Mensagem[] assinar(ChavesAssinatura chaves, int total, int remetentes) {
+        VerificadorAssinaturas assinador = new VerificadorAssinaturas(chaves);
+        Mensagem[] mensagens = new Mensagem[total];
+        for (int i = 0; i < total; i++) {
+            int remetente = 1 + i % remetentes;
+            long caminho = Caminho.anexar(Caminho.de(0), remetente);
+            byte[][] assinaturas = {
+                    assinador.assinar(0, i, Ordem.ATACAR, Caminho.de(0)),
+                    assinador.assinar(remetente, i, Ordem.ATACAR, caminho)
+            };
+            mensagens[i] = new Mensagem(TipoMensagem.ORDEM, i, remetente, Ordem.ATACAR, 2, caminho, assinaturas);
+        }
+        return mensagens;
+    }
+
+    private static double medirNaThread(ChavesAssinatura chaves, Mensagem[] mensagens) {
+        VerificadorAssinaturas verificador = new VerificadorAssinaturas(chaves);
+        long inicio = System.nanoTime();
+        int validas = 0;
+        for (Mensagem msg : mensagens) {
+            validas += verificador.verificar(msg) ? 1 : 0;
+        }
+        if (validas != mensagens.length) {
+            throw new IllegalStateException("Assinaturas inválidas: " + (mensagens.length - validas));
+        }
+        return mensagens.length * 1e9 / (System.nanoTime() - inicio);
+    }
+
+    /**
+     * Passa todas as mensagens pelo estágio e retorna true se cada remetente
+     * chegou em ordem.
+     */
+    private static boolean medirEstagio(ChavesAssinatura chaves, Mensagem[] mensagens, int nucleos)
+            throws InterruptedException {
+        BlockingQueue<Mensagem> entrada = new LinkedBlockingQueue<>();
+        BlockingQueue<Mensagem> saida = new LinkedBlockingQueue<>();
+        EstagioValidacao estagio = new EstagioValidacao(entrada, saida,
+                EstagioValidacao.validador(new VerificadorAssinaturas(chaves)), nucleos);
+        estagio.iniciar();
+        for (Mensagem msg : mensagens) {
+            entrada.put(msg);
+        }
+        long[] ultima = new long[mensagens.length + 1];
+        Arrays.fill(ultima, -1);
+        boolean emOrdem = true;
+        for (int i = 0; i < mensagens.length; i++) {
+            Mensagem msg = saida.take();
+            emOrdem &= msg.getInstancia() > ultima[msg.getRemetenteId()];
+            ultima[msg.getRemetenteId()] = msg.getInstancia();
+        }
+        estagio.fechar();
+        return emOrdem;
+    }
+}
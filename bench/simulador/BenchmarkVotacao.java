@@ -0,0 +1,126 @@
+package simulador;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compara a apuração da votação final com HashMap, listas e contagens em
+ * Integer (como era feita em decidirVotoMajoritario) com a Votacao, que usa
+ * byte[] e int[] reaproveitados: ns/op e bytes alocados por decisão, para
+ * n de 4 a 1024.
+ *
+ * Uso: java simulador.BenchmarkVotacao [n1,n2,...] [decisoes]
+ */
+public class BenchmarkVotacao {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final int VARIEDADE = 64;
+
+    // Evita que o JIT elimine o trabalho medido
+    private static long sumidouro;
+
+    public static void main(String[] args) {
+        String[] tamanhos = (args.length > 0 ? args[0] : "4,16,64,256,1024").split(",");
+        long decisoes = args.length > 1 ? Long.parseLong(args[1]) : 2_000_000;
+
+        System.out.println("   n  apuração    ns/op      B/op");
+        for (String tamanho : tamanhos) {
+            int n = Integer.parseInt(tamanho.trim());
+            // Vetores de votos variados, com empates possíveis, para o JIT não reaproveitar o resultado
+            Random sorteio = new Random(n);
+            Ordem[][] vetores = new Ordem[VARIEDADE][n - 1];
+            for (Ordem[] vetor : vetores) {
+                for (int i = 0; i < vetor.length; i++) {
+                    vetor[i] = sorteio.nextBoolean() ? Ordem.ATACAR : Ordem.RECUAR;
+                }
+            }
+            // Cada decisão custa ~n operações: mantém o tempo total parecido entre os tamanhos
+            int iteracoes = (int) Math.max(1000, decisoes / n);
+
+            for (int aquecimento = 0; aquecimento < 3; aquecimento++) {
+                medirHashMap(vetores, iteracoes, n, false);
+                medirVotacao(vetores, iteracoes, n, false);
+            }
+            medirHashMap(vetores, iteracoes, n, true);
+            medirVotacao(vetores, iteracoes, n, true);
+        }
+        if (sumidouro == 42) {
+            System.out.println();
+        }
+    }
+
+    private static void medirHashMap(Ordem[][] vetores, int iteracoes, int n, boolean imprimir) {
+        long alocadoAntes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long inicio = System.nanoTime();
+        for (int i = 0; i < iteracoes; i++) {
+            sumidouro += apurarComHashMap(vetores[i % VARIEDADE]).ordinal();
+        }
+        long duracao = System.nanoTime() - inicio;
+        long alocado = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - alocadoAntes;
+        if (imprimir) {
+            imprimir(n, "hashmap", iteracoes, duracao, alocado);
+        }
+    }
+
+    private static void medirVotacao(Ordem[][] vetores, int iteracoes, int n, boolean imprimir) {
+        Votacao votacao = new Votacao(n - 1);
+        long alocadoAntes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long inicio = System.nanoTime();
+        for (int i = 0; i < iteracoes; i++) {
+            votacao.limpar();
+            for (Ordem voto : vetores[i % VARIEDADE]) {
+                votacao.votar(voto);
+            }
+            sumidouro += votacao.vencedor().ordinal();
+        }
+        long duracao = System.nanoTime() - inicio;
+        long alocado = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - alocadoAntes;
+        if (imprimir) {
+            imprimir(n, "votacao", iteracoes, duracao, alocado);
+        }
+    }
+
+    /**
+     * A apuração como era feita antes da Votacao (sem os logs).
+     */
+    private static Ordem apurarComHashMap(Ordem[] vetor) {
+        Map<Integer, Ordem> vetorDeValores = new HashMap<>();
+        for (int pid = 0; pid < vetor.length; pid++) {
+            vetorDeValores.put(pid, vetor[pid]);
+        }
+        List<Ordem> vetorOrdenado = new ArrayList<>();
+        for (int pid = 0; pid < vetor.length; pid++) {
+            if (vetorDeValores.containsKey(pid)) {
+                vetorOrdenado.add(vetorDeValores.get(pid));
+            }
+        }
+        sumidouro += vetorOrdenado.size();
+
+        Map<Ordem, Integer> contagem = new HashMap<>();
+        for (Ordem v : vetorDeValores.values()) {
+            contagem.put(v, contagem.getOrDefault(v, 0) + 1);
+        }
+        Ordem decisaoFinal = null;
+        int maxVotos = 0;
+        List<Ordem> opcoes = new ArrayList<>(contagem.keySet());
+        Collections.sort(opcoes);
+        for (Ordem opcao : opcoes) {
+            int votos = contagem.get(opcao);
+            if (votos > maxVotos) {
+                maxVotos = votos;
+                decisaoFinal = opcao;
+            }
+        }
+        return decisaoFinal;
+    }
+
+    private static void imprimir(int n, String nome, int iteracoes, long duracao, long alocado) {
+        System.out.printf("%4d  %-8s  %9.1f  %8d%n", n, nome, (double) duracao / iteracoes, alocado / iteracoes);
+    }
+}
@@ -0,0 +1,80 @@
+package simulador.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulador.Caminho;
+import simulador.ChavesAssinatura;
+import simulador.Mensagem;
+import simulador.Ordem;
+import simulador.TipoMensagem;
+import simulador.VerificadorAssinaturas;
+
+/**
+ * Custo de assinar um salto e de verificar uma cadeia de 4 saltos do SM(3),
+ * sem cache (toda assinatura passa pela criptografia) e com o cache do
+ * VerificadorAssinaturas aquecido.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AssinaturaJmh {
+    private static final int SALTOS = 4;
+
+    @Param({"ED25519", "HMAC"})
+    public String esquema;
+
+    private ChavesAssinatura chaves;
+    private VerificadorAssinaturas comCache;
+    private Mensagem cadeia;
+    private long instancia;
+
+    @Setup
+    public void preparar() {
+        int[] ids = new int[SALTOS];
+        for (int i = 0; i < SALTOS; i++) {
+            ids[i] = i;
+        }
+        chaves = ChavesAssinatura.gerar(ChavesAssinatura.Esquema.valueOf(esquema), ids, 42L);
+        VerificadorAssinaturas assinador = new VerificadorAssinaturas(chaves);
+        long caminho = Caminho.de(0);
+        byte[][] assinaturas = new byte[SALTOS][];
+        assinaturas[0] = assinador.assinar(0, 1L, Ordem.ATACAR, caminho);
+        for (int salto = 1; salto < SALTOS; salto++) {
+            caminho = Caminho.anexar(caminho, salto);
+            assinaturas[salto] = assinador.assinar(salto, 1L, Ordem.ATACAR, caminho);
+        }
+        cadeia = new Mensagem(TipoMensagem.ORDEM, 1L, SALTOS - 1, Ordem.ATACAR, SALTOS, caminho, assinaturas);
+        comCache = new VerificadorAssinaturas(chaves);
+        comCache.verificar(cadeia);
+    }
+
+    @Benchmark
+    public byte[] assinar() {
+        return comCache.assinar(0, ++instancia, Ordem.ATACAR, Caminho.de(0));
+    }
+
+    @Benchmark
+    public boolean verificarCadeiaSemCache() {
+        return new VerificadorAssinaturas(chaves).verificar(cadeia);
+    }
+
+    @Benchmark
+    public boolean verificarCadeiaComCache() {
+        return comCache.verificar(cadeia);
+    }
+}
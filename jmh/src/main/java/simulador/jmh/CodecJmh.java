@@ -0,0 +1,85 @@
+package simulador.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulador.Caminho;
+import simulador.CodecMensagem;
+import simulador.Mensagem;
+import simulador.Ordem;
+import simulador.TipoMensagem;
+
+/**
+ * Codificação e decodificação de uma Mensagem: CodecMensagem contra a
+ * serialização Java usada antes dele.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecJmh {
+    private Mensagem msg;
+    private ByteBuffer destino;
+    private ByteBuffer quadro;
+    private byte[] serializada;
+
+    @Setup
+    public void preparar() throws IOException {
+        msg = new Mensagem(TipoMensagem.ORDEM, 7L, 3, Ordem.RECUAR, 2, Caminho.anexar(Caminho.de(0), 3));
+        destino = ByteBuffer.allocate(CodecMensagem.TAMANHO_QUADRO);
+        quadro = ByteBuffer.allocate(CodecMensagem.TAMANHO_QUADRO);
+        CodecMensagem.codificar(msg, quadro);
+        serializada = serializar(msg);
+    }
+
+    @Benchmark
+    public int codificar() {
+        destino.clear();
+        CodecMensagem.codificar(msg, destino);
+        return destino.position();
+    }
+
+    @Benchmark
+    public Mensagem decodificar() {
+        quadro.position(4);
+        return CodecMensagem.decodificar(quadro, quadro.getInt(0));
+    }
+
+    @Benchmark
+    public byte[] serializarJava() throws IOException {
+        return serializar(msg);
+    }
+
+    @Benchmark
+    public Object desserializarJava() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serializada))) {
+            return in.readObject();
+        }
+    }
+
+    private static byte[] serializar(Mensagem msg) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(msg);
+        }
+        return bytes.toByteArray();
+    }
+}
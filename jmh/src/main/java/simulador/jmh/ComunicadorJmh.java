@@ -0,0 +1,92 @@
+package simulador.jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulador.Mensagem;
+import simulador.ModoTransporte;
+import simulador.Ordem;
+import simulador.Transporte;
+
+/**
+ * Envio e recebimento por loopback entre dois transportes (Comunicador ou
+ * ComunicadorNio): uma mensagem por vez (latência) e rajadas de 64 (vazão).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ComunicadorJmh {
+    private static final int RAJADA = 64;
+
+    @Param({"BLOQUEANTE", "NIO"})
+    public ModoTransporte modo;
+
+    @Param("9450")
+    public int portaBase;
+
+    private Transporte origem;
+    private Transporte destino;
+    private final BlockingQueue<Mensagem> filaDestino = new LinkedBlockingQueue<>();
+    private final Mensagem msg = new Mensagem(0, Ordem.ATACAR);
+
+    @Setup(Level.Trial)
+    public void preparar() throws InterruptedException {
+        Map<Integer, String[]> mapaRede = new HashMap<>();
+        mapaRede.put(0, new String[]{"127.0.0.1", String.valueOf(portaBase)});
+        mapaRede.put(1, new String[]{"127.0.0.1", String.valueOf(portaBase + 1)});
+        origem = Transporte.criar(modo, portaBase, mapaRede, new LinkedBlockingQueue<>());
+        destino = Transporte.criar(modo, portaBase + 1, mapaRede, filaDestino);
+        origem.iniciarServidor();
+        destino.iniciarServidor();
+        Thread.sleep(300);
+        // Abre a conexão persistente antes de medir
+        origem.enviarMensagem(1, msg);
+        filaDestino.take();
+    }
+
+    @TearDown(Level.Trial)
+    public void desligar() {
+        origem.desligarServidor();
+        destino.desligarServidor();
+    }
+
+    @Benchmark
+    public Mensagem enviarEReceber() throws InterruptedException {
+        origem.enviarMensagem(1, msg);
+        return filaDestino.take();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAJADA)
+    public Mensagem rajada() throws InterruptedException {
+        for (int i = 0; i < RAJADA; i++) {
+            origem.enviarMensagem(1, msg);
+        }
+        Mensagem ultima = null;
+        for (int i = 0; i < RAJADA; i++) {
+            ultima = filaDestino.take();
+        }
+        return ultima;
+    }
+}
@@ -0,0 +1,61 @@
+package simulador.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulador.Histograma;
+import simulador.Metricas;
+
+/**
+ * Custo das métricas no caminho quente: contar uma mensagem enviada e
+ * registrar uma latência, com uma e com quatro threads no mesmo objeto.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricasJmh {
+    private Metricas.ContadoresPar par;
+    private Histograma histograma;
+
+    @Setup
+    public void preparar() {
+        par = new Metricas(0).par(1);
+        histograma = new Histograma();
+    }
+
+    @Benchmark
+    public void contarEnvio() {
+        par.enviada(28);
+    }
+
+    @Benchmark
+    public void registrarLatencia() {
+        histograma.registrar(System.nanoTime() & 0xFFFFF);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void contarEnvio4Threads() {
+        par.enviada(28);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void registrarLatencia4Threads() {
+        histograma.registrar(System.nanoTime() & 0xFFFFF);
+    }
+}
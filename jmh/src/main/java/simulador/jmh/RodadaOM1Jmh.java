@@ -0,0 +1,91 @@
+package simulador.jmh;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulador.NoConsenso;
+import simulador.OpcoesProcesso;
+import simulador.Ordem;
+import simulador.RedeMemoria;
+import simulador.SimulacaoDiscreta;
+
+/**
+ * Uma execução completa do OM(1) com n generais, sem rede de verdade:
+ * <ul>
+ *   <li>simulacaoDiscreta: só a lógica do protocolo (InstanciaOM), numa thread,
+ *   com entrega imediata;</li>
+ *   <li>noConsenso: NoConsenso com threads sobre a RedeMemoria, do propor()
+ *   do Comandante até a confirmação dos Tenentes.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RodadaOM1Jmh {
+
+    @Param({"4", "16", "64"})
+    public int n;
+
+    private SimulacaoDiscreta simulacao;
+    private boolean[] semTraidores;
+    private List<NoConsenso> nos;
+
+    @Setup(Level.Trial)
+    public void preparar() throws InterruptedException {
+        simulacao = new SimulacaoDiscreta(new Random(1), 0, 0, 0.0, 1_000_000);
+        semTraidores = new boolean[n];
+
+        Map<Integer, String[]> mapaRede = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            mapaRede.put(id, new String[]{"memoria", String.valueOf(id)});
+        }
+        OpcoesProcesso opcoes = new OpcoesProcesso().comJanela(1).comRedeMemoria(new RedeMemoria(1));
+        nos = new ArrayList<>();
+        for (int id = 0; id < n; id++) {
+            nos.add(new NoConsenso(id, 0, false, mapaRede, opcoes, null));
+        }
+        for (NoConsenso no : nos) {
+            no.iniciar();
+        }
+        nos.get(0).aguardarProntos(opcoes.getPrazoProntidaoMs());
+    }
+
+    @TearDown(Level.Trial)
+    public void desligar() {
+        for (NoConsenso no : nos) {
+            no.desligar();
+        }
+    }
+
+    @Benchmark
+    public SimulacaoDiscreta.Resultado simulacaoDiscreta() {
+        return simulacao.executar(n, 1, semTraidores);
+    }
+
+    @Benchmark
+    public boolean noConsenso() throws InterruptedException {
+        nos.get(0).propor(Ordem.ATACAR);
+        return nos.get(0).aguardarConclusao(10_000);
+    }
+}
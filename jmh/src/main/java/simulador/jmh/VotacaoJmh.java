@@ -0,0 +1,63 @@
+package simulador.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulador.Ordem;
+import simulador.Votacao;
+
+/**
+ * A apuração de decidirVotoMajoritario (Votacao) para n generais. Rode com
+ * "-prof gc" para ver os bytes alocados por decisão.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VotacaoJmh {
+    private static final int VARIEDADE = 64;
+
+    @Param({"4", "16", "64", "256", "1024"})
+    public int n;
+
+    private Ordem[][] vetores;
+    private Votacao votacao;
+    private int proximo;
+
+    @Setup
+    public void preparar() {
+        // Vetores variados, com empates possíveis, para o JIT não reaproveitar o resultado
+        Random sorteio = new Random(n);
+        vetores = new Ordem[VARIEDADE][n - 1];
+        for (Ordem[] vetor : vetores) {
+            for (int i = 0; i < vetor.length; i++) {
+                vetor[i] = sorteio.nextBoolean() ? Ordem.ATACAR : Ordem.RECUAR;
+            }
+        }
+        votacao = new Votacao(n - 1);
+    }
+
+    @Benchmark
+    public Ordem apurar() {
+        Ordem[] vetor = vetores[proximo++ & (VARIEDADE - 1)];
+        votacao.limpar();
+        for (Ordem voto : vetor) {
+            votacao.votar(voto);
+        }
+        return votacao.vencedor();
+    }
+}
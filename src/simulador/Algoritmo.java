@@ -0,0 +1,14 @@
+package simulador;
+
+/**
+ * Algoritmos de consenso disponíveis.
+ */
+public enum Algoritmo {
+    /** Mensagens orais (InstanciaOM): exige n > 3m e retransmite todos os caminhos. */
+    OM,
+    /**
+     * Mensagens assinadas (InstanciaSM): tolera m traidores com n >= m + 2 e
+     * cada Tenente retransmite cada valor no máximo uma vez. Exige ChavesAssinatura.
+     */
+    SM
+}
@@ -0,0 +1,122 @@
+package simulador;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Locale;
+
+/**
+ * Uso de CPU e de heap da JVM atual durante uma medição: tempo de CPU do
+ * processo, maior heap ocupado (amostrado a cada INTERVALO_MS numa thread
+ * daemon) e coletas de lixo, tudo contado a partir de iniciar().
+ */
+public class AmostradorRecursos {
+
+    public static final long INTERVALO_MS = 100;
+    /** Os nomes dos campos de formatar(), na mesma ordem. */
+    public static final String CAMPOS = "cpu_s cpu_nucleos heap_max_mb coletas coletas_ms";
+
+    private final MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+    private volatile boolean ativo;
+    private volatile long heapMaximo;
+    private long inicioNanos;
+    private long cpuInicial;
+    private long coletasIniciais;
+    private long tempoColetasInicial;
+    private Thread thread;
+
+    /**
+     * Começa (ou recomeça, zerando tudo) a medição.
+     */
+    public synchronized void iniciar() {
+        inicioNanos = System.nanoTime();
+        cpuInicial = cpuNanos();
+        coletasIniciais = coletas();
+        tempoColetasInicial = tempoColetasMs();
+        heapMaximo = memoria.getHeapMemoryUsage().getUsed();
+        if (thread == null) {
+            ativo = true;
+            thread = new Thread(this::amostrar, "amostrador-recursos");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public synchronized void fechar() {
+        ativo = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void amostrar() {
+        try {
+            while (ativo) {
+                heapMaximo = Math.max(heapMaximo, memoria.getHeapMemoryUsage().getUsed());
+                Thread.sleep(INTERVALO_MS);
+            }
+        } catch (InterruptedException e) {
+            // fechar()
+        }
+    }
+
+    /** Tempo de CPU do processo desde iniciar(), ou -1 se a JVM não informa. */
+    public long getCpuNanos() {
+        long agora = cpuNanos();
+        return agora < 0 ? -1 : agora - cpuInicial;
+    }
+
+    /** Fração de um núcleo usada desde iniciar() (1,0 = um núcleo inteiro). */
+    public double getUsoCpu() {
+        long cpu = getCpuNanos();
+        long decorrido = System.nanoTime() - inicioNanos;
+        return cpu < 0 || decorrido <= 0 ? -1 : (double) cpu / decorrido;
+    }
+
+    public long getHeapMaximo() {
+        return Math.max(heapMaximo, memoria.getHeapMemoryUsage().getUsed());
+    }
+
+    public long getColetas() {
+        return coletas() - coletasIniciais;
+    }
+
+    public long getTempoColetasMs() {
+        return tempoColetasMs() - tempoColetasInicial;
+    }
+
+    /**
+     * Uma linha com os campos separados por espaço, na ordem de CAMPOS:
+     * segundos de CPU, uso de CPU (núcleos), heap máximo (MB), coletas e ms
+     * em coletas.
+     */
+    public String formatar() {
+        return String.format(Locale.ROOT, "%.2f %.2f %.1f %d %d", getCpuNanos() / 1e9, getUsoCpu(),
+                getHeapMaximo() / 1e6, getColetas(), getTempoColetasMs());
+    }
+
+    private static long cpuNanos() {
+        OperatingSystemMXBean so = ManagementFactory.getOperatingSystemMXBean();
+        if (so instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) so).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static long coletas() {
+        long total = 0;
+        for (GarbageCollectorMXBean coletor : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, coletor.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long tempoColetasMs() {
+        long total = 0;
+        for (GarbageCollectorMXBean coletor : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, coletor.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,324 @@
+package simulador;
+
+import java.util.Arrays;
+
+/**
+ * Árvore EIG (exponential information gathering) de um Tenente no OM(m).
+ *
+ * O nível k guarda, para cada caminho [Comandante, a1, ..., a(k-1)], o valor
+ * que chegou por ele. Como o Tenente nunca recebe caminhos que passam por ele
+ * mesmo, cada nível tem (n-2)(n-3)...(n-k) posições. Em vez de objetos por
+ * nó, cada nível é um byte[] indexado pelo posto do caminho (base mista), e
+ * mensagens repetidas para o mesmo caminho são descartadas.
+ *
+ * Na última rodada, iniciarApuracao() passa a manter, para cada caminho dos
+ * níveis 1 a m, quantos filhos já resolvem para cada ordem e quantos ainda
+ * dependem de mensagens que faltam. Cada mensagem do nível m + 1 atualiza
+ * esses contadores subindo pela árvore, e getDecisaoGarantida() diz quando a
+ * raiz já não pode mudar, chegue o que chegar.
+ */
+public class ArvoreEIG {
+    private static final byte AUSENTE = -1;
+
+    private final int comandanteId;
+    private final int m;
+    // Tenentes que podem aparecer nos caminhos (todos menos o Comandante e eu), ordenados
+    private final int[] outros;
+    // indiceDe[id] = posição do id em 'outros', ou -1; evita busca binária a cada salto
+    private final int[] indiceDe;
+    // valores[k - 1][posto] = código da Ordem recebida pelo caminho de tamanho k
+    private final byte[][] valores;
+    private final int[] recebidos;
+
+    // Apuração incremental da última rodada (níveis 1..m), só depois de iniciarApuracao()
+    private int[][] votosAtacar;
+    private int[][] votosRecuar;
+    private int[][] pendentes;
+    private byte[][] garantido;
+
+    /**
+     * Acesso a um caminho de um nível e ao valor guardado nele (null se não chegou).
+     */
+    public interface VisitanteCaminho {
+        void visitar(long caminho, Ordem valor);
+    }
+
+    public ArvoreEIG(int[] participantes, int comandanteId, int meuId, int m) {
+        if (m < 1 || m >= Caminho.MAX_SALTOS) {
+            throw new IllegalArgumentException("m deve estar entre 1 e " + (Caminho.MAX_SALTOS - 1) + ": " + m);
+        }
+        this.comandanteId = comandanteId;
+        this.m = m;
+        this.outros = Arrays.stream(participantes)
+                .filter(pid -> pid != comandanteId && pid != meuId)
+                .sorted()
+                .toArray();
+        this.indiceDe = new int[Arrays.stream(participantes).max().orElse(0) + 1];
+        Arrays.fill(indiceDe, -1);
+        for (int i = 0; i < outros.length; i++) {
+            indiceDe[outros[i]] = i;
+        }
+
+        this.valores = new byte[m + 1][];
+        this.recebidos = new int[m + 1];
+        int tamanhoNivel = 1;
+        for (int k = 1; k <= m + 1; k++) {
+            if (k > 1) {
+                tamanhoNivel *= Math.max(outros.length - (k - 2), 0);
+            }
+            valores[k - 1] = new byte[tamanhoNivel];
+            Arrays.fill(valores[k - 1], AUSENTE);
+        }
+    }
+
+    /**
+     * Guarda o valor recebido pelo caminho. Retorna false se o caminho é
+     * inválido para este Tenente ou se já havia um valor para ele.
+     */
+    public boolean registrar(long caminho, Ordem valor) {
+        int nivel = Caminho.tamanho(caminho);
+        if (nivel < 1 || nivel > m + 1 || Caminho.salto(caminho, 0) != comandanteId) {
+            return false;
+        }
+        int posto = posto(caminho, nivel);
+        if (posto < 0 || valores[nivel - 1][posto] != AUSENTE) {
+            return false;
+        }
+        valores[nivel - 1][posto] = valor.codigo();
+        recebidos[nivel - 1]++;
+        if (garantido != null && nivel == m + 1) {
+            apurar(m, posto / filhos(m), valor);
+        }
+        return true;
+    }
+
+    /**
+     * Começa a apuração incremental, com os níveis 1 a m já fechados (o que
+     * não chegou neles vale 'padrao'). Deve ser chamado no início da última
+     * rodada; daí em diante registrar() a mantém atualizada.
+     */
+    public void iniciarApuracao(Ordem padrao) {
+        votosAtacar = new int[m][];
+        votosRecuar = new int[m][];
+        pendentes = new int[m][];
+        garantido = new byte[m][];
+        for (int nivel = m; nivel >= 1; nivel--) {
+            int tamanho = valores[nivel - 1].length;
+            votosAtacar[nivel - 1] = new int[tamanho];
+            votosRecuar[nivel - 1] = new int[tamanho];
+            pendentes[nivel - 1] = new int[tamanho];
+            garantido[nivel - 1] = new byte[tamanho];
+            Arrays.fill(garantido[nivel - 1], AUSENTE);
+            int filhos = filhos(nivel);
+            for (int posto = 0; posto < tamanho; posto++) {
+                contar(nivel, posto, valorOuPadrao(valores[nivel - 1][posto], padrao));
+                for (int filho = posto * filhos; filho < (posto + 1) * filhos; filho++) {
+                    byte valorFilho = nivel == m ? valores[nivel][filho] : garantido[nivel][filho];
+                    if (valorFilho == AUSENTE) {
+                        pendentes[nivel - 1][posto]++;
+                    } else {
+                        contar(nivel, posto, Ordem.doCodigo(valorFilho));
+                    }
+                }
+                garantir(nivel, posto);
+            }
+        }
+    }
+
+    /**
+     * O valor que a raiz (a decisão do OM(m)) terá, se as mensagens que faltam
+     * já não puderem mudá-lo; null se ainda puderem, ou sem iniciarApuracao().
+     */
+    public Ordem getDecisaoGarantida() {
+        return garantido == null || garantido[0][0] == AUSENTE ? null : Ordem.doCodigo(garantido[0][0]);
+    }
+
+    /**
+     * Um filho do caminho (nivel, posto) resolveu para 'valor': atualiza a
+     * contagem e, se isso garantir o valor do caminho, sobe para o pai.
+     */
+    private void apurar(int nivel, int posto, Ordem valor) {
+        while (true) {
+            pendentes[nivel - 1][posto]--;
+            contar(nivel, posto, valor);
+            if (garantido[nivel - 1][posto] != AUSENTE || !garantir(nivel, posto) || nivel == 1) {
+                return;
+            }
+            valor = Ordem.doCodigo(garantido[nivel - 1][posto]);
+            nivel--;
+            posto /= filhos(nivel);
+        }
+    }
+
+    /**
+     * Marca o caminho como garantido se os filhos pendentes, resolvendo todos
+     * para a ordem que perde, ainda não virarem a maioria (o desempate de
+     * maioria() favorece ATACAR). Retorna true se marcou agora.
+     */
+    private boolean garantir(int nivel, int posto) {
+        if (garantido[nivel - 1][posto] != AUSENTE) {
+            return false;
+        }
+        int atacar = votosAtacar[nivel - 1][posto];
+        int recuar = votosRecuar[nivel - 1][posto];
+        int faltam = pendentes[nivel - 1][posto];
+        if (atacar >= recuar + faltam) {
+            garantido[nivel - 1][posto] = Ordem.ATACAR.codigo();
+        } else if (recuar > atacar + faltam) {
+            garantido[nivel - 1][posto] = Ordem.RECUAR.codigo();
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private void contar(int nivel, int posto, Ordem valor) {
+        if (valor == Ordem.ATACAR) {
+            votosAtacar[nivel - 1][posto]++;
+        } else {
+            votosRecuar[nivel - 1][posto]++;
+        }
+    }
+
+    private Ordem valorOuPadrao(byte codigo, Ordem padrao) {
+        return codigo == AUSENTE ? padrao : Ordem.doCodigo(codigo);
+    }
+
+    /**
+     * Quantos filhos cada caminho do nível tem: os Tenentes que ainda não
+     * estão nele.
+     */
+    private int filhos(int nivel) {
+        return outros.length - (nivel - 1);
+    }
+
+    /**
+     * Valor recebido pelo caminho, ou null se ainda não chegou.
+     */
+    public Ordem valor(long caminho) {
+        int nivel = Caminho.tamanho(caminho);
+        if (nivel < 1 || nivel > m + 1) {
+            return null;
+        }
+        int posto = posto(caminho, nivel);
+        if (posto < 0 || valores[nivel - 1][posto] == AUSENTE) {
+            return null;
+        }
+        return Ordem.doCodigo(valores[nivel - 1][posto]);
+    }
+
+    /**
+     * Quantos caminhos do nível este Tenente deve receber.
+     */
+    public int esperados(int nivel) {
+        return valores[nivel - 1].length;
+    }
+
+    public int recebidos(int nivel) {
+        return recebidos[nivel - 1];
+    }
+
+    /**
+     * Bytes ocupados pelos valores de todos os níveis.
+     */
+    public int tamanhoEmBytes() {
+        int total = 0;
+        for (byte[] nivel : valores) {
+            total += nivel.length;
+        }
+        return total;
+    }
+
+    /**
+     * Percorre todos os caminhos do nível, na ordem do posto.
+     */
+    public void paraCadaCaminho(int nivel, VisitanteCaminho visitante) {
+        percorrer(Caminho.de(comandanteId), 1, nivel, visitante);
+    }
+
+    private void percorrer(long caminho, int tamanho, int nivel, VisitanteCaminho visitante) {
+        if (tamanho == nivel) {
+            visitante.visitar(caminho, valor(caminho));
+            return;
+        }
+        for (int outro : outros) {
+            if (!Caminho.contem(caminho, outro)) {
+                percorrer(Caminho.anexar(caminho, outro), tamanho + 1, nivel, visitante);
+            }
+        }
+    }
+
+    /**
+     * Valor decidido para o caminho pelo OM(m - nivel + 1) correspondente: a
+     * maioria entre o valor que eu recebi por ele e os valores resolvidos de
+     * cada filho. Valores ausentes contam como 'padrao'.
+     */
+    public Ordem resolver(long caminho, Ordem padrao) {
+        Ordem proprio = valor(caminho);
+        if (proprio == null) {
+            proprio = padrao;
+        }
+        int nivel = Caminho.tamanho(caminho);
+        if (nivel == m + 1) {
+            return proprio;
+        }
+
+        // Só existem duas ordens, então dois contadores bastam (sem alocar por nó)
+        int votosAtacar = 0;
+        int votosRecuar = 0;
+        if (proprio == Ordem.ATACAR) {
+            votosAtacar++;
+        } else {
+            votosRecuar++;
+        }
+        for (int outro : outros) {
+            if (!Caminho.contem(caminho, outro)) {
+                if (resolver(Caminho.anexar(caminho, outro), padrao) == Ordem.ATACAR) {
+                    votosAtacar++;
+                } else {
+                    votosRecuar++;
+                }
+            }
+        }
+        return maioria(votosAtacar, votosRecuar);
+    }
+
+    /**
+     * Maioria com o mesmo desempate da votação final: em caso de empate vence
+     * a primeira ordem em ordem alfabética (ATACAR).
+     */
+    static Ordem maioria(int votosAtacar, int votosRecuar) {
+        return votosAtacar >= votosRecuar ? Ordem.ATACAR : Ordem.RECUAR;
+    }
+
+    /**
+     * Posição do caminho dentro do seu nível, ou -1 se ele não pertence a esta
+     * árvore (ID desconhecido, repetido, ou o próprio Tenente no caminho).
+     */
+    private int posto(long caminho, int nivel) {
+        int posto = 0;
+        for (int j = 1; j < nivel; j++) {
+            int indice = indice(Caminho.salto(caminho, j));
+            if (indice < 0) {
+                return -1;
+            }
+            // O dígito é o índice entre os tenentes ainda não usados no caminho
+            int digito = indice;
+            for (int l = 1; l < j; l++) {
+                int anterior = indice(Caminho.salto(caminho, l));
+                if (anterior == indice) {
+                    return -1;
+                }
+                if (anterior < indice) {
+                    digito--;
+                }
+            }
+            posto = posto * (outros.length - (j - 1)) + digito;
+        }
+        return posto;
+    }
+
+    private int indice(int id) {
+        return (id >= 0 && id < indiceDe.length) ? indiceDe[id] : -1;
+    }
+}
@@ -0,0 +1,123 @@
+package simulador;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Separa as mensagens da fila do processo em uma caixa por rodada, para que
+ * quem espera a rodada r só veja mensagens da rodada r. Mensagens que chegam
+ * adiantadas ficam guardadas na caixa da rodada delas; as que chegam depois
+ * que a rodada foi fechada são descartadas, pois o processo já retransmitiu o
+ * valor padrão no lugar delas.
+ *
+ * Mensagens de controle (PRONTO, CONFIRMA_PRONTO) nunca são guardadas: são
+ * devolvidas na hora, qualquer que seja a rodada esperada.
+ *
+ * Deve ser usada por uma única thread, a do protocolo.
+ */
+public class CaixasDeMensagens {
+    /** "Rodada" usada para esperar só mensagens de controle. */
+    public static final int CONTROLE = 0;
+
+    private final BlockingQueue<Mensagem> entrada;
+    private final int rodadaMaxima;
+    private final List<ArrayDeque<Mensagem>> caixas = new ArrayList<>();
+    private int ultimaRodadaFechada = 0;
+    private int descartadas = 0;
+    private IntConsumer aoChegarAtrasada;
+
+    public CaixasDeMensagens(BlockingQueue<Mensagem> entrada, int rodadaMaxima) {
+        this.entrada = entrada;
+        this.rodadaMaxima = rodadaMaxima;
+        for (int r = 0; r <= rodadaMaxima; r++) {
+            caixas.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Avisa a rodada de cada mensagem válida que chegar depois de a rodada
+     * ser fechada, antes de descartá-la (o DetectorPhi precisa ver as lentas).
+     */
+    public void aoChegarAtrasada(IntConsumer ouvinte) {
+        this.aoChegarAtrasada = ouvinte;
+    }
+
+    /**
+     * Próxima mensagem da rodada (ou de controle). Espera até o instante
+     * 'prazoNanos' de System.nanoTime(), ou sem limite se 'prazoNanos' for
+     * negativo. Retorna null se o prazo acabar.
+     */
+    public Mensagem proxima(int rodada, long prazoNanos) throws InterruptedException {
+        ArrayDeque<Mensagem> caixa = caixas.get(rodada);
+        if (!caixa.isEmpty()) {
+            return caixa.poll();
+        }
+
+        while (true) {
+            Mensagem msg;
+            if (prazoNanos < 0) {
+                msg = entrada.take();
+            } else {
+                // Com o prazo vencido, ainda entrega o que já estava na fila
+                long restante = prazoNanos - System.nanoTime();
+                msg = (restante > 0) ? entrada.poll(restante, TimeUnit.NANOSECONDS) : entrada.poll();
+                if (msg == null) {
+                    return null;
+                }
+            }
+
+            int rodadaDaMensagem = rodadaDe(msg);
+            if (rodadaDaMensagem == CONTROLE || rodadaDaMensagem == rodada) {
+                return msg;
+            }
+            if (rodadaDaMensagem < 0) {
+                descartadas++; // Rodada inválida
+            } else if (rodadaDaMensagem <= ultimaRodadaFechada) {
+                descartadas++; // Rodada já encerrada
+                if (aoChegarAtrasada != null) {
+                    aoChegarAtrasada.accept(rodadaDaMensagem);
+                }
+            } else {
+                caixas.get(rodadaDaMensagem).add(msg); // Adiantada: guarda para quando a rodada chegar
+            }
+        }
+    }
+
+    /**
+     * Encerra a rodada: o que estiver guardado e o que chegar depois para ela
+     * é descartado.
+     */
+    public void fechar(int rodada) {
+        ultimaRodadaFechada = Math.max(ultimaRodadaFechada, rodada);
+        for (int r = 1; r <= ultimaRodadaFechada; r++) {
+            descartadas += caixas.get(r).size();
+            caixas.get(r).clear();
+        }
+    }
+
+    /**
+     * Quantas mensagens foram descartadas por chegarem atrasadas ou com rodada inválida.
+     */
+    public int getDescartadas() {
+        return descartadas;
+    }
+
+    /**
+     * Rodada a que a mensagem pertence, CONTROLE, ou -1 se inconsistente: a
+     * rodada declarada tem que ser o tamanho do caminho de retransmissão.
+     */
+    private int rodadaDe(Mensagem msg) {
+        if (msg.getTipo() != TipoMensagem.ORDEM) {
+            return CONTROLE;
+        }
+        int rodada = msg.getRodada();
+        if (rodada < 1 || rodada > rodadaMaxima || rodada != Caminho.tamanho(msg.getCaminho())) {
+            return -1;
+        }
+        return rodada;
+    }
+}
@@ -0,0 +1,101 @@
+package simulador;
+
+/**
+ * Caminho de retransmissão de um valor no OM(m), compactado em um long:
+ * 16 bits por salto, guardando (id + 1) para que 0 marque o fim. O primeiro
+ * salto é sempre o Comandante; [0, 2, 3] significa "3 diz que 2 diz que o
+ * Comandante 0 disse".
+ *
+ * Cabem MAX_SALTOS saltos, o que limita o algoritmo a m <= MAX_SALTOS - 1.
+ */
+public final class Caminho {
+    public static final int MAX_SALTOS = 4;
+    public static final int MAX_ID = 0xFFFE;
+
+    /** Caminho sem nenhum salto. */
+    public static final long VAZIO = 0L;
+
+    private static final int BITS_POR_SALTO = 16;
+    private static final long MASCARA_SALTO = 0xFFFFL;
+
+    private Caminho() {
+    }
+
+    /**
+     * Caminho de um único salto, o da ordem original do Comandante.
+     */
+    public static long de(int id) {
+        return anexar(VAZIO, id);
+    }
+
+    /**
+     * Devolve o caminho com 'id' acrescentado como último salto.
+     */
+    public static long anexar(long caminho, int id) {
+        int tamanho = tamanho(caminho);
+        if (tamanho >= MAX_SALTOS) {
+            throw new IllegalArgumentException("Caminho já tem " + MAX_SALTOS + " saltos");
+        }
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("ID fora do intervalo do caminho: " + id);
+        }
+        return caminho | ((id + 1L) << (tamanho * BITS_POR_SALTO));
+    }
+
+    public static int tamanho(long caminho) {
+        int tamanho = 0;
+        while (tamanho < MAX_SALTOS && ((caminho >>> (tamanho * BITS_POR_SALTO)) & MASCARA_SALTO) != 0) {
+            tamanho++;
+        }
+        return tamanho;
+    }
+
+    /**
+     * ID do i-ésimo salto (0 = Comandante).
+     */
+    public static int salto(long caminho, int i) {
+        return (int) ((caminho >>> (i * BITS_POR_SALTO)) & MASCARA_SALTO) - 1;
+    }
+
+    /**
+     * Os primeiros 'saltos' saltos do caminho.
+     */
+    public static long prefixo(long caminho, int saltos) {
+        if (saltos >= MAX_SALTOS) {
+            return caminho;
+        }
+        return caminho & ((1L << (saltos * BITS_POR_SALTO)) - 1);
+    }
+
+    public static int ultimo(long caminho) {
+        return salto(caminho, tamanho(caminho) - 1);
+    }
+
+    public static boolean contem(long caminho, int id) {
+        for (int i = 0; i < MAX_SALTOS; i++) {
+            int salto = salto(caminho, i);
+            if (salto < 0) {
+                return false;
+            }
+            if (salto == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Representação para logs, ex.: "0>2>3".
+     */
+    public static String formatar(long caminho) {
+        StringBuilder sb = new StringBuilder();
+        int tamanho = tamanho(caminho);
+        for (int i = 0; i < tamanho; i++) {
+            if (i > 0) {
+                sb.append('>');
+            }
+            sb.append(salto(caminho, i));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,262 @@
+package simulador;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.spec.NamedParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.TreeMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Chaves dos processos para as mensagens assinadas do SM(m).
+ *
+ * Dois esquemas:
+ * <ul>
+ *   <li>ED25519: cada processo tem uma chave privada só dele e todos conhecem
+ *   as chaves públicas. Ninguém consegue assinar por outro.</li>
+ *   <li>HMAC (HmacSHA256): um segredo por processo, conhecido por todos.
+ *   Bem mais rápido, mas quem tem o arquivo pode assinar por qualquer um;
+ *   serve para simulações, em que os traidores são o nosso próprio código.</li>
+ * </ul>
+ *
+ * Ficam no arquivo chaves.txt, ao lado do config.txt ("ID ESQUEMA CHAVE" em
+ * Base64: a pública no ED25519, o segredo no HMAC); a chave privada ED25519
+ * de cada processo fica em chave-ID.txt, na mesma pasta. Use GeradorChaves
+ * para criá-los.
+ *
+ * Pode ser usada por várias threads.
+ */
+public class ChavesAssinatura {
+
+    public enum Esquema {
+        ED25519,
+        HMAC
+    }
+
+    private final Esquema esquema;
+    // Chave de verificação de cada processo: PublicKey no ED25519, o segredo no HMAC
+    private final Map<Integer, Key> verificacao = new HashMap<>();
+    // Chave de assinatura dos processos que este nó pode assinar (normalmente só ele)
+    private final Map<Integer, Key> assinatura = new HashMap<>();
+
+    // Signature e Mac não podem ser compartilhados entre threads; criá-los custa caro
+    private final ThreadLocal<Signature> ed25519 = ThreadLocal.withInitial(() -> criar(() -> Signature.getInstance("Ed25519")));
+    private final ThreadLocal<Mac> hmac = ThreadLocal.withInitial(() -> criar(() -> Mac.getInstance("HmacSHA256")));
+
+    private interface Fabrica<T> {
+        T criar() throws GeneralSecurityException;
+    }
+
+    private ChavesAssinatura(Esquema esquema) {
+        this.esquema = esquema;
+    }
+
+    /**
+     * Gera chaves para os IDs, todas na mesma JVM (ex.: SimuladorCluster,
+     * SimulacaoDiscreta). A mesma semente gera as mesmas chaves.
+     */
+    public static ChavesAssinatura gerar(Esquema esquema, int[] ids, long semente) {
+        try {
+            SecureRandom sorteio = SecureRandom.getInstance("SHA1PRNG");
+            sorteio.setSeed(semente);
+            return gerar(esquema, ids, sorteio);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Gerador SHA1PRNG indisponível nesta JVM", e);
+        }
+    }
+
+    /**
+     * Gera chaves para os IDs com a entropia do sistema, para uso de verdade
+     * (GeradorChaves).
+     */
+    public static ChavesAssinatura gerar(Esquema esquema, int[] ids) {
+        return gerar(esquema, ids, new SecureRandom());
+    }
+
+    private static ChavesAssinatura gerar(Esquema esquema, int[] ids, SecureRandom sorteio) {
+        ChavesAssinatura chaves = new ChavesAssinatura(esquema);
+        try {
+            KeyPairGenerator gerador = null;
+            if (esquema == Esquema.ED25519) {
+                gerador = KeyPairGenerator.getInstance("Ed25519");
+                gerador.initialize(NamedParameterSpec.ED25519, sorteio);
+            }
+            for (int id : ids) {
+                if (gerador != null) {
+                    KeyPair par = gerador.generateKeyPair();
+                    chaves.verificacao.put(id, par.getPublic());
+                    chaves.assinatura.put(id, par.getPrivate());
+                } else {
+                    byte[] segredo = new byte[32];
+                    sorteio.nextBytes(segredo);
+                    SecretKeySpec chave = new SecretKeySpec(segredo, "HmacSHA256");
+                    chaves.verificacao.put(id, chave);
+                    chaves.assinatura.put(id, chave);
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Esquema de assinatura indisponível nesta JVM: " + esquema, e);
+        }
+        return chaves;
+    }
+
+    /**
+     * Lê o arquivo de chaves e, no ED25519, a chave privada de 'meuId'
+     * (chave-meuId.txt na mesma pasta), se existir.
+     */
+    public static ChavesAssinatura ler(String arquivo, int meuId) throws IOException {
+        File chavesTxt = new File(arquivo);
+        ChavesAssinatura chaves = null;
+        try (Scanner scanner = new Scanner(chavesTxt, StandardCharsets.UTF_8)) {
+            while (scanner.hasNextLine()) {
+                String linha = scanner.nextLine().trim();
+                if (linha.isEmpty() || linha.startsWith("#")) {
+                    continue;
+                }
+                String[] partes = linha.split("\\s+");
+                if (partes.length < 3) {
+                    continue;
+                }
+                Esquema esquema = Esquema.valueOf(partes[1].toUpperCase());
+                if (chaves == null) {
+                    chaves = new ChavesAssinatura(esquema);
+                } else if (chaves.esquema != esquema) {
+                    throw new IOException("Esquemas misturados em " + arquivo + ": " + chaves.esquema + " e " + esquema);
+                }
+                byte[] chave = Base64.getDecoder().decode(partes[2]);
+                int id = Integer.parseInt(partes[0]);
+                if (esquema == Esquema.ED25519) {
+                    chaves.verificacao.put(id, KeyFactory.getInstance("Ed25519").generatePublic(new X509EncodedKeySpec(chave)));
+                } else {
+                    SecretKeySpec segredo = new SecretKeySpec(chave, "HmacSHA256");
+                    chaves.verificacao.put(id, segredo);
+                    chaves.assinatura.put(id, segredo);
+                }
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IOException("Chave inválida em " + arquivo + ": " + e.getMessage(), e);
+        }
+        if (chaves == null) {
+            throw new IOException("Nenhuma chave em " + arquivo);
+        }
+
+        File privada = new File(chavesTxt.getAbsoluteFile().getParentFile(), "chave-" + meuId + ".txt");
+        if (chaves.esquema == Esquema.ED25519 && privada.exists()) {
+            try {
+                byte[] chave = Base64.getDecoder().decode(Files.readString(privada.toPath()).trim());
+                chaves.assinatura.put(meuId, KeyFactory.getInstance("Ed25519").generatePrivate(new PKCS8EncodedKeySpec(chave)));
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                throw new IOException("Chave privada inválida em " + privada + ": " + e.getMessage(), e);
+            }
+        }
+        return chaves;
+    }
+
+    /**
+     * Escreve chaves.txt e, no ED25519, um chave-ID.txt por processo em 'pasta'.
+     * Só pode ser chamado com as chaves de assinatura de todos (ex.: vindas de gerar()).
+     */
+    public void salvar(File pasta) throws IOException {
+        try (PrintStream saida = new PrintStream(new File(pasta, "chaves.txt"), StandardCharsets.UTF_8)) {
+            saida.println("# Chaves do SM(m), geradas por simulador.GeradorChaves");
+            saida.println("# ID   ESQUEMA   CHAVE (" + (esquema == Esquema.ED25519
+                    ? "pública; a privada de cada processo está em chave-ID.txt)"
+                    : "segredo compartilhado: quem tem este arquivo assina por todos)"));
+            for (Map.Entry<Integer, Key> e : new TreeMap<>(verificacao).entrySet()) {
+                saida.println(e.getKey() + " " + esquema + " " + Base64.getEncoder().encodeToString(e.getValue().getEncoded()));
+            }
+        }
+        if (esquema == Esquema.ED25519) {
+            for (Map.Entry<Integer, Key> e : assinatura.entrySet()) {
+                Files.writeString(new File(pasta, "chave-" + e.getKey() + ".txt").toPath(),
+                        Base64.getEncoder().encodeToString(e.getValue().getEncoded()) + System.lineSeparator());
+            }
+        }
+    }
+
+    public Esquema getEsquema() {
+        return esquema;
+    }
+
+    /**
+     * True se este nó tem a chave para assinar como 'id'.
+     */
+    public boolean podeAssinar(int id) {
+        return assinatura.containsKey(id);
+    }
+
+    /**
+     * Assina os dados como o processo 'id'.
+     */
+    public byte[] assinar(int id, byte[] dados) {
+        Key chave = assinatura.get(id);
+        if (chave == null) {
+            throw new IllegalStateException("Sem a chave para assinar como o processo " + id);
+        }
+        try {
+            if (esquema == Esquema.ED25519) {
+                Signature s = ed25519.get();
+                s.initSign((PrivateKey) chave);
+                s.update(dados);
+                return s.sign();
+            }
+            Mac mac = hmac.get();
+            mac.init((SecretKeySpec) chave);
+            return mac.doFinal(dados);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Falha ao assinar: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * True se 'assinaturaRecebida' é a assinatura de 'id' sobre os dados. IDs
+     * sem chave conhecida e assinaturas malformadas dão false.
+     */
+    public boolean verificar(int id, byte[] dados, byte[] assinaturaRecebida) {
+        Key chave = verificacao.get(id);
+        if (chave == null) {
+            return false;
+        }
+        try {
+            if (esquema == Esquema.ED25519) {
+                Signature s = ed25519.get();
+                s.initVerify((PublicKey) chave);
+                s.update(dados);
+                return s.verify(assinaturaRecebida);
+            }
+            Mac mac = hmac.get();
+            mac.init((SecretKeySpec) chave);
+            // Comparação em tempo constante
+            return MessageDigest.isEqual(mac.doFinal(dados), assinaturaRecebida);
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    private static <T> T criar(Fabrica<T> fabrica) {
+        try {
+            return fabrica.criar();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Algoritmo indisponível nesta JVM: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package simulador;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Formato binário da Mensagem na rede, no lugar da serialização Java.
+ *
+ * Quadro (big-endian):
+ * <pre>
+ *   int   tamanho     bytes que vêm depois deste campo
+ *   byte  versão      VERSAO
+ *   int   remetente
+ *   byte  ordem       Ordem.codigo(), ou -1 sem ordem
+ *   byte  rodada      0..255
+ *   long  caminho
+ *   byte  tipo        TipoMensagem (a partir da versão 2)
+ *   long  instancia   execução do OM (a partir da versão 3)
+ *   byte  assinaturas quantas assinaturas seguem, 0 no OM(m) (a partir da versão 4)
+ *   para cada uma: short tamanho, bytes da assinatura
+ * </pre>
+ * Versões futuras só acrescentam campos no fim; quem lê pula o que não
+ * conhece usando o tamanho, então quadros mais novos continuam legíveis.
+ */
+public final class CodecMensagem {
+    public static final byte VERSAO = 4;
+
+    /** Tamanho do corpo (sem o int do tamanho) em cada versão; a última é a atual. */
+    private static final int TAMANHO_CORPO_V1 = 1 + 4 + 1 + 1 + 8;
+    private static final int TAMANHO_CORPO_V2 = TAMANHO_CORPO_V1 + 1;
+    private static final int TAMANHO_CORPO_V3 = TAMANHO_CORPO_V2 + 8;
+    private static final int TAMANHO_CORPO = TAMANHO_CORPO_V3 + 1;
+
+    /** Tamanho total de um quadro sem assinaturas, incluindo o prefixo. */
+    public static final int TAMANHO_QUADRO = 4 + TAMANHO_CORPO;
+
+    /** Maior corpo aceito na leitura; acima disso o canal é considerado corrompido. */
+    public static final int TAMANHO_MAXIMO = 64 * 1024;
+
+    private CodecMensagem() {
+    }
+
+    /**
+     * Tamanho do quadro da mensagem, incluindo o prefixo e as assinaturas.
+     */
+    public static int tamanhoQuadro(Mensagem msg) {
+        int tamanho = TAMANHO_QUADRO;
+        for (byte[] assinatura : msg.getAssinaturas()) {
+            tamanho += 2 + assinatura.length;
+        }
+        return tamanho;
+    }
+
+    /**
+     * Escreve o quadro da mensagem na posição atual do buffer, sem alocar.
+     * O buffer precisa ter pelo menos tamanhoQuadro(msg) bytes livres.
+     */
+    public static void codificar(Mensagem msg, ByteBuffer destino) {
+        int rodada = msg.getRodada();
+        if (rodada < 0 || rodada > 0xFF) {
+            throw new IllegalArgumentException("Rodada fora do intervalo do formato: " + rodada);
+        }
+        byte[][] assinaturas = msg.getAssinaturas();
+        if (assinaturas.length > Caminho.MAX_SALTOS) {
+            throw new IllegalArgumentException("Assinaturas demais: " + assinaturas.length);
+        }
+        destino.putInt(tamanhoQuadro(msg) - 4);
+        destino.put(VERSAO);
+        destino.putInt(msg.getRemetenteId());
+        destino.put(msg.getOrdem() != null ? msg.getOrdem().codigo() : -1);
+        destino.put((byte) rodada);
+        destino.putLong(msg.getCaminho());
+        destino.put((byte) msg.getTipo().ordinal());
+        destino.putLong(msg.getInstancia());
+        destino.put((byte) assinaturas.length);
+        for (byte[] assinatura : assinaturas) {
+            destino.putShort((short) assinatura.length);
+            destino.put(assinatura);
+        }
+    }
+
+    /**
+     * Lê o corpo de um quadro cujo prefixo de tamanho já foi consumido.
+     * Ao final a posição do buffer fica logo após o quadro.
+     */
+    public static Mensagem decodificar(ByteBuffer origem, int tamanho) {
+        int fim = origem.position() + tamanho;
+        if (tamanho < TAMANHO_CORPO_V1 || tamanho > TAMANHO_MAXIMO) {
+            throw new IllegalArgumentException("Tamanho de quadro inválido: " + tamanho + " bytes");
+        }
+        byte versao = origem.get();
+        if (versao < 1) {
+            throw new IllegalArgumentException("Versão de quadro desconhecida: " + versao);
+        }
+        int remetente = origem.getInt();
+        byte codigoOrdem = origem.get();
+        Ordem ordem = codigoOrdem < 0 ? null : Ordem.doCodigo(codigoOrdem);
+        int rodada = origem.get() & 0xFF;
+        long caminho = origem.getLong();
+        TipoMensagem tipo = TipoMensagem.ORDEM;
+        if (versao >= 2 && tamanho >= TAMANHO_CORPO_V2) {
+            tipo = TipoMensagem.doCodigo(origem.get());
+        }
+        long instancia = 0L;
+        if (versao >= 3 && tamanho >= TAMANHO_CORPO_V3) {
+            instancia = origem.getLong();
+        }
+        byte[][] assinaturas = Mensagem.SEM_ASSINATURAS;
+        if (versao >= 4 && tamanho >= TAMANHO_CORPO) {
+            int quantidade = origem.get() & 0xFF;
+            if (quantidade > Caminho.MAX_SALTOS) {
+                throw new IllegalArgumentException("Assinaturas demais: " + quantidade);
+            }
+            assinaturas = new byte[quantidade][];
+            for (int i = 0; i < quantidade; i++) {
+                if (fim - origem.position() < 2) {
+                    throw new IllegalArgumentException("Assinatura além do fim do quadro");
+                }
+                int tamanhoAssinatura = origem.getShort() & 0xFFFF;
+                if (fim - origem.position() < tamanhoAssinatura) {
+                    throw new IllegalArgumentException("Assinatura além do fim do quadro");
+                }
+                assinaturas[i] = new byte[tamanhoAssinatura];
+                origem.get(assinaturas[i]);
+            }
+        }
+        origem.position(fim); // Pula campos de versões mais novas
+        if (ordem == null && (tipo == TipoMensagem.ORDEM || tipo == TipoMensagem.DECIDIDO)) {
+            throw new IllegalArgumentException("Mensagem de ordem sem ordem");
+        }
+        return new Mensagem(tipo, instancia, remetente, ordem, rodada, caminho, assinaturas);
+    }
+}
@@ -1,33 +1,58 @@
 package simulador;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class Comunicador {
+public class Comunicador implements Transporte {
     private final int porta;
     private final BlockingQueue<Mensagem> filaDeMensagens;
+    private final Membresia membresia;
+    private final GerenciadorConexoes conexoes;
+    private final Metricas metricas;
+    // Sockets aceitos, para que o desligamento encerre também as threads de leitura
+    private final Set<Socket> socketsAceitos = ConcurrentHashMap.newKeySet();
     
     private ServerSocket serverSocket;
     private Thread serverThread;
 
-    public Comunicador(int porta, BlockingQueue<Mensagem> filaDeMensagens) {
+    public Comunicador(int porta, Map<Integer, String[]> outrosProcessos, BlockingQueue<Mensagem> filaDeMensagens) {
+        this(porta, Membresia.de(outrosProcessos), filaDeMensagens, new Metricas(-1),
+                GerenciadorConexoes.PRAZO_CONEXAO_MS);
+    }
+
+    /**
+     * @param prazoConexaoMs quanto um envio espera o connect() de um canal novo
+     */
+    public Comunicador(int porta, Membresia membresia, BlockingQueue<Mensagem> filaDeMensagens,
+                       Metricas metricas, long prazoConexaoMs) {
         this.porta = porta;
         this.filaDeMensagens = filaDeMensagens;
+        this.membresia = membresia;
+        this.metricas = metricas;
+        this.conexoes = new GerenciadorConexoes(membresia, metricas, prazoConexaoMs);
     }
 
     /**
      * Inicia uma thread para escutar por conexões e receber mensagens.
      */
+    @Override
     public void iniciarServidor() {
         serverThread = new Thread(() -> {
             try {
                 serverSocket = new ServerSocket(porta); // Atribui ao campo
                 while (!Thread.currentThread().isInterrupted()) {
                     Socket clientSocket = serverSocket.accept();
+                    socketsAceitos.add(clientSocket);
                     new Thread(() -> receberMensagem(clientSocket)).start();
                 }
             } catch (IOException e) {
@@ -40,33 +65,84 @@ public class Comunicador {
     }
 
     /**
-     * Lógica para receber um objeto Mensagem de um Socket.
+     * Lógica para receber quadros de Mensagem de um Socket. A mesma conexão pode
+     * trazer várias mensagens (canal persistente) ou apenas uma (envio avulso).
      */
     private void receberMensagem(Socket socket) {
-        try (ObjectInputStream in = new ObjectInputStream(socket.getInputStream())) {
-            Mensagem msg = (Mensagem) in.readObject();
-            filaDeMensagens.put(msg); // Adiciona a mensagem na fila para ser processada
-        } catch (IOException | ClassNotFoundException | InterruptedException e) {
-            // Silencioso
+        ByteBuffer corpo = ByteBuffer.allocate(CodecMensagem.TAMANHO_QUADRO);
+        // O canal persistente traz sempre o mesmo remetente: guarda os contadores dele
+        int ultimoRemetente = -1;
+        Metricas.ContadoresPar par = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                int tamanho = in.readInt();
+                if (tamanho < 0 || tamanho > CodecMensagem.TAMANHO_MAXIMO) {
+                    metricas.erroRecepcao();
+                    break; // Canal corrompido: descarta a conexão
+                }
+                if (tamanho > corpo.capacity()) {
+                    corpo = ByteBuffer.allocate(tamanho);
+                }
+                in.readFully(corpo.array(), 0, tamanho);
+                corpo.clear();
+                Mensagem msg = CodecMensagem.decodificar(corpo, tamanho);
+                if (par == null || msg.getRemetenteId() != ultimoRemetente) {
+                    ultimoRemetente = msg.getRemetenteId();
+                    par = metricas.parRemetente(ultimoRemetente, membresia.getVisao().contem(ultimoRemetente));
+                }
+                par.recebida(4 + tamanho);
+                filaDeMensagens.put(msg); // Adiciona a mensagem na fila para ser processada
+            }
+        } catch (EOFException e) {
+            // Remetente fechou o canal
+        } catch (IOException | IllegalArgumentException e) {
+            // Conexão perdida no meio de um quadro, ou quadro inválido
+            if (!socket.isClosed()) {
+                metricas.erroRecepcao();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            socketsAceitos.remove(socket);
         }
     }
 
     /**
-     * Envia uma mensagem para um host e porta específicos.
+     * Envia uma mensagem para outro processo pelo canal persistente dele.
+     */
+    @Override
+    public void enviarMensagem(int idDestino, Mensagem msg) {
+        conexoes.enviar(idDestino, msg);
+    }
+
+    /**
+     * Envia uma mensagem para um host e porta específicos, abrindo um socket só
+     * para ela. Mantido para comparação com o canal persistente.
      */
     public void enviarMensagem(String host, int portaDestino, Mensagem msg) {
         try (Socket socket = new Socket(host, portaDestino);
-             ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream())) {
-            out.writeObject(msg);
+             OutputStream out = socket.getOutputStream()) {
+            ByteBuffer quadro = ByteBuffer.allocate(CodecMensagem.tamanhoQuadro(msg));
+            CodecMensagem.codificar(msg, quadro);
+            out.write(quadro.array(), 0, quadro.position());
         } catch (IOException e) {
             // System.err.println("Falha ao enviar para " + host + ":" + portaDestino);
         }
     }
     
     /**
-     * Para a thread do servidor e fecha o ServerSocket.
+     * Para a thread do servidor, fecha o ServerSocket e todos os canais abertos.
      */
+    @Override
     public void desligarServidor() {
+        conexoes.fecharTodas();
+        for (Socket socket : socketsAceitos) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignorar: a thread de leitura termina de qualquer forma
+            }
+        }
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close(); // Isso vai causar uma IOException no accept()
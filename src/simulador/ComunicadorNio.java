@@ -0,0 +1,399 @@
+package simulador;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transporte não bloqueante: uma única thread com um Selector aceita conexões,
+ * lê e escreve em todos os canais. As mensagens vão no formato do CodecMensagem.
+ */
+public class ComunicadorNio implements Transporte {
+    private static final int TAMANHO_BUFFER_LEITURA = 8 * 1024; // Cresce sob demanda
+    // Tempo máximo para escrever o que ainda está nos buffers de saída ao desligar
+    private static final long PRAZO_ESVAZIAR_NANOS = 1_000_000_000L;
+
+    private final int porta;
+    private final Membresia membresia;
+    private final BlockingQueue<Mensagem> filaDeMensagens;
+    private final Metricas metricas;
+
+    private final Map<Integer, CanalSaida> canais = new ConcurrentHashMap<>();
+    // Canais com quadros novos, a serem (re)registrados pela thread do Selector
+    private final Queue<CanalSaida> canaisPendentes = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean ativo;
+    private volatile long prazoEncerramento;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread loopThread;
+
+    public ComunicadorNio(int porta, Map<Integer, String[]> outrosProcessos, BlockingQueue<Mensagem> filaDeMensagens) {
+        this(porta, Membresia.de(outrosProcessos), filaDeMensagens, new Metricas(-1));
+    }
+
+    public ComunicadorNio(int porta, Membresia membresia, BlockingQueue<Mensagem> filaDeMensagens,
+                          Metricas metricas) {
+        this.porta = porta;
+        this.membresia = membresia;
+        this.filaDeMensagens = filaDeMensagens;
+        this.metricas = metricas;
+    }
+
+    /**
+     * Abre o Selector e inicia a thread do laço de eventos.
+     */
+    @Override
+    public void iniciarServidor() {
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(porta));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            System.err.println("Erro no servidor na porta " + porta + ": " + e.getMessage());
+            return;
+        }
+        ativo = true;
+        loopThread = new Thread(this::lacoDeEventos, "nio-" + porta);
+        loopThread.start();
+    }
+
+    /**
+     * Enfileira a mensagem no canal do destino; a escrita é feita pelo laço de eventos.
+     */
+    @Override
+    public void enviarMensagem(int idDestino, Mensagem msg) {
+        if (!ativo) {
+            return;
+        }
+        Membresia.Visao visao = membresia.getVisao();
+        CanalSaida canal = canais.get(idDestino);
+        if (canal == null || canal.visao != visao) {
+            canal = canais.compute(idDestino, (id, atual) -> canalNaVisao(id, atual, visao));
+        }
+        if (canal != null) {
+            canal.enfileirar(msg);
+        } else {
+            metricas.par(idDestino).falhaEnvio(1);
+        }
+    }
+
+    /**
+     * Para o laço de eventos, que termina de escrever os quadros pendentes
+     * (por até PRAZO_ESVAZIAR_NANOS) e fecha todos os canais ao sair.
+     */
+    @Override
+    public void desligarServidor() {
+        prazoEncerramento = System.nanoTime() + PRAZO_ESVAZIAR_NANOS;
+        ativo = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * O canal para 'id' na visão dada: o atual, se o endereço não mudou; senão
+     * um novo (ou null, se o processo saiu), e o atual é fechado pelo laço de eventos.
+     */
+    private CanalSaida canalNaVisao(int id, CanalSaida atual, Membresia.Visao visao) {
+        InetSocketAddress endereco = visao.endereco(id);
+        if (atual != null) {
+            if (atual.endereco.equals(endereco)) {
+                atual.visao = visao;
+                return atual;
+            }
+            atual.descartar();
+        }
+        return endereco == null ? null : new CanalSaida(endereco, visao, metricas.par(id));
+    }
+
+    private void lacoDeEventos() {
+        try {
+            while (ativo || (haQuadrosPendentes() && System.nanoTime() < prazoEncerramento)) {
+                selector.select(ativo ? 0 : 10);
+
+                CanalSaida pendente;
+                while ((pendente = canaisPendentes.poll()) != null) {
+                    pendente.registrar();
+                }
+
+                Iterator<SelectionKey> chaves = selector.selectedKeys().iterator();
+                while (chaves.hasNext()) {
+                    SelectionKey chave = chaves.next();
+                    chaves.remove();
+                    if (!chave.isValid()) {
+                        continue;
+                    }
+                    if (chave.isAcceptable()) {
+                        aceitar();
+                    } else if (chave.isConnectable()) {
+                        ((CanalSaida) chave.attachment()).concluirConexao();
+                    } else if (chave.isWritable()) {
+                        ((CanalSaida) chave.attachment()).escrever();
+                    } else if (chave.isReadable()) {
+                        ler(chave);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (ativo) {
+                System.err.println("Erro no servidor na porta " + porta + ": " + e.getMessage());
+            }
+        } finally {
+            fecharTudo();
+        }
+    }
+
+    private boolean haQuadrosPendentes() {
+        if (!canaisPendentes.isEmpty()) {
+            return true;
+        }
+        for (CanalSaida canal : canais.values()) {
+            if (canal.temQuadros()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void aceitar() throws IOException {
+        SocketChannel cliente = serverChannel.accept();
+        if (cliente == null) {
+            return;
+        }
+        cliente.configureBlocking(false);
+        cliente.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        cliente.register(selector, SelectionKey.OP_READ, ByteBuffer.allocate(TAMANHO_BUFFER_LEITURA));
+    }
+
+    /**
+     * Lê o que estiver disponível e entrega todos os quadros completos na fila.
+     */
+    private void ler(SelectionKey chave) {
+        SocketChannel canal = (SocketChannel) chave.channel();
+        ByteBuffer buffer = (ByteBuffer) chave.attachment();
+        try {
+            if (canal.read(buffer) < 0) {
+                fechar(chave);
+                return;
+            }
+        } catch (IOException e) {
+            fechar(chave);
+            return;
+        }
+
+        buffer.flip();
+        while (buffer.remaining() >= 4) {
+            int tamanho = buffer.getInt(buffer.position());
+            if (tamanho < 0 || tamanho > CodecMensagem.TAMANHO_MAXIMO) {
+                metricas.erroRecepcao();
+                fechar(chave); // Canal corrompido: descarta a conexão
+                return;
+            }
+            if (buffer.remaining() < 4 + tamanho) {
+                break;
+            }
+            buffer.position(buffer.position() + 4);
+            try {
+                Mensagem msg = CodecMensagem.decodificar(buffer, tamanho);
+                int remetente = msg.getRemetenteId();
+                metricas.parRemetente(remetente, membresia.getVisao().contem(remetente)).recebida(4 + tamanho);
+                filaDeMensagens.offer(msg); // Fila sem limite: nunca bloqueia o laço
+            } catch (IllegalArgumentException e) {
+                metricas.erroRecepcao();
+                fechar(chave); // Canal corrompido: descarta a conexão
+                return;
+            }
+        }
+        buffer.compact();
+
+        // Quadro maior que o buffer: aumenta para caber
+        if (!buffer.hasRemaining()) {
+            ByteBuffer maior = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            maior.put(buffer);
+            chave.attach(maior);
+        }
+    }
+
+    private void fechar(SelectionKey chave) {
+        chave.cancel();
+        try {
+            chave.channel().close();
+        } catch (IOException e) {
+            // Ignorar: o canal já está sendo descartado
+        }
+    }
+
+    private void fecharTudo() {
+        try {
+            for (SelectionKey chave : selector.keys()) {
+                chave.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar servidor na porta " + porta + ": " + e.getMessage());
+        }
+        canais.clear();
+    }
+
+    /**
+     * Canal de saída persistente para um par. Qualquer thread pode codificar
+     * mensagens no buffer de saída; apenas a thread do Selector conecta e escreve.
+     */
+    private class CanalSaida {
+        private final InetSocketAddress endereco;
+        private final Metricas.ContadoresPar contadores;
+        private final AtomicBoolean agendado = new AtomicBoolean();
+        // Última visão da membresia em que o endereço foi conferido
+        private volatile Membresia.Visao visao;
+        // O destino mudou de endereço ou saiu: o laço de eventos fecha o canal
+        private volatile boolean descartado;
+
+        // Quadros ainda não escritos no socket, protegido por 'this'
+        private ByteBuffer saida = ByteBuffer.allocate(CodecMensagem.TAMANHO_QUADRO * 64);
+
+        private SocketChannel canal;
+        private SelectionKey chave;
+        // Se o canal já foi aberto alguma vez: abrir de novo conta como reconexão
+        private boolean jaAberto;
+
+        CanalSaida(InetSocketAddress endereco, Membresia.Visao visao, Metricas.ContadoresPar contadores) {
+            this.endereco = endereco;
+            this.visao = visao;
+            this.contadores = contadores;
+        }
+
+        void enfileirar(Mensagem msg) {
+            if (descartado) {
+                contadores.falhaEnvio(1);
+                return;
+            }
+            int tamanho = CodecMensagem.tamanhoQuadro(msg);
+            synchronized (this) {
+                while (saida.remaining() < tamanho) {
+                    ByteBuffer maior = ByteBuffer.allocate(saida.capacity() * 2);
+                    saida.flip();
+                    maior.put(saida);
+                    saida = maior;
+                }
+                int antes = saida.position();
+                CodecMensagem.codificar(msg, saida);
+                contadores.enviada(saida.position() - antes);
+            }
+            // Só acorda o Selector se o canal ainda não está na lista de pendentes
+            if (agendado.compareAndSet(false, true)) {
+                canaisPendentes.add(this);
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * Pede ao laço de eventos que feche o canal; o que ainda não foi escrito se perde.
+         */
+        void descartar() {
+            descartado = true;
+            if (agendado.compareAndSet(false, true)) {
+                canaisPendentes.add(this);
+                selector.wakeup();
+            }
+        }
+
+        synchronized boolean temQuadros() {
+            return saida.position() > 0;
+        }
+
+        /**
+         * Chamado pela thread do Selector: abre o canal se preciso e pede OP_WRITE.
+         */
+        void registrar() {
+            agendado.set(false);
+            if (descartado) {
+                falhar();
+                return;
+            }
+            try {
+                if (canal == null) {
+                    if (jaAberto) {
+                        contadores.reconexao();
+                    }
+                    jaAberto = true;
+                    canal = SocketChannel.open();
+                    canal.configureBlocking(false);
+                    canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    boolean conectado = canal.connect(endereco);
+                    chave = canal.register(selector, conectado ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT, this);
+                } else if (chave.interestOps() == 0) {
+                    chave.interestOps(SelectionKey.OP_WRITE);
+                }
+            } catch (IOException e) {
+                falhar();
+            }
+        }
+
+        void concluirConexao() {
+            try {
+                if (canal.finishConnect()) {
+                    chave.interestOps(SelectionKey.OP_WRITE);
+                }
+            } catch (IOException e) {
+                falhar();
+            }
+        }
+
+        void escrever() {
+            try {
+                synchronized (this) {
+                    saida.flip();
+                    canal.write(saida);
+                    boolean vazio = !saida.hasRemaining();
+                    saida.compact();
+                    if (vazio) {
+                        chave.interestOps(0);
+                    }
+                    // Senão o buffer do socket encheu: continua no próximo OP_WRITE
+                }
+            } catch (IOException e) {
+                falhar();
+            }
+        }
+
+        /**
+         * Descarta o canal e os quadros pendentes; o próximo envio reconecta.
+         */
+        private void falhar() {
+            if (chave != null) {
+                chave.cancel();
+            }
+            try {
+                if (canal != null) {
+                    canal.close();
+                }
+            } catch (IOException e) {
+                // Ignorar: o canal já está sendo descartado
+            }
+            canal = null;
+            chave = null;
+            synchronized (this) {
+                // Quadros (inteiros ou já parcialmente escritos) que se perdem com o canal; aproximado
+                // pelo tamanho do quadro sem assinaturas
+                contadores.falhaEnvio((saida.position() + CodecMensagem.TAMANHO_QUADRO - 1) / CodecMensagem.TAMANHO_QUADRO);
+                saida.clear();
+            }
+        }
+    }
+}
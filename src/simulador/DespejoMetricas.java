@@ -0,0 +1,85 @@
+package simulador;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Escreve as Metricas de um ou mais processos num PrintStream a cada
+ * 'intervaloMs', em JSON Lines (uma linha por processo) ou em texto, por
+ * uma thread própria. fechar() escreve um último despejo.
+ */
+public class DespejoMetricas {
+    public static final long INTERVALO_PADRAO_MS = 5000;
+
+    private final Collection<Metricas> metricas;
+    private final PrintStream saida;
+    private final boolean json;
+    private final Thread escritor;
+    private volatile boolean aberto = true;
+
+    public DespejoMetricas(Collection<Metricas> metricas, PrintStream saida, boolean json, long intervaloMs) {
+        this.metricas = metricas;
+        this.saida = saida;
+        this.json = json;
+        this.escritor = new Thread(() -> {
+            try {
+                while (aberto) {
+                    Thread.sleep(intervaloMs);
+                    despejar();
+                }
+            } catch (InterruptedException e) {
+                // fechar()
+            }
+        }, "despejo-metricas");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * DespejoMetricas da propriedade -Dsimulador.metricas: "stdout" ou o
+     * caminho de um arquivo. O intervalo vem de -Dsimulador.metricas.intervaloMs
+     * e o formato de -Dsimulador.metricas.formato ("json", o padrão, ou
+     * "texto"). Retorna null se a propriedade não estiver definida.
+     */
+    public static DespejoMetricas daPropriedade(Collection<Metricas> metricas) throws FileNotFoundException {
+        String valor = System.getProperty("simulador.metricas");
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        long intervaloMs = Long.getLong("simulador.metricas.intervaloMs", INTERVALO_PADRAO_MS);
+        boolean json = !System.getProperty("simulador.metricas.formato", "json").trim().equalsIgnoreCase("texto");
+        PrintStream saida = valor.trim().equalsIgnoreCase("stdout")
+                ? System.out
+                : new PrintStream(new FileOutputStream(valor.trim()), false, StandardCharsets.UTF_8);
+        return new DespejoMetricas(metricas, saida, json, intervaloMs);
+    }
+
+    /**
+     * Para o despejo periódico e escreve o estado final.
+     */
+    public void fechar() {
+        aberto = false;
+        escritor.interrupt();
+        try {
+            escritor.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        despejar();
+        if (saida != System.out && saida != System.err) {
+            saida.close();
+        }
+    }
+
+    private synchronized void despejar() {
+        StringBuilder texto = new StringBuilder();
+        for (Metricas m : metricas) {
+            texto.append(json ? m.getResumoJson() : m.getResumoTexto()).append('\n');
+        }
+        saida.print(texto);
+        saida.flush();
+    }
+}
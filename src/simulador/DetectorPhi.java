@@ -0,0 +1,144 @@
+package simulador;
+
+/**
+ * Prazo adaptativo das rodadas, no estilo do detector de falhas "phi
+ * accrual": guarda os últimos tempos de chegada observados (de quando a
+ * rodada começou até cada mensagem chegar) e estima, com a média e o desvio
+ * padrão deles, quão improvável é uma mensagem ainda chegar depois de t.
+ * phi(t) = -log10(P(chegar depois de t)); o prazo é o t em que phi atinge o
+ * limiar (ex.: 8 = uma chance em 10^8, pela aproximação logística da normal).
+ *
+ * O prazo fixo configurado é o piso: o detector só o estica, quando os
+ * tempos observados mostram uma rede mais lenta do que ele supõe, e nunca o
+ * encurta. Encurtar cortaria mensagens leais atrasadas, e cada uma delas
+ * gasta o orçamento de m falhas como se viesse de um traidor. Enquanto não
+ * houver amostras suficientes vale o prazo fixo, e o prazo nunca passa de
+ * FATOR_MAXIMO vezes ele. Um processo que caiu não gera amostras, então não
+ * estica o prazo dos outros.
+ *
+ * Deve ser usado por uma única thread, a do protocolo.
+ */
+public class DetectorPhi {
+
+    /** Amostras mantidas (janela deslizante). */
+    public static final int JANELA = 1000;
+    /** Abaixo disso o prazo é o máximo. */
+    public static final int MINIMO_AMOSTRAS = 16;
+    /** O prazo nunca passa deste múltiplo do prazo fixo. */
+    public static final int FATOR_MAXIMO = 10;
+    // Piso do desvio padrão: com amostras quase iguais, o prazo não encosta na média
+    private static final long DESVIO_MINIMO_NANOS = 1_000_000;
+
+    private final double limiar;
+    private final double desvios; // Quantos desvios padrão acima da média phi atinge o limiar
+    private final long prazoFixoNanos;
+    private final long maximoNanos;
+    private final long[] amostras = new long[JANELA];
+    private int total;
+    private int proxima;
+    private double soma;
+    private double somaQuadrados;
+
+    /**
+     * @param prazoFixoNanos o prazo configurado das rodadas, o menor que o detector devolve
+     */
+    public DetectorPhi(double limiar, long prazoFixoNanos) {
+        if (limiar <= 0) {
+            throw new IllegalArgumentException("Limiar de phi deve ser positivo: " + limiar);
+        }
+        this.limiar = limiar;
+        this.desvios = desviosPara(limiar);
+        this.prazoFixoNanos = prazoFixoNanos;
+        this.maximoNanos = prazoFixoNanos * FATOR_MAXIMO;
+    }
+
+    /**
+     * Registra quanto uma mensagem levou para chegar desde o início da rodada.
+     */
+    public void registrar(long nanos) {
+        if (total == JANELA) {
+            long saindo = amostras[proxima];
+            soma -= saindo;
+            somaQuadrados -= (double) saindo * saindo;
+        } else {
+            total++;
+        }
+        amostras[proxima] = nanos;
+        proxima = (proxima + 1) % JANELA;
+        soma += nanos;
+        somaQuadrados += (double) nanos * nanos;
+    }
+
+    /**
+     * Quanto esperar pelas mensagens de uma rodada, entre o prazo fixo e o máximo.
+     */
+    public long prazoNanos() {
+        if (total < MINIMO_AMOSTRAS) {
+            return prazoFixoNanos;
+        }
+        double prazo = getMediaNanos() + desvios * desvio();
+        return Math.max(prazoFixoNanos, Math.min(maximoNanos, (long) prazo));
+    }
+
+    /** O maior prazo que prazoNanos() pode devolver. */
+    public long getMaximoNanos() {
+        return maximoNanos;
+    }
+
+    /**
+     * phi de uma mensagem que ainda não chegou 'nanos' depois do início da rodada.
+     */
+    public double phi(long nanos) {
+        if (total < MINIMO_AMOSTRAS) {
+            return 0;
+        }
+        return phi((nanos - getMediaNanos()) / desvio());
+    }
+
+    public double getMediaNanos() {
+        return total > 0 ? soma / total : 0;
+    }
+
+    public int getAmostras() {
+        return total;
+    }
+
+    public double getLimiar() {
+        return limiar;
+    }
+
+    private double desvio() {
+        double media = getMediaNanos();
+        double variancia = Math.max(somaQuadrados / total - media * media, 0);
+        return Math.max(Math.sqrt(variancia), DESVIO_MINIMO_NANOS);
+    }
+
+    /**
+     * phi a 'y' desvios padrão da média: -log10 da cauda da normal, pela
+     * aproximação logística 1 / (1 + e^(y(1,5976 + 0,070566 y²))).
+     */
+    private static double phi(double y) {
+        double expoente = y * (1.5976 + 0.070566 * y * y);
+        // log10(1 + e^x) sem estourar para x grande
+        double log = expoente > 30 ? expoente : Math.log1p(Math.exp(expoente));
+        return log / Math.log(10);
+    }
+
+    /**
+     * Quantos desvios padrão acima da média phi atinge 'limiar' (phi cresce
+     * com y, então basta uma busca binária).
+     */
+    private static double desviosPara(double limiar) {
+        double baixo = -10;
+        double alto = 100;
+        for (int i = 0; i < 100; i++) {
+            double meio = (baixo + alto) / 2;
+            if (phi(meio) < limiar) {
+                baixo = meio;
+            } else {
+                alto = meio;
+            }
+        }
+        return alto;
+    }
+}
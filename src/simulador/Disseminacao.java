@@ -0,0 +1,16 @@
+package simulador;
+
+/**
+ * Como um Tenente do SM(m) faz chegar aos outros os valores que retransmite.
+ */
+public enum Disseminacao {
+    /** Direto a cada Tenente fora do caminho: ~n mensagens por retransmissão, ~n² por rodada. */
+    DIRETA,
+    /**
+     * Pela Sobreposicao: cada Tenente só fala com os seus vizinhos, que
+     * repassam o valor na mesma rodada quando ele é novo para eles. Cada nó
+     * envia O(grau) mensagens por valor em vez de O(n). Só no SM, pois quem
+     * repassa não pode alterar uma mensagem assinada.
+     */
+    SOBREPOSICAO
+}
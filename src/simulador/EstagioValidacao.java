@@ -0,0 +1,176 @@
+package simulador;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Estágio entre o transporte e a thread do protocolo que valida as mensagens
+ * recebidas (ex.: as cadeias de assinaturas do SM) num ForkJoinPool, para
+ * que a thread do protocolo não seja o limite quando cada mensagem custa
+ * caro.
+ *
+ * O transporte entrega na fila 'entrada'; uma thread despachante só separa
+ * as mensagens em faixas pelo remetente (o mesmo remetente cai sempre na
+ * mesma faixa), e cada faixa é atendida por no máximo uma tarefa do pool de
+ * cada vez, então as mensagens válidas chegam à fila 'saida' na ordem em que
+ * cada remetente as enviou. Faixas diferentes são validadas em paralelo, e o
+ * roubo de trabalho do pool equilibra os núcleos quando alguns remetentes
+ * mandam mais que outros. O número de faixas é fixo, para que IDs
+ * inventados por um traidor não criem estado novo.
+ *
+ * As mensagens inválidas são descartadas e contadas.
+ */
+public class EstagioValidacao {
+    // Quantas mensagens uma tarefa valida antes de devolver o núcleo ao pool
+    private static final int LOTE = 64;
+
+    /** As mensagens ainda não validadas dos remetentes de uma faixa. */
+    private final class Faixa implements Runnable {
+        final Queue<Mensagem> pendentes = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean agendado = new AtomicBoolean();
+
+        void chegou(Mensagem msg) {
+            pendentes.add(msg);
+            if (agendado.compareAndSet(false, true)) {
+                agendar(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < LOTE; i++) {
+                Mensagem msg = pendentes.poll();
+                if (msg == null) {
+                    break;
+                }
+                if (validador.test(msg)) {
+                    validadas.increment();
+                    saida.offer(msg); // Fila sem limite: nunca bloqueia o pool
+                } else {
+                    descartadas.increment();
+                }
+            }
+            agendado.set(false);
+            // Chegou algo depois do último poll(), ou o lote acabou: agenda de novo
+            if (!pendentes.isEmpty() && agendado.compareAndSet(false, true)) {
+                agendar(this);
+            }
+        }
+    }
+
+    private final BlockingQueue<Mensagem> entrada;
+    private final BlockingQueue<Mensagem> saida;
+    private final Predicate<Mensagem> validador;
+    private final ForkJoinPool pool;
+    private final boolean poolProprio;
+    private final Faixa[] faixas;
+    private final Thread despachante;
+
+    private final LongAdder validadas = new LongAdder();
+    private final LongAdder descartadas = new LongAdder();
+
+    /**
+     * Estágio com um ForkJoinPool próprio de 'nucleos' threads.
+     */
+    public EstagioValidacao(BlockingQueue<Mensagem> entrada, BlockingQueue<Mensagem> saida,
+                            Predicate<Mensagem> validador, int nucleos) {
+        this(entrada, saida, validador, new ForkJoinPool(nucleos), true);
+    }
+
+    /**
+     * Estágio sobre um pool compartilhado (ex.: vários processos na mesma
+     * JVM); fechar() não o encerra.
+     */
+    public EstagioValidacao(BlockingQueue<Mensagem> entrada, BlockingQueue<Mensagem> saida,
+                            Predicate<Mensagem> validador, ForkJoinPool pool) {
+        this(entrada, saida, validador, pool, false);
+    }
+
+    private EstagioValidacao(BlockingQueue<Mensagem> entrada, BlockingQueue<Mensagem> saida,
+                             Predicate<Mensagem> validador, ForkJoinPool pool, boolean poolProprio) {
+        this.entrada = entrada;
+        this.saida = saida;
+        this.validador = validador;
+        this.pool = pool;
+        this.poolProprio = poolProprio;
+        this.faixas = new Faixa[Math.max(64, 4 * pool.getParallelism())];
+        for (int i = 0; i < faixas.length; i++) {
+            faixas[i] = new Faixa();
+        }
+        this.despachante = new Thread(this::despachar, "validacao-despachante");
+        this.despachante.setDaemon(true);
+    }
+
+    /**
+     * Validador das mensagens de um processo: no SM, a cadeia de assinaturas
+     * das ordens (o resultado fica no cache do verificador, então a instância
+     * não paga a verificação de novo); as demais mensagens passam direto.
+     */
+    public static Predicate<Mensagem> validador(VerificadorAssinaturas verificador) {
+        if (verificador == null) {
+            return msg -> true;
+        }
+        return msg -> msg.getTipo() != TipoMensagem.ORDEM || verificador.verificar(msg);
+    }
+
+    public void iniciar() {
+        despachante.start();
+    }
+
+    /**
+     * Para o despachante e, se o pool é do estágio, o encerra. Mensagens ainda
+     * não validadas são perdidas.
+     */
+    public void fechar() {
+        despachante.interrupt();
+        if (poolProprio) {
+            pool.shutdownNow();
+        }
+    }
+
+    public int getNucleos() {
+        return pool.getParallelism();
+    }
+
+    /** Quantas mensagens passaram para a fila de saída. */
+    public long getValidadas() {
+        return validadas.sum();
+    }
+
+    /** Quantas mensagens foram rejeitadas pelo validador. */
+    public long getDescartadas() {
+        return descartadas.sum();
+    }
+
+    private void despachar() {
+        List<Mensagem> lote = new ArrayList<>(LOTE);
+        try {
+            while (true) {
+                lote.add(entrada.take());
+                entrada.drainTo(lote, LOTE - 1);
+                for (Mensagem msg : lote) {
+                    faixas[Math.floorMod(msg.getRemetenteId(), faixas.length)].chegou(msg);
+                }
+                lote.clear();
+            }
+        } catch (InterruptedException e) {
+            // fechar()
+        }
+    }
+
+    private void agendar(Faixa faixa) {
+        try {
+            pool.execute(faixa);
+        } catch (RejectedExecutionException e) {
+            // Pool encerrado por fechar(): o que estava pendente se perde
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package simulador;
+
+/**
+ * Como um general traidor se comporta. A instância (OM ou SM) consulta a
+ * estratégia a cada mensagem que um general leal enviaria e manda o que ela
+ * escolher, ou nada. No SM, um Tenente traidor só consegue mentir com uma
+ * cadeia de assinaturas inválida, que os leais rejeitam; calar-se e atrasar
+ * continuam valendo.
+ *
+ * As estratégias são sem estado e dependem só dos argumentos, então vários
+ * traidores com a mesma estratégia agem de forma coordenada.
+ */
+public interface EstrategiaTraidor {
+
+    /**
+     * O valor que o traidor manda a 'destino' onde um general leal mandaria
+     * 'honesto', ou null para não mandar nada. A rodada 1 é a do Comandante;
+     * 'indice' é a posição de 'destino' entre os destinatários deste envio.
+     */
+    Ordem escolher(long instancia, int rodada, int destino, int indice, Ordem honesto);
+
+    /**
+     * Quanto atrasar tudo o que o traidor envia (ms); 0 envia na hora.
+     */
+    default long getAtrasoMs() {
+        return 0;
+    }
+
+    /**
+     * O comportamento original: o Comandante alterna ATACAR e RECUAR pela
+     * posição do destinatário, e o Tenente inverte tudo o que repassa.
+     */
+    EstrategiaTraidor PADRAO = new Embutida("PADRAO", 0,
+            (instancia, rodada, destino, indice, honesto) -> rodada == 1
+                    ? (indice % 2 == 0 ? Ordem.ATACAR : Ordem.RECUAR)
+                    : honesto.oposta());
+
+    /** Não envia nada, como um general que caiu. */
+    EstrategiaTraidor SILENCIO = new Embutida("SILENCIO", 0,
+            (instancia, rodada, destino, indice, honesto) -> null);
+
+    /**
+     * Diz a verdade aos destinatários de ID par e o contrário aos de ID
+     * ímpar, em todas as rodadas.
+     */
+    EstrategiaTraidor EQUIVOCACAO = new Embutida("EQUIVOCACAO", 0,
+            (instancia, rodada, destino, indice, honesto) -> destino % 2 == 0 ? honesto : honesto.oposta());
+
+    /**
+     * Traidores em conluio: todos os Tenentes traidores afirmam 'alvo' a
+     * todos, e um Comandante traidor manda 'alvo' aos de ID par e o contrário
+     * aos de ID ímpar, para que os votos combinados dos cúmplices desempatem
+     * a favor de 'alvo'.
+     */
+    static EstrategiaTraidor conluio(Ordem alvo) {
+        return new Embutida("CONLUIO:" + alvo, 0, (instancia, rodada, destino, indice, honesto) -> rodada == 1
+                ? (destino % 2 == 0 ? alvo : alvo.oposta())
+                : alvo);
+    }
+
+    /**
+     * Manda os valores certos, mas 'atrasoMs' depois: com um atraso maior que
+     * o prazo da rodada, as mensagens chegam tarde demais para contar.
+     */
+    static EstrategiaTraidor atraso(long atrasoMs) {
+        if (atrasoMs < 0) {
+            throw new IllegalArgumentException("Atraso negativo: " + atrasoMs);
+        }
+        return new Embutida("ATRASO:" + atrasoMs, atrasoMs, (instancia, rodada, destino, indice, honesto) -> honesto);
+    }
+
+    /**
+     * A estratégia pelo nome: PADRAO, SILENCIO, EQUIVOCACAO, CONLUIO[:ATACAR|RECUAR]
+     * (RECUAR se omitido) ou ATRASO:ms.
+     */
+    static EstrategiaTraidor deNome(String nome) {
+        String[] partes = nome.trim().toUpperCase().split(":", 2);
+        switch (partes[0]) {
+            case "PADRAO":
+                return PADRAO;
+            case "SILENCIO":
+                return SILENCIO;
+            case "EQUIVOCACAO":
+                return EQUIVOCACAO;
+            case "CONLUIO":
+                return conluio(partes.length > 1 ? Ordem.valueOf(partes[1]) : Ordem.RECUAR);
+            case "ATRASO":
+                if (partes.length < 2) {
+                    throw new IllegalArgumentException("ATRASO precisa do atraso em ms (ex.: ATRASO:500)");
+                }
+                return atraso(Long.parseLong(partes[1]));
+            default:
+                throw new IllegalArgumentException("Estratégia de traidor desconhecida: " + nome);
+        }
+    }
+
+    /**
+     * Lê a estratégia da propriedade de sistema 'simulador.traicao' (padrão: PADRAO).
+     */
+    static EstrategiaTraidor daPropriedade() {
+        return deNome(System.getProperty("simulador.traicao", "PADRAO"));
+    }
+
+    /** Uma das estratégias acima, com o nome usado em deNome(). */
+    final class Embutida implements EstrategiaTraidor {
+        private final String nome;
+        private final long atrasoMs;
+        private final EstrategiaTraidor escolha;
+
+        private Embutida(String nome, long atrasoMs, EstrategiaTraidor escolha) {
+            this.nome = nome;
+            this.atrasoMs = atrasoMs;
+            this.escolha = escolha;
+        }
+
+        @Override
+        public Ordem escolher(long instancia, int rodada, int destino, int indice, Ordem honesto) {
+            return escolha.escolher(instancia, rodada, destino, indice, honesto);
+        }
+
+        @Override
+        public long getAtrasoMs() {
+            return atrasoMs;
+        }
+
+        @Override
+        public String toString() {
+            return nome;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package simulador;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Falhas de rede a injetar nos envios: atraso fixo mais um jitter sorteado,
+ * perda com uma probabilidade e partições que separam um grupo de processos
+ * dos demais durante um intervalo. Os instantes das partições contam a partir
+ * do início do processo (TransporteFalhas) ou da execução (SimulacaoDiscreta).
+ *
+ * Uma mesma instância pode ser compartilhada por todos os processos; ela
+ * soma o que foi descartado em todos eles.
+ */
+public class Falhas {
+
+    /** Os processos em 'lado' ficam sem falar com os demais de inicioMs a fimMs. */
+    private static final class Particao {
+        final Set<Integer> lado;
+        final long inicioMs;
+        final long fimMs;
+
+        Particao(Set<Integer> lado, long inicioMs, long fimMs) {
+            this.lado = lado;
+            this.inicioMs = inicioMs;
+            this.fimMs = fimMs;
+        }
+    }
+
+    private long atrasoMs;
+    private long jitterMs;
+    private double perda;
+    private long semente = 42L;
+    private final List<Particao> particoes = new ArrayList<>();
+
+    private final LongAdder perdidas = new LongAdder();
+    private final LongAdder bloqueadas = new LongAdder();
+    private final LongAdder atrasadas = new LongAdder();
+
+    public long getAtrasoMs() {
+        return atrasoMs;
+    }
+
+    /** Atraso somado a todo envio. */
+    public Falhas comAtrasoMs(long atrasoMs) {
+        if (atrasoMs < 0) {
+            throw new IllegalArgumentException("Atraso negativo: " + atrasoMs);
+        }
+        this.atrasoMs = atrasoMs;
+        return this;
+    }
+
+    public long getJitterMs() {
+        return jitterMs;
+    }
+
+    /** Atraso extra sorteado uniformemente entre 0 e jitterMs a cada envio. */
+    public Falhas comJitterMs(long jitterMs) {
+        if (jitterMs < 0) {
+            throw new IllegalArgumentException("Jitter negativo: " + jitterMs);
+        }
+        this.jitterMs = jitterMs;
+        return this;
+    }
+
+    public double getPerda() {
+        return perda;
+    }
+
+    /** Probabilidade (0 a 1) de cada mensagem ser descartada. */
+    public Falhas comPerda(double perda) {
+        if (perda < 0 || perda > 1) {
+            throw new IllegalArgumentException("Perda fora de 0..1: " + perda);
+        }
+        this.perda = perda;
+        return this;
+    }
+
+    public long getSemente() {
+        return semente;
+    }
+
+    /** Semente dos sorteios; cada processo a combina com o seu ID. */
+    public Falhas comSemente(long semente) {
+        this.semente = semente;
+        return this;
+    }
+
+    /**
+     * Separa os processos de 'lado' dos demais de inicioMs a fimMs: nenhuma
+     * mensagem atravessa a partição nesse intervalo, nos dois sentidos.
+     */
+    public Falhas comParticao(Set<Integer> lado, long inicioMs, long fimMs) {
+        if (fimMs < inicioMs) {
+            throw new IllegalArgumentException("Partição termina antes de começar: " + inicioMs + "-" + fimMs);
+        }
+        particoes.add(new Particao(new HashSet<>(lado), inicioMs, fimMs));
+        return this;
+    }
+
+    /**
+     * Lê as falhas de um texto como "atraso=5,jitter=10,perda=0.01,particao=1+2@0-3000"
+     * (chaves opcionais; 'particao' pode se repetir).
+     */
+    public static Falhas deTexto(String texto) {
+        Falhas falhas = new Falhas();
+        for (String item : texto.split(",")) {
+            if (item.isBlank()) {
+                continue;
+            }
+            String[] chaveValor = item.trim().split("=", 2);
+            if (chaveValor.length < 2) {
+                throw new IllegalArgumentException("Falha sem valor: " + item);
+            }
+            String valor = chaveValor[1].trim();
+            switch (chaveValor[0].trim().toLowerCase()) {
+                case "atraso":
+                    falhas.comAtrasoMs(Long.parseLong(valor));
+                    break;
+                case "jitter":
+                    falhas.comJitterMs(Long.parseLong(valor));
+                    break;
+                case "perda":
+                    falhas.comPerda(Double.parseDouble(valor));
+                    break;
+                case "semente":
+                    falhas.comSemente(Long.parseLong(valor));
+                    break;
+                case "particao":
+                    String[] ladoIntervalo = valor.split("@", 2);
+                    Set<Integer> lado = new HashSet<>();
+                    for (String id : ladoIntervalo[0].split("\\+")) {
+                        lado.add(Integer.parseInt(id.trim()));
+                    }
+                    long inicio = 0;
+                    long fim = Long.MAX_VALUE;
+                    if (ladoIntervalo.length > 1) {
+                        String[] intervalo = ladoIntervalo[1].split("-", 2);
+                        inicio = Long.parseLong(intervalo[0].trim());
+                        fim = intervalo.length > 1 ? Long.parseLong(intervalo[1].trim()) : Long.MAX_VALUE;
+                    }
+                    falhas.comParticao(lado, inicio, fim);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Falha desconhecida: " + chaveValor[0]);
+            }
+        }
+        return falhas;
+    }
+
+    /**
+     * Lê as falhas da propriedade de sistema 'simulador.falhas' (no formato
+     * de deTexto()), ou null se ela não foi definida.
+     */
+    public static Falhas daPropriedade() {
+        String valor = System.getProperty("simulador.falhas");
+        return valor != null && !valor.isBlank() ? deTexto(valor) : null;
+    }
+
+    /**
+     * Se uma partição separa 'origem' de 'destino' no instante 'ms'.
+     */
+    public boolean separados(int origem, int destino, long ms) {
+        for (Particao particao : particoes) {
+            if (ms >= particao.inicioMs && ms < particao.fimMs
+                    && particao.lado.contains(origem) != particao.lado.contains(destino)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decide o destino de um envio de 'origem' a 'destino' no instante 'ms':
+     * -1 se a mensagem deve ser descartada, ou o atraso a aplicar (µs), que
+     * pode ser 0. Conta os descartes e os atrasos.
+     */
+    public long sortear(int origem, int destino, long ms, Random sorteio) {
+        if (separados(origem, destino, ms)) {
+            bloqueadas.increment();
+            return -1;
+        }
+        if (perda > 0 && sorteio.nextDouble() < perda) {
+            perdidas.increment();
+            return -1;
+        }
+        long atrasoMicros = atrasoMs * 1000;
+        if (jitterMs > 0) {
+            atrasoMicros += (long) (sorteio.nextDouble() * jitterMs * 1000);
+        }
+        if (atrasoMicros > 0) {
+            atrasadas.increment();
+        }
+        return atrasoMicros;
+    }
+
+    /** Mensagens descartadas pela perda sorteada. */
+    public long getPerdidas() {
+        return perdidas.sum();
+    }
+
+    /** Mensagens descartadas por uma partição. */
+    public long getBloqueadas() {
+        return bloqueadas.sum();
+    }
+
+    /** Mensagens entregues com atraso. */
+    public long getAtrasadas() {
+        return atrasadas.sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder("atraso=" + atrasoMs + ",jitter=" + jitterMs + ",perda=" + perda);
+        for (Particao particao : particoes) {
+            texto.append(",particao=")
+                    .append(particao.lado.stream().sorted().map(String::valueOf).collect(Collectors.joining("+")))
+                    .append('@').append(particao.inicioMs).append('-')
+                    .append(particao.fimMs == Long.MAX_VALUE ? "" : String.valueOf(particao.fimMs));
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,314 @@
+package simulador;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Teste de carga sem interface: gera um config.txt com n nós em portas de
+ * localhost, sobe cada Tenente numa JVM própria (NoCarga) e o Comandante
+ * nesta, e propõe valores por 'duracaoS' segundos depois de 'aquecimentoS'
+ * segundos de aquecimento, que não entram nas contas. No fim mostra a vazão
+ * de decisões confirmadas, a distribuição da latência (do propor() até o
+ * Comandante reunir as confirmações) e o uso de CPU e de heap de cada nó no
+ * período medido. Antes de parar os Tenentes espera que cada um entregue
+ * todas as instâncias propostas; se algum ficou para trás ou decidiu
+ * diferente dos outros, avisa e sai com status 1.
+ *
+ * Modos:
+ *   FIXA: 'carga' propostas por segundo, em laço aberto. A latência conta do
+ *   instante em que a proposta deveria ter saído, então esperar por uma vaga
+ *   na janela (ou o gerador se atrasar) aparece nela, em vez de sumir.
+ *   FECHADA: 'carga' propostas em andamento (a janela do NoConsenso); cada
+ *   confirmação libera a próxima, medida a partir de quando ela sai.
+ *
+ * Uso: java simulador.GeradorCarga [n] [m] [modo] [carga] [duracaoS] [aquecimentoS] [portaBase]
+ *          [algoritmo] [janela] [prazoRodadaMs]
+ *   janela: só no modo FIXA (padrão 64)
+ * O transporte vem de -Dsimulador.transporte (BLOQUEANTE ou NIO) e vale para todos os nós.
+ */
+public class GeradorCarga {
+
+    private static final long SEMENTE = 42L;
+    private static final long PRAZO_PRONTIDAO_MS = 60_000;
+    private static final long PRAZO_DRENAGEM_MS = 30_000;
+    private static final double[] PERCENTIS = {0.5, 0.75, 0.9, 0.95, 0.99, 0.999, 0.9999, 1.0};
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        String modo = (args.length > 2 ? args[2] : "FECHADA").toUpperCase();
+        int carga = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        long duracaoS = args.length > 4 ? Long.parseLong(args[4]) : 30;
+        long aquecimentoS = args.length > 5 ? Long.parseLong(args[5]) : 5;
+        int portaBase = args.length > 6 ? Integer.parseInt(args[6]) : 9900;
+        Algoritmo algoritmo = args.length > 7 ? Algoritmo.valueOf(args[7].toUpperCase()) : Algoritmo.OM;
+        int janela = args.length > 8 ? Integer.parseInt(args[8]) : 64;
+        long prazoRodadaMs = args.length > 9 ? Long.parseLong(args[9]) : 2000;
+        if (!modo.equals("FIXA") && !modo.equals("FECHADA")) {
+            throw new IllegalArgumentException("Modo deve ser FIXA ou FECHADA: " + modo);
+        }
+        if (modo.equals("FECHADA")) {
+            janela = carga;
+        }
+
+        File pasta = Files.createTempDirectory("carga-").toFile();
+        File config = new File(pasta, "config.txt");
+        try (PrintWriter escritor = new PrintWriter(config, StandardCharsets.UTF_8)) {
+            escritor.println("# Gerado pelo GeradorCarga");
+            for (int id = 0; id < n; id++) {
+                escritor.println(id + " 127.0.0.1 " + (portaBase + id));
+            }
+        }
+        Membresia membresia = Membresia.ler(config.getPath());
+
+        System.out.println(algoritmo + "(" + m + "), n = " + n + ", transporte " + ModoTransporte.daPropriedade()
+                + ", modo " + modo + (modo.equals("FIXA") ? " " + carga + " propostas/s, janela " + janela
+                : " " + carga + " em andamento") + ", " + duracaoS + " s (+" + aquecimentoS + " s de aquecimento)");
+
+        NoConsenso comandante = new NoConsenso(0, 0, false, membresia,
+                NoCarga.opcoes(membresia, m, algoritmo, SEMENTE, prazoRodadaMs).comJanela(janela), null);
+        AmostradorRecursos recursos = new AmostradorRecursos();
+        recursos.iniciar();
+        comandante.iniciar();
+        List<Process> tenentes = new ArrayList<>();
+        List<String> relatorios = new ArrayList<>();
+        List<Thread> leitores = new ArrayList<>();
+        boolean coerentes = false;
+        try {
+            for (int id = 1; id < n; id++) {
+                tenentes.add(lancar(id, config, m, algoritmo, prazoRodadaMs, relatorios, leitores));
+            }
+            if (!comandante.aguardarProntos(PRAZO_PRONTIDAO_MS)) {
+                System.out.println("AVISO: nem todos os nós responderam em " + PRAZO_PRONTIDAO_MS + " ms.");
+            }
+
+            Medicao medicao = new Medicao();
+            comandante.aoConfirmar(medicao::confirmada);
+            long inicio = System.nanoTime();
+            medicao.inicioMedicao = inicio + TimeUnit.SECONDS.toNanos(aquecimentoS);
+            medicao.fimMedicao = medicao.inicioMedicao + TimeUnit.SECONDS.toNanos(duracaoS);
+            Thread aviso = new Thread(() -> {
+                LockSupport.parkNanos(medicao.inicioMedicao - System.nanoTime());
+                recursos.iniciar();
+                comandar(tenentes, "MEDIR");
+                LockSupport.parkNanos(medicao.fimMedicao - System.nanoTime());
+                medicao.recursosComandante = recursos.formatar();
+                comandar(tenentes, "PARAR");
+            }, "periodo-medido");
+            aviso.setDaemon(true);
+            aviso.start();
+
+            long propostas = modo.equals("FIXA")
+                    ? proporTaxaFixa(comandante, medicao, carga)
+                    : proporLacoFechado(comandante, medicao);
+            comandante.aguardarConclusao(PRAZO_DRENAGEM_MS);
+            aviso.join();
+            comandar(tenentes, "FIM " + propostas);
+            for (Process tenente : tenentes) {
+                if (!tenente.waitFor(NoCarga.PRAZO_DRENAGEM_MS + 10_000, TimeUnit.MILLISECONDS)) {
+                    tenente.destroyForcibly();
+                }
+            }
+            for (Thread leitor : leitores) {
+                leitor.join(1000);
+            }
+
+            imprimir(medicao, propostas, duracaoS, comandante, relatorios);
+            coerentes = conferir(propostas, n - 1, relatorios);
+        } finally {
+            for (Process tenente : tenentes) {
+                tenente.destroyForcibly();
+            }
+            comandante.desligar();
+            recursos.fechar();
+            config.delete();
+            pasta.delete();
+        }
+        System.exit(coerentes ? 0 : 1);
+    }
+
+    /** O que o ouvinte de confirmações acumula (na thread do protocolo do Comandante). */
+    private static final class Medicao {
+        volatile long inicioMedicao;
+        volatile long fimMedicao;
+        // CPU e heap do Comandante tomados em fimMedicao, sem a drenagem
+        volatile String recursosComandante;
+        // No modo FIXA: a primeira instância e o intervalo entre propostas, para achar o instante previsto
+        volatile long primeiraInstancia = -1;
+        volatile long inicioPrevisto;
+        volatile long intervaloNanos;
+        final Histograma latencias = new Histograma();
+        final AtomicLong confirmadas = new AtomicLong();
+
+        void confirmada(long instancia, long latenciaNanos) {
+            long agora = System.nanoTime();
+            long saida = agora - latenciaNanos;
+            if (intervaloNanos > 0) {
+                if (primeiraInstancia < 0) {
+                    return; // Confirmada antes de propor() retornar a primeira: fica fora
+                }
+                saida = inicioPrevisto + (instancia - primeiraInstancia) * intervaloNanos;
+            }
+            if (saida >= inicioMedicao && saida < fimMedicao) {
+                latencias.registrar(agora - saida);
+            }
+            if (agora >= inicioMedicao && agora < fimMedicao) {
+                confirmadas.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Propõe 'taxa' valores por segundo até o fim da medição, cada um no seu
+     * instante previsto; atrasado, propõe sem esperar até alcançar o ritmo.
+     */
+    private static long proporTaxaFixa(NoConsenso comandante, Medicao medicao, int taxa) throws InterruptedException {
+        long intervalo = TimeUnit.SECONDS.toNanos(1) / taxa;
+        long inicio = System.nanoTime();
+        medicao.inicioPrevisto = inicio;
+        medicao.intervaloNanos = intervalo;
+        long propostas = 0;
+        for (long previsto = inicio; previsto < medicao.fimMedicao; previsto += intervalo) {
+            long espera = previsto - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            }
+            long instancia = comandante.propor(propostas % 2 == 0 ? Ordem.ATACAR : Ordem.RECUAR);
+            if (propostas++ == 0) {
+                medicao.primeiraInstancia = instancia;
+            }
+        }
+        return propostas;
+    }
+
+    /**
+     * Propõe sem parar até o fim da medição; propor() bloqueia enquanto a
+     * janela estiver cheia.
+     */
+    private static long proporLacoFechado(NoConsenso comandante, Medicao medicao) throws InterruptedException {
+        long propostas = 0;
+        while (System.nanoTime() < medicao.fimMedicao) {
+            comandante.propor(propostas++ % 2 == 0 ? Ordem.ATACAR : Ordem.RECUAR);
+        }
+        return propostas;
+    }
+
+    /**
+     * Sobe o Tenente 'id' numa JVM com o mesmo java, classpath e transporte
+     * desta, guardando a linha RECURSOS que ele imprimir ao sair.
+     */
+    private static Process lancar(int id, File config, int m, Algoritmo algoritmo, long prazoRodadaMs,
+                                  List<String> relatorios, List<Thread> leitores) throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        ProcessBuilder construtor = new ProcessBuilder(java,
+                "-Dsimulador.transporte=" + ModoTransporte.daPropriedade(),
+                "-cp", System.getProperty("java.class.path"),
+                NoCarga.class.getName(), String.valueOf(id), config.getPath(), String.valueOf(m),
+                algoritmo.name(), String.valueOf(SEMENTE), String.valueOf(prazoRodadaMs));
+        construtor.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process processo = construtor.start();
+        Thread leitor = new Thread(() -> {
+            try (BufferedReader saida = new BufferedReader(
+                    new InputStreamReader(processo.getInputStream(), StandardCharsets.UTF_8))) {
+                String linha;
+                while ((linha = saida.readLine()) != null) {
+                    if (linha.startsWith("RECURSOS ")) {
+                        synchronized (relatorios) {
+                            relatorios.add(linha);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // O processo terminou
+            }
+        }, "saida-no-" + id);
+        leitor.setDaemon(true);
+        leitor.start();
+        leitores.add(leitor);
+        return processo;
+    }
+
+    private static void comandar(List<Process> tenentes, String comando) {
+        for (Process tenente : tenentes) {
+            try {
+                OutputStream entrada = tenente.getOutputStream();
+                entrada.write((comando + "\n").getBytes(StandardCharsets.UTF_8));
+                entrada.flush();
+            } catch (IOException e) {
+                // O Tenente já saiu; o relatório dele vai faltar
+            }
+        }
+    }
+
+    private static void imprimir(Medicao medicao, long propostas, long duracaoS, NoConsenso comandante,
+                                 List<String> relatorios) {
+        Histograma latencias = medicao.latencias;
+        System.out.println("Propostas: " + propostas + ", confirmadas no período: " + medicao.confirmadas.get()
+                + ", instâncias expiradas: " + comandante.getInstanciasExpiradas());
+        System.out.printf(Locale.ROOT, "Vazão: %.1f decisões/s%n", (double) medicao.confirmadas.get() / duracaoS);
+        System.out.printf(Locale.ROOT, "Latência (ms): n=%d média %.2f, máx %.2f%n", latencias.getContagem(),
+                latencias.getMedia() / 1e6, latencias.getMaximo() / 1e6);
+        System.out.println("   percentil   valor (ms)  acumulado");
+        for (double p : PERCENTIS) {
+            System.out.printf(Locale.ROOT, "%11.4f %12.3f %10d%n", p * 100, latencias.percentil(p) / 1e6,
+                    (long) Math.ceil(p * latencias.getContagem()));
+        }
+
+        System.out.println("Recursos por nó no período (" + AmostradorRecursos.CAMPOS + "):");
+        System.out.println("  nó 0 (Comandante, com o gerador) decididas " + comandante.getDecididas() + ": "
+                + medicao.recursosComandante);
+        List<String> ordenados;
+        synchronized (relatorios) {
+            ordenados = new ArrayList<>(relatorios);
+        }
+        ordenados.sort((a, b) -> Integer.compare(Integer.parseInt(a.split(" ")[1]), Integer.parseInt(b.split(" ")[1])));
+        for (String relatorio : ordenados) {
+            String[] campos = relatorio.split(" ", 6);
+            System.out.println("  nó " + campos[1] + " decididas " + campos[2] + ", rodadas expiradas " + campos[3]
+                    + ": " + campos[5]);
+        }
+    }
+
+    /**
+     * Confere que os 'tenentes' relataram, todos entregaram as 'propostas'
+     * instâncias e decidiram o mesmo (pelo resumo); avisa o que faltar.
+     */
+    private static boolean conferir(long propostas, int tenentes, List<String> relatorios) {
+        List<String> copia;
+        synchronized (relatorios) {
+            copia = new ArrayList<>(relatorios);
+        }
+        boolean coerentes = true;
+        if (copia.size() < tenentes) {
+            System.out.println("AVISO: só " + copia.size() + " de " + tenentes + " Tenentes relataram.");
+            coerentes = false;
+        }
+        String resumo = null;
+        for (String relatorio : copia) {
+            String[] campos = relatorio.split(" ", 6);
+            if (Long.parseLong(campos[2]) != propostas) {
+                System.out.println("AVISO: o nó " + campos[1] + " entregou " + campos[2] + " de " + propostas
+                        + " instâncias em " + NoCarga.PRAZO_DRENAGEM_MS + " ms.");
+                coerentes = false;
+            } else if (resumo == null) {
+                resumo = campos[4];
+            } else if (!resumo.equals(campos[4])) {
+                System.out.println("AVISO: o nó " + campos[1] + " decidiu diferente dos outros Tenentes.");
+                coerentes = false;
+            }
+        }
+        return coerentes;
+    }
+}
@@ -0,0 +1,33 @@
+package simulador;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Gera as chaves do SM(m) para os processos de um config.txt: chaves.txt
+ * com as chaves de todos e, no ED25519, um chave-ID.txt com a chave privada
+ * de cada processo. Cada máquina deve receber o chaves.txt e só o seu
+ * chave-ID.txt.
+ *
+ * Uso: java simulador.GeradorChaves [config.txt] [ED25519|HMAC] [pasta]
+ */
+public class GeradorChaves {
+
+    public static void main(String[] args) throws IOException {
+        String config = args.length > 0 ? args[0] : "config.txt";
+        ChavesAssinatura.Esquema esquema = args.length > 1
+                ? ChavesAssinatura.Esquema.valueOf(args[1].toUpperCase()) : ChavesAssinatura.Esquema.ED25519;
+        File pasta = new File(args.length > 2 ? args[2] : ".");
+
+        int[] ids = Membresia.ler(config).getVisao().getParticipantes();
+        if (ids.length == 0) {
+            System.err.println("Nenhum processo em " + config);
+            System.exit(1);
+        }
+
+        ChavesAssinatura chaves = ChavesAssinatura.gerar(esquema, ids);
+        chaves.salvar(pasta);
+        System.out.println("Chaves " + esquema + " de " + ids.length + " processos escritas em "
+                + new File(pasta, "chaves.txt").getAbsolutePath());
+    }
+}
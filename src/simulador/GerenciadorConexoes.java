@@ -0,0 +1,214 @@
+package simulador;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mantém uma conexão TCP persistente para cada processo da Membresia.
+ * Todas as mensagens para um mesmo destino passam pelo mesmo canal, que é
+ * reaberto automaticamente se cair. Se a visão da membresia troca e o
+ * endereço do destino muda, o canal antigo é fechado e outro é aberto no
+ * endereço novo.
+ */
+public class GerenciadorConexoes {
+    // Quantas vezes tentamos reabrir o canal antes de desistir da mensagem
+    private static final int TENTATIVAS_ENVIO = 2;
+    /** Quanto o connect() de um canal novo espera, se não for dito outro. */
+    public static final long PRAZO_CONEXAO_MS = 2000;
+
+    private final Membresia membresia;
+    private final Map<Integer, Conexao> conexoes = new ConcurrentHashMap<>();
+    private final Metricas metricas;
+    private final int prazoConexaoMs;
+
+    public GerenciadorConexoes(Map<Integer, String[]> outrosProcessos) {
+        this(Membresia.de(outrosProcessos), new Metricas(-1), PRAZO_CONEXAO_MS);
+    }
+
+    /**
+     * Conta envios, bytes, falhas e reconexões de cada canal em 'metricas'.
+     * Um connect() que passa de 'prazoConexaoMs' (um destino que não responde,
+     * em vez de recusar) desiste da mensagem sem tentar de novo.
+     */
+    public GerenciadorConexoes(Membresia membresia, Metricas metricas, long prazoConexaoMs) {
+        this.membresia = membresia;
+        this.metricas = metricas;
+        this.prazoConexaoMs = (int) Math.min(prazoConexaoMs, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Envia a mensagem pelo canal do processo de destino, abrindo-o se preciso.
+     * Retorna false se o destino não existe ou se não foi possível entregar.
+     */
+    public boolean enviar(int idDestino, Mensagem msg) {
+        Membresia.Visao visao = membresia.getVisao();
+        Conexao conexao = conexoes.get(idDestino);
+        if (conexao == null || conexao.visao != visao) {
+            conexao = conexaoNaVisao(idDestino, visao);
+        }
+        if (conexao == null) {
+            metricas.par(idDestino).falhaEnvio(1);
+            return false;
+        }
+        return conexao.enviar(msg);
+    }
+
+    /**
+     * Fecha todos os canais abertos.
+     */
+    public void fecharTodas() {
+        for (Conexao conexao : conexoes.values()) {
+            conexao.descartar();
+        }
+        conexoes.clear();
+    }
+
+    /**
+     * O canal para 'id' na visão dada: o atual, se o endereço não mudou; senão
+     * um novo (ou null, se o processo saiu), e o atual é descartado. A troca
+     * no mapa é um replace() sem travas: um envio preso no canal antigo (num
+     * connect ou num write para um par lento) não segura os outros remetentes.
+     */
+    private Conexao conexaoNaVisao(int id, Membresia.Visao visao) {
+        InetSocketAddress endereco = visao.endereco(id);
+        while (true) {
+            Conexao atual = conexoes.get(id);
+            if (atual != null && atual.endereco.equals(endereco)) {
+                atual.visao = visao;
+                return atual;
+            }
+            Conexao nova = endereco == null ? null : new Conexao(endereco, visao, metricas.par(id), prazoConexaoMs);
+            boolean trocou;
+            if (atual == null) {
+                trocou = nova == null || conexoes.putIfAbsent(id, nova) == null;
+            } else if (nova == null) {
+                trocou = conexoes.remove(id, atual);
+            } else {
+                trocou = conexoes.replace(id, atual, nova);
+            }
+            if (trocou) {
+                if (atual != null) {
+                    atual.descartar();
+                }
+                return nova;
+            }
+            // Outra thread trocou o canal antes: confere de novo
+        }
+    }
+
+    /**
+     * Um canal de longa duração para um único par. Os envios são serializados
+     * pelo próprio objeto, então várias threads podem compartilhar o canal.
+     */
+    private static class Conexao {
+        private final InetSocketAddress endereco;
+        private final Metricas.ContadoresPar contadores;
+        private final int prazoConexaoMs;
+        // Última visão da membresia em que o endereço foi conferido
+        private volatile Membresia.Visao visao;
+
+        // Reaproveitado em todos os envios: cada quadro é codificado aqui antes de ir para o socket.
+        // Cresce na primeira mensagem assinada
+        private ByteBuffer quadro = ByteBuffer.allocate(CodecMensagem.TAMANHO_QUADRO);
+
+        // volatile: descartar() fecha o socket sem esperar o envio em andamento
+        private volatile Socket socket;
+        private OutputStream out;
+        // Se o canal já foi aberto alguma vez: abrir de novo conta como reconexão
+        private boolean jaAberto;
+        // O destino mudou de endereço ou saiu: um envio que pegou este canal antes da troca se perde
+        private volatile boolean descartada;
+
+        Conexao(InetSocketAddress endereco, Membresia.Visao visao, Metricas.ContadoresPar contadores,
+                int prazoConexaoMs) {
+            this.endereco = endereco;
+            this.visao = visao;
+            this.contadores = contadores;
+            this.prazoConexaoMs = prazoConexaoMs;
+        }
+
+        synchronized boolean enviar(Mensagem msg) {
+            if (descartada) {
+                contadores.falhaEnvio(1);
+                return false;
+            }
+            int tamanho = CodecMensagem.tamanhoQuadro(msg);
+            if (tamanho > quadro.capacity()) {
+                quadro = ByteBuffer.allocate(tamanho);
+            }
+            for (int tentativa = 0; tentativa < TENTATIVAS_ENVIO && !descartada; tentativa++) {
+                try {
+                    if (out == null) {
+                        abrir();
+                    }
+                    quadro.clear();
+                    CodecMensagem.codificar(msg, quadro);
+                    out.write(quadro.array(), 0, quadro.position());
+                    out.flush();
+                    contadores.enviada(quadro.position());
+                    return true;
+                } catch (SocketTimeoutException e) {
+                    // O destino não respondeu ao connect(): tentar de novo só dobraria a espera
+                    fechar();
+                    break;
+                } catch (IOException e) {
+                    // Canal caiu (ou nunca abriu): descarta e tenta reconectar
+                    fechar();
+                }
+            }
+            contadores.falhaEnvio(1);
+            return false;
+        }
+
+        private void abrir() throws IOException {
+            if (jaAberto) {
+                contadores.reconexao();
+            }
+            socket = new Socket();
+            jaAberto = true;
+            if (descartada) {
+                fechar(); // descartar() pode ter lido o socket anterior
+                throw new IOException("Canal descartado");
+            }
+            socket.connect(endereco, prazoConexaoMs);
+            socket.setTcpNoDelay(true);
+            out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        /**
+         * Marca o canal como descartado e fecha o socket sem esperar pela
+         * trava: um envio preso nele termina com erro em vez de prender quem
+         * descarta.
+         */
+        void descartar() {
+            descartada = true;
+            Socket atual = socket;
+            if (atual != null) {
+                try {
+                    atual.close();
+                } catch (IOException e) {
+                    // Ignorar: o canal não será mais usado
+                }
+            }
+        }
+
+        synchronized void fechar() {
+            try {
+                if (socket != null) {
+                    socket.close();
+                }
+            } catch (IOException e) {
+                // Ignorar: o canal será recriado no próximo envio
+            }
+            socket = null;
+            out = null;
+        }
+    }
+}
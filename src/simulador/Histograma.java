@@ -0,0 +1,133 @@
+package simulador;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências (em nanossegundos) com baldes logarítmicos no
+ * estilo do HdrHistogram: cada potência de 2 é dividida em SUB_BALDES
+ * baldes, então o erro relativo de um percentil é no máximo 1/SUB_BALDES
+ * (6,25%). Valores acima de 2^MAX_EXPOENTE ns (~18 min) caem no último balde.
+ *
+ * registrar() não aloca nem trava e pode ser chamado por várias threads; as
+ * leituras são aproximadas enquanto houver registros em andamento.
+ */
+public class Histograma {
+    private static final int BITS_SUB_BALDE = 4;
+    public static final int SUB_BALDES = 1 << BITS_SUB_BALDE;
+    private static final int MAX_EXPOENTE = 40;
+    // Até 2 * SUB_BALDES cada valor tem seu próprio balde
+    private static final int LINEARES = 2 * SUB_BALDES;
+    private static final int TOTAL_BALDES = LINEARES + (MAX_EXPOENTE - BITS_SUB_BALDE) * SUB_BALDES;
+    private static final long VALOR_MAXIMO = (1L << (MAX_EXPOENTE + 1)) - 1;
+
+    private final AtomicLongArray baldes = new AtomicLongArray(TOTAL_BALDES);
+    private final LongAdder contagem = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    public void registrar(long valor) {
+        if (valor < 0) {
+            valor = 0;
+        }
+        baldes.incrementAndGet(balde(Math.min(valor, VALOR_MAXIMO)));
+        contagem.increment();
+        soma.add(valor);
+        maximo.accumulate(valor);
+    }
+
+    /**
+     * Acrescenta os registros de 'outro' a este (ex.: para juntar os histogramas de vários processos).
+     */
+    public void somar(Histograma outro) {
+        for (int i = 0; i < TOTAL_BALDES; i++) {
+            long quantidade = outro.baldes.get(i);
+            if (quantidade > 0) {
+                baldes.addAndGet(i, quantidade);
+            }
+        }
+        contagem.add(outro.contagem.sum());
+        soma.add(outro.soma.sum());
+        maximo.accumulate(outro.maximo.get());
+    }
+
+    public long getContagem() {
+        return contagem.sum();
+    }
+
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    public double getMedia() {
+        long n = contagem.sum();
+        return n == 0 ? 0 : (double) soma.sum() / n;
+    }
+
+    /**
+     * O menor valor que cobre a fração 'p' (0 a 1) dos registros: o limite
+     * superior do balde onde ela cai, sem passar do máximo. 0 se vazio.
+     */
+    public long percentil(double p) {
+        long total = 0;
+        for (int i = 0; i < TOTAL_BALDES; i++) {
+            total += baldes.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long alvo = Math.max(1, (long) Math.ceil(p * total));
+        long acumulado = 0;
+        for (int i = 0; i < TOTAL_BALDES; i++) {
+            acumulado += baldes.get(i);
+            if (acumulado >= alvo) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    /**
+     * Resumo em microssegundos no formato JSON, ex.: {"contagem":10,"media_us":1.5,...}.
+     */
+    public void formatarJson(StringBuilder destino) {
+        destino.append("{\"contagem\":").append(getContagem())
+                .append(",\"media_us\":").append(String.format(Locale.ROOT, "%.1f", getMedia() / 1000))
+                .append(",\"p50_us\":").append(percentil(0.50) / 1000)
+                .append(",\"p90_us\":").append(percentil(0.90) / 1000)
+                .append(",\"p99_us\":").append(percentil(0.99) / 1000)
+                .append(",\"p999_us\":").append(percentil(0.999) / 1000)
+                .append(",\"max_us\":").append(getMaximo() / 1000)
+                .append('}');
+    }
+
+    /**
+     * Resumo em milissegundos para leitura, ex.: "n=10 média=1.5 p50=1.2 p99=3.0 máx=3.1 ms".
+     */
+    public String formatarTexto() {
+        return String.format(Locale.ROOT, "n=%d média=%.2f p50=%.2f p90=%.2f p99=%.2f máx=%.2f ms", getContagem(),
+                getMedia() / 1e6, percentil(0.50) / 1e6, percentil(0.90) / 1e6, percentil(0.99) / 1e6,
+                getMaximo() / 1e6);
+    }
+
+    private static int balde(long valor) {
+        if (valor < LINEARES) {
+            return (int) valor;
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(valor); // >= BITS_SUB_BALDE + 1
+        int sub = (int) (valor >>> (expoente - BITS_SUB_BALDE)) & (SUB_BALDES - 1);
+        return LINEARES + (expoente - BITS_SUB_BALDE - 1) * SUB_BALDES + sub;
+    }
+
+    private static long limiteSuperior(int balde) {
+        if (balde < LINEARES) {
+            return balde;
+        }
+        int expoente = (balde - LINEARES) / SUB_BALDES + BITS_SUB_BALDE + 1;
+        long sub = (balde - LINEARES) % SUB_BALDES;
+        long largura = 1L << (expoente - BITS_SUB_BALDE);
+        return ((SUB_BALDES + sub) * largura) + largura - 1;
+    }
+}
@@ -0,0 +1,93 @@
+package simulador;
+
+import java.util.function.Consumer;
+
+/**
+ * Uma instância de consenso vista por um processo, como máquina de estados
+ * dirigida por eventos: quem a usa entrega as mensagens com receber() e chama
+ * avancar() quando a rodada atual termina (rodadaCompleta(), ou o prazo
+ * acabou). Implementada pelo OM(m) (InstanciaOM) e pelo SM(m) (InstanciaSM).
+ */
+public interface InstanciaConsenso {
+
+    /**
+     * Para onde vão as mensagens que a instância gera.
+     */
+    interface Saida {
+        void enviar(int idDestino, Mensagem msg);
+    }
+
+    /**
+     * Cria a instância do algoritmo escolhido. 'traicao' é null num general
+     * leal. 'verificador' e a Disseminacao.SOBREPOSICAO só são usados (e
+     * aceitos) no SM.
+     */
+    static InstanciaConsenso criar(Algoritmo algoritmo, long instancia, int id, int comandanteId, int[] participantes,
+                                   int maxTraidores, EstrategiaTraidor traicao, Ordem proposta,
+                                   VerificadorAssinaturas verificador, Disseminacao disseminacao, Saida saida,
+                                   Consumer<String> log) {
+        if (algoritmo == Algoritmo.SM) {
+            return new InstanciaSM(instancia, id, comandanteId, participantes, maxTraidores, traicao, proposta,
+                    verificador, disseminacao, saida, log);
+        }
+        if (disseminacao == Disseminacao.SOBREPOSICAO) {
+            // Sem assinaturas, quem repassa poderia trocar o valor
+            throw new IllegalArgumentException("A disseminação pela Sobreposicao exige o SM (mensagens assinadas)");
+        }
+        return new InstanciaOM(instancia, id, comandanteId, participantes, maxTraidores, traicao, proposta, saida, log);
+    }
+
+    /**
+     * Começa a Rodada 1. O Comandante envia a ordem a todos e termina aqui.
+     */
+    void iniciar();
+
+    /**
+     * Processa a mensagem; retorna false se ela foi descartada ou não mudou nada.
+     */
+    boolean receber(Mensagem msg);
+
+    /**
+     * True se a rodada atual já pode ser encerrada sem esperar o prazo.
+     */
+    boolean rodadaCompleta();
+
+    /**
+     * Se a última rodada pode terminar antes de todas as mensagens chegarem,
+     * quando as que faltam já não podem mudar a decisão (só o OM tem essa
+     * contagem; ligado por padrão). Deve ser chamado antes de iniciar().
+     */
+    default void setDecisaoAntecipada(boolean ligada) {
+    }
+
+    /**
+     * Quantas mensagens da rodada atual ainda não chegaram (0 se não há como saber).
+     */
+    int faltam();
+
+    /**
+     * Quantas mensagens este processo recebe (ou recebeu) na rodada.
+     */
+    int esperados(int rodada);
+
+    /**
+     * Encerra a rodada atual e começa a próxima ou, depois da última, decide.
+     */
+    void avancar();
+
+    long getInstancia();
+
+    int getRodadaAtual();
+
+    /**
+     * Quantas rodadas de mensagens o algoritmo tem (m + 1).
+     */
+    int getTotalRodadas();
+
+    boolean isConcluida();
+
+    /**
+     * A decisão do Tenente (ou a proposta, no Comandante); null até concluir.
+     */
+    Ordem getDecisao();
+}
@@ -0,0 +1,383 @@
+package simulador;
+
+import java.util.function.Consumer;
+
+/**
+ * Uma execução (instância) do OM(m) vista por um processo, como máquina de
+ * estados dirigida por eventos. Quem a usa entrega as mensagens recebidas com
+ * receber() e chama avancar() quando a rodada atual termina (todas as
+ * mensagens chegaram, ou o prazo acabou). A instância não tem threads nem
+ * pausas próprias, então pode ser conduzida pelo Processo, por um
+ * NoConsenso com várias instâncias simultâneas, ou por um simulador.
+ *
+ * Na última rodada a votação é apurada a cada mensagem (ArvoreEIG), e a
+ * rodada fica completa assim que as que faltam não puderem mais mudar a
+ * decisão: a latência passa a depender dos Tenentes mais rápidos, não do
+ * mais lento. A decisão é a mesma que sairia esperando todas (ou o prazo).
+ */
+public class InstanciaOM implements InstanciaConsenso {
+
+    // Valor padrão para caso de ausência de mensagem ou empate (Requisito BFT)
+    public static final Ordem VALOR_PADRAO = Ordem.RECUAR;
+
+    private final long instancia;
+    private final int id;
+    private final int comandanteId;
+    private final int[] participantes;
+    private final int maxTraidores;
+    // null num general leal
+    private final EstrategiaTraidor traicao;
+    private final Ordem proposta;
+    private final Saida saida;
+    private final Consumer<String> log;
+
+    // Tudo o que recebi, indexado pelo caminho de retransmissão (só para Tenentes)
+    private final ArvoreEIG arvore;
+    // Vetor e contagem da votação final, sem alocar por decisão (só para Tenentes)
+    private final Votacao votacao;
+
+    private boolean decisaoAntecipada = true;
+    private int rodadaAtual = 0; // 0 = ainda não iniciada
+    private boolean concluida = false;
+    private Ordem decisao;
+
+    /**
+     * @param participantes IDs de todos os processos, em ordem crescente
+     * @param traicao       como este general trai, ou null se ele é leal
+     * @param proposta      a ordem que o Comandante quer dar (ignorada nos Tenentes)
+     * @param log           destino dos logs, ou null para executar em silêncio
+     */
+    public InstanciaOM(long instancia, int id, int comandanteId, int[] participantes, int maxTraidores,
+                       EstrategiaTraidor traicao, Ordem proposta, Saida saida, Consumer<String> log) {
+        this.instancia = instancia;
+        this.id = id;
+        this.comandanteId = comandanteId;
+        this.participantes = participantes;
+        this.maxTraidores = maxTraidores;
+        this.traicao = traicao;
+        this.proposta = proposta;
+        this.saida = saida;
+        this.log = log;
+        this.arvore = isComandante() ? null : new ArvoreEIG(participantes, comandanteId, id, maxTraidores);
+        this.votacao = isComandante() ? null : new Votacao(participantes.length - 1);
+    }
+
+    /**
+     * Começa a Rodada 1. O Comandante envia a ordem a todos e termina aqui;
+     * o Tenente passa a esperar a ordem do Comandante.
+     */
+    @Override
+    public void iniciar() {
+        rodadaAtual = 1;
+        if (!isComandante()) {
+            log("Sou um Tenente. Aguardando ordem do Comandante na Rodada 1.");
+            return;
+        }
+
+        log("Sou o Comandante. Iniciando Rodada 1.");
+        int i = 0;
+        // 'participantes' é ordenado, o que garante determinismo na distribuição de traição
+        for (int destinoId : participantes) {
+            if (destinoId != id) {
+                Ordem ordemParaEnviar = proposta;
+                if (traicao != null) {
+                    ordemParaEnviar = traicao.escolher(instancia, 1, destinoId, i, proposta);
+                    if (log != null) {
+                        log(ordemParaEnviar == null
+                                ? "TRAIÇÃO: Sem ordem para o Processo " + destinoId
+                                : "TRAIÇÃO: Enviando ordem '" + ordemParaEnviar + "' para Processo " + destinoId);
+                    }
+                } else if (log != null) {
+                    log("Enviando ordem '" + ordemParaEnviar + "' para Processo " + destinoId);
+                }
+                if (ordemParaEnviar != null) {
+                    saida.enviar(destinoId, ordem(ordemParaEnviar, 1, Caminho.de(id)));
+                }
+                i++;
+            }
+        }
+        log("Comandante finalizou envio de ordens.");
+        decisao = proposta;
+        concluida = true;
+    }
+
+    /**
+     * Guarda a mensagem na árvore EIG. Descarta (e retorna false) caminhos
+     * inválidos, repetidos ou de rodadas que já foram encerradas.
+     */
+    @Override
+    public boolean receber(Mensagem msg) {
+        if (isComandante() || concluida || msg.getTipo() != TipoMensagem.ORDEM) {
+            return false;
+        }
+        long caminho = msg.getCaminho();
+        int tamanho = Caminho.tamanho(caminho);
+        if (tamanho < rodadaAtual) {
+            return false; // Rodada já encerrada: o valor padrão já foi retransmitido no lugar
+        }
+        // O último salto do caminho tem que ser quem de fato enviou a mensagem
+        if (tamanho == 0 || tamanho != msg.getRodada() || Caminho.ultimo(caminho) != msg.getRemetenteId()
+                || !arvore.registrar(caminho, msg.getOrdem())) {
+            if (log != null) {
+                log("ERRO: Mensagem inválida ou repetida descartada: " + msg + " caminho " + Caminho.formatar(caminho));
+            }
+            return false;
+        }
+
+        if (log == null) {
+            return true; // Sem log, não vale a pena montar as mensagens abaixo
+        }
+        if (tamanho == 1) {
+            log("Recebi do Comandante (" + msg.getRemetenteId() + ") a ordem: '" + msg.getOrdem() + "'");
+        } else if (tamanho == 2) {
+            log("Tenente " + msg.getRemetenteId() + " diz que o Comandante lhe disse: '" + msg.getOrdem() + "'");
+        }
+        return true;
+    }
+
+    @Override
+    public void setDecisaoAntecipada(boolean ligada) {
+        this.decisaoAntecipada = ligada;
+    }
+
+    /**
+     * True se todas as mensagens da rodada atual já chegaram ou, na última,
+     * se as que faltam já não mudam a decisão.
+     */
+    @Override
+    public boolean rodadaCompleta() {
+        return !concluida && rodadaAtual >= 1 && (faltam() == 0 || decisaoGarantida());
+    }
+
+    /**
+     * True se a última rodada está em curso e a apuração já garante o resultado.
+     */
+    private boolean decisaoGarantida() {
+        return rodadaAtual > maxTraidores && arvore.getDecisaoGarantida() != null;
+    }
+
+    /**
+     * Quantas mensagens da rodada atual ainda não chegaram.
+     */
+    @Override
+    public int faltam() {
+        if (concluida || rodadaAtual < 1) {
+            return 0;
+        }
+        return arvore.esperados(rodadaAtual) - arvore.recebidos(rodadaAtual);
+    }
+
+    /**
+     * Encerra a rodada atual (o que faltou vale VALOR_PADRAO) e começa a
+     * próxima: retransmite o que foi recebido ou, depois da última, vota.
+     */
+    @Override
+    public void avancar() {
+        if (concluida || rodadaAtual < 1) {
+            return;
+        }
+        if (rodadaAtual <= maxTraidores) {
+            rodadaAtual++;
+            retransmitir(rodadaAtual);
+            if (decisaoAntecipada && rodadaAtual > maxTraidores) {
+                arvore.iniciarApuracao(VALOR_PADRAO);
+            }
+        } else {
+            if (faltam() > 0 && decisaoGarantida()) {
+                log("Decisão garantida sem as " + faltam() + " mensagens que faltam.");
+            }
+            log("Fim das rodadas. Iniciando votação.");
+            decisao = decidirVotoMajoritario();
+            concluida = true;
+        }
+    }
+
+    /**
+     * Quantas mensagens este Tenente recebe na rodada.
+     */
+    @Override
+    public int esperados(int rodada) {
+        return arvore.esperados(rodada);
+    }
+
+    @Override
+    public long getInstancia() {
+        return instancia;
+    }
+
+    @Override
+    public int getRodadaAtual() {
+        return rodadaAtual;
+    }
+
+    /**
+     * Quantas rodadas de mensagens o OM(m) tem (m + 1).
+     */
+    @Override
+    public int getTotalRodadas() {
+        return maxTraidores + 1;
+    }
+
+    @Override
+    public boolean isConcluida() {
+        return concluida;
+    }
+
+    /**
+     * A decisão do Tenente (ou a proposta, no Comandante); null até concluir.
+     */
+    @Override
+    public Ordem getDecisao() {
+        return decisao;
+    }
+
+    private boolean isComandante() {
+        return id == comandanteId;
+    }
+
+    private Mensagem ordem(Ordem valor, int rodada, long caminho) {
+        return new Mensagem(TipoMensagem.ORDEM, instancia, id, valor, rodada, caminho);
+    }
+
+    /**
+     * Envia, para cada caminho recebido na rodada anterior, o valor com o meu ID
+     * acrescentado ao caminho, a todos os tenentes que ainda não estão nele.
+     */
+    private void retransmitir(int rodada) {
+        boolean detalhado = rodada == 2;
+        // Logs por mensagem só são montados se alguém for lê-los
+        boolean logDetalhado = detalhado && log != null;
+        if (detalhado) {
+            log("Iniciando Rodada 2. Retransmitindo o que o COMANDANTE me disse.");
+        } else {
+            log("Iniciando Rodada " + rodada + ". Retransmitindo os " + arvore.esperados(rodada - 1)
+                    + " valores recebidos na Rodada " + (rodada - 1) + ".");
+        }
+
+        int[] enviadas = {0};
+        arvore.paraCadaCaminho(rodada - 1, (caminho, recebido) -> {
+            Ordem ordemARetransmitir = (recebido != null) ? recebido : VALOR_PADRAO;
+
+            if (traicao != null) {
+                if (logDetalhado) {
+                    log("TRAIÇÃO (" + traicao + "): o Comandante me disse '" + recebido + "'");
+                }
+            } else if (logDetalhado) {
+                log("Sendo honesto: vou dizer que o Comandante me disse '" + ordemARetransmitir + "'");
+            }
+
+            // Envia para todos os tenentes fora do novo caminho (exclui Comandante, quem já repassou e eu mesmo)
+            long novoCaminho = Caminho.anexar(caminho, id);
+            int indice = 0;
+            for (int outroId : participantes) {
+                if (!Caminho.contem(novoCaminho, outroId)) {
+                    Ordem valor = traicao == null ? ordemARetransmitir
+                            : traicao.escolher(instancia, rodada, outroId, indice++, ordemARetransmitir);
+                    if (valor == null) {
+                        continue;
+                    }
+                    if (logDetalhado) {
+                        log("Dizendo ao Processo " + outroId + ": 'O Comandante me disse " + valor + "'");
+                    }
+                    saida.enviar(outroId, ordem(valor, rodada, novoCaminho));
+                    enviadas[0]++;
+                }
+            }
+        });
+
+        if (!detalhado) {
+            log((traicao != null ? "TRAIÇÃO (" + traicao + "). " : "") + "Enviadas " + enviadas[0] + " mensagens.");
+        }
+        log(rodada == 2
+                ? "Aguardando " + faltam() + " mensagens de outros tenentes."
+                : "Aguardando " + faltam() + " mensagens da Rodada " + rodada + ".");
+    }
+
+    /**
+     * Algoritmo OM(m) Corrigido.
+     * * O vetor de decisão deve considerar apenas as informações detidas pelos TENENTES.
+     * Não se deve incluir o Comandante explicitamente como um "voto" extra no vetor,
+     * pois o valor do Comandante para mim já está representado pelo "meu valor".
+     * Incluí-lo novamente cria um peso duplo para a informação local, impedindo consenso
+     * quando o comandante é traidor.
+     * Com m > 1, o voto de cada outro Tenente é o valor que a subárvore dele na
+     * EIG resolve (o OM(m-1) em que ele foi o comandante).
+     */
+    private Ordem decidirVotoMajoritario() {
+        long raiz = Caminho.de(comandanteId);
+
+        // Construir vetor: para cada processo TENENTE, qual ordem ele recebeu/reportou
+        votacao.limpar();
+        log("Construindo vetor de consenso (apenas Tenentes):");
+
+        for (int pid : participantes) {
+            // CORREÇÃO: O Comandante não participa do vetor de votação dos Tenentes.
+            // Os tenentes estão tentando concordar sobre a ordem do comandante.
+            if (pid == comandanteId) {
+                continue;
+            }
+
+            Ordem valor;
+            if (pid == id) {
+                // Minha própria informação direta do comandante
+                Ordem ordemDoComandante = arvore.valor(raiz);
+                valor = (ordemDoComandante != null) ? ordemDoComandante : VALOR_PADRAO;
+                if (log != null) {
+                    log("  [Tenente " + pid + " (eu)] = '" + valor + "' (direto do Comandante)");
+                }
+            } else {
+                // O que outro tenente reportou
+                long caminho = Caminho.anexar(raiz, pid);
+                if (maxTraidores > 1) {
+                    valor = arvore.resolver(caminho, VALOR_PADRAO);
+                    if (log != null) {
+                        log("  [Tenente " + pid + "] = '" + valor + "' (resolvido por OM(" + (maxTraidores - 1) + "))");
+                    }
+                } else if (arvore.valor(caminho) != null) {
+                    valor = arvore.valor(caminho);
+                    if (log != null) {
+                        log("  [Tenente " + pid + "] = '" + valor + "' (repassado)");
+                    }
+                } else {
+                    valor = VALOR_PADRAO;
+                    if (log != null) {
+                        log("  [Tenente " + pid + "] = '" + valor + "' (padrão - sem info)");
+                    }
+                }
+            }
+
+            // 'participantes' é ordenado, então o vetor já sai na ordem visual correta do log
+            votacao.votar(valor);
+        }
+
+        // Contar votos: o int[] da Votacao já foi preenchido junto com o vetor
+        Ordem decisaoFinal = votacao.vencedor(); // Desempate determinístico (ATACAR < RECUAR)
+        if (log == null) {
+            return decisaoFinal;
+        }
+
+        log("Vetor final de votos: " + votacao.formatarVotos());
+        log("Contagem: " + votacao.formatarContagem());
+
+        int totalVotos = votacao.getTotal();
+        // Maioria simples necessária
+        int maioriaNecessaria = votacao.maioriaNecessaria();
+        log("Votos válidos: " + totalVotos + ", Maioria necessária: " + maioriaNecessaria);
+
+        // Lógica de Consenso
+        int maxVotos = votacao.votos(decisaoFinal);
+        if (maxVotos >= maioriaNecessaria) {
+            log(">>> CONSENSO (Maioria): '" + decisaoFinal + "' com " + maxVotos + "/" + totalVotos + " votos");
+        } else {
+            // Em caso de empate exato (ex: 2 ATACAR, 2 RECUAR), vence a de menor ordinal
+            log(">>> CONSENSO (Empate/Desempate Determinístico): '" + decisaoFinal + "'");
+        }
+        return decisaoFinal;
+    }
+
+    private void log(String mensagem) {
+        if (log != null) {
+            log.accept(mensagem);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package simulador;
+
+import java.util.function.Consumer;
+
+/**
+ * Uma execução do algoritmo de mensagens assinadas SM(m) de Lamport, Shostak
+ * e Pease vista por um processo, com a mesma interface da InstanciaOM.
+ *
+ * O Comandante assina a ordem e a envia a todos. Quando um Tenente recebe,
+ * com todas as assinaturas válidas, um valor que ainda não conhecia, guarda-o
+ * e, se o caminho tem no máximo m saltos, acrescenta a sua assinatura e o
+ * retransmite aos Tenentes que ainda não estão no caminho. Depois da rodada
+ * m + 1, decide: o valor, se conheceu um só, ou VALOR_PADRAO.
+ *
+ * Como um traidor não consegue falsificar a assinatura de outro, basta
+ * n >= m + 2, e cada Tenente retransmite cada valor uma única vez. Não há
+ * como saber quantas mensagens uma rodada vai trazer, então as rodadas
+ * terminam pelo prazo; a exceção é conhecer os dois valores, quando nada
+ * mais pode mudar a decisão e a instância termina na hora.
+ *
+ * Mensagens com um valor já conhecido são descartadas sem verificar as
+ * assinaturas: só o que pode mudar o estado passa pela criptografia.
+ *
+ * Com Disseminacao.SOBREPOSICAO, as retransmissões vão só para os vizinhos
+ * da Sobreposicao, e quem aceita um valor novo repassa a mensagem recebida,
+ * como está, aos seus vizinhos: ela atravessa a rede na mesma rodada. Quem
+ * repassa não precisa ser o último do caminho, pois as assinaturas já
+ * garantem de onde o valor veio.
+ */
+public class InstanciaSM implements InstanciaConsenso {
+    private static final int TOTAL_ORDENS = Ordem.values().length;
+
+    private final long instancia;
+    private final int id;
+    private final int comandanteId;
+    private final int[] participantes;
+    private final int maxTraidores;
+    // null num general leal
+    private final EstrategiaTraidor traicao;
+    private final Ordem proposta;
+    private final VerificadorAssinaturas verificador;
+    private final Saida saida;
+    private final Consumer<String> log;
+    // Vizinhos na Sobreposicao, ou null para enviar direto a todos
+    private final int[] vizinhos;
+
+    // Os valores que o Tenente já aceitou (V no artigo), pelo ordinal
+    private final boolean[] conhecidos = new boolean[TOTAL_ORDENS];
+    private int totalConhecidos = 0;
+    // Mensagens aceitas em cada rodada (índice = rodada)
+    private final int[] recebidas;
+
+    private int rodadaAtual = 0; // 0 = ainda não iniciada
+    private boolean concluida = false;
+    private Ordem decisao;
+
+    /**
+     * @param participantes IDs de todos os processos, em ordem crescente
+     * @param traicao       como este general trai, ou null se ele é leal
+     * @param proposta      a ordem que o Comandante quer dar (ignorada nos Tenentes)
+     * @param verificador   assina e confere as cadeias de assinaturas deste processo
+     * @param disseminacao  como as retransmissões chegam aos outros Tenentes
+     * @param log           destino dos logs, ou null para executar em silêncio
+     */
+    public InstanciaSM(long instancia, int id, int comandanteId, int[] participantes, int maxTraidores,
+                       EstrategiaTraidor traicao, Ordem proposta, VerificadorAssinaturas verificador,
+                       Disseminacao disseminacao, Saida saida, Consumer<String> log) {
+        if (verificador == null) {
+            throw new IllegalArgumentException("O SM(m) precisa de um VerificadorAssinaturas");
+        }
+        this.instancia = instancia;
+        this.id = id;
+        this.comandanteId = comandanteId;
+        this.participantes = participantes;
+        this.maxTraidores = maxTraidores;
+        this.traicao = traicao;
+        this.proposta = proposta;
+        this.verificador = verificador;
+        this.saida = saida;
+        this.log = log;
+        this.recebidas = new int[maxTraidores + 2];
+        this.vizinhos = (disseminacao == Disseminacao.SOBREPOSICAO)
+                ? Sobreposicao.vizinhos(id, comandanteId, participantes, maxTraidores)
+                : null;
+    }
+
+    @Override
+    public void iniciar() {
+        rodadaAtual = 1;
+        if (!isComandante()) {
+            log("Sou um Tenente (SM). Aguardando ordem assinada do Comandante na Rodada 1.");
+            return;
+        }
+
+        log("Sou o Comandante (SM). Assinando e enviando a ordem.");
+        long caminho = Caminho.de(id);
+        int i = 0;
+        for (int destinoId : participantes) {
+            if (destinoId != id) {
+                Ordem valor = proposta;
+                if (traicao != null) {
+                    // O Comandante traidor pode assinar ordens diferentes: a assinatura é dele
+                    valor = traicao.escolher(instancia, 1, destinoId, i, proposta);
+                    if (log != null) {
+                        log(valor == null
+                                ? "TRAIÇÃO: Sem ordem para o Processo " + destinoId
+                                : "TRAIÇÃO: Assinando ordem '" + valor + "' para Processo " + destinoId);
+                    }
+                } else if (log != null) {
+                    log("Enviando ordem assinada '" + valor + "' para Processo " + destinoId);
+                }
+                if (valor != null) {
+                    byte[][] assinaturas = {verificador.assinar(id, instancia, valor, caminho)};
+                    saida.enviar(destinoId, ordem(valor, 1, caminho, assinaturas));
+                }
+                i++;
+            }
+        }
+        log("Comandante finalizou envio de ordens.");
+        decisao = proposta;
+        concluida = true;
+    }
+
+    /**
+     * Aceita o valor se for novo e a cadeia de assinaturas for válida, e o
+     * retransmite. Retorna false se a mensagem foi descartada.
+     */
+    @Override
+    public boolean receber(Mensagem msg) {
+        if (isComandante() || concluida || msg.getTipo() != TipoMensagem.ORDEM) {
+            return false;
+        }
+        long caminho = msg.getCaminho();
+        int tamanho = Caminho.tamanho(caminho);
+        if (tamanho < rodadaAtual || tamanho > maxTraidores + 1) {
+            return false; // Rodada já encerrada, ou caminho longo demais
+        }
+        boolean remetenteValido = vizinhos != null || Caminho.ultimo(caminho) == msg.getRemetenteId();
+        if (tamanho != msg.getRodada() || Caminho.salto(caminho, 0) != comandanteId
+                || !remetenteValido || Caminho.contem(caminho, id)
+                || !saltosDistintos(caminho, tamanho)) {
+            if (log != null) {
+                log("ERRO: Caminho inválido descartado: " + msg + " caminho " + Caminho.formatar(caminho));
+            }
+            return false;
+        }
+        Ordem valor = msg.getOrdem();
+        if (conhecidos[valor.ordinal()]) {
+            return false; // Nada de novo: nem vale verificar
+        }
+        if (!verificador.verificar(msg)) {
+            if (log != null) {
+                log("ERRO: Assinatura inválida, mensagem descartada: " + msg + " caminho " + Caminho.formatar(caminho));
+            }
+            return false;
+        }
+
+        conhecidos[valor.ordinal()] = true;
+        totalConhecidos++;
+        recebidas[tamanho]++;
+        if (log != null) {
+            log("Valor assinado aceito: '" + valor + "' pelo caminho " + Caminho.formatar(caminho));
+        }
+        if (vizinhos != null && traicao == null) {
+            // Um traidor que se cala como repassador é o pior caso da Sobreposicao
+            repassar(msg);
+        }
+        if (tamanho <= maxTraidores) {
+            retransmitir(msg, tamanho);
+        }
+        return true;
+    }
+
+    /**
+     * Só quando os dois valores já são conhecidos: aí a decisão não muda mais.
+     */
+    @Override
+    public boolean rodadaCompleta() {
+        return !concluida && rodadaAtual >= 1 && totalConhecidos == TOTAL_ORDENS;
+    }
+
+    /**
+     * Sempre 0: no SM não se sabe quantas mensagens uma rodada traz.
+     */
+    @Override
+    public int faltam() {
+        return 0;
+    }
+
+    /**
+     * Quantos valores novos chegaram na rodada.
+     */
+    @Override
+    public int esperados(int rodada) {
+        return rodada >= 0 && rodada < recebidas.length ? recebidas[rodada] : 0;
+    }
+
+    @Override
+    public void avancar() {
+        if (concluida || rodadaAtual < 1) {
+            return;
+        }
+        if (rodadaAtual <= maxTraidores && totalConhecidos < TOTAL_ORDENS) {
+            rodadaAtual++;
+            log("Iniciando Rodada " + rodadaAtual + " (SM). Valores conhecidos: " + formatarConhecidos());
+            return;
+        }
+        decisao = escolher();
+        concluida = true;
+        log("Fim das rodadas (SM). Valores conhecidos: " + formatarConhecidos());
+        log(">>> DECISÃO (SM): '" + decisao + "'" + (totalConhecidos == 1 ? "" : " (valor padrão)"));
+    }
+
+    @Override
+    public long getInstancia() {
+        return instancia;
+    }
+
+    @Override
+    public int getRodadaAtual() {
+        return rodadaAtual;
+    }
+
+    @Override
+    public int getTotalRodadas() {
+        return maxTraidores + 1;
+    }
+
+    @Override
+    public boolean isConcluida() {
+        return concluida;
+    }
+
+    @Override
+    public Ordem getDecisao() {
+        return decisao;
+    }
+
+    private boolean isComandante() {
+        return id == comandanteId;
+    }
+
+    /**
+     * choice(V): o único valor conhecido, ou VALOR_PADRAO se nenhum ou os dois.
+     */
+    private Ordem escolher() {
+        if (totalConhecidos != 1) {
+            return InstanciaOM.VALOR_PADRAO;
+        }
+        return conhecidos[Ordem.ATACAR.ordinal()] ? Ordem.ATACAR : Ordem.RECUAR;
+    }
+
+    /**
+     * Acrescenta a minha assinatura e envia o valor a todos os Tenentes fora do caminho.
+     */
+    private void retransmitir(Mensagem msg, int tamanho) {
+        long novoCaminho = Caminho.anexar(msg.getCaminho(), id);
+        // A retransmissão de cada valor, montada (e assinada) no primeiro envio
+        Mensagem[] retransmissoes = new Mensagem[TOTAL_ORDENS];
+        int enviadas = 0;
+        int indice = 0;
+        for (int outroId : vizinhos != null ? vizinhos : participantes) {
+            if (Caminho.contem(novoCaminho, outroId)) {
+                continue;
+            }
+            Ordem valor = traicao == null ? msg.getOrdem()
+                    : traicao.escolher(instancia, tamanho + 1, outroId, indice++, msg.getOrdem());
+            if (valor == null) {
+                continue;
+            }
+            if (retransmissoes[valor.ordinal()] == null) {
+                // Um traidor que troca o valor não consegue assinar pelo Comandante:
+                // quem receber vai rejeitar a cadeia
+                byte[][] assinaturas = new byte[tamanho + 1][];
+                System.arraycopy(msg.getAssinaturas(), 0, assinaturas, 0, tamanho);
+                assinaturas[tamanho] = verificador.assinar(id, instancia, valor, novoCaminho);
+                retransmissoes[valor.ordinal()] = ordem(valor, tamanho + 1, novoCaminho, assinaturas);
+            }
+            saida.enviar(outroId, retransmissoes[valor.ordinal()]);
+            enviadas++;
+        }
+        if (log != null) {
+            log((traicao != null ? "TRAIÇÃO (" + traicao + "): " : "") + "Retransmitido '" + msg.getOrdem()
+                    + "' (caminho " + Caminho.formatar(novoCaminho) + ") a " + enviadas + " Tenentes.");
+        }
+    }
+
+    /**
+     * Passa adiante, sem alterar, a mensagem que trouxe um valor novo, para os
+     * vizinhos que não estão no caminho nem a enviaram.
+     */
+    private void repassar(Mensagem msg) {
+        Mensagem repasse = ordem(msg.getOrdem(), msg.getRodada(), msg.getCaminho(), msg.getAssinaturas());
+        for (int vizinho : vizinhos) {
+            if (vizinho != msg.getRemetenteId() && !Caminho.contem(msg.getCaminho(), vizinho)) {
+                saida.enviar(vizinho, repasse);
+            }
+        }
+    }
+
+    private static boolean saltosDistintos(long caminho, int tamanho) {
+        for (int i = 1; i < tamanho; i++) {
+            for (int j = 0; j < i; j++) {
+                if (Caminho.salto(caminho, i) == Caminho.salto(caminho, j)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private Mensagem ordem(Ordem valor, int rodada, long caminho, byte[][] assinaturas) {
+        return new Mensagem(TipoMensagem.ORDEM, instancia, id, valor, rodada, caminho, assinaturas);
+    }
+
+    private String formatarConhecidos() {
+        StringBuilder sb = new StringBuilder("{");
+        for (Ordem ordem : Ordem.values()) {
+            if (conhecidos[ordem.ordinal()]) {
+                sb.append(sb.length() > 1 ? ", " : "").append(ordem);
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    private void log(String mensagem) {
+        if (log != null) {
+            log.accept(mensagem);
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package simulador;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Log de escrita antecipada de um NoConsenso: as decisões (e, no Comandante,
+ * as propostas) e as ordens recebidas das instâncias em andamento, anexadas
+ * em segmentos mapeados em memória, cada um num arquivo ('arquivo' seguido
+ * de "." e o número do segmento). Depois de uma queda, abrir() relê os
+ * segmentos: as decisões ficam disponíveis em decisao() sem outra rodada de
+ * consenso, e as ordens das instâncias não decididas podem ser reentregues
+ * para retomá-las. As ordens de uma instância são esquecidas assim que a
+ * decisão dela aparece na releitura, então a memória da recuperação depende
+ * só das instâncias que estavam em andamento.
+ *
+ * Registro (big-endian), nunca dividido entre dois segmentos:
+ * <pre>
+ *   int   tamanho   bytes do conteúdo; 0 marca o fim do log, -1 o fim do segmento
+ *   int   crc       CRC32C do conteúdo
+ *   byte  tipo      DECISAO, ORDEM ou CONTIGUA
+ *   DECISAO:  long instancia, byte Ordem.codigo()
+ *   ORDEM:    o quadro do CodecMensagem
+ *   CONTIGUA: long k, as instâncias 1..k já decididas (gravado por descartarSegmentos())
+ * </pre>
+ * Um registro cortado pela queda tem o CRC errado, e a leitura para nele.
+ *
+ * descartarSegmentos() apaga os segmentos antigos em que tudo já está abaixo
+ * de getUltimaContigua(), para que o log de um nó de longa duração não
+ * cresça sem limite; depois de reaberto, decisao() só conhece as instâncias
+ * dos segmentos que sobraram.
+ *
+ * Gravação em grupo: anexar não espera o disco. Uma thread própria chama
+ * force() sobre tudo o que foi anexado desde a última vez, e quem precisa
+ * que um registro sobreviva a uma queda do sistema chama aguardarDuravel()
+ * com a posição devolvida; todos os que esperam juntos pagam um force() só.
+ */
+public class LogDecisoes {
+    public static final long TAMANHO_SEGMENTO_PADRAO = 64L * 1024 * 1024;
+
+    private static final byte DECISAO = 1;
+    private static final byte ORDEM = 2;
+    private static final byte CONTIGUA = 3;
+    private static final int CABECALHO = 4 + 4;
+    private static final int TAMANHO_DECISAO = 1 + 8 + 1;
+    private static final int FIM_SEGMENTO = -1;
+
+    private final File arquivo;
+    private final long tamanhoSegmento;
+    // Segmentos vivos, do número 'primeiro' em diante: o arquivo aberto, o mapa e a
+    // maior instância com registro em cada um; protegidos por 'this'
+    private final List<FileChannel> canais = new ArrayList<>();
+    private final List<MappedByteBuffer> segmentos = new ArrayList<>();
+    private final List<Long> maiores = new ArrayList<>();
+    private long primeiro;
+    private final CRC32C crc = new CRC32C();
+    // Conteúdo de um registro antes de ir para o mapa, para calcular o CRC
+    private ByteBuffer conteudo = ByteBuffer.allocate(CodecMensagem.TAMANHO_QUADRO + 16);
+
+    // Posição global (segmento * tamanhoSegmento + deslocamento) do próximo registro; só muda sob 'this'
+    private volatile long escrito;
+    // Até onde force() já garantiu o log em disco; só muda sob 'gravacao'
+    private volatile long duravel;
+    private final Object gravacao = new Object();
+    private final Thread gravador;
+    private volatile boolean aberto = true;
+    private final AtomicLong forces = new AtomicLong();
+
+    // Decisão de cada instância (Ordem.codigo() + 1; 0 se não se sabe); protegido por 'this'
+    private byte[] decisoes = new byte[1024];
+    private long maiorInstancia;
+    // Instâncias 1..ultimaContigua decididas (as de segmentos apagados contam pelo CONTIGUA)
+    private long ultimaContigua;
+
+    // Da recuperação: ordens das instâncias que ainda não tinham decisão
+    private final List<Mensagem> pendentes = new ArrayList<>();
+    // Durante a recuperação: ordens relidas de cada instância ainda sem decisão
+    private TreeMap<Long, List<Mensagem>> ordensRelidas;
+    private long registrosRecuperados;
+
+    private LogDecisoes(File arquivo, long tamanhoSegmento) throws IOException {
+        this.arquivo = arquivo;
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.gravador = new Thread(this::gravar, "log-decisoes");
+        this.gravador.setDaemon(true);
+    }
+
+    /**
+     * Abre o log de segmentos 'arquivo'.0, 'arquivo'.1..., criando-o se não
+     * existir, e relê o que já estiver nele.
+     */
+    public static LogDecisoes abrir(File arquivo) throws IOException {
+        return abrir(arquivo, TAMANHO_SEGMENTO_PADRAO);
+    }
+
+    public static LogDecisoes abrir(File arquivo, long tamanhoSegmento) throws IOException {
+        if (tamanhoSegmento < 4096 || tamanhoSegmento > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tamanho de segmento inválido: " + tamanhoSegmento);
+        }
+        LogDecisoes log = new LogDecisoes(arquivo, tamanhoSegmento);
+        try {
+            log.recuperar();
+        } catch (IOException | RuntimeException e) {
+            log.fecharCanais();
+            throw e;
+        }
+        log.gravador.start();
+        return log;
+    }
+
+    /**
+     * Anexa a decisão (ou a proposta do Comandante) da instância e retorna a
+     * posição do log logo depois dela, para aguardarDuravel().
+     */
+    public synchronized long anexarDecisao(long instancia, Ordem decisao) throws IOException {
+        conteudo.clear();
+        conteudo.put(DECISAO).putLong(instancia).put(decisao.codigo());
+        anexar(instancia);
+        lembrar(instancia, decisao);
+        return escrito;
+    }
+
+    /**
+     * Anexa uma ordem recebida, para reentregá-la se o nó cair antes de decidir.
+     */
+    public synchronized long anexarOrdem(Mensagem msg) throws IOException {
+        int tamanho = 1 + CodecMensagem.tamanhoQuadro(msg);
+        if (tamanho > conteudo.capacity()) {
+            conteudo = ByteBuffer.allocate(tamanho);
+        }
+        conteudo.clear();
+        conteudo.put(ORDEM);
+        CodecMensagem.codificar(msg, conteudo);
+        anexar(msg.getInstancia());
+        return escrito;
+    }
+
+    /**
+     * Apaga os segmentos do início do log cujos registros são todos de
+     * instâncias até getUltimaContigua(), nunca o segmento em uso. Antes grava
+     * e força um registro CONTIGUA, para que depois de reaberto o log continue
+     * a numeração de onde estava. Retorna quantos segmentos foram apagados.
+     */
+    public synchronized int descartarSegmentos() throws IOException {
+        long contigua = ultimaContigua;
+        long emUso = escrito / tamanhoSegmento;
+        int apagaveis = 0;
+        while (primeiro + apagaveis < emUso && maiores.get(apagaveis) <= contigua) {
+            apagaveis++;
+        }
+        if (apagaveis == 0) {
+            return 0;
+        }
+        conteudo.clear();
+        conteudo.put(CONTIGUA).putLong(contigua);
+        anexar(contigua);
+        forcar(escrito);
+        for (int i = 0; i < apagaveis; i++) {
+            segmentos.remove(0);
+            maiores.remove(0);
+            canais.remove(0).close();
+            // O mapa continua válido para quem ainda o tem; o espaço volta quando ele for coletado
+            File segmento = arquivoSegmento(primeiro++);
+            if (!segmento.delete()) {
+                throw new IOException("Não foi possível apagar o segmento " + segmento);
+            }
+        }
+        return apagaveis;
+    }
+
+    /**
+     * Apaga todos os segmentos de um log fechado.
+     */
+    public static void apagar(File arquivo) {
+        for (long indice : indicesSegmentos(arquivo)) {
+            new File(arquivo.getPath() + "." + indice).delete();
+        }
+    }
+
+    /**
+     * Espera até que tudo o que foi anexado antes de 'posicao' esteja em disco.
+     */
+    public void aguardarDuravel(long posicao) throws InterruptedException {
+        synchronized (gravacao) {
+            while (duravel < posicao && aberto) {
+                gravacao.wait();
+            }
+        }
+    }
+
+    /**
+     * A decisão registrada para a instância, ou null se não há nenhuma.
+     */
+    public synchronized Ordem decisao(long instancia) {
+        if (instancia < 0 || instancia >= decisoes.length || decisoes[(int) instancia] == 0) {
+            return null;
+        }
+        return Ordem.doCodigo(decisoes[(int) instancia] - 1);
+    }
+
+    /**
+     * Maior k tal que as instâncias 1..k têm decisão registrada.
+     */
+    public synchronized long getUltimaContigua() {
+        return ultimaContigua;
+    }
+
+    /** Maior instância com decisão registrada. */
+    public synchronized long getMaiorInstancia() {
+        return Math.max(maiorInstancia, ultimaContigua);
+    }
+
+    /**
+     * Ordens relidas na abertura das instâncias que não tinham decisão no
+     * log, por instância e, em cada uma, na ordem em que chegaram.
+     */
+    public List<Mensagem> getPendentes() {
+        return pendentes;
+    }
+
+    /** Quantos registros válidos abrir() encontrou. */
+    public long getRegistrosRecuperados() {
+        return registrosRecuperados;
+    }
+
+    /** Bytes usados do log, sem os segmentos apagados. */
+    public synchronized long getTamanho() {
+        return escrito - primeiro * tamanhoSegmento;
+    }
+
+    /** Quantos segmentos (arquivos) o log tem agora. */
+    public synchronized int getSegmentos() {
+        return segmentos.size();
+    }
+
+    /** Quantas vezes o log foi forçado para o disco. */
+    public long getForces() {
+        return forces.get();
+    }
+
+    public File getArquivo() {
+        return arquivo;
+    }
+
+    /**
+     * Grava o que falta, para a thread de gravação e fecha o arquivo.
+     */
+    public void fechar() throws IOException {
+        forcar(escrito);
+        aberto = false;
+        synchronized (gravacao) {
+            gravacao.notifyAll();
+        }
+        gravador.interrupt();
+        fecharCanais();
+    }
+
+    private synchronized void fecharCanais() throws IOException {
+        for (FileChannel canal : canais) {
+            canal.close();
+        }
+    }
+
+    /**
+     * Copia 'conteudo' (um registro da 'instancia') para o mapa, com o
+     * cabeçalho, e escreve a marca de fim depois dele.
+     */
+    private void anexar(long instancia) throws IOException {
+        if (!aberto) {
+            throw new IOException("Log fechado: " + arquivo);
+        }
+        conteudo.flip();
+        int tamanho = conteudo.remaining();
+        crc.reset();
+        crc.update(conteudo.array(), 0, tamanho);
+
+        int deslocamento = (int) (escrito % tamanhoSegmento);
+        if (deslocamento + CABECALHO + tamanho + 4 > tamanhoSegmento) {
+            // Não cabe (com a marca de fim) no resto do segmento: pula para o próximo
+            segmento(escrito).putInt(deslocamento, FIM_SEGMENTO);
+            escrito += tamanhoSegmento - deslocamento;
+            deslocamento = 0;
+        }
+        MappedByteBuffer mapa = segmento(escrito);
+        mapa.putInt(deslocamento + CABECALHO + tamanho, 0);
+        mapa.put(deslocamento + CABECALHO, conteudo.array(), 0, tamanho);
+        mapa.putInt(deslocamento + 4, (int) crc.getValue());
+        // O tamanho por último: até aqui, quem ler o log ainda vê a marca de fim
+        mapa.putInt(deslocamento, tamanho);
+        anotar(escrito, instancia);
+        long anterior = escrito;
+        escrito = anterior + CABECALHO + tamanho;
+        if (duravel >= anterior) {
+            // A thread de gravação estava em dia, e talvez dormindo
+            synchronized (gravacao) {
+                gravacao.notifyAll();
+            }
+        }
+    }
+
+    private MappedByteBuffer segmento(long posicao) throws IOException {
+        long indice = posicao / tamanhoSegmento;
+        while (primeiro + segmentos.size() <= indice) {
+            FileChannel canal = FileChannel.open(arquivoSegmento(primeiro + segmentos.size()).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            canais.add(canal);
+            // Mapear além do fim aumenta o arquivo
+            segmentos.add(canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoSegmento));
+            maiores.add(0L);
+        }
+        return segmentos.get((int) (indice - primeiro));
+    }
+
+    /** O segmento da posição passa a ter um registro da instância. */
+    private void anotar(long posicao, long instancia) {
+        int i = (int) (posicao / tamanhoSegmento - primeiro);
+        maiores.set(i, Math.max(maiores.get(i), instancia));
+    }
+
+    private File arquivoSegmento(long indice) {
+        return new File(arquivo.getPath() + "." + indice);
+    }
+
+    /**
+     * Os números dos segmentos de 'arquivo' que existem, em ordem crescente.
+     */
+    private static long[] indicesSegmentos(File arquivo) {
+        File pasta = arquivo.getAbsoluteFile().getParentFile();
+        String prefixo = arquivo.getName() + ".";
+        String[] nomes = pasta != null ? pasta.list() : null;
+        if (nomes == null) {
+            return new long[0];
+        }
+        return Arrays.stream(nomes)
+                .filter(nome -> nome.startsWith(prefixo) && nome.length() > prefixo.length()
+                        && nome.substring(prefixo.length()).chars().allMatch(Character::isDigit))
+                .mapToLong(nome -> Long.parseLong(nome.substring(prefixo.length())))
+                .sorted()
+                .toArray();
+    }
+
+    private void lembrar(long instancia, Ordem decisao) {
+        if (instancia < 0 || instancia >= Integer.MAX_VALUE - 8) {
+            return; // Fora do alcance do vetor: fica só no arquivo
+        }
+        if (instancia >= decisoes.length) {
+            decisoes = Arrays.copyOf(decisoes, (int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max(instancia + 1, 2L * decisoes.length)));
+        }
+        decisoes[(int) instancia] = (byte) (decisao.codigo() + 1);
+        maiorInstancia = Math.max(maiorInstancia, instancia);
+        avancarContigua();
+    }
+
+    private void avancarContigua() {
+        while (ultimaContigua + 1 < decisoes.length && decisoes[(int) (ultimaContigua + 1)] != 0) {
+            ultimaContigua++;
+        }
+    }
+
+    /**
+     * Relê os registros do primeiro segmento até a marca de fim (ou o
+     * primeiro registro inválido) e continua a escrita dali.
+     */
+    private synchronized void recuperar() throws IOException {
+        long[] indices = indicesSegmentos(arquivo);
+        primeiro = indices.length > 0 ? indices[0] : 0;
+        long fim = indices.length > 0 ? (indices[indices.length - 1] + 1) * tamanhoSegmento : 0;
+        ordensRelidas = new TreeMap<>();
+        long posicao = primeiro * tamanhoSegmento;
+        while (posicao < fim) {
+            MappedByteBuffer mapa = segmento(posicao);
+            int deslocamento = (int) (posicao % tamanhoSegmento);
+            int tamanho = deslocamento + CABECALHO <= tamanhoSegmento ? mapa.getInt(deslocamento) : FIM_SEGMENTO;
+            if (tamanho == FIM_SEGMENTO) {
+                posicao += tamanhoSegmento - deslocamento;
+                continue;
+            }
+            if (tamanho <= 0 || deslocamento + CABECALHO + tamanho > tamanhoSegmento) {
+                break;
+            }
+            ByteBuffer registro = mapa.slice(deslocamento + CABECALHO, tamanho);
+            crc.reset();
+            crc.update(registro.duplicate());
+            if ((int) crc.getValue() != mapa.getInt(deslocamento + 4) || !reler(registro, posicao)) {
+                break; // Cortado pela queda
+            }
+            registrosRecuperados++;
+            posicao += CABECALHO + tamanho;
+        }
+        escrito = posicao;
+        duravel = posicao;
+        for (List<Mensagem> ordens : ordensRelidas.values()) {
+            pendentes.addAll(ordens);
+        }
+        ordensRelidas = null;
+        if (posicao < fim) {
+            // Apaga o que sobrou depois do último registro válido
+            segmento(posicao).putInt((int) (posicao % tamanhoSegmento), 0);
+        }
+    }
+
+    private boolean reler(ByteBuffer registro, long posicao) {
+        try {
+            byte tipo = registro.get();
+            if (tipo == DECISAO && registro.remaining() == TAMANHO_DECISAO - 1) {
+                long instancia = registro.getLong();
+                lembrar(instancia, Ordem.doCodigo(registro.get()));
+                anotar(posicao, instancia);
+                // Decidida: as ordens dela não serão reentregues
+                ordensRelidas.remove(instancia);
+                return true;
+            }
+            if (tipo == ORDEM && registro.remaining() >= 4) {
+                int tamanho = registro.getInt();
+                Mensagem msg = CodecMensagem.decodificar(registro, tamanho);
+                anotar(posicao, msg.getInstancia());
+                if (msg.getInstancia() > ultimaContigua && decisao(msg.getInstancia()) == null) {
+                    ordensRelidas.computeIfAbsent(msg.getInstancia(), k -> new ArrayList<>()).add(msg);
+                }
+                return true;
+            }
+            if (tipo == CONTIGUA && registro.remaining() == 8) {
+                long contigua = registro.getLong();
+                anotar(posicao, contigua);
+                ultimaContigua = Math.max(ultimaContigua, contigua);
+                avancarContigua();
+                ordensRelidas.headMap(ultimaContigua, true).clear();
+                return true;
+            }
+        } catch (RuntimeException e) {
+            // Conteúdo com o CRC certo mas ilegível: trata como o fim
+        }
+        return false;
+    }
+
+    private void gravar() {
+        try {
+            while (aberto) {
+                synchronized (gravacao) {
+                    while (aberto && duravel >= escrito) {
+                        gravacao.wait();
+                    }
+                }
+                forcar(escrito);
+            }
+        } catch (InterruptedException e) {
+            // fechar()
+        }
+    }
+
+    /**
+     * force() dos trechos dos segmentos entre o que já é durável e 'alvo'.
+     */
+    private void forcar(long alvo) {
+        long inicio = duravel;
+        if (inicio >= alvo) {
+            return;
+        }
+        List<MappedByteBuffer> mapas;
+        long primeiroMapa;
+        synchronized (this) {
+            mapas = new ArrayList<>(segmentos);
+            primeiroMapa = primeiro;
+        }
+        // Segmentos apagados já tinham sido forçados por descartarSegmentos()
+        for (long posicao = Math.max(inicio, primeiroMapa * tamanhoSegmento); posicao < alvo; ) {
+            long indice = posicao / tamanhoSegmento;
+            int deslocamento = (int) (posicao % tamanhoSegmento);
+            int fim = (int) Math.min(tamanhoSegmento, alvo - indice * tamanhoSegmento);
+            mapas.get((int) (indice - primeiroMapa)).force(deslocamento, fim - deslocamento);
+            posicao = indice * tamanhoSegmento + fim;
+        }
+        forces.incrementAndGet();
+        synchronized (gravacao) {
+            duravel = Math.max(duravel, alvo);
+            gravacao.notifyAll();
+        }
+    }
+}
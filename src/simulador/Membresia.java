@@ -0,0 +1,235 @@
+package simulador;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Quem faz parte do cluster e onde cada um escuta. A Visao atual é imutável,
+ * com os endereços já resolvidos num vetor indexado pelo ID, e é trocada
+ * inteira (numa escrita volátil) quando o config.txt muda: quem a leu segue
+ * com uma visão coerente, e o envio seguinte já usa a nova.
+ *
+ * observar() vigia o arquivo com um WatchService; um arquivo com erro é
+ * ignorado e a visão anterior continua valendo. Processos novos ou com outro
+ * endereço entram no cluster sem reiniciar ninguém; o NoConsenso usa a visão
+ * do momento em que cada instância é criada, então as trocas devem ser feitas
+ * entre instâncias.
+ */
+public class Membresia {
+
+    /** Uma versão da membresia: IDs participantes e o endereço de cada um. */
+    public static final class Visao {
+        private final long versao;
+        // Indexado pelo ID; null onde não há processo
+        private final InetSocketAddress[] enderecos;
+        private final int[] participantes;
+
+        private Visao(long versao, InetSocketAddress[] enderecos) {
+            this.versao = versao;
+            this.enderecos = enderecos;
+            int total = 0;
+            for (InetSocketAddress endereco : enderecos) {
+                total += endereco != null ? 1 : 0;
+            }
+            this.participantes = new int[total];
+            for (int id = 0, i = 0; id < enderecos.length; id++) {
+                if (enderecos[id] != null) {
+                    participantes[i++] = id;
+                }
+            }
+        }
+
+        /** O endereço do processo, ou null se ele não faz parte desta visão. */
+        public InetSocketAddress endereco(int id) {
+            return id >= 0 && id < enderecos.length ? enderecos[id] : null;
+        }
+
+        public boolean contem(int id) {
+            return endereco(id) != null;
+        }
+
+        /** IDs em ordem crescente; não deve ser alterado. */
+        public int[] getParticipantes() {
+            return participantes;
+        }
+
+        /** Começa em 1 e cresce a cada troca. */
+        public long getVersao() {
+            return versao;
+        }
+    }
+
+    private final File arquivo;
+    private final List<Consumer<Visao>> ouvintes = new CopyOnWriteArrayList<>();
+    private volatile Visao visao;
+    private WatchService vigia;
+    private Thread observador;
+
+    private Membresia(File arquivo, Visao visao) {
+        this.arquivo = arquivo;
+        this.visao = visao;
+    }
+
+    /**
+     * Lê o arquivo de configuração (linhas "id ip porta"; '#' inicia um
+     * comentário) e resolve os endereços. observar() passa a recarregá-lo.
+     */
+    public static Membresia ler(String nomeArquivo) throws FileNotFoundException {
+        File arquivo = new File(nomeArquivo);
+        System.out.println("Lendo configuração de: " + arquivo.getAbsolutePath());
+        return new Membresia(arquivo, new Visao(1, resolver(lerArquivo(arquivo))));
+    }
+
+    /**
+     * Membresia fixa a partir de um mapa ID -> {host, porta}.
+     */
+    public static Membresia de(Map<Integer, String[]> processos) {
+        return new Membresia(null, new Visao(1, resolver(processos)));
+    }
+
+    public Visao getVisao() {
+        return visao;
+    }
+
+    /**
+     * Chamado (na thread do observador) a cada troca de visão.
+     */
+    public void aoMudar(Consumer<Visao> ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    /**
+     * Relê o arquivo e troca a visão se algum processo entrou, saiu ou mudou
+     * de endereço. Retorna true se trocou.
+     */
+    public synchronized boolean recarregar() throws FileNotFoundException {
+        if (arquivo == null) {
+            return false;
+        }
+        InetSocketAddress[] enderecos = resolver(lerArquivo(arquivo));
+        if (Arrays.equals(enderecos, visao.enderecos)) {
+            return false;
+        }
+        Visao nova = new Visao(visao.versao + 1, enderecos);
+        visao = nova;
+        for (Consumer<Visao> ouvinte : ouvintes) {
+            ouvinte.accept(nova);
+        }
+        return true;
+    }
+
+    /**
+     * Inicia a thread que recarrega o arquivo quando ele muda. Não faz nada
+     * numa membresia fixa ou se já estiver observando.
+     */
+    public synchronized void observar() throws IOException {
+        if (arquivo == null || vigia != null) {
+            return;
+        }
+        Path caminho = arquivo.getAbsoluteFile().toPath();
+        vigia = FileSystems.getDefault().newWatchService();
+        // Vigia a pasta: editores costumam trocar o arquivo por outro (ENTRY_CREATE)
+        caminho.getParent().register(vigia, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        WatchService servico = vigia;
+        observador = new Thread(() -> observar(servico, caminho.getFileName()), "membresia");
+        observador.setDaemon(true);
+        observador.start();
+    }
+
+    /**
+     * Para de observar o arquivo; a visão atual continua valendo.
+     */
+    public synchronized void fechar() {
+        if (vigia != null) {
+            try {
+                vigia.close();
+            } catch (IOException e) {
+                // Ignorar: a thread sai de qualquer forma
+            }
+            vigia = null;
+        }
+    }
+
+    private void observar(WatchService servico, Path nome) {
+        try {
+            while (true) {
+                WatchKey chave = servico.take();
+                boolean mudou = false;
+                for (WatchEvent<?> evento : chave.pollEvents()) {
+                    mudou |= nome.equals(evento.context());
+                }
+                chave.reset();
+                if (mudou) {
+                    try {
+                        recarregar();
+                    } catch (FileNotFoundException | RuntimeException e) {
+                        // Arquivo no meio de uma troca, ou com erro: fica a visão anterior
+                        System.err.println("Membresia não recarregada de " + arquivo + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // fechar()
+        }
+    }
+
+    private static Map<Integer, String[]> lerArquivo(File arquivo) throws FileNotFoundException {
+        Map<Integer, String[]> processos = new HashMap<>();
+        try (Scanner scanner = new Scanner(arquivo)) {
+            while (scanner.hasNextLine()) {
+                String linha = scanner.nextLine().trim();
+                if (linha.isEmpty() || linha.startsWith("#")) {
+                    continue;
+                }
+                String[] partes = linha.split("\\s+");
+                if (partes.length >= 3) {
+                    processos.put(Integer.parseInt(partes[0]), new String[]{partes[1], partes[2]});
+                }
+            }
+        }
+        return processos;
+    }
+
+    /**
+     * Resolve cada host uma vez (o mesmo host em vários processos, também uma
+     * vez só). Um host que não resolve fica com o endereço não resolvido, e a
+     * conexão para ele falha como a de um processo fora do ar.
+     */
+    private static InetSocketAddress[] resolver(Map<Integer, String[]> processos) {
+        int maior = -1;
+        for (int id : processos.keySet()) {
+            if (id < 0 || id > Caminho.MAX_ID) {
+                throw new IllegalArgumentException("ID fora de 0.." + Caminho.MAX_ID + ": " + id);
+            }
+            maior = Math.max(maior, id);
+        }
+        InetSocketAddress[] enderecos = new InetSocketAddress[maior + 1];
+        Map<String, InetSocketAddress> resolvidos = new HashMap<>();
+        for (Map.Entry<Integer, String[]> processo : processos.entrySet()) {
+            String host = processo.getValue()[0];
+            int porta = Integer.parseInt(processo.getValue()[1]);
+            InetSocketAddress endereco = resolvidos.computeIfAbsent(host, h -> new InetSocketAddress(h, 0));
+            enderecos[processo.getKey()] = endereco.isUnresolved()
+                    ? InetSocketAddress.createUnresolved(host, porta)
+                    : new InetSocketAddress(endereco.getAddress(), porta);
+        }
+        return enderecos;
+    }
+}
@@ -4,27 +4,104 @@ import java.io.Serializable;
 
 /**
  * Representa uma mensagem trocada entre os processos (generais).
- * Precisa ser 'Serializable' para ser enviada via Sockets.
+ * Vai pela rede no formato binário do CodecMensagem; continua 'Serializable'
+ * apenas para comparação com a serialização Java nos benchmarks.
  */
 public class Mensagem implements Serializable {
+    static final byte[][] SEM_ASSINATURAS = new byte[0][];
+
+    private final TipoMensagem tipo;
+    // Execução do OM a que a mensagem pertence (0 no Processo, que só faz uma)
+    private final long instancia;
     private final int remetenteId;
-    private final String ordem;
+    private final Ordem ordem; // null nas mensagens de controle
+    private final int rodada;
+    // IDs pelos quais o valor foi retransmitido, para as variantes com várias rodadas
+    private final long caminho;
+    // No SM(m), uma assinatura por salto do caminho, na mesma ordem; vazio no OM(m)
+    private final byte[][] assinaturas;
+
+    public Mensagem(int remetenteId, Ordem ordem) {
+        this(remetenteId, ordem, 1, 0L);
+    }
+
+    public Mensagem(int remetenteId, Ordem ordem, int rodada, long caminho) {
+        this(TipoMensagem.ORDEM, 0L, remetenteId, ordem, rodada, caminho);
+    }
+
+    public Mensagem(TipoMensagem tipo, long instancia, int remetenteId, Ordem ordem, int rodada, long caminho) {
+        this(tipo, instancia, remetenteId, ordem, rodada, caminho, SEM_ASSINATURAS);
+    }
 
-    public Mensagem(int remetenteId, String ordem) {
+    public Mensagem(TipoMensagem tipo, long instancia, int remetenteId, Ordem ordem, int rodada, long caminho,
+                    byte[][] assinaturas) {
+        this.tipo = tipo;
+        this.instancia = instancia;
         this.remetenteId = remetenteId;
         this.ordem = ordem;
+        this.rodada = rodada;
+        this.caminho = caminho;
+        this.assinaturas = assinaturas;
+    }
+
+    /**
+     * Mensagem de controle (sem ordem, rodada 0), como o anúncio de PRONTO.
+     */
+    public static Mensagem controle(TipoMensagem tipo, int remetenteId) {
+        return new Mensagem(tipo, 0L, remetenteId, null, 0, Caminho.VAZIO);
+    }
+
+    /**
+     * Aviso de um Tenente ao Comandante de que decidiu a instância.
+     */
+    public static Mensagem decidido(long instancia, int remetenteId, Ordem decisao) {
+        return new Mensagem(TipoMensagem.DECIDIDO, instancia, remetenteId, decisao, 0, Caminho.VAZIO);
+    }
+
+    /**
+     * Pedido da decisão de uma instância aos outros nós, respondido com DECIDIDO.
+     */
+    public static Mensagem pedidoDecisao(long instancia, int remetenteId) {
+        return new Mensagem(TipoMensagem.PEDIDO_DECISAO, instancia, remetenteId, null, 0, Caminho.VAZIO);
+    }
+
+    public TipoMensagem getTipo() {
+        return tipo;
+    }
+
+    public long getInstancia() {
+        return instancia;
     }
 
     public int getRemetenteId() {
         return remetenteId;
     }
 
-    public String getOrdem() {
+    public Ordem getOrdem() {
         return ordem;
     }
 
+    public int getRodada() {
+        return rodada;
+    }
+
+    public long getCaminho() {
+        return caminho;
+    }
+
+    /**
+     * A cadeia de assinaturas, uma por salto do caminho. Não copia: não altere o array.
+     */
+    public byte[][] getAssinaturas() {
+        return assinaturas;
+    }
+
     @Override
     public String toString() {
-        return "Mensagem [de=" + remetenteId + ", ordem='" + ordem + "']";
+        String prefixo = instancia != 0 ? "Mensagem [instancia=" + instancia + ", " : "Mensagem [";
+        if (tipo != TipoMensagem.ORDEM) {
+            return prefixo + tipo + ", de=" + remetenteId + "]";
+        }
+        return prefixo + "de=" + remetenteId + ", ordem='" + ordem + "', rodada=" + rodada + "]";
     }
-}
\ No newline at end of file
+}
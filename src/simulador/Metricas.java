@@ -0,0 +1,360 @@
+package simulador;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Instrumentação de um processo: mensagens e bytes por par, falhas de envio,
+ * reconexões, erros de recepção, profundidade da fila de mensagens e
+ * histogramas de latência por rodada e da decisão.
+ *
+ * Os contadores são LongAdder e os histogramas não alocam, então as
+ * métricas ficam sempre ligadas. Os transportes guardam o ContadoresPar de
+ * cada canal para não procurar o par a cada mensagem. O remetente de uma
+ * mensagem recebida é quem ela diz ser, então só os membros ganham
+ * contadores próprios (parRemetente()); o resto soma em "desconhecidos".
+ *
+ * Pode ser lida pelo JMX (registrarJmx()) ou despejada periodicamente em
+ * texto ou JSON pelo DespejoMetricas.
+ */
+public class Metricas implements MetricasMBean {
+
+    /** Contadores da troca de mensagens com um par. */
+    public static final class ContadoresPar {
+        private final LongAdder enviadas = new LongAdder();
+        private final LongAdder bytesEnviados = new LongAdder();
+        private final LongAdder recebidas = new LongAdder();
+        private final LongAdder bytesRecebidos = new LongAdder();
+        private final LongAdder falhasEnvio = new LongAdder();
+        private final LongAdder reconexoes = new LongAdder();
+
+        /** Quadro entregue ao transporte (no NIO, posto no buffer de saída do canal). */
+        public void enviada(int bytes) {
+            enviadas.increment();
+            bytesEnviados.add(bytes);
+        }
+
+        public void recebida(int bytes) {
+            recebidas.increment();
+            bytesRecebidos.add(bytes);
+        }
+
+        /** 'quantidade' mensagens que não chegaram a sair (canal caiu ou destino desconhecido). */
+        public void falhaEnvio(long quantidade) {
+            falhasEnvio.add(quantidade);
+        }
+
+        /** O canal para o par caiu e foi reaberto. */
+        public void reconexao() {
+            reconexoes.increment();
+        }
+
+        private void formatarJson(StringBuilder sb) {
+            sb.append("{\"enviadas\":").append(enviadas.sum())
+                    .append(",\"bytes_enviados\":").append(bytesEnviados.sum())
+                    .append(",\"recebidas\":").append(recebidas.sum())
+                    .append(",\"bytes_recebidos\":").append(bytesRecebidos.sum())
+                    .append(",\"falhas_envio\":").append(falhasEnvio.sum())
+                    .append(",\"reconexoes\":").append(reconexoes.sum())
+                    .append('}');
+        }
+    }
+
+    private final int id;
+    private final long inicioNanos = System.nanoTime();
+    private final Map<Integer, ContadoresPar> pares = new ConcurrentHashMap<>();
+    // Recebidas de IDs fora da membresia: um traidor que inventa IDs não cria pares novos
+    private final ContadoresPar desconhecidos = new ContadoresPar();
+    private final LongAdder errosRecepcao = new LongAdder();
+    // Índice 0 é a rodada 1; criados na primeira medição
+    private final AtomicReferenceArray<Histograma> rodadas = new AtomicReferenceArray<>(Caminho.MAX_SALTOS);
+    private final Histograma decisao = new Histograma();
+    private volatile IntSupplier profundidadeFila = () -> 0;
+
+    private ObjectName nomeJmx;
+
+    /**
+     * @param id o processo medido; só aparece nos relatórios
+     */
+    public Metricas(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Contadores da troca com o processo 'idPar', criados no primeiro uso.
+     */
+    public ContadoresPar par(int idPar) {
+        ContadoresPar contadores = pares.get(idPar);
+        return contadores != null ? contadores : pares.computeIfAbsent(idPar, chave -> new ContadoresPar());
+    }
+
+    /**
+     * Contadores de uma mensagem recebida de 'idRemetente', o ID que ela
+     * traz: os do par se 'membro' (o ID está na membresia), senão os dos
+     * desconhecidos.
+     */
+    public ContadoresPar parRemetente(int idRemetente, boolean membro) {
+        return membro ? par(idRemetente) : desconhecidos;
+    }
+
+    /**
+     * Um quadro recebido que não pôde ser lido (canal corrompido ou conexão perdida no meio).
+     */
+    public void erroRecepcao() {
+        errosRecepcao.increment();
+    }
+
+    /**
+     * Quanto tempo a rodada levou, do início até receber tudo (ou o prazo acabar).
+     */
+    public void registrarRodada(int rodada, long nanos) {
+        if (rodada < 1 || rodada > rodadas.length()) {
+            return;
+        }
+        Histograma h = rodadas.get(rodada - 1);
+        if (h == null) {
+            rodadas.compareAndSet(rodada - 1, null, new Histograma());
+            h = rodadas.get(rodada - 1);
+        }
+        h.registrar(nanos);
+    }
+
+    /**
+     * Quanto tempo uma decisão levou desde o início da instância.
+     */
+    public void registrarDecisao(long nanos) {
+        decisao.registrar(nanos);
+    }
+
+    /**
+     * Passa a relatar o tamanho da fila de mensagens do processo.
+     */
+    public void monitorarFila(Collection<?> fila) {
+        profundidadeFila = fila::size;
+    }
+
+    /** Histograma da rodada, ou null se ela nunca foi medida. */
+    public Histograma getRodada(int rodada) {
+        return rodada >= 1 && rodada <= rodadas.length() ? rodadas.get(rodada - 1) : null;
+    }
+
+    public Histograma getDecisao() {
+        return decisao;
+    }
+
+    /**
+     * Registra este objeto no servidor JMX da plataforma como
+     * simulador:type=Metricas,processo=ID. Falhas só são avisadas no stderr.
+     */
+    public synchronized void registrarJmx() {
+        if (nomeJmx != null) {
+            return;
+        }
+        try {
+            ObjectName nome = new ObjectName("simulador:type=Metricas,processo=" + id);
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            if (!servidor.isRegistered(nome)) {
+                servidor.registerMBean(this, nome);
+                nomeJmx = nome;
+            }
+        } catch (JMException e) {
+            System.err.println("Não foi possível registrar as métricas no JMX: " + e.getMessage());
+        }
+    }
+
+    public synchronized void removerJmx() {
+        if (nomeJmx == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(nomeJmx);
+        } catch (JMException e) {
+            // Já removido
+        }
+        nomeJmx = null;
+    }
+
+    // --- MetricasMBean ---
+
+    @Override
+    public long getMensagensEnviadas() {
+        long total = 0;
+        for (ContadoresPar par : pares.values()) {
+            total += par.enviadas.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getBytesEnviados() {
+        long total = 0;
+        for (ContadoresPar par : pares.values()) {
+            total += par.bytesEnviados.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getMensagensRecebidas() {
+        long total = desconhecidos.recebidas.sum();
+        for (ContadoresPar par : pares.values()) {
+            total += par.recebidas.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getBytesRecebidos() {
+        long total = desconhecidos.bytesRecebidos.sum();
+        for (ContadoresPar par : pares.values()) {
+            total += par.bytesRecebidos.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getFalhasEnvio() {
+        long total = 0;
+        for (ContadoresPar par : pares.values()) {
+            total += par.falhasEnvio.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getReconexoes() {
+        long total = 0;
+        for (ContadoresPar par : pares.values()) {
+            total += par.reconexoes.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getErrosRecepcao() {
+        return errosRecepcao.sum();
+    }
+
+    @Override
+    public int getProfundidadeFila() {
+        return profundidadeFila.getAsInt();
+    }
+
+    @Override
+    public long getDecisoes() {
+        return decisao.getContagem();
+    }
+
+    @Override
+    public long getLatenciaDecisaoP50Micros() {
+        return decisao.percentil(0.50) / 1000;
+    }
+
+    @Override
+    public long getLatenciaDecisaoP99Micros() {
+        return decisao.percentil(0.99) / 1000;
+    }
+
+    @Override
+    public long[] getLatenciaRodadaP99Micros() {
+        int medidas = rodadas.length();
+        while (medidas > 0 && rodadas.get(medidas - 1) == null) {
+            medidas--;
+        }
+        long[] p99 = new long[medidas];
+        for (int i = 0; i < medidas; i++) {
+            Histograma h = rodadas.get(i);
+            p99[i] = h != null ? h.percentil(0.99) / 1000 : 0;
+        }
+        return p99;
+    }
+
+    @Override
+    public String getResumoTexto() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Processo ").append(id)
+                .append(": enviadas ").append(getMensagensEnviadas()).append(" (").append(getBytesEnviados()).append(" B)")
+                .append(", recebidas ").append(getMensagensRecebidas()).append(" (").append(getBytesRecebidos()).append(" B)")
+                .append(", falhas de envio ").append(getFalhasEnvio())
+                .append(", reconexões ").append(getReconexoes())
+                .append(", erros de recepção ").append(getErrosRecepcao())
+                .append(", fila ").append(getProfundidadeFila()).append('\n');
+        for (int r = 1; r <= rodadas.length(); r++) {
+            Histograma h = rodadas.get(r - 1);
+            if (h != null) {
+                sb.append("  rodada ").append(r).append(": ").append(h.formatarTexto()).append('\n');
+            }
+        }
+        if (decisao.getContagem() > 0) {
+            sb.append("  decisão: ").append(decisao.formatarTexto()).append('\n');
+        }
+        for (Map.Entry<Integer, ContadoresPar> e : new TreeMap<>(pares).entrySet()) {
+            ContadoresPar par = e.getValue();
+            sb.append("  par ").append(e.getKey())
+                    .append(": enviadas ").append(par.enviadas.sum()).append(" (").append(par.bytesEnviados.sum()).append(" B)")
+                    .append(", recebidas ").append(par.recebidas.sum()).append(" (").append(par.bytesRecebidos.sum()).append(" B)");
+            if (par.falhasEnvio.sum() > 0 || par.reconexoes.sum() > 0) {
+                sb.append(", falhas ").append(par.falhasEnvio.sum()).append(", reconexões ").append(par.reconexoes.sum());
+            }
+            sb.append('\n');
+        }
+        if (desconhecidos.recebidas.sum() > 0) {
+            sb.append("  desconhecidos: recebidas ").append(desconhecidos.recebidas.sum())
+                    .append(" (").append(desconhecidos.bytesRecebidos.sum()).append(" B)\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Todas as métricas numa linha JSON.
+     */
+    @Override
+    public String getResumoJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"processo\":").append(id)
+                .append(",\"t_ms\":").append((System.nanoTime() - inicioNanos) / 1_000_000)
+                .append(",\"enviadas\":").append(getMensagensEnviadas())
+                .append(",\"bytes_enviados\":").append(getBytesEnviados())
+                .append(",\"recebidas\":").append(getMensagensRecebidas())
+                .append(",\"bytes_recebidos\":").append(getBytesRecebidos())
+                .append(",\"falhas_envio\":").append(getFalhasEnvio())
+                .append(",\"reconexoes\":").append(getReconexoes())
+                .append(",\"erros_recepcao\":").append(getErrosRecepcao())
+                .append(",\"fila\":").append(getProfundidadeFila())
+                .append(",\"decisao\":");
+        decisao.formatarJson(sb);
+        sb.append(",\"rodadas\":{");
+        boolean primeira = true;
+        for (int r = 1; r <= rodadas.length(); r++) {
+            Histograma h = rodadas.get(r - 1);
+            if (h != null) {
+                sb.append(primeira ? "" : ",").append('"').append(r).append("\":");
+                h.formatarJson(sb);
+                primeira = false;
+            }
+        }
+        sb.append("},\"pares\":{");
+        primeira = true;
+        for (Map.Entry<Integer, ContadoresPar> e : new TreeMap<>(pares).entrySet()) {
+            sb.append(primeira ? "" : ",").append('"').append(e.getKey()).append("\":");
+            e.getValue().formatarJson(sb);
+            primeira = false;
+        }
+        sb.append("},\"desconhecidos\":");
+        desconhecidos.formatarJson(sb);
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,36 @@
+package simulador;
+
+/**
+ * Interface JMX das Metricas de um processo (ex.: no jconsole, em
+ * simulador:type=Metricas,processo=ID).
+ */
+public interface MetricasMBean {
+    long getMensagensEnviadas();
+
+    long getBytesEnviados();
+
+    long getMensagensRecebidas();
+
+    long getBytesRecebidos();
+
+    long getFalhasEnvio();
+
+    long getReconexoes();
+
+    long getErrosRecepcao();
+
+    int getProfundidadeFila();
+
+    long getDecisoes();
+
+    long getLatenciaDecisaoP50Micros();
+
+    long getLatenciaDecisaoP99Micros();
+
+    /** p99 da latência de cada rodada, em microssegundos; o índice 0 é a rodada 1. */
+    long[] getLatenciaRodadaP99Micros();
+
+    String getResumoTexto();
+
+    String getResumoJson();
+}
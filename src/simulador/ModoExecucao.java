@@ -0,0 +1,15 @@
+package simulador;
+
+/**
+ * Como o processo avança entre as rodadas.
+ */
+public enum ModoExecucao {
+    /** Pausas fixas (5 s na partida, 3 s entre rodadas) para acompanhar as janelas ao vivo. */
+    DEMONSTRACAO,
+    /**
+     * Sem pausas: os processos se descobrem com PRONTO/CONFIRMA_PRONTO e cada
+     * rodada termina assim que todas as mensagens esperadas chegam, ou quando
+     * o prazo da rodada se esgota.
+     */
+    RAPIDO
+}
@@ -0,0 +1,24 @@
+package simulador;
+
+/**
+ * Implementações disponíveis da camada de rede.
+ */
+public enum ModoTransporte {
+    /** Sockets bloqueantes, com uma thread de leitura por conexão recebida (Comunicador). */
+    BLOQUEANTE,
+    /** Um único Selector atende todas as conexões, sem threads por conexão (ComunicadorNio). */
+    NIO;
+
+    /**
+     * Lê o modo da propriedade de sistema 'simulador.transporte' (padrão: BLOQUEANTE).
+     */
+    public static ModoTransporte daPropriedade() {
+        String valor = System.getProperty("simulador.transporte", BLOQUEANTE.name());
+        try {
+            return valueOf(valor.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Modo de transporte desconhecido: " + valor
+                    + " (use BLOQUEANTE ou NIO)");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package simulador;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Um Tenente do GeradorCarga numa JVM própria: sobe um NoConsenso a partir
+ * do config.txt gerado e obedece às linhas que o gerador escreve na entrada
+ * padrão. "MEDIR" recomeça a medição de CPU e heap (fim do aquecimento) e
+ * "PARAR" a fecha (fim do período medido). "FIM total" espera até
+ * PRAZO_DRENAGEM_MS que as 'total' instâncias propostas sejam entregues;
+ * então, ou no fim da entrada se o gerador cair, imprime uma linha
+ * "RECURSOS id decididas expiradas resumo <AmostradorRecursos.CAMPOS>" e
+ * encerra. 'resumo' é um hash das decisões na ordem das instâncias, igual
+ * em todos os Tenentes leais que entregaram as mesmas.
+ *
+ * Uso: java simulador.NoCarga id config m algoritmo semente prazoRodadaMs
+ *   algoritmo: OM ou SM (chaves HMAC geradas a partir da semente, iguais em todos os nós)
+ */
+public class NoCarga {
+
+    static final long PRAZO_DRENAGEM_MS = 30_000;
+
+    public static void main(String[] args) throws Exception {
+        int id = Integer.parseInt(args[0]);
+        Membresia membresia = Membresia.ler(args[1]);
+        int m = Integer.parseInt(args[2]);
+        Algoritmo algoritmo = Algoritmo.valueOf(args[3].toUpperCase());
+        long semente = Long.parseLong(args[4]);
+        long prazoRodadaMs = Long.parseLong(args[5]);
+
+        AtomicLong resumo = new AtomicLong();
+        NoConsenso no = new NoConsenso(id, 0, false, membresia,
+                opcoes(membresia, m, algoritmo, semente, prazoRodadaMs),
+                (instancia, valor) -> resumo.set(resumo.get() * 31 + valor.codigo()));
+        AmostradorRecursos recursos = new AmostradorRecursos();
+        recursos.iniciar();
+        no.iniciar();
+
+        BufferedReader entrada = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String linha;
+        String medidos = null;
+        long total = -1;
+        try {
+            while ((linha = entrada.readLine()) != null) {
+                String[] comando = linha.trim().split(" ");
+                if (comando[0].equals("MEDIR")) {
+                    recursos.iniciar();
+                } else if (comando[0].equals("PARAR")) {
+                    medidos = recursos.formatar();
+                } else if (comando[0].equals("FIM")) {
+                    total = comando.length > 1 ? Long.parseLong(comando[1]) : -1;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // O gerador caiu: encerra como no FIM
+        }
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PRAZO_DRENAGEM_MS);
+        while (no.getDecididas() < total && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        System.out.println("RECURSOS " + id + " " + no.getDecididas() + " " + no.getRodadasExpiradas() + " "
+                + Long.toHexString(resumo.get()) + " " + (medidos != null ? medidos : recursos.formatar()));
+        System.out.flush();
+        recursos.fechar();
+        no.desligar();
+        System.exit(0);
+    }
+
+    /**
+     * As opções de todos os nós de uma carga; o transporte vem de
+     * -Dsimulador.transporte.
+     */
+    static OpcoesProcesso opcoes(Membresia membresia, int m, Algoritmo algoritmo, long semente, long prazoRodadaMs) {
+        ChavesAssinatura chaves = algoritmo == Algoritmo.SM
+                ? ChavesAssinatura.gerar(ChavesAssinatura.Esquema.HMAC, membresia.getVisao().getParticipantes(), semente)
+                : null;
+        return new OpcoesProcesso()
+                .comMaxTraidores(m)
+                .comModoTransporte(ModoTransporte.daPropriedade())
+                .comPrazoRodadaMs(prazoRodadaMs)
+                .comAlgoritmo(algoritmo)
+                .comChaves(chaves);
+    }
+}
@@ -0,0 +1,967 @@
+package simulador;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Nó de longa duração que executa muitas instâncias do OM(m) (ou do SM(m),
+ * OpcoesProcesso.comAlgoritmo) seguidas sobre as mesmas conexões, em vez de
+ * um Processo por decisão.
+ *
+ * O Comandante chama propor() para cada valor; até 'janela' instâncias
+ * (OpcoesProcesso.comJanela) ficam em andamento ao mesmo tempo, e propor()
+ * bloqueia quando a janela está cheia. Cada Tenente entrega as decisões ao
+ * OuvinteDecisao na ordem das instâncias, mesmo que terminem fora de ordem,
+ * e avisa o Comandante com DECIDIDO, o que libera a vaga na janela.
+ *
+ * Um Tenente que ficou para trás (uma partição, uma pausa longa) se
+ * recupera sozinho: quando uma rodada expira sem mensagens de mais de m
+ * remetentes, ele pede a decisão da instância aos outros nós (PEDIDO_DECISAO)
+ * e entrega o valor que m + 1 deles responderem igual, em vez do que a
+ * rodada incompleta daria. Quem responde guarda as últimas HISTORICO
+ * decisões (com o LogDecisoes, todas).
+ *
+ * Sempre executa sem pausas: cada rodada termina quando todas as mensagens
+ * chegam ou quando o prazo da rodada (OpcoesProcesso.comPrazoRodadaMs) acaba.
+ * Com OpcoesProcesso.comLimiarPhi, o prazo vem de um DetectorPhi alimentado
+ * pelos tempos de chegada das mensagens de cada rodada.
+ *
+ * Cada instância usa os participantes da visão da Membresia no momento em
+ * que é criada; com Membresia.observar(), generais podem entrar ou trocar de
+ * endereço entre instâncias sem reiniciar os nós.
+ *
+ * Com OpcoesProcesso.comPastaLog, as decisões (no Comandante, as propostas)
+ * e as ordens recebidas vão para um LogDecisoes; um Tenente só anuncia uma
+ * decisão depois que ela está em disco. Ao ser recriado com o mesmo log, o
+ * nó continua da última instância entregue, retoma as que estavam em
+ * andamento com as ordens já recebidas e responde decisao(k) sem outra
+ * rodada de consenso.
+ */
+public class NoConsenso {
+
+    /**
+     * Recebe as decisões de um Tenente, em ordem crescente de instância.
+     * É chamado na thread do protocolo: não deve bloquear.
+     */
+    public interface OuvinteDecisao {
+        void decidido(long instancia, Ordem decisao);
+    }
+
+    /**
+     * No Comandante, avisado quando uma instância reúne confirmações
+     * suficientes, com o tempo desde o propor(). É chamado na thread do
+     * protocolo: não deve bloquear.
+     */
+    public interface OuvinteConfirmacao {
+        void confirmada(long instancia, long latenciaNanos);
+    }
+
+    // Intervalo entre os reenvios de PRONTO para quem ainda não respondeu; dobra
+    // a cada reenvio, até o máximo
+    private static final long INTERVALO_PRONTIDAO_MS = 200;
+    private static final long INTERVALO_PRONTIDAO_MAXIMO_MS = 3200;
+
+    // Quantas instâncias um Tenente mantém em andamento à frente da última
+    // entregue; só limita a memória contra um Comandante traidor
+    private static final long MAX_EM_ANDAMENTO = 1024;
+    // Quantas instâncias ainda não começadas podem ter ordens guardadas de um
+    // mesmo remetente; só limita a memória contra um traidor
+    private static final int MAX_ADIANTADAS_POR_REMETENTE = 256;
+    // Quantas decisões (no Comandante, propostas) ficam na memória para responder a PEDIDO_DECISAO
+    private static final int HISTORICO = 8192;
+
+    private final int id;
+    private final int comandanteId;
+    // A estratégia do traidor, ou null se o processo é leal
+    private final EstrategiaTraidor traicao;
+    private final Membresia membresia;
+    private final OpcoesProcesso opcoes;
+    private final OuvinteDecisao ouvinte;
+    private volatile OuvinteConfirmacao ouvinteConfirmacao;
+    private final Transporte comunicador;
+    private final BlockingQueue<Mensagem> filaDeMensagens = new LinkedBlockingQueue<>();
+    // Valida as mensagens do transporte em paralelo antes da fila acima; null se desligado
+    private final EstagioValidacao estagioValidacao;
+    private final long prazoRodadaNanos;
+    // Prazo adaptativo das rodadas; null usa prazoRodadaNanos
+    private final DetectorPhi detector;
+    // Só no SM; compartilhado por todas as instâncias, com o cache de verificações
+    private final VerificadorAssinaturas verificador;
+    // Decisões e ordens recebidas, para retomar depois de uma queda; null se desligado
+    private final LogDecisoes logDecisoes;
+    private final Thread thread;
+    private volatile boolean rodando;
+
+    // --- Prontidão (thread do protocolo) ---
+    private final Set<Integer> prontos = new HashSet<>();
+    private final CountDownLatch todosProntos = new CountDownLatch(1);
+    private long prazoProntidao;
+    private long proximoAnuncio;
+    private long intervaloAnuncioMs = INTERVALO_PRONTIDAO_MS;
+
+    // --- Tenente (thread do protocolo) ---
+    private final TreeMap<Long, Execucao> ativas = new TreeMap<>();
+    // Retransmissões de instâncias que ainda não começaram aqui (ver receberOrdem)
+    private final TreeMap<Long, Adiantada> adiantadas = new TreeMap<>();
+    // De quantas instâncias adiantadas cada remetente tem ordens guardadas
+    private final Map<Integer, Integer> adiantadasPorRemetente = new HashMap<>();
+    private long ultimaCriada = 0;
+    private long ultimaEntregue = 0;
+    // Maior instância que já pode começar; as que passam de MAX_EM_ANDAMENTO esperam a vez
+    private long alvo = 0;
+    // PEDIDO_DECISAO de instâncias que este Tenente ainda não decidiu: quem pediu cada uma
+    private final TreeMap<Long, BitSet> pedidos = new TreeMap<>();
+    // Entregues por entregar() que esperam o log chegar ao disco para serem anunciadas
+    private final List<Execucao> aAnunciar = new ArrayList<>();
+
+    // --- Comandante ---
+    private final Semaphore janela;
+    private final AtomicLong proximaInstancia = new AtomicLong(1);
+    private final Map<Long, EmVoo> emVoo = new ConcurrentHashMap<>();
+
+    // Últimas decisões (no Comandante, propostas), instancia * 4 + código + 1 na posição
+    // instancia % HISTORICO; escrito pelo propor() no Comandante, lido pela thread do protocolo
+    private final AtomicLongArray historico = new AtomicLongArray(HISTORICO);
+
+    private final AtomicLong decididas = new AtomicLong();
+    private final AtomicLong rodadasExpiradas = new AtomicLong();
+    private final AtomicLong instanciasExpiradas = new AtomicLong();
+    private final Metricas metricas;
+
+    /** Uma instância em andamento num Tenente, com o prazo da rodada atual. */
+    private static final class Execucao {
+        final InstanciaConsenso om;
+        final long criacaoNanos;
+        long inicioRodadaNanos;
+        long inicioRodadaAnteriorNanos = -1;
+        long prazoNanos;
+        // Quem mandou ordens em cada rodada (índice = rodada)
+        final BitSet[] ouvidos;
+        // Recuperação pelos outros nós (ver recuperar()); 'respostas' é null até ela começar
+        BitSet responderam;
+        int[] respostas;
+        Ordem recuperada;
+        boolean desistiu;
+        long proximoPedidoNanos;
+
+        Execucao(InstanciaConsenso om, long agora, long prazoNanos, int rodadas) {
+            this.om = om;
+            this.criacaoNanos = agora;
+            this.inicioRodadaNanos = agora;
+            this.prazoNanos = prazoNanos;
+            this.ouvidos = new BitSet[rodadas + 1];
+            for (int r = 1; r <= rodadas; r++) {
+                ouvidos[r] = new BitSet();
+            }
+        }
+
+        boolean recuperando() {
+            return respostas != null;
+        }
+
+        /** Se já pode ser entregue: decidida pelas rodadas ou, na recuperação, pelos outros nós. */
+        boolean pronta() {
+            return recuperada != null || ((!recuperando() || desistiu) && om.isConcluida());
+        }
+
+        Ordem decisao() {
+            return recuperada != null ? recuperada : om.getDecisao();
+        }
+    }
+
+    /**
+     * Ordens guardadas de uma instância que ainda não começou, com quantas
+     * vieram de cada remetente (no máximo o que um leal mandaria).
+     */
+    private static final class Adiantada {
+        final List<Mensagem> mensagens = new ArrayList<>();
+        final Map<Integer, Integer> porRemetente = new HashMap<>();
+    }
+
+    /** Uma instância proposta pelo Comandante que ainda ocupa vaga na janela. */
+    private static final class EmVoo {
+        final long inicioNanos;
+        // Quantos DECIDIDO liberam a vaga: basta que os n - 1 - m Tenentes leais respondam
+        final int necessarias;
+        // O valor proposto; null (Comandante traidor) aceita qualquer decisão
+        final Ordem proposta;
+        // Tenentes que já confirmaram: cada um conta uma vez só
+        final BitSet confirmaram = new BitSet();
+
+        EmVoo(long inicioNanos, int necessarias, Ordem proposta) {
+            this.inicioNanos = inicioNanos;
+            this.necessarias = necessarias;
+            this.proposta = proposta;
+        }
+    }
+
+    public NoConsenso(int id, int comandanteId, boolean isTraidor, Map<Integer, String[]> outrosProcessos,
+                      OpcoesProcesso opcoes, OuvinteDecisao ouvinte) {
+        this(id, comandanteId, isTraidor, Membresia.de(outrosProcessos), opcoes, ouvinte);
+    }
+
+    /**
+     * @param ouvinte recebe as decisões (só é usado nos Tenentes); pode ser null
+     */
+    public NoConsenso(int id, int comandanteId, boolean isTraidor, Membresia membresia,
+                      OpcoesProcesso opcoes, OuvinteDecisao ouvinte) {
+        this.id = id;
+        this.comandanteId = comandanteId;
+        this.traicao = isTraidor ? opcoes.getEstrategiaTraidor() : null;
+        this.membresia = membresia;
+        this.opcoes = opcoes;
+        this.ouvinte = ouvinte;
+        this.prazoRodadaNanos = TimeUnit.MILLISECONDS.toNanos(opcoes.getPrazoRodadaMs());
+        this.detector = opcoes.getLimiarPhi() > 0 ? new DetectorPhi(opcoes.getLimiarPhi(), prazoRodadaNanos) : null;
+        this.janela = new Semaphore(opcoes.getJanela());
+        if (opcoes.getAlgoritmo() == Algoritmo.SM && opcoes.getChaves() == null) {
+            throw new IllegalArgumentException("O SM(m) precisa das chaves de assinatura (OpcoesProcesso.comChaves)");
+        }
+        this.verificador = opcoes.getAlgoritmo() == Algoritmo.SM ? new VerificadorAssinaturas(opcoes.getChaves()) : null;
+        if (opcoes.getPastaLog() != null) {
+            File arquivo = new File(opcoes.getPastaLog(), "decisoes-" + id + ".log");
+            try {
+                this.logDecisoes = LogDecisoes.abrir(arquivo);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Não foi possível abrir o log de decisões " + arquivo, e);
+            }
+            // Continua de onde parou: o Tenente depois da última instância entregue,
+            // o Comandante depois da última proposta
+            this.ultimaEntregue = logDecisoes.getUltimaContigua();
+            this.ultimaCriada = ultimaEntregue;
+            this.proximaInstancia.set(logDecisoes.getMaiorInstancia() + 1);
+        } else {
+            this.logDecisoes = null;
+        }
+
+        this.metricas = new Metricas(id);
+        this.metricas.monitorarFila(filaDeMensagens);
+        BlockingQueue<Mensagem> entrada = filaDeMensagens;
+        if (opcoes.getNucleosValidacao() > 0) {
+            entrada = new LinkedBlockingQueue<>();
+            this.estagioValidacao = new EstagioValidacao(entrada, filaDeMensagens,
+                    EstagioValidacao.validador(verificador), opcoes.getNucleosValidacao());
+        } else {
+            this.estagioValidacao = null;
+        }
+        this.comunicador = Transporte.criar(id, opcoes, membresia, entrada, metricas, traicao);
+        this.thread = new Thread(this::executar, "no-consenso-" + id);
+        this.thread.setDaemon(true);
+    }
+
+    public void iniciar() {
+        if (estagioValidacao != null) {
+            estagioValidacao.iniciar();
+        }
+        comunicador.iniciarServidor();
+        long agora = System.nanoTime();
+        prazoProntidao = agora + TimeUnit.MILLISECONDS.toNanos(opcoes.getPrazoProntidaoMs());
+        proximoAnuncio = agora;
+        rodando = true;
+        thread.start();
+    }
+
+    /**
+     * Espera (até 'prazoMs') que os outros nós respondam ao anúncio de PRONTO,
+     * ou que o prazo de prontidão acabe. Retorna false se 'prazoMs' acabar antes.
+     */
+    public boolean aguardarProntos(long prazoMs) throws InterruptedException {
+        return todosProntos.await(prazoMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Propõe um valor numa nova instância e retorna o ID dela. Bloqueia
+     * enquanto os outros nós não estiverem prontos ou a janela estiver cheia.
+     * Só pode ser chamado no Comandante.
+     */
+    public long propor(Ordem valor) throws InterruptedException {
+        if (id != comandanteId) {
+            throw new IllegalStateException("Só o Comandante propõe valores");
+        }
+        todosProntos.await();
+        janela.acquire();
+        synchronized (this) {
+            // Sincronizado para que as instâncias saiam para a rede na ordem dos IDs
+            long instancia = proximaInstancia.getAndIncrement();
+            if (logDecisoes != null) {
+                // A proposta vai para o disco antes de sair para a rede: depois de uma
+                // queda, o Comandante não reutiliza o ID
+                logDecisoes.aguardarDuravel(gravar(instancia, valor));
+                descartarSegmentos();
+            }
+            lembrar(instancia, valor);
+            int participantes = membresia.getVisao().getParticipantes().length;
+            emVoo.put(instancia, new EmVoo(System.nanoTime(),
+                    Math.max(1, participantes - 1 - opcoes.getMaxTraidores()), traicao == null ? valor : null));
+            criarInstancia(instancia, valor).iniciar();
+            return instancia;
+        }
+    }
+
+    /**
+     * No Comandante, passa a avisar 'ouvinte' de cada instância confirmada
+     * (null para de avisar).
+     */
+    public void aoConfirmar(OuvinteConfirmacao ouvinte) {
+        this.ouvinteConfirmacao = ouvinte;
+    }
+
+    /**
+     * Espera (até 'prazoMs') que todas as instâncias propostas liberem a
+     * janela. Retorna false se o prazo acabar antes.
+     */
+    public boolean aguardarConclusao(long prazoMs) throws InterruptedException {
+        int vagas = opcoes.getJanela();
+        if (!janela.tryAcquire(vagas, prazoMs, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        janela.release(vagas);
+        return true;
+    }
+
+    /**
+     * A decisão registrada no LogDecisoes para a instância (no Comandante, o
+     * valor proposto), inclusive as de antes de uma queda; null se não houver
+     * log ou se a instância ainda não foi decidida.
+     */
+    public Ordem decisao(long instancia) {
+        return logDecisoes != null ? logDecisoes.decisao(instancia) : null;
+    }
+
+    /**
+     * Quantas instâncias este Tenente já entregou (ou, no Comandante, quantas
+     * foram confirmadas pelos Tenentes).
+     */
+    public long getDecididas() {
+        return decididas.get();
+    }
+
+    /**
+     * Quantas rodadas terminaram pelo prazo, e não por terem recebido tudo.
+     */
+    public long getRodadasExpiradas() {
+        return rodadasExpiradas.get();
+    }
+
+    /**
+     * No Comandante, quantas instâncias liberaram a vaga por prazo, sem confirmações suficientes.
+     */
+    public long getInstanciasExpiradas() {
+        return instanciasExpiradas.get();
+    }
+
+    /**
+     * Tráfego, latência das rodadas e das decisões (nos Tenentes, da criação da
+     * instância à entrega; no Comandante, do propor() à confirmação).
+     */
+    public Metricas getMetricas() {
+        return metricas;
+    }
+
+    public void desligar() {
+        rodando = false;
+        thread.interrupt();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        comunicador.desligarServidor();
+        if (estagioValidacao != null) {
+            estagioValidacao.fechar();
+        }
+        if (logDecisoes != null) {
+            try {
+                logDecisoes.fechar();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar o log de decisões: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Laço da thread do protocolo: prontidão, mensagens e prazos.
+     */
+    private void executar() {
+        try {
+            if (logDecisoes != null) {
+                // Retoma as instâncias que estavam em andamento quando o nó caiu
+                for (Mensagem msg : logDecisoes.getPendentes()) {
+                    receberOrdem(msg, false);
+                }
+            }
+            while (rodando) {
+                long agora = System.nanoTime();
+                if (todosProntos.getCount() > 0 && agora >= proximoAnuncio) {
+                    anunciarPronto(agora);
+                }
+
+                Mensagem msg = filaDeMensagens.poll(Math.max(proximoPrazo(agora) - agora, 0), TimeUnit.NANOSECONDS);
+                if (msg != null) {
+                    tratar(msg);
+                    // O que já está na fila chegou antes do prazo: trata antes de expirar (sem
+                    // isso, uma pausa desta thread faria rodadas com tudo recebido expirarem)
+                    for (int i = filaDeMensagens.size(); i > 0 && (msg = filaDeMensagens.poll()) != null; i--) {
+                        tratar(msg);
+                    }
+                }
+                expirar(System.nanoTime());
+            }
+        } catch (InterruptedException e) {
+            // desligar()
+        }
+    }
+
+    private void anunciarPronto(long agora) {
+        int[] participantes = membresia.getVisao().getParticipantes();
+        if (prontos.size() >= participantes.length - 1 || agora > prazoProntidao) {
+            todosProntos.countDown();
+            return;
+        }
+        for (int outroId : participantes) {
+            if (outroId != id && !prontos.contains(outroId)) {
+                enviar(outroId, Mensagem.controle(TipoMensagem.PRONTO, id));
+            }
+        }
+        proximoAnuncio = agora + TimeUnit.MILLISECONDS.toNanos(intervaloAnuncioMs);
+        intervaloAnuncioMs = Math.min(intervaloAnuncioMs * 2, INTERVALO_PRONTIDAO_MAXIMO_MS);
+    }
+
+    private void tratar(Mensagem msg) throws InterruptedException {
+        switch (msg.getTipo()) {
+            case PRONTO:
+                // Quem anuncia ainda não sabe de mim: confirma, mesmo que eu já esteja pronto
+                enviar(msg.getRemetenteId(), Mensagem.controle(TipoMensagem.CONFIRMA_PRONTO, id));
+                marcarPronto(msg.getRemetenteId());
+                break;
+            case CONFIRMA_PRONTO:
+                marcarPronto(msg.getRemetenteId());
+                break;
+            case DECIDIDO:
+                if (id == comandanteId) {
+                    confirmar(msg);
+                } else {
+                    receberResposta(msg);
+                }
+                break;
+            case PEDIDO_DECISAO:
+                responder(msg);
+                break;
+            case ORDEM:
+                receberOrdem(msg, true);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void marcarPronto(int remetenteId) {
+        prontos.add(remetenteId);
+        if (prontos.size() >= membresia.getVisao().getParticipantes().length - 1) {
+            todosProntos.countDown();
+        }
+    }
+
+    /**
+     * Entrega a ordem à instância dela. 'gravar' é false quando a ordem vem
+     * do próprio LogDecisoes.
+     *
+     * Uma instância só começa (e o prazo da sua rodada só corre) quando chega
+     * a ordem do Comandante ou retransmissões de m + 1 Tenentes diferentes,
+     * dos quais pelo menos um é leal e só retransmite o que o Comandante
+     * propôs; começam junto as anteriores que ainda não chegaram. Um Tenente
+     * traidor não consegue, sozinho, criar instâncias que o Comandante não
+     * propôs, e um Tenente que ficou para trás volta a acompanhar os outros
+     * mesmo que eles já estejam muito à frente. Nunca há mais de
+     * MAX_EM_ANDAMENTO instâncias em andamento; até a vez delas, as ordens
+     * ficam guardadas, no máximo as que um leal mandaria e de no máximo
+     * MAX_ADIANTADAS_POR_REMETENTE instâncias por remetente (uma que não
+     * coube começa vazia e, se faltar demais, é recuperada pelos outros nós).
+     */
+    private void receberOrdem(Mensagem msg, boolean gravar) throws InterruptedException {
+        long instancia = msg.getInstancia();
+        if (id == comandanteId || instancia <= ultimaEntregue) {
+            return; // Já decidida
+        }
+        if (gravar && logDecisoes != null) {
+            try {
+                logDecisoes.anexarOrdem(msg);
+            } catch (IOException e) {
+                System.err.println("Erro ao gravar ordem no log de decisões: " + e.getMessage());
+            }
+        }
+        long agora = System.nanoTime();
+        Execucao execucao = ativas.get(instancia);
+        if (execucao == null) {
+            if (guardar(msg)) {
+                alvo = Math.max(alvo, instancia);
+                iniciarAteAlvo(agora);
+            }
+            return;
+        }
+        if (detector != null) {
+            amostrar(execucao, msg.getRodada(), agora);
+        }
+        ouvir(execucao, msg);
+        if (execucao.om.receber(msg)) {
+            avancarCompletas(execucao, agora);
+            entregar();
+        }
+    }
+
+    /**
+     * Guarda a ordem de uma instância que ainda não começou e retorna true
+     * se ela já pode começar.
+     */
+    private boolean guardar(Mensagem msg) {
+        int remetente = msg.getRemetenteId();
+        if (!membresia.getVisao().contem(remetente)) {
+            return false;
+        }
+        Adiantada adiantada = adiantadas.get(msg.getInstancia());
+        int jaMandou = adiantada != null ? adiantada.porRemetente.getOrDefault(remetente, 0) : 0;
+        if (remetente != comandanteId && jaMandou >= limitePorRemetente()) {
+            return false; // Mais do que um Tenente leal mandaria: descarta
+        }
+        if (jaMandou == 0) {
+            int instancias = adiantadasPorRemetente.getOrDefault(remetente, 0);
+            if (instancias >= MAX_ADIANTADAS_POR_REMETENTE) {
+                return false; // Se for preciso, a instância é recuperada pelos outros nós
+            }
+            adiantadasPorRemetente.put(remetente, instancias + 1);
+        }
+        if (adiantada == null) {
+            adiantada = new Adiantada();
+            adiantadas.put(msg.getInstancia(), adiantada);
+        }
+        adiantada.porRemetente.put(remetente, jaMandou + 1);
+        adiantada.mensagens.add(msg);
+        return remetente == comandanteId
+                || adiantada.porRemetente.size() - (adiantada.porRemetente.containsKey(comandanteId) ? 1 : 0)
+                > opcoes.getMaxTraidores();
+    }
+
+    /**
+     * Quantas ordens de uma instância um Tenente leal manda a outro: no OM,
+     * um caminho terminado nele por nível da EIG (do 2 ao m + 1); no SM, cada
+     * valor uma vez.
+     */
+    private int limitePorRemetente() {
+        if (opcoes.getAlgoritmo() == Algoritmo.SM) {
+            return Ordem.values().length;
+        }
+        int n = membresia.getVisao().getParticipantes().length;
+        long total = 0;
+        long caminhos = 1;
+        for (int nivel = 2; nivel <= opcoes.getMaxTraidores() + 1 && caminhos > 0; nivel++) {
+            if (nivel > 2) {
+                caminhos *= Math.max(n - nivel, 0);
+            }
+            total += caminhos;
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Começa as instâncias até 'alvo' que ainda não começaram, sem passar de
+     * MAX_EM_ANDAMENTO à frente da última entregue, entregando a cada uma as
+     * ordens guardadas dela.
+     */
+    private void iniciarAteAlvo(long agora) throws InterruptedException {
+        long limite = Math.min(alvo, ultimaEntregue + MAX_EM_ANDAMENTO);
+        boolean recebeu = false;
+        while (ultimaCriada < limite) {
+            ultimaCriada++;
+            InstanciaConsenso om = criarInstancia(ultimaCriada, null);
+            om.iniciar();
+            Execucao execucao = new Execucao(om, agora, agora + prazoRodada(), opcoes.getMaxTraidores() + 1);
+            ativas.put(ultimaCriada, execucao);
+            Adiantada adiantada = adiantadas.remove(ultimaCriada);
+            if (adiantada != null) {
+                for (Integer remetente : adiantada.porRemetente.keySet()) {
+                    adiantadasPorRemetente.merge(remetente, -1, (a, b) -> a + b == 0 ? null : a + b);
+                }
+                for (Mensagem guardada : adiantada.mensagens) {
+                    ouvir(execucao, guardada);
+                    recebeu |= om.receber(guardada);
+                }
+                avancarCompletas(execucao, agora);
+            }
+        }
+        if (recebeu) {
+            entregar();
+        }
+    }
+
+    /** Anota o remetente de uma ordem na rodada dela. */
+    private void ouvir(Execucao execucao, Mensagem msg) {
+        int rodada = msg.getRodada();
+        if (rodada >= 1 && rodada < execucao.ouvidos.length && membresia.getVisao().contem(msg.getRemetenteId())) {
+            execucao.ouvidos[rodada].set(msg.getRemetenteId());
+        }
+    }
+
+    /**
+     * Se faltaram, até a rodada que está terminando pelo prazo, ordens de
+     * mais remetentes do que m traidores explicariam: o Tenente perdeu
+     * mensagens leais (partição, atraso) e o que as rodadas decidirem não é
+     * confiável. Na rodada 1 só o Comandante manda; nas outras, todos os
+     * Tenentes (no SM, só a rodada 2 é certa: depois dela um leal só
+     * retransmite valores novos).
+     */
+    private boolean perdeuMensagens(Execucao execucao) {
+        int ultima = Math.min(execucao.om.getRodadaAtual(), execucao.ouvidos.length - 1);
+        if (opcoes.getAlgoritmo() == Algoritmo.SM) {
+            ultima = Math.min(ultima, 2);
+        }
+        int faltaram = 0;
+        for (int outro : membresia.getVisao().getParticipantes()) {
+            for (int rodada = 1; rodada <= ultima; rodada++) {
+                boolean esperado = rodada == 1 ? outro == comandanteId : outro != comandanteId && outro != id;
+                if (esperado && !execucao.ouvidos[rodada].get(outro)) {
+                    faltaram++;
+                    break;
+                }
+            }
+        }
+        return faltaram > opcoes.getMaxTraidores();
+    }
+
+    /**
+     * Passa a decidir a instância pelos outros nós: pede a decisão a todos e
+     * entrega o valor que m + 1 responderem igual (pelo menos um leal, e os
+     * leais decidiram todos o mesmo). As rodadas continuam, porque os outros
+     * podem precisar das retransmissões deste Tenente.
+     */
+    private void recuperar(Execucao execucao, long agora) {
+        execucao.responderam = new BitSet();
+        execucao.respostas = new int[Ordem.values().length];
+        verificarDesistencia(execucao);
+        pedirDecisao(execucao, agora);
+    }
+
+    /**
+     * Quem pediu a decisão de uma instância também não a tem, e só responde
+     * depois de entregá-la. Se, sem eles, não sobra quem possa completar
+     * m + 1 respostas iguais (todos perderam mensagens, por exemplo com um
+     * prazo curto demais), esperar não adianta: a instância fica com o que
+     * as rodadas decidirem.
+     */
+    private void verificarDesistencia(Execucao execucao) {
+        if (!execucao.recuperando() || execucao.desistiu) {
+            return;
+        }
+        BitSet pediram = pedidos.get(execucao.om.getInstancia());
+        int podemResponder = 0;
+        for (int outro : membresia.getVisao().getParticipantes()) {
+            if (outro != id && !execucao.responderam.get(outro) && (pediram == null || !pediram.get(outro))) {
+                podemResponder++;
+            }
+        }
+        int maisVotado = 0;
+        for (int votos : execucao.respostas) {
+            maisVotado = Math.max(maisVotado, votos);
+        }
+        execucao.desistiu = maisVotado + podemResponder <= opcoes.getMaxTraidores();
+    }
+
+    /** (Re)envia o PEDIDO_DECISAO a quem ainda não respondeu. */
+    private void pedirDecisao(Execucao execucao, long agora) {
+        Mensagem pedido = Mensagem.pedidoDecisao(execucao.om.getInstancia(), id);
+        for (int outro : membresia.getVisao().getParticipantes()) {
+            if (outro != id && !execucao.responderam.get(outro)) {
+                enviar(outro, pedido);
+            }
+        }
+        execucao.proximoPedidoNanos = agora + prazoRodadaNanos;
+    }
+
+    /**
+     * Responde a um PEDIDO_DECISAO com a decisão (no Comandante, a proposta)
+     * se já a conhece; no Tenente, uma instância ainda em andamento é
+     * respondida quando for entregue.
+     */
+    private void responder(Mensagem msg) throws InterruptedException {
+        long instancia = msg.getInstancia();
+        int remetente = msg.getRemetenteId();
+        if (remetente == id || !membresia.getVisao().contem(remetente)) {
+            return;
+        }
+        Ordem decisao = decisaoConhecida(instancia);
+        if (decisao != null) {
+            enviar(remetente, Mensagem.decidido(instancia, id, decisao));
+        } else if (id != comandanteId && instancia > ultimaEntregue && instancia <= ultimaEntregue + MAX_EM_ANDAMENTO) {
+            pedidos.computeIfAbsent(instancia, k -> new BitSet()).set(remetente);
+            Execucao execucao = ativas.get(instancia);
+            if (execucao != null) {
+                verificarDesistencia(execucao);
+                entregar();
+            }
+        }
+    }
+
+    /**
+     * Uma resposta a um PEDIDO_DECISAO: conta uma por nó e, quando m + 1
+     * derem o mesmo valor, a instância pode ser entregue com ele.
+     */
+    private void receberResposta(Mensagem msg) throws InterruptedException {
+        Execucao execucao = ativas.get(msg.getInstancia());
+        int remetente = msg.getRemetenteId();
+        if (execucao == null || !execucao.recuperando() || execucao.recuperada != null || msg.getOrdem() == null
+                || remetente == id || !membresia.getVisao().contem(remetente) || execucao.responderam.get(remetente)) {
+            return;
+        }
+        execucao.responderam.set(remetente);
+        if (++execucao.respostas[msg.getOrdem().codigo()] > opcoes.getMaxTraidores()) {
+            execucao.recuperada = msg.getOrdem();
+        } else {
+            verificarDesistencia(execucao);
+        }
+        entregar();
+    }
+
+    /** Guarda a decisão (no Comandante, a proposta) para responder a PEDIDO_DECISAO. */
+    private void lembrar(long instancia, Ordem decisao) {
+        historico.set((int) (instancia % HISTORICO), instancia * 4 + decisao.codigo() + 1);
+    }
+
+    /** A decisão da instância, se ainda estiver no histórico ou no LogDecisoes; null se não. */
+    private Ordem decisaoConhecida(long instancia) {
+        long registro = historico.get((int) (instancia % HISTORICO));
+        if (registro / 4 == instancia && registro % 4 > 0) {
+            return Ordem.doCodigo((int) (registro % 4) - 1);
+        }
+        return decisao(instancia);
+    }
+
+    private InstanciaConsenso criarInstancia(long instancia, Ordem proposta) {
+        InstanciaConsenso om = InstanciaConsenso.criar(opcoes.getAlgoritmo(), instancia, id, comandanteId,
+                membresia.getVisao().getParticipantes(),
+                opcoes.getMaxTraidores(), traicao, proposta, verificador, opcoes.getDisseminacao(), this::enviar, null);
+        om.setDecisaoAntecipada(opcoes.isDecisaoAntecipada());
+        return om;
+    }
+
+    /**
+     * Avança a instância enquanto as rodadas dela já estiverem completas
+     * (mensagens adiantadas podem completar várias de uma vez).
+     */
+    private void avancarCompletas(Execucao execucao, long agora) {
+        while (execucao.om.rodadaCompleta()) {
+            avancar(execucao, agora);
+        }
+    }
+
+    /**
+     * Fecha a rodada atual da instância, medindo quanto ela levou.
+     */
+    private void avancar(Execucao execucao, long agora) {
+        metricas.registrarRodada(execucao.om.getRodadaAtual(), agora - execucao.inicioRodadaNanos);
+        execucao.om.avancar();
+        execucao.inicioRodadaAnteriorNanos = execucao.inicioRodadaNanos;
+        execucao.inicioRodadaNanos = agora;
+        execucao.prazoNanos = agora + prazoRodada();
+    }
+
+    /**
+     * Alimenta o DetectorPhi com quanto a mensagem levou desde o início da
+     * rodada dela. As que chegam depois do prazo (da rodada anterior à atual)
+     * também contam, senão o detector só veria as rápidas e nunca esticaria
+     * o prazo. A mensagem que cria a instância não esperou nada, e as
+     * adiantadas não dizem quanto a rodada leva: essas ficam de fora.
+     */
+    private void amostrar(Execucao execucao, int rodada, long agora) {
+        int atual = execucao.om.getRodadaAtual();
+        if (rodada == atual) {
+            detector.registrar(agora - execucao.inicioRodadaNanos);
+        } else if (rodada == atual - 1 && execucao.inicioRodadaAnteriorNanos >= 0) {
+            detector.registrar(agora - execucao.inicioRodadaAnteriorNanos);
+        }
+    }
+
+    /**
+     * Quanto esperar pelas mensagens de uma rodada: o prazo do DetectorPhi,
+     * se houver, ou o fixo.
+     */
+    private long prazoRodada() {
+        return detector != null ? detector.prazoNanos() : prazoRodadaNanos;
+    }
+
+    /**
+     * Entrega, em ordem, as instâncias concluídas no início da fila. Com o
+     * LogDecisoes, grava todas e espera um único force() antes de anunciá-las.
+     */
+    private void entregar() throws InterruptedException {
+        long posicao = -1;
+        while (!ativas.isEmpty() && ativas.firstEntry().getValue().pronta()) {
+            Execucao execucao = ativas.pollFirstEntry().getValue();
+            ultimaEntregue = execucao.om.getInstancia();
+            if (logDecisoes != null) {
+                posicao = gravar(ultimaEntregue, execucao.decisao());
+            }
+            aAnunciar.add(execucao);
+        }
+        if (aAnunciar.isEmpty()) {
+            return;
+        }
+        if (posicao >= 0) {
+            logDecisoes.aguardarDuravel(posicao);
+            descartarSegmentos();
+        }
+        long agora = System.nanoTime();
+        for (Execucao execucao : aAnunciar) {
+            long instancia = execucao.om.getInstancia();
+            Ordem decisao = execucao.decisao();
+            decididas.incrementAndGet();
+            metricas.registrarDecisao(agora - execucao.criacaoNanos);
+            lembrar(instancia, decisao);
+            Mensagem decidido = Mensagem.decidido(instancia, id, decisao);
+            enviar(comandanteId, decidido);
+            BitSet pediram = pedidos.remove(instancia);
+            if (pediram != null) {
+                for (int outro = pediram.nextSetBit(0); outro >= 0; outro = pediram.nextSetBit(outro + 1)) {
+                    enviar(outro, decidido);
+                }
+            }
+            if (ouvinte != null) {
+                ouvinte.decidido(instancia, decisao);
+            }
+        }
+        aAnunciar.clear();
+    }
+
+    /**
+     * Apaga do LogDecisoes os segmentos que só têm instâncias já entregues em
+     * sequência, para que o log não cresça sem limite.
+     */
+    private void descartarSegmentos() {
+        try {
+            logDecisoes.descartarSegmentos();
+        } catch (IOException e) {
+            System.err.println("Erro ao apagar segmentos do log de decisões: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Anexa a decisão ao log e retorna a posição para aguardarDuravel(), ou
+     * -1 se a gravação falhou (a decisão segue só na memória).
+     */
+    private long gravar(long instancia, Ordem decisao) {
+        try {
+            return logDecisoes.anexarDecisao(instancia, decisao);
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar decisão no log de decisões: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * No Comandante: conta o DECIDIDO e libera a vaga da instância quando
+     * houver confirmações suficientes. Só contam Tenentes da visão atual,
+     * uma vez cada, e só a decisão do valor proposto: um traidor repetindo
+     * DECIDIDO não libera a vaga sem os Tenentes leais.
+     */
+    private void confirmar(Mensagem msg) {
+        long instancia = msg.getInstancia();
+        int remetente = msg.getRemetenteId();
+        EmVoo voo = emVoo.get(instancia);
+        if (voo == null || remetente == id || !membresia.getVisao().contem(remetente)
+                || (voo.proposta != null && msg.getOrdem() != voo.proposta) || voo.confirmaram.get(remetente)) {
+            return;
+        }
+        voo.confirmaram.set(remetente);
+        if (voo.confirmaram.cardinality() >= voo.necessarias) {
+            emVoo.remove(instancia);
+            decididas.incrementAndGet();
+            long latencia = System.nanoTime() - voo.inicioNanos;
+            metricas.registrarDecisao(latencia);
+            janela.release();
+            OuvinteConfirmacao ouvinte = ouvinteConfirmacao;
+            if (ouvinte != null) {
+                ouvinte.confirmada(instancia, latencia);
+            }
+        }
+    }
+
+    /**
+     * Encerra as rodadas cujo prazo acabou (o que faltou vale o padrão) e,
+     * no Comandante, libera as vagas de instâncias que nunca foram confirmadas.
+     */
+    private void expirar(long agora) throws InterruptedException {
+        boolean avancou = false;
+        for (Execucao execucao : ativas.values()) {
+            if (!execucao.om.isConcluida() && agora >= execucao.prazoNanos) {
+                rodadasExpiradas.incrementAndGet();
+                if (!execucao.recuperando() && perdeuMensagens(execucao)) {
+                    recuperar(execucao, agora);
+                }
+                avancar(execucao, agora);
+                avancarCompletas(execucao, agora);
+                avancou = true;
+            }
+            if (execucao.recuperando() && !execucao.pronta() && agora >= execucao.proximoPedidoNanos) {
+                pedirDecisao(execucao, agora);
+            }
+        }
+        if (avancou) {
+            entregar();
+        }
+        iniciarAteAlvo(agora);
+
+        if (!emVoo.isEmpty()) {
+            long limite = (detector != null ? detector.getMaximoNanos() : prazoRodadaNanos)
+                    * (opcoes.getMaxTraidores() + 2);
+            Iterator<EmVoo> it = emVoo.values().iterator();
+            while (it.hasNext()) {
+                if (agora - it.next().inicioNanos >= limite) {
+                    it.remove();
+                    instanciasExpiradas.incrementAndGet();
+                    janela.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Instante até o qual a thread pode esperar por mensagens sem perder um prazo.
+     */
+    private long proximoPrazo(long agora) {
+        long prazo = agora + prazoRodadaNanos;
+        if (todosProntos.getCount() > 0) {
+            prazo = Math.min(prazo, proximoAnuncio);
+        }
+        for (Execucao execucao : ativas.values()) {
+            if (!execucao.om.isConcluida()) {
+                prazo = Math.min(prazo, execucao.prazoNanos);
+            }
+            if (execucao.recuperando() && !execucao.pronta()) {
+                prazo = Math.min(prazo, execucao.proximoPedidoNanos);
+            }
+        }
+        return prazo;
+    }
+
+    private void enviar(int idDestino, Mensagem msg) {
+        if (membresia.getVisao().contem(idDestino)) {
+            comunicador.enviarMensagem(idDestino, msg);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package simulador;
+
+import java.io.File;
+
+/**
+ * Parâmetros opcionais de um Processo. Os valores padrão reproduzem o
+ * comportamento original: OM(1), sockets bloqueantes e pausas de demonstração.
+ */
+public class OpcoesProcesso {
+    private ModoTransporte modoTransporte = ModoTransporte.BLOQUEANTE;
+    private ModoExecucao modoExecucao = ModoExecucao.DEMONSTRACAO;
+    private int maxTraidores = 1;
+    private long prazoRodadaMs = 2000;
+    private long prazoProntidaoMs = 30000;
+    private long prazoConexaoMs = GerenciadorConexoes.PRAZO_CONEXAO_MS;
+    private int janela = 8;
+    private RedeMemoria redeMemoria;
+    private RegistroLog registroLog;
+    private Algoritmo algoritmo = Algoritmo.OM;
+    private ChavesAssinatura chaves;
+    private int nucleosValidacao = 0;
+    private Disseminacao disseminacao = Disseminacao.DIRETA;
+    private File pastaLog;
+    private EstrategiaTraidor estrategiaTraidor = EstrategiaTraidor.PADRAO;
+    private Falhas falhas;
+    private double limiarPhi = 0;
+    private boolean decisaoAntecipada = true;
+
+    public ModoTransporte getModoTransporte() {
+        return modoTransporte;
+    }
+
+    public OpcoesProcesso comModoTransporte(ModoTransporte modoTransporte) {
+        this.modoTransporte = modoTransporte;
+        return this;
+    }
+
+    public ModoExecucao getModoExecucao() {
+        return modoExecucao;
+    }
+
+    public OpcoesProcesso comModoExecucao(ModoExecucao modoExecucao) {
+        this.modoExecucao = modoExecucao;
+        return this;
+    }
+
+    public int getMaxTraidores() {
+        return maxTraidores;
+    }
+
+    /**
+     * Quantos traidores o OM(m) deve tolerar (m). Define m + 1 rodadas.
+     */
+    public OpcoesProcesso comMaxTraidores(int maxTraidores) {
+        if (maxTraidores < 1 || maxTraidores >= Caminho.MAX_SALTOS) {
+            throw new IllegalArgumentException("m deve estar entre 1 e " + (Caminho.MAX_SALTOS - 1) + ": " + maxTraidores);
+        }
+        this.maxTraidores = maxTraidores;
+        return this;
+    }
+
+    public long getPrazoRodadaMs() {
+        return prazoRodadaMs;
+    }
+
+    /**
+     * No modo RAPIDO, quanto esperar pelas mensagens de uma rodada antes de
+     * completar as que faltam com o valor padrão.
+     */
+    public OpcoesProcesso comPrazoRodadaMs(long prazoRodadaMs) {
+        this.prazoRodadaMs = prazoRodadaMs;
+        return this;
+    }
+
+    public long getPrazoProntidaoMs() {
+        return prazoProntidaoMs;
+    }
+
+    /**
+     * No modo RAPIDO, quanto esperar pelos anúncios de PRONTO dos outros processos.
+     */
+    public OpcoesProcesso comPrazoProntidaoMs(long prazoProntidaoMs) {
+        this.prazoProntidaoMs = prazoProntidaoMs;
+        return this;
+    }
+
+    public long getPrazoConexaoMs() {
+        return prazoConexaoMs;
+    }
+
+    /**
+     * No transporte BLOQUEANTE, quanto um envio espera o connect() de um
+     * canal novo; um destino que não responde conta como falha de envio.
+     */
+    public OpcoesProcesso comPrazoConexaoMs(long prazoConexaoMs) {
+        if (prazoConexaoMs <= 0) {
+            throw new IllegalArgumentException("O prazo de conexão deve ser positivo: " + prazoConexaoMs);
+        }
+        this.prazoConexaoMs = prazoConexaoMs;
+        return this;
+    }
+
+    public int getJanela() {
+        return janela;
+    }
+
+    /**
+     * No NoConsenso, quantas instâncias o Comandante pode ter em andamento ao
+     * mesmo tempo antes de propor() bloquear.
+     */
+    public OpcoesProcesso comJanela(int janela) {
+        if (janela < 1) {
+            throw new IllegalArgumentException("A janela deve ser pelo menos 1: " + janela);
+        }
+        this.janela = janela;
+        return this;
+    }
+
+    public RedeMemoria getRedeMemoria() {
+        return redeMemoria;
+    }
+
+    /**
+     * Troca a rede de verdade pela rede simulada na JVM: o modo de transporte
+     * e as portas do mapa de rede passam a ser ignorados.
+     */
+    public OpcoesProcesso comRedeMemoria(RedeMemoria redeMemoria) {
+        this.redeMemoria = redeMemoria;
+        return this;
+    }
+
+    public RegistroLog getRegistroLog() {
+        return registroLog;
+    }
+
+    /**
+     * Para onde vão os logs quando o Processo não tem JTextArea (ex.: um
+     * RegistroLog em JSON Lines compartilhado por todos os processos).
+     */
+    public OpcoesProcesso comRegistroLog(RegistroLog registroLog) {
+        this.registroLog = registroLog;
+        return this;
+    }
+
+    public Algoritmo getAlgoritmo() {
+        return algoritmo;
+    }
+
+    /**
+     * OM(m) (mensagens orais, o padrão) ou SM(m) (mensagens assinadas; exige
+     * comChaves()).
+     */
+    public OpcoesProcesso comAlgoritmo(Algoritmo algoritmo) {
+        this.algoritmo = algoritmo;
+        return this;
+    }
+
+    public ChavesAssinatura getChaves() {
+        return chaves;
+    }
+
+    /**
+     * As chaves usadas para assinar e verificar as mensagens do SM(m).
+     */
+    public OpcoesProcesso comChaves(ChavesAssinatura chaves) {
+        this.chaves = chaves;
+        return this;
+    }
+
+    public int getNucleosValidacao() {
+        return nucleosValidacao;
+    }
+
+    /**
+     * Valida as mensagens recebidas num EstagioValidacao com um ForkJoinPool
+     * de 'nucleos' threads antes de entregá-las ao protocolo; 0 (o padrão)
+     * entrega direto. Só compensa quando validar custa caro (ex.: SM com
+     * Ed25519).
+     */
+    public OpcoesProcesso comNucleosValidacao(int nucleos) {
+        if (nucleos < 0) {
+            throw new IllegalArgumentException("Núcleos de validação inválidos: " + nucleos);
+        }
+        this.nucleosValidacao = nucleos;
+        return this;
+    }
+
+    public Disseminacao getDisseminacao() {
+        return disseminacao;
+    }
+
+    /**
+     * Como os Tenentes espalham as retransmissões: direto a todos (o padrão)
+     * ou pela Sobreposicao, que só pode ser usada com o SM.
+     */
+    public OpcoesProcesso comDisseminacao(Disseminacao disseminacao) {
+        this.disseminacao = disseminacao;
+        return this;
+    }
+
+    public File getPastaLog() {
+        return pastaLog;
+    }
+
+    /**
+     * No NoConsenso, grava um LogDecisoes em 'pasta'/decisoes-ID.log e o relê
+     * ao iniciar, para retomar de onde parou depois de uma queda; null (o
+     * padrão) não grava nada.
+     */
+    public OpcoesProcesso comPastaLog(File pasta) {
+        this.pastaLog = pasta;
+        return this;
+    }
+
+    public EstrategiaTraidor getEstrategiaTraidor() {
+        return estrategiaTraidor;
+    }
+
+    /**
+     * Como o processo age quando é traidor (o padrão é EstrategiaTraidor.PADRAO,
+     * o comportamento original).
+     */
+    public OpcoesProcesso comEstrategiaTraidor(EstrategiaTraidor estrategiaTraidor) {
+        this.estrategiaTraidor = estrategiaTraidor;
+        return this;
+    }
+
+    public Falhas getFalhas() {
+        return falhas;
+    }
+
+    /**
+     * Injeta atraso, jitter, perda e partições nos envios do processo (por um
+     * TransporteFalhas); null (o padrão) envia sem falhas.
+     */
+    public OpcoesProcesso comFalhas(Falhas falhas) {
+        this.falhas = falhas;
+        return this;
+    }
+
+    public double getLimiarPhi() {
+        return limiarPhi;
+    }
+
+    /**
+     * Liga um DetectorPhi com este limiar (ex.: 8) nas rodadas (modo RAPIDO,
+     * SM e NoConsenso): quando os tempos de chegada observados mostram uma
+     * rede mais lenta que comPrazoRodadaMs, o prazo cresce com eles, até
+     * DetectorPhi.FATOR_MAXIMO vezes o fixo. Nunca fica abaixo do prazo
+     * fixo, então não corta mensagens que o prazo fixo esperaria. 0 (o
+     * padrão) usa sempre o prazo fixo.
+     */
+    public OpcoesProcesso comLimiarPhi(double limiarPhi) {
+        if (limiarPhi < 0) {
+            throw new IllegalArgumentException("Limiar de phi negativo: " + limiarPhi);
+        }
+        this.limiarPhi = limiarPhi;
+        return this;
+    }
+
+    public boolean isDecisaoAntecipada() {
+        return decisaoAntecipada;
+    }
+
+    /**
+     * Se o OM encerra a última rodada assim que as mensagens que faltam não
+     * puderem mais mudar a votação (o padrão), em vez de esperar todas ou o
+     * prazo. Não muda nenhuma decisão, só quando ela sai.
+     */
+    public OpcoesProcesso comDecisaoAntecipada(boolean decisaoAntecipada) {
+        this.decisaoAntecipada = decisaoAntecipada;
+        return this;
+    }
+}
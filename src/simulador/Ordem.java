@@ -0,0 +1,33 @@
+package simulador;
+
+/**
+ * As ordens possíveis. A ordem de declaração é alfabética, então o ordinal
+ * serve como desempate determinístico (ATACAR < RECUAR).
+ */
+public enum Ordem {
+    ATACAR,
+    RECUAR;
+
+    private static final Ordem[] VALORES = values();
+
+    /**
+     * A ordem contrária, usada pelos traidores para mentir.
+     */
+    public Ordem oposta() {
+        return this == ATACAR ? RECUAR : ATACAR;
+    }
+
+    /**
+     * Código de um byte usado no formato binário da mensagem.
+     */
+    public byte codigo() {
+        return (byte) ordinal();
+    }
+
+    public static Ordem doCodigo(int codigo) {
+        if (codigo < 0 || codigo >= VALORES.length) {
+            throw new IllegalArgumentException("Código de ordem desconhecido: " + codigo);
+        }
+        return VALORES[codigo];
+    }
+}
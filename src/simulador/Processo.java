@@ -1,144 +1,168 @@
 package simulador;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import javax.swing.JTextArea;
-import javax.swing.SwingUtilities;
 
 public class Processo {
     private final int id;
     private final int comandanteId;
-    private final boolean isTraidor;
-    private final Map<Integer, String[]> outrosProcessos;
-    private final Comunicador comunicador;
+    // A estratégia do traidor, ou null se o processo é leal
+    private final EstrategiaTraidor traicao;
+    private final Membresia membresia;
+    private final Transporte comunicador;
     private final BlockingQueue<Mensagem> filaDeMensagens = new LinkedBlockingQueue<>();
+    // Valida as mensagens do transporte em paralelo antes da fila acima; null se desligado
+    private final EstagioValidacao estagioValidacao;
+    // A fila acima separada por rodada, para não confundir mensagens adiantadas
+    private final CaixasDeMensagens caixas;
 
-    private String ordemDoComandante = null; // O que o comandante ME disse
-    private final Map<Integer, String> ordemQueCadaTenenteRecebeuDoComandante = new HashMap<>();
-    private JTextArea logArea;
+    private final OpcoesProcesso opcoes;
+    // Quantos traidores o algoritmo tolera: OM(m) faz m + 1 rodadas
+    private final int maxTraidores;
+    // IDs de todos os processos (na visão da membresia ao criar o processo), em ordem crescente
+    private final int[] participantes;
+    // A execução do OM(m) ou SM(m) deste processo; aqui só cuidamos da rede e das pausas
+    private final InstanciaConsenso instancia;
+    // Logs em lote, sem bloquear o protocolo; null executa em silêncio
+    private final RegistroLog registroLog;
+    // Tráfego por par, falhas e latências de rodada e decisão
+    private final Metricas metricas;
+    // Prazo adaptativo das rodadas no modo RAPIDO e no SM; null usa o prazo fixo
+    private final DetectorPhi detector;
+    // Quando cada rodada começou, para amostrar também as mensagens que chegam depois dela
+    private final long[] inicioRodadaNanos;
 
-    // Valor padrão para caso de ausência de mensagem ou empate (Requisito BFT)
-    private static final String VALOR_PADRAO = "RECUAR";
+    private long inicioNanos;
+    private volatile Ordem decisao;
+    private volatile long latenciaDecisaoNanos = -1;
+
+    // Intervalo entre os reenvios de PRONTO para quem ainda não respondeu; dobra
+    // a cada reenvio, até o máximo, para não inundar a rede quando n é grande
+    private static final long INTERVALO_PRONTIDAO_MS = 200;
+    private static final long INTERVALO_PRONTIDAO_MAXIMO_MS = 3200;
 
     public Processo(int id, int comandanteId, boolean isTraidor, Map<Integer, String[]> outrosProcessos, JTextArea logArea) {
+        this(id, comandanteId, isTraidor, outrosProcessos, logArea, new OpcoesProcesso());
+    }
+
+    public Processo(int id, int comandanteId, boolean isTraidor, Map<Integer, String[]> outrosProcessos, JTextArea logArea,
+                    OpcoesProcesso opcoes) {
+        this(id, comandanteId, isTraidor, Membresia.de(outrosProcessos), logArea, opcoes);
+    }
+
+    /**
+     * 'logArea' pode ser null para executar sem interface (ex.: benchmarks); os
+     * logs vão então para o RegistroLog das opções, se houver. A mesma
+     * Membresia pode ser compartilhada por vários processos na mesma JVM.
+     */
+    public Processo(int id, int comandanteId, boolean isTraidor, Membresia membresia, JTextArea logArea,
+                    OpcoesProcesso opcoes) {
         this.id = id;
         this.comandanteId = comandanteId;
-        this.isTraidor = isTraidor;
-        this.outrosProcessos = outrosProcessos;
-        this.logArea = logArea;
+        this.traicao = isTraidor ? opcoes.getEstrategiaTraidor() : null;
+        this.membresia = membresia;
+        this.registroLog = (logArea != null) ? new RegistroLog(logArea) : opcoes.getRegistroLog();
+        this.opcoes = opcoes;
+        this.maxTraidores = opcoes.getMaxTraidores();
+        this.participantes = membresia.getVisao().getParticipantes();
+        VerificadorAssinaturas verificador = null;
+        if (opcoes.getAlgoritmo() == Algoritmo.SM) {
+            if (opcoes.getChaves() == null) {
+                throw new IllegalArgumentException("O SM(m) precisa das chaves de assinatura (OpcoesProcesso.comChaves)");
+            }
+            verificador = new VerificadorAssinaturas(opcoes.getChaves());
+        }
+        this.instancia = InstanciaConsenso.criar(opcoes.getAlgoritmo(), 0L, id, comandanteId, participantes,
+                maxTraidores, traicao, Ordem.ATACAR, verificador, opcoes.getDisseminacao(), this::enviar,
+                registroLog != null ? this::log : null);
+        this.instancia.setDecisaoAntecipada(opcoes.isDecisaoAntecipada());
+        this.caixas = new CaixasDeMensagens(filaDeMensagens, maxTraidores + 1);
+        this.metricas = new Metricas(id);
+        this.detector = opcoes.getLimiarPhi() > 0
+                ? new DetectorPhi(opcoes.getLimiarPhi(), TimeUnit.MILLISECONDS.toNanos(opcoes.getPrazoRodadaMs()))
+                : null;
+        this.inicioRodadaNanos = new long[maxTraidores + 2];
+        if (detector != null && usaPrazoDaRodada()) {
+            // As atrasadas também contam, senão o detector só veria as rápidas e nunca esticaria o prazo
+            caixas.aoChegarAtrasada(rodada -> detector.registrar(System.nanoTime() - inicioRodadaNanos[rodada]));
+        }
+        this.metricas.monitorarFila(filaDeMensagens);
 
-        int minhaPorta = Integer.parseInt(outrosProcessos.get(id)[1]);
-        this.comunicador = new Comunicador(minhaPorta, filaDeMensagens);
+        BlockingQueue<Mensagem> entrada = filaDeMensagens;
+        if (opcoes.getNucleosValidacao() > 0) {
+            entrada = new LinkedBlockingQueue<>();
+            this.estagioValidacao = new EstagioValidacao(entrada, filaDeMensagens,
+                    EstagioValidacao.validador(verificador), opcoes.getNucleosValidacao());
+        } else {
+            this.estagioValidacao = null;
+        }
+        this.comunicador = Transporte.criar(id, opcoes, membresia, entrada, metricas, traicao);
     }
 
     public void iniciar() {
-        log("Iniciado. Comandante: " + comandanteId + ". Traidor: " + isTraidor);
-        comunicador.iniciarServidor();
-
-        try {
-            log("Servidor no ar. Aguardando 5s para outros processos iniciarem...");
-            Thread.sleep(5000); 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        inicioNanos = System.nanoTime();
+        log("Iniciado. Comandante: " + comandanteId + ". Traidor: " + (traicao != null ? traicao : "não") + ". Algoritmo: "
+                + opcoes.getAlgoritmo() + "(" + maxTraidores + ")");
+        if (opcoes.getAlgoritmo() == Algoritmo.SM) {
+            if (participantes.length < maxTraidores + 2) {
+                log("AVISO: com " + participantes.length + " generais o SM(" + maxTraidores
+                        + ") não garante consenso (exige n >= m + 2).");
+            }
+        } else if (participantes.length <= 3 * maxTraidores) {
+            log("AVISO: com " + participantes.length + " generais o OM(" + maxTraidores
+                    + ") não garante consenso (exige n > 3m).");
         }
+        if (estagioValidacao != null) {
+            estagioValidacao.iniciar();
+        }
+        comunicador.iniciarServidor();
 
-        aguardarProximoPasso("Iniciando Rodada 1...\n----------");
-
-        // --- RODADA 1: Comandante envia ordens ---
-        if (id == comandanteId) {
-            log("Sou o Comandante. Iniciando Rodada 1.");
-            String ordemOriginal = "ATACAR";
-            
-            int i = 0;
-            // Ordenar chaves para garantir determinismo na distribuição de traição
-            List<Integer> destinos = new ArrayList<>(outrosProcessos.keySet());
-            Collections.sort(destinos);
-
-            for (Integer destinoId : destinos) {
-                if (destinoId != id) {
-                    String ordemParaEnviar = ordemOriginal;
-                    if (isTraidor) {
-                        // Traidor alterna as ordens para confundir os tenentes
-                        ordemParaEnviar = (i % 2 == 0) ? "ATACAR" : "RECUAR";
-                        log("TRAIÇÃO: Enviando ordem '" + ordemParaEnviar + "' para Processo " + destinoId);
-                    } else {
-                        log("Enviando ordem '" + ordemParaEnviar + "' para Processo " + destinoId);
-                    }
-                    enviar(destinoId, new Mensagem(id, ordemParaEnviar));
-                    i++;
-                }
+        if (opcoes.getModoExecucao() == ModoExecucao.RAPIDO) {
+            if (!aguardarProntidao()) {
+                log("Interrompido enquanto esperava os outros processos.");
+                return;
             }
-            log("Comandante finalizou envio de ordens.");
         } else {
-            // Tenentes recebem a ordem do comandante
             try {
-                log("Sou um Tenente. Aguardando ordem do Comandante na Rodada 1.");
-                Mensagem msgComandante = filaDeMensagens.take();
-                // Verifica se a mensagem veio realmente do comandante
-                if (msgComandante.getRemetenteId() == comandanteId) {
-                    ordemDoComandante = msgComandante.getOrdem();
-                    log("Recebi do Comandante (" + msgComandante.getRemetenteId() + ") a ordem: '" + ordemDoComandante + "'");
-                } else {
-                    log("ERRO: Recebi mensagem na rodada 1 de alguém que não é o comandante!");
-                }
+                log("Servidor no ar. Aguardando 5s para outros processos iniciarem...");
+                Thread.sleep(5000); 
             } catch (InterruptedException e) {
-                log("Interrompido enquanto esperava ordem do comandante.");
                 Thread.currentThread().interrupt();
-                return;
             }
         }
 
-        aguardarProximoPasso("Rodada 1 concluída. Iniciando Rodada 2...\n----------");
-        
-        // --- RODADA 2: Tenentes retransmitem o que o COMANDANTE lhes disse ---
-        if (id != comandanteId) {
-            log("Iniciando Rodada 2. Retransmitindo o que o COMANDANTE me disse.");
-            
-            String ordemARetransmitir = (ordemDoComandante != null) ? ordemDoComandante : VALOR_PADRAO;
-            
-            if (isTraidor) {
-                // Se EU sou traidor, minto sobre o que o comandante disse
-                ordemARetransmitir = ordemARetransmitir.equals("ATACAR") ? "RECUAR" : "ATACAR";
-                log("TRAIÇÃO: O Comandante me disse '" + ordemDoComandante + "' mas vou dizer que disse '" + ordemARetransmitir + "'");
-            } else {
-                log("Sendo honesto: vou dizer que o Comandante me disse '" + ordemARetransmitir + "'");
-            }
+        aguardarProximoPasso("Iniciando Rodada 1...\n----------");
 
-            // Envia para todos os outros tenentes (excluindo Comandante e eu mesmo)
-            for (Integer outroId : outrosProcessos.keySet()) {
-                if (outroId != id && outroId != comandanteId) {
-                    log("Dizendo ao Processo " + outroId + ": 'O Comandante me disse " + ordemARetransmitir + "'");
-                    enviar(outroId, new Mensagem(id, ordemARetransmitir));
-                }
-            }
+        // --- RODADA 1: Comandante envia ordens ---
+        instancia.iniciar();
+        if (id != comandanteId && !receberRodada(1)) {
+            log("Interrompido enquanto esperava ordem do comandante.");
+            return;
+        }
 
-            // Aguarda as retransmissões dos outros tenentes
-            int numTenentes = outrosProcessos.size() - 2; // Total menos (Comandante + Eu)
-            log("Aguardando " + numTenentes + " mensagens de outros tenentes.");
-            
-            try {
-                for (int i = 0; i < numTenentes; i++) {
-                    Mensagem msg = filaDeMensagens.take(); 
-                    ordemQueCadaTenenteRecebeuDoComandante.put(msg.getRemetenteId(), msg.getOrdem());
-                    log("Tenente " + msg.getRemetenteId() + " diz que o Comandante lhe disse: '" + msg.getOrdem() + "'");
+        // --- RODADAS 2..m+1: Tenentes retransmitem o que receberam na rodada anterior ---
+        for (int rodada = 2; rodada <= maxTraidores + 1; rodada++) {
+            aguardarProximoPasso("Rodada " + (rodada - 1) + " concluída. Iniciando Rodada " + rodada + "...\n----------");
+
+            if (id != comandanteId) {
+                instancia.avancar();
+                if (!receberRodada(rodada)) {
+                    log("Interrompido enquanto esperava ordens dos tenentes.");
+                    return;
                 }
-            } catch (InterruptedException e) {
-                log("Interrompido enquanto esperava ordens dos tenentes.");
-                Thread.currentThread().interrupt();
-                return; 
             }
         }
         
-        aguardarProximoPasso("Rodada 2 concluída. Iniciando Votação...\n----------");
+        aguardarProximoPasso("Rodada " + (maxTraidores + 1) + " concluída. Iniciando Votação...\n----------");
         
         if (id != comandanteId) {
-            log("Fim das rodadas. Iniciando votação.");
-            decidirVotoMajoritario();
+            instancia.avancar();
+            registrarDecisao(instancia.getDecisao());
         } else {
             log("Simulação concluída para o Comandante.");
         }
@@ -147,140 +171,195 @@ public class Processo {
         desligar();
     }
 
-    private void aguardarProximoPasso(String motivo) {
-        log(motivo);
+    /**
+     * Aguarda até que todos os caminhos da rodada tenham chegado, ou até o
+     * prazo da rodada; os caminhos que faltarem valem VALOR_PADRAO e a rodada
+     * é fechada, descartando o que chegar atrasado. Mensagens de outras
+     * rodadas ficam guardadas nas caixas até a vez delas. No SM(m) não há como
+     * saber quantas mensagens virão, então toda rodada termina pelo prazo (ou
+     * antes, se a instância já puder decidir). Retorna false se a thread for
+     * interrompida.
+     */
+    private boolean receberRodada(int rodada) {
+        long inicioRodada = System.nanoTime();
+        inicioRodadaNanos[rodada] = inicioRodada;
+        boolean adaptativo = detector != null && usaPrazoDaRodada();
+        long prazo = inicioRodada + prazoRodadaNanos();
         try {
-            Thread.sleep(3000); 
+            while (!instancia.rodadaCompleta() && !instancia.isConcluida()) {
+                Mensagem msg = caixas.proxima(rodada, prazo);
+                if (msg == null) {
+                    if (instancia.faltam() > 0) {
+                        log("Prazo da Rodada " + rodada + " esgotado: faltaram " + instancia.faltam()
+                                + " mensagens (valor padrão '" + InstanciaOM.VALOR_PADRAO + "').");
+                    }
+                    break;
+                }
+                if (adaptativo && msg.getTipo() == TipoMensagem.ORDEM) {
+                    detector.registrar(System.nanoTime() - inicioRodada);
+                }
+                registrar(msg);
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            return false;
+        }
+        caixas.fechar(rodada);
+        metricas.registrarRodada(rodada, System.nanoTime() - inicioRodada);
+
+        if (rodada > 2 && opcoes.getAlgoritmo() == Algoritmo.OM && instancia.faltam() == 0) {
+            log("Rodada " + rodada + ": recebidos todos os " + instancia.esperados(rodada) + " valores.");
         }
+        return true;
     }
-    
+
     /**
-     * Algoritmo OM(1) Corrigido.
-     * * O vetor de decisão deve considerar apenas as informações detidas pelos TENENTES.
-     * Não se deve incluir o Comandante explicitamente como um "voto" extra no vetor, 
-     * pois o valor do Comandante para mim já está representado pelo "meu valor".
-     * Incluí-lo novamente cria um peso duplo para a informação local, impedindo consenso
-     * quando o comandante é traidor.
+     * Se as rodadas terminam pelo prazo da rodada (modo RAPIDO e SM), e não
+     * pelo de prontidão.
      */
-    private void decidirVotoMajoritario() {
-        // Lista ordenada de todos os participantes
-        List<Integer> participantes = new ArrayList<>(outrosProcessos.keySet());
-        Collections.sort(participantes);
-
-        // Construir vetor: para cada processo TENENTE, qual ordem ele recebeu/reportou
-        Map<Integer, String> vetorDeValores = new HashMap<>();
-        log("Construindo vetor de consenso (apenas Tenentes):");
-        
-        for (Integer pid : participantes) {
-            // CORREÇÃO: O Comandante não participa do vetor de votação dos Tenentes.
-            // Os tenentes estão tentando concordar sobre a ordem do comandante.
-            if (pid == comandanteId) {
-                continue;
-            }
+    private boolean usaPrazoDaRodada() {
+        return opcoes.getModoExecucao() == ModoExecucao.RAPIDO || opcoes.getAlgoritmo() == Algoritmo.SM;
+    }
 
-            String valor;
-            if (pid == id) {
-                // Minha própria informação direta do comandante
-                valor = (ordemDoComandante != null) ? ordemDoComandante : VALOR_PADRAO;
-                log("  [Tenente " + pid + " (eu)] = '" + valor + "' (direto do Comandante)");
-            } else {
-                // O que outro tenente reportou
-                if (ordemQueCadaTenenteRecebeuDoComandante.containsKey(pid)) {
-                    valor = ordemQueCadaTenenteRecebeuDoComandante.get(pid);
-                    log("  [Tenente " + pid + "] = '" + valor + "' (repassado)");
-                } else {
-                    valor = VALOR_PADRAO;
-                    log("  [Tenente " + pid + "] = '" + valor + "' (padrão - sem info)");
-                }
-            }
-            
-            vetorDeValores.put(pid, valor);
+    /**
+     * Quanto esperar pelas mensagens de uma rodada: o prazo da rodada (ou o
+     * do DetectorPhi, se houver) no modo RAPIDO e no SM. No OM em modo
+     * DEMONSTRACAO os processos são iniciados à mão e as pausas dominam, então
+     * o prazo é o maior entre o da rodada e o de prontidão: um general que caiu
+     * atrasa a decisão, mas não a impede.
+     */
+    private long prazoRodadaNanos() {
+        if (usaPrazoDaRodada()) {
+            return detector != null
+                    ? detector.prazoNanos()
+                    : TimeUnit.MILLISECONDS.toNanos(opcoes.getPrazoRodadaMs());
         }
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(opcoes.getPrazoRodadaMs(), opcoes.getPrazoProntidaoMs()));
+    }
 
-        // Construir lista ordenada de valores para exibição
-        List<String> vetorOrdenado = new ArrayList<>();
-        // Reitera sobre participantes apenas para manter a ordem visual correta no log
-        for (Integer pid : participantes) {
-            if (vetorDeValores.containsKey(pid)) {
-                vetorOrdenado.add(vetorDeValores.get(pid));
-            }
+    /**
+     * Responde aos anúncios de PRONTO e entrega as ordens à instância.
+     */
+    private void registrar(Mensagem msg) {
+        if (msg.getTipo() == TipoMensagem.PRONTO) {
+            // Quem anuncia ainda não sabe de mim: confirma, mesmo que eu já tenha passado da prontidão
+            enviar(msg.getRemetenteId(), Mensagem.controle(TipoMensagem.CONFIRMA_PRONTO, id));
+            return;
         }
-        log("Vetor final de votos: " + vetorOrdenado);
-
-        // Contar votos
-        Map<String, Integer> contagem = new HashMap<>();
-        for (String v : vetorDeValores.values()) {
-            contagem.put(v, contagem.getOrDefault(v, 0) + 1);
+        if (msg.getTipo() != TipoMensagem.ORDEM) {
+            return;
         }
+        instancia.receber(msg);
+    }
 
-        log("Contagem: " + contagem);
+    /**
+     * Anuncia PRONTO a todos e espera o PRONTO (ou a confirmação) de cada um,
+     * reenviando para quem ainda não respondeu. Retorna false se interrompido.
+     */
+    private boolean aguardarProntidao() {
+        log("Servidor no ar. Aguardando os outros processos (PRONTO)...");
+        Set<Integer> prontos = new HashSet<>();
+        long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(opcoes.getPrazoProntidaoMs());
 
-        int totalVotos = vetorDeValores.size();
-        // Maioria simples necessária
-        int maioriaNecessaria = (totalVotos / 2) + 1;
-        log("Votos válidos: " + totalVotos + ", Maioria necessária: " + maioriaNecessaria);
+        long intervalo = INTERVALO_PRONTIDAO_MS;
+        try {
+            while (prontos.size() < participantes.length - 1) {
+                for (int outroId : participantes) {
+                    if (outroId != id && !prontos.contains(outroId)) {
+                        enviar(outroId, Mensagem.controle(TipoMensagem.PRONTO, id));
+                    }
+                }
 
-        // Encontrar o valor com mais votos
-        String decisaoFinal = null;
-        int maxVotos = 0;
-        
-        List<String> opcoes = new ArrayList<>(contagem.keySet());
-        Collections.sort(opcoes); // Garante desempate determinístico (alfabético: ATACAR < RECUAR)
-        
-        // Verifica se há maioria
-        for (String opcao : opcoes) {
-            int votos = contagem.get(opcao);
-            if (votos > maxVotos) {
-                maxVotos = votos;
-                decisaoFinal = opcao;
-            }
-        }
+                // Mensagens do protocolo que chegarem agora ficam guardadas nas caixas
+                long proximoAnuncio = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervalo);
+                intervalo = Math.min(intervalo * 2, INTERVALO_PRONTIDAO_MAXIMO_MS);
+                while (prontos.size() < participantes.length - 1) {
+                    Mensagem msg = caixas.proxima(CaixasDeMensagens.CONTROLE, proximoAnuncio);
+                    if (msg == null) {
+                        break;
+                    }
+                    prontos.add(msg.getRemetenteId());
+                    registrar(msg);
+                }
 
-        // Lógica de Consenso
-        if (maxVotos >= maioriaNecessaria) {
-            log(">>> CONSENSO (Maioria): '" + decisaoFinal + "' com " + maxVotos + "/" + totalVotos + " votos");
-        } else {
-            // Em caso de empate exato (ex: 2 ATACAR, 2 RECUAR), usa-se o determinismo
-            // Como ordenamos 'opcoes' alfabeticamente, pegamos o primeiro com maxVotos
-             for (String opcao : opcoes) {
-                if (contagem.get(opcao) == maxVotos) {
-                    decisaoFinal = opcao;
-                    break;
+                if (System.nanoTime() > prazo) {
+                    log("AVISO: só " + prontos.size() + " de " + (participantes.length - 1)
+                            + " processos responderam. Seguindo mesmo assim.");
+                    return true;
                 }
             }
-            log(">>> CONSENSO (Empate/Desempate Determinístico): '" + decisaoFinal + "'");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
+        log("Todos os " + participantes.length + " processos estão prontos.");
+        return true;
+    }
+
+    private void aguardarProximoPasso(String motivo) {
+        log(motivo);
+        if (opcoes.getModoExecucao() == ModoExecucao.RAPIDO) {
+            return; // Sem pausa: a próxima rodada começa assim que esta termina
+        }
+        try {
+            Thread.sleep(3000); 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void registrarDecisao(Ordem decisaoFinal) {
+        if (caixas.getDescartadas() > 0) {
+            log("Mensagens atrasadas ou inválidas descartadas: " + caixas.getDescartadas());
+        }
+
+        decisao = decisaoFinal;
+        latenciaDecisaoNanos = System.nanoTime() - inicioNanos;
+        metricas.registrarDecisao(latenciaDecisaoNanos);
 
         log("===================================");
         log("DECISÃO FINAL DO GENERAL " + id + ": " + decisaoFinal);
         log("===================================");
+        log("Decisão tomada em " + TimeUnit.NANOSECONDS.toMillis(latenciaDecisaoNanos) + " ms desde o início.");
     }
 
     private void enviar(int idDestino, Mensagem msg) {
-        String[] dest = outrosProcessos.get(idDestino);
-        if (dest != null) {
-            comunicador.enviarMensagem(dest[0], Integer.parseInt(dest[1]), msg);
+        if (membresia.getVisao().contem(idDestino)) {
+            comunicador.enviarMensagem(idDestino, msg);
         } else {
             log("Erro: Não encontrei config para ID " + idDestino);
         }
     }
     
+    /**
+     * A decisão deste Tenente, ou null se ainda não decidiu (ou se é o Comandante).
+     */
+    public Ordem getDecisao() {
+        return decisao;
+    }
+
+    /**
+     * Tempo entre iniciar() e a decisão, em nanossegundos, ou -1 se não decidiu.
+     */
+    public long getLatenciaDecisaoNanos() {
+        return latenciaDecisaoNanos;
+    }
+
+    public Metricas getMetricas() {
+        return metricas;
+    }
+
     private void log(String message) {
-        String logCompleto = "[P" + id + "]: " + message;
-        SwingUtilities.invokeLater(() -> {
-            logArea.append(logCompleto + "\n");
-            try {
-                logArea.setCaretPosition(logArea.getDocument().getLength());
-            } catch (Exception e) {
-                // Ignorar erro de UI pontual
-            }
-        });
+        if (registroLog != null) {
+            registroLog.registrar(id, message); // Não bloqueia: a escrita é feita em lotes
+        }
     }
 
     public void desligar() {
         log("Servidor desligado. Encerrando.");
         comunicador.desligarServidor();
+        if (estagioValidacao != null) {
+            estagioValidacao.fechar();
+        }
     }
 }
\ No newline at end of file
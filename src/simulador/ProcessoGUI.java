@@ -3,11 +3,9 @@ package simulador;
 
 import java.awt.BorderLayout;
 import java.awt.Font;
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
+import java.io.IOException;
+import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.JCheckBox;
@@ -32,20 +30,29 @@ public class ProcessoGUI {
         final int meuId;
         final int comandanteId;
         final boolean isTraidor;
+        final int maxTraidores;
+        final boolean modoRapido;
+        final boolean assinado;
 
-        Configuracao(int meuId, int comandanteId, boolean isTraidor) {
+        Configuracao(int meuId, int comandanteId, boolean isTraidor, int maxTraidores, boolean modoRapido,
+                     boolean assinado) {
             this.meuId = meuId;
             this.comandanteId = comandanteId;
             this.isTraidor = isTraidor;
+            this.maxTraidores = maxTraidores;
+            this.modoRapido = modoRapido;
+            this.assinado = assinado;
         }
     }
 
     /**
-     * Construtor principal: Inicia a GUI de log e o processo.
+     * Construtor principal: Inicia a GUI de log e o processo. 'chaves' só é
+     * usado (e exigido) com mensagens assinadas.
      */
-    public ProcessoGUI(Configuracao config, Map<Integer, String[]> mapaRede) {
+    public ProcessoGUI(Configuracao config, Membresia membresia, ChavesAssinatura chaves) {
         // 1. Cria a janela principal de log
-        frame = new JFrame("General " + config.meuId + " (Cmd: " + config.comandanteId + " | Traidor: " + config.isTraidor + ")");
+        frame = new JFrame("General " + config.meuId + " (Cmd: " + config.comandanteId + " | Traidor: " + config.isTraidor
+                + " | " + (config.assinado ? "SM(" : "OM(") + config.maxTraidores + "))");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(600, 400);
 
@@ -58,7 +65,25 @@ public class ProcessoGUI {
         frame.setVisible(true);
 
         // 2. Cria e inicia o Processo em uma nova thread
-        Processo p = new Processo(config.meuId, config.comandanteId, config.isTraidor, mapaRede, logArea);
+        // O transporte pode ser trocado com -Dsimulador.transporte=NIO; a estratégia dos traidores com
+        // -Dsimulador.traicao=SILENCIO (etc.) e as falhas injetadas com -Dsimulador.falhas=...
+        OpcoesProcesso opcoes = new OpcoesProcesso()
+                .comModoTransporte(ModoTransporte.daPropriedade())
+                .comMaxTraidores(config.maxTraidores)
+                .comModoExecucao(config.modoRapido ? ModoExecucao.RAPIDO : ModoExecucao.DEMONSTRACAO)
+                .comAlgoritmo(config.assinado ? Algoritmo.SM : Algoritmo.OM)
+                .comChaves(chaves)
+                .comEstrategiaTraidor(EstrategiaTraidor.daPropriedade())
+                .comFalhas(Falhas.daPropriedade());
+        Processo p = new Processo(config.meuId, config.comandanteId, config.isTraidor, membresia, logArea, opcoes);
+
+        // 3. Métricas no JMX (jconsole) e, com -Dsimulador.metricas=stdout|arquivo, despejadas periodicamente
+        p.getMetricas().registrarJmx();
+        try {
+            DespejoMetricas.daPropriedade(List.of(p.getMetricas()));
+        } catch (FileNotFoundException e) {
+            System.err.println("Não foi possível abrir o arquivo de métricas: " + e.getMessage());
+        }
         new Thread(p::iniciar).start();
     }
 
@@ -70,6 +95,9 @@ public class ProcessoGUI {
         JSpinner idSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 10, 1));
         JSpinner cmdSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 10, 1));
         JCheckBox traidorCheck = new JCheckBox("É Traidor?");
+        JSpinner mSpinner = new JSpinner(new SpinnerNumberModel(1, 1, Caminho.MAX_SALTOS - 1, 1));
+        JCheckBox rapidoCheck = new JCheckBox("Modo rápido (sem pausas)");
+        JCheckBox assinadoCheck = new JCheckBox("Mensagens assinadas (SM, usa chaves.txt)");
 
         // Coloca em um painel
         JPanel panel = new JPanel();
@@ -79,6 +107,10 @@ public class ProcessoGUI {
         panel.add(new javax.swing.JLabel("ID do Comandante:"));
         panel.add(cmdSpinner);
         panel.add(traidorCheck);
+        panel.add(new javax.swing.JLabel("Traidores tolerados (m):"));
+        panel.add(mSpinner);
+        panel.add(rapidoCheck);
+        panel.add(assinadoCheck);
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         // Mostra o diálogo
@@ -90,7 +122,10 @@ public class ProcessoGUI {
             return new Configuracao(
                 (Integer) idSpinner.getValue(),
                 (Integer) cmdSpinner.getValue(),
-                traidorCheck.isSelected()
+                traidorCheck.isSelected(),
+                (Integer) mSpinner.getValue(),
+                rapidoCheck.isSelected(),
+                assinadoCheck.isSelected()
             );
         } else {
             // Se clicou Cancelar, retorna null
@@ -98,34 +133,6 @@ public class ProcessoGUI {
         }
     }
 
-    /**
-     * Lê o arquivo de configuração e constrói o mapa de rede.
-     */
-    private static Map<Integer, String[]> lerConfiguracao(String nomeArquivo) throws FileNotFoundException {
-        Map<Integer, String[]> mapaDeProcessos = new HashMap<>();
-        File arquivo = new File(nomeArquivo);
-        
-        System.out.println("Lendo configuração de: " + arquivo.getAbsolutePath());
-        
-        try (Scanner scanner = new Scanner(arquivo)) {
-            while (scanner.hasNextLine()) {
-                String linha = scanner.nextLine().trim();
-                if (linha.isEmpty() || linha.startsWith("#")) {
-                    continue;
-                }
-                
-                String[] partes = linha.split("\\s+");
-                if (partes.length >= 3) {
-                    int id = Integer.parseInt(partes[0]);
-                    String ip = partes[1];
-                    String porta = partes[2];
-                    mapaDeProcessos.put(id, new String[]{ip, porta});
-                }
-            }
-        }
-        return mapaDeProcessos;
-    }
-
     /**
      * Ponto de entrada principal do JAR.
      */
@@ -145,18 +152,45 @@ public class ProcessoGUI {
         }
 
         try {
-            // 2. Lê o config.txt
-            Map<Integer, String[]> mapaRede = lerConfiguracao("config.txt");
+            // 2. Lê o config.txt, que passa a ser vigiado: um general que troque de
+            // endereço é encontrado no novo sem reiniciar os outros
+            Membresia membresia = Membresia.ler("config.txt");
             
-            if (!mapaRede.containsKey(config.meuId)) {
+            if (!membresia.getVisao().contem(config.meuId)) {
                 JOptionPane.showMessageDialog(null, 
                     "Erro: ID " + config.meuId + " não encontrado no config.txt!", 
                     "Erro de Configuração", JOptionPane.ERROR_MESSAGE);
                 System.exit(1);
             }
 
-            // 3. Inicia a GUI de log e o processo
-            new ProcessoGUI(config, mapaRede);
+            // 3. No SM, lê as chaves (geradas por simulador.GeradorChaves)
+            ChavesAssinatura chaves = null;
+            if (config.assinado) {
+                try {
+                    chaves = ChavesAssinatura.ler("chaves.txt", config.meuId);
+                } catch (IOException e) {
+                    JOptionPane.showMessageDialog(null,
+                        "Erro ao ler 'chaves.txt': " + e.getMessage() + "\n" +
+                        "Gere as chaves com: java -cp <jar> simulador.GeradorChaves",
+                        "Erro de Arquivo", JOptionPane.ERROR_MESSAGE);
+                    System.exit(1);
+                }
+                if (!chaves.podeAssinar(config.meuId)) {
+                    JOptionPane.showMessageDialog(null,
+                        "Erro: falta a chave privada do ID " + config.meuId + " (chave-" + config.meuId + ".txt).",
+                        "Erro de Configuração", JOptionPane.ERROR_MESSAGE);
+                    System.exit(1);
+                }
+            }
+
+            try {
+                membresia.observar();
+            } catch (IOException e) {
+                System.err.println("Não foi possível vigiar o config.txt: " + e.getMessage());
+            }
+
+            // 4. Inicia a GUI de log e o processo
+            new ProcessoGUI(config, membresia, chaves);
             
         } catch (FileNotFoundException e) {
             JOptionPane.showMessageDialog(null, 
@@ -0,0 +1,164 @@
+package simulador;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rede simulada dentro da JVM: entrega as mensagens diretamente na fila do
+ * processo de destino, sem sockets. Permite injetar latência (uniforme entre
+ * um mínimo e um máximo) e perda de mensagens, com sorteios reproduzíveis a
+ * partir da semente.
+ *
+ * Mensagens para processos que já desligaram o servidor se perdem; as que
+ * chegam antes de o processo iniciar ficam na fila dele.
+ */
+public class RedeMemoria {
+    private final Map<Integer, TransporteMemoria> processos = new ConcurrentHashMap<>();
+    private final Random sorteio;
+    private long latenciaMinimaNanos = 0;
+    private long latenciaMaximaNanos = 0;
+    private double perda = 0.0;
+
+    // Mensagens com latência esperam aqui até a hora da entrega
+    private final DelayQueue<Entrega> atrasadas = new DelayQueue<>();
+    private Thread entregador;
+
+    private final AtomicLong enviadas = new AtomicLong();
+    private final AtomicLong perdidas = new AtomicLong();
+
+    /** Uma mensagem a caminho, com o instante (System.nanoTime) em que chega. */
+    private static final class Entrega implements Delayed {
+        final long instanteNanos;
+        final TransporteMemoria destino;
+        final Mensagem msg;
+
+        Entrega(long instanteNanos, TransporteMemoria destino, Mensagem msg) {
+            this.instanteNanos = instanteNanos;
+            this.destino = destino;
+            this.msg = msg;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unidade) {
+            return unidade.convert(instanteNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed outro) {
+            return Long.compare(instanteNanos, ((Entrega) outro).instanteNanos);
+        }
+    }
+
+    public RedeMemoria(long semente) {
+        this.sorteio = new Random(semente);
+    }
+
+    /**
+     * Atraso de cada mensagem, sorteado uniformemente entre os dois valores.
+     */
+    public RedeMemoria comLatenciaMs(double minima, double maxima) {
+        if (minima < 0 || maxima < minima) {
+            throw new IllegalArgumentException("Latência inválida: " + minima + " a " + maxima + " ms");
+        }
+        this.latenciaMinimaNanos = (long) (minima * 1_000_000);
+        this.latenciaMaximaNanos = (long) (maxima * 1_000_000);
+        return this;
+    }
+
+    /**
+     * Probabilidade (0 a 1) de cada mensagem se perder.
+     */
+    public RedeMemoria comPerda(double perda) {
+        if (perda < 0 || perda > 1) {
+            throw new IllegalArgumentException("A perda deve estar entre 0 e 1: " + perda);
+        }
+        this.perda = perda;
+        return this;
+    }
+
+    /**
+     * Transporte do processo 'id' nesta rede.
+     */
+    public Transporte conectar(int id, BlockingQueue<Mensagem> filaDeMensagens) {
+        return conectar(id, filaDeMensagens, new Metricas(-1));
+    }
+
+    /**
+     * Como acima, contando as mensagens enviadas e recebidas em 'metricas'.
+     */
+    public Transporte conectar(int id, BlockingQueue<Mensagem> filaDeMensagens, Metricas metricas) {
+        return new TransporteMemoria(this, id, filaDeMensagens, metricas);
+    }
+
+    public long getEnviadas() {
+        return enviadas.get();
+    }
+
+    public long getPerdidas() {
+        return perdidas.get();
+    }
+
+    void registrar(int id, TransporteMemoria transporte) {
+        processos.put(id, transporte);
+    }
+
+    void remover(int id) {
+        processos.remove(id);
+    }
+
+    /** Se o processo está conectado à rede (os "membros" de uma RedeMemoria). */
+    boolean contem(int id) {
+        return processos.containsKey(id);
+    }
+
+    /**
+     * Retorna false se a mensagem se perdeu (destino fora da rede ou perda sorteada).
+     */
+    boolean enviar(int idDestino, Mensagem msg) {
+        enviadas.incrementAndGet();
+        TransporteMemoria destino = processos.get(idDestino);
+        long atraso;
+        synchronized (sorteio) {
+            if (destino == null || (perda > 0 && sorteio.nextDouble() < perda)) {
+                perdidas.incrementAndGet();
+                return false;
+            }
+            atraso = latenciaMinimaNanos;
+            if (latenciaMaximaNanos > latenciaMinimaNanos) {
+                atraso += (long) (sorteio.nextDouble() * (latenciaMaximaNanos - latenciaMinimaNanos));
+            }
+        }
+
+        if (atraso == 0) {
+            destino.entregar(msg);
+        } else {
+            iniciarEntregador();
+            atrasadas.put(new Entrega(System.nanoTime() + atraso, destino, msg));
+        }
+        return true;
+    }
+
+    private synchronized void iniciarEntregador() {
+        if (entregador != null) {
+            return;
+        }
+        entregador = new Thread(() -> {
+            try {
+                while (true) {
+                    Entrega entrega = atrasadas.take();
+                    entrega.destino.entregar(entrega.msg);
+                }
+            } catch (InterruptedException e) {
+                // Fim da JVM: a thread é daemon
+            }
+        }, "rede-memoria");
+        entregador.setDaemon(true);
+        entregador.start();
+    }
+}
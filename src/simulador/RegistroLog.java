@@ -0,0 +1,271 @@
+package simulador;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+
+/**
+ * Estágio de log entre a thread do protocolo e a saída. registrar() só
+ * coloca a linha num buffer circular limitado e nunca bloqueia: se o buffer
+ * estiver cheio a linha é descartada e contada. A cada INTERVALO_DESCARGA_MS
+ * as linhas acumuladas são escritas de uma vez:
+ * <ul>
+ *   <li>na JTextArea, por um javax.swing.Timer (um único append por lote, na
+ *   thread da interface), mantendo no máximo MAX_CARACTERES_AREA caracteres;</li>
+ *   <li>ou num PrintStream, em JSON Lines, por uma thread própria, para
+ *   execuções sem interface.</li>
+ * </ul>
+ * Vários processos podem compartilhar o mesmo RegistroLog.
+ */
+public class RegistroLog {
+    public static final int CAPACIDADE_PADRAO = 8192;
+    public static final int INTERVALO_DESCARGA_MS = 50;
+    public static final int MAX_CARACTERES_AREA = 200_000;
+
+    // Linhas por lote: limita o trabalho de cada descarga na thread da interface
+    private static final int MAX_LOTE = 4096;
+
+    private static final class Linha {
+        final long nanos;
+        final int processo;
+        final String texto;
+
+        Linha(long nanos, int processo, String texto) {
+            this.nanos = nanos;
+            this.processo = processo;
+            this.texto = texto;
+        }
+    }
+
+    private final BlockingQueue<Linha> buffer;
+    private final JTextArea area;
+    private final PrintStream saida;
+    private final long inicioNanos = System.nanoTime();
+
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong escritas = new AtomicLong();
+    // Descartes já avisados na saída; só a thread que descarrega usa
+    private long descartadasAvisadas = 0;
+    private final List<Linha> lote = new ArrayList<>();
+
+    private Timer timer;
+    private Thread escritor;
+    private volatile boolean aberto = true;
+
+    /**
+     * Log na área de texto da interface.
+     */
+    public RegistroLog(JTextArea area) {
+        this(area, null, CAPACIDADE_PADRAO);
+        timer = new Timer(INTERVALO_DESCARGA_MS, e -> descarregarNaArea());
+        timer.start();
+    }
+
+    /**
+     * Log estruturado (JSON Lines) num PrintStream, ex.: System.out ou um arquivo.
+     */
+    public RegistroLog(PrintStream saida) {
+        this(saida, CAPACIDADE_PADRAO);
+    }
+
+    /**
+     * Log estruturado com um buffer de 'capacidade' linhas.
+     */
+    public RegistroLog(PrintStream saida, int capacidade) {
+        this(null, saida, capacidade);
+        escritor = new Thread(() -> {
+            try {
+                while (aberto) {
+                    Thread.sleep(INTERVALO_DESCARGA_MS);
+                    descarregarNaSaida();
+                }
+            } catch (InterruptedException e) {
+                // fechar()
+            }
+            // A última descarga também é feita aqui, para que só esta thread escreva na saída
+            descarregarNaSaida();
+            if (saida != System.out && saida != System.err) {
+                saida.close();
+            }
+        }, "registro-log");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    private RegistroLog(JTextArea area, PrintStream saida, int capacidade) {
+        this.area = area;
+        this.saida = saida;
+        this.buffer = new ArrayBlockingQueue<>(capacidade);
+    }
+
+    /**
+     * RegistroLog da propriedade -Dsimulador.log: "stdout" ou o caminho de um
+     * arquivo; o buffer tem -Dsimulador.log.capacidade linhas. Retorna null se
+     * a propriedade não estiver definida.
+     */
+    public static RegistroLog daPropriedade() throws FileNotFoundException {
+        String valor = System.getProperty("simulador.log");
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        int capacidade = Integer.getInteger("simulador.log.capacidade", CAPACIDADE_PADRAO);
+        if (valor.trim().equalsIgnoreCase("stdout")) {
+            return new RegistroLog(System.out, capacidade);
+        }
+        return new RegistroLog(new PrintStream(new FileOutputStream(valor.trim()), false, StandardCharsets.UTF_8),
+                capacidade);
+    }
+
+    /**
+     * Enfileira a linha do processo. Nunca bloqueia.
+     */
+    public void registrar(int processo, String texto) {
+        if (!buffer.offer(new Linha(System.nanoTime(), processo, texto))) {
+            descartadas.incrementAndGet();
+        }
+    }
+
+    /**
+     * Linhas perdidas porque o buffer estava cheio.
+     */
+    public long getDescartadas() {
+        return descartadas.get();
+    }
+
+    public long getEscritas() {
+        return escritas.get();
+    }
+
+    /**
+     * Para a descarga periódica e escreve o que ainda estiver no buffer. Na
+     * saída de texto, quem escreve é sempre a thread de descarga; fechar()
+     * espera por ela até 1 s.
+     */
+    public void fechar() {
+        aberto = false;
+        if (timer != null) {
+            timer.stop();
+            SwingUtilities.invokeLater(() -> {
+                while (descarregarNaArea()) {
+                    // Cada descarga leva no máximo MAX_LOTE linhas: repete até esvaziar o buffer
+                }
+            });
+        }
+        if (escritor != null) {
+            escritor.interrupt();
+            try {
+                escritor.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Na thread da interface: um único append por lote e um único ajuste do
+     * cursor. Retorna false se não havia nada a escrever.
+     */
+    private boolean descarregarNaArea() {
+        if (buffer.drainTo(lote, MAX_LOTE) == 0 && descartadas.get() == descartadasAvisadas) {
+            return false;
+        }
+        StringBuilder texto = new StringBuilder();
+        for (Linha linha : lote) {
+            texto.append("[P").append(linha.processo).append("]: ").append(linha.texto).append('\n');
+        }
+        escritas.addAndGet(lote.size());
+        lote.clear();
+        avisarDescartes(texto, false);
+
+        area.append(texto.toString());
+        int excesso = area.getDocument().getLength() - MAX_CARACTERES_AREA;
+        if (excesso > 0) {
+            try {
+                // Corta linhas inteiras do início
+                int fim = area.getLineEndOffset(area.getLineOfOffset(excesso));
+                area.replaceRange("", 0, fim);
+            } catch (BadLocationException e) {
+                // Ignorar erro de UI pontual
+            }
+        }
+        area.setCaretPosition(area.getDocument().getLength());
+        return true;
+    }
+
+    private void descarregarNaSaida() {
+        StringBuilder texto = new StringBuilder();
+        while (buffer.drainTo(lote, MAX_LOTE) > 0) {
+            for (Linha linha : lote) {
+                texto.append("{\"t_ms\":").append((linha.nanos - inicioNanos) / 1_000_000.0)
+                        .append(",\"processo\":").append(linha.processo)
+                        .append(",\"msg\":\"");
+                escaparJson(linha.texto, texto);
+                texto.append("\"}\n");
+            }
+            escritas.addAndGet(lote.size());
+            lote.clear();
+        }
+        avisarDescartes(texto, true);
+        if (texto.length() > 0) {
+            saida.print(texto);
+            saida.flush();
+        }
+    }
+
+    /**
+     * Acrescenta uma linha avisando quantas linhas foram descartadas desde o último aviso.
+     */
+    private void avisarDescartes(StringBuilder texto, boolean json) {
+        long total = descartadas.get();
+        if (total == descartadasAvisadas) {
+            return;
+        }
+        long novas = total - descartadasAvisadas;
+        descartadasAvisadas = total;
+        if (json) {
+            texto.append("{\"t_ms\":").append((System.nanoTime() - inicioNanos) / 1_000_000.0)
+                    .append(",\"descartadas\":").append(novas).append("}\n");
+        } else {
+            texto.append("[log]: ").append(novas).append(" linhas descartadas (buffer cheio)\n");
+        }
+    }
+
+    private static void escaparJson(String texto, StringBuilder destino) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"':
+                    destino.append("\\\"");
+                    break;
+                case '\\':
+                    destino.append("\\\\");
+                    break;
+                case '\n':
+                    destino.append("\\n");
+                    break;
+                case '\r':
+                    destino.append("\\r");
+                    break;
+                case '\t':
+                    destino.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        destino.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        destino.append(c);
+                    }
+            }
+        }
+    }
+}
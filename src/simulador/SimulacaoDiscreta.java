@@ -0,0 +1,261 @@
+package simulador;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Simulação de eventos discretos de uma execução do OM(m) ou, com
+ * comAssinaturas(), do SM(m): as instâncias de todos os generais trocam mensagens por uma rede simulada com relógio
+ * virtual, sem threads nem pausas. A latência e a perda de cada mensagem são
+ * sorteadas do Random recebido, então a mesma semente reproduz a mesma
+ * execução.
+ *
+ * Cada Tenente avança de rodada quando recebe todas as mensagens dela ou
+ * quando o prazo da rodada (em tempo virtual) acaba, como no modo RAPIDO.
+ * O Comandante é sempre o processo 0 e propõe ATACAR. Os traidores seguem
+ * a EstrategiaTraidor escolhida, e comFalhas() soma atrasos, perdas e
+ * partições (no relógio virtual) às da rede simulada.
+ */
+public class SimulacaoDiscreta {
+
+    /** O que uma execução produziu. */
+    public static final class Resultado {
+        /** Todos os Tenentes leais decidiram o mesmo valor. */
+        public boolean acordo;
+        /** Com Comandante leal, os Tenentes leais decidiram a ordem dele. */
+        public boolean validade;
+        public long mensagens;
+        /** Bytes (quadros do CodecMensagem) enviados por cada processo, pelo ID. */
+        public long[] bytesEnviados;
+        public long perdidas;
+        /** Maior rodada alcançada por um Tenente leal. */
+        public int rodadas;
+        /** Rodadas (somando todos os Tenentes) encerradas pelo prazo. */
+        public int rodadasExpiradas;
+        /** Instante virtual da última decisão. */
+        public long tempoVirtualMicros;
+    }
+
+    private static final int ENTREGA = 0;
+    private static final int PRAZO = 1;
+
+    /** Um evento agendado: entrega de mensagem ou fim do prazo de uma rodada. */
+    private static final class Evento implements Comparable<Evento> {
+        final long instante;
+        final long sequencia; // Desempate: eventos simultâneos saem na ordem em que foram agendados
+        final int tipo;
+        final int destino;
+        final Mensagem msg;
+        final int rodada;
+
+        Evento(long instante, long sequencia, int tipo, int destino, Mensagem msg, int rodada) {
+            this.instante = instante;
+            this.sequencia = sequencia;
+            this.tipo = tipo;
+            this.destino = destino;
+            this.msg = msg;
+            this.rodada = rodada;
+        }
+
+        @Override
+        public int compareTo(Evento outro) {
+            int c = Long.compare(instante, outro.instante);
+            return c != 0 ? c : Long.compare(sequencia, outro.sequencia);
+        }
+    }
+
+    private final Random sorteio;
+    private final long latenciaMinimaMicros;
+    private final long latenciaMaximaMicros;
+    private final double perda;
+    private final long prazoRodadaMicros;
+    private Algoritmo algoritmo = Algoritmo.OM;
+    private ChavesAssinatura chaves;
+    private Disseminacao disseminacao = Disseminacao.DIRETA;
+    private EstrategiaTraidor estrategiaTraidor = EstrategiaTraidor.PADRAO;
+    private Falhas falhas;
+    private boolean[] traidores;
+    private boolean decisaoAntecipada = true;
+
+    private final PriorityQueue<Evento> agenda = new PriorityQueue<>();
+    private long agora;
+    private long sequencia;
+    private Resultado resultado;
+
+    public SimulacaoDiscreta(Random sorteio, long latenciaMinimaMicros, long latenciaMaximaMicros, double perda,
+                             long prazoRodadaMicros) {
+        if (latenciaMinimaMicros < 0 || latenciaMaximaMicros < latenciaMinimaMicros) {
+            throw new IllegalArgumentException("Latência inválida: " + latenciaMinimaMicros + " a "
+                    + latenciaMaximaMicros + " µs");
+        }
+        this.sorteio = sorteio;
+        this.latenciaMinimaMicros = latenciaMinimaMicros;
+        this.latenciaMaximaMicros = latenciaMaximaMicros;
+        this.perda = perda;
+        this.prazoRodadaMicros = prazoRodadaMicros;
+    }
+
+    /**
+     * Passa a executar o SM(m), com estas chaves (que devem incluir as dos IDs
+     * 0 a n - 1). Cada general tem o seu VerificadorAssinaturas.
+     */
+    public SimulacaoDiscreta comAssinaturas(ChavesAssinatura chaves) {
+        this.algoritmo = Algoritmo.SM;
+        this.chaves = chaves;
+        return this;
+    }
+
+    /**
+     * Como os Tenentes do SM espalham as retransmissões (só com comAssinaturas()).
+     */
+    public SimulacaoDiscreta comDisseminacao(Disseminacao disseminacao) {
+        this.disseminacao = disseminacao;
+        return this;
+    }
+
+    /**
+     * Como os traidores agem (o padrão é EstrategiaTraidor.PADRAO).
+     */
+    public SimulacaoDiscreta comEstrategiaTraidor(EstrategiaTraidor estrategiaTraidor) {
+        this.estrategiaTraidor = estrategiaTraidor;
+        return this;
+    }
+
+    /**
+     * Falhas injetadas em cada envio, além da latência e da perda da rede
+     * simulada; os instantes das partições contam do início da execução.
+     */
+    public SimulacaoDiscreta comFalhas(Falhas falhas) {
+        this.falhas = falhas;
+        return this;
+    }
+
+    /**
+     * Se os Tenentes do OM encerram a última rodada assim que a votação está
+     * garantida (o padrão), ou esperam todas as mensagens ou o prazo.
+     */
+    public SimulacaoDiscreta comDecisaoAntecipada(boolean decisaoAntecipada) {
+        this.decisaoAntecipada = decisaoAntecipada;
+        return this;
+    }
+
+    /**
+     * Executa uma instância do algoritmo com n generais; traidores[i] diz se o
+     * processo i é traidor.
+     */
+    public Resultado executar(int n, int m, boolean[] traidores) {
+        agenda.clear();
+        agora = 0;
+        sequencia = 0;
+        resultado = new Resultado();
+        resultado.bytesEnviados = new long[n];
+        this.traidores = traidores;
+
+        int[] participantes = new int[n];
+        for (int i = 0; i < n; i++) {
+            participantes[i] = i;
+        }
+        InstanciaConsenso[] generais = new InstanciaConsenso[n];
+        for (int i = 0; i < n; i++) {
+            VerificadorAssinaturas verificador = chaves != null ? new VerificadorAssinaturas(chaves) : null;
+            generais[i] = InstanciaConsenso.criar(algoritmo, 0L, i, 0, participantes, m,
+                    traidores[i] ? estrategiaTraidor : null, Ordem.ATACAR,
+                    verificador, disseminacao, this::enviar, null);
+            generais[i].setDecisaoAntecipada(decisaoAntecipada);
+        }
+        for (int i = 0; i < n; i++) {
+            generais[i].iniciar();
+            if (i != 0) {
+                agendar(agora + prazoRodadaMicros, PRAZO, i, null, 1);
+            }
+        }
+
+        while (!agenda.isEmpty()) {
+            Evento evento = agenda.poll();
+            agora = evento.instante;
+            InstanciaConsenso general = generais[evento.destino];
+            if (general.isConcluida()) {
+                continue;
+            }
+            if (evento.tipo == ENTREGA) {
+                if (general.receber(evento.msg)) {
+                    avancarCompletas(general, evento.destino);
+                }
+            } else if (general.getRodadaAtual() == evento.rodada) {
+                resultado.rodadasExpiradas++;
+                avancar(general, evento.destino);
+                avancarCompletas(general, evento.destino);
+            }
+        }
+
+        Ordem decisaoComum = null;
+        resultado.acordo = true;
+        for (int i = 1; i < n; i++) {
+            if (traidores[i]) {
+                continue;
+            }
+            Ordem decisao = generais[i].getDecisao();
+            resultado.rodadas = Math.max(resultado.rodadas, generais[i].getRodadaAtual());
+            if (decisaoComum == null) {
+                decisaoComum = decisao;
+            } else if (decisao != decisaoComum) {
+                resultado.acordo = false;
+            }
+        }
+        resultado.validade = traidores[0] || (resultado.acordo && (decisaoComum == null || decisaoComum == Ordem.ATACAR));
+        return resultado;
+    }
+
+    private void avancarCompletas(InstanciaConsenso general, int id) {
+        while (general.rodadaCompleta()) {
+            avancar(general, id);
+        }
+    }
+
+    /**
+     * Avança a rodada do general e agenda o prazo da nova, ou registra o
+     * instante da decisão.
+     */
+    private void avancar(InstanciaConsenso general, int id) {
+        general.avancar();
+        if (general.isConcluida()) {
+            resultado.tempoVirtualMicros = Math.max(resultado.tempoVirtualMicros, agora);
+        } else {
+            agendar(agora + prazoRodadaMicros, PRAZO, id, null, general.getRodadaAtual());
+        }
+    }
+
+    /**
+     * Saída das instâncias: sorteia perda e latência (mais as Falhas e o
+     * atraso de um traidor que atrasa) e agenda a entrega.
+     */
+    private void enviar(int idDestino, Mensagem msg) {
+        int origem = msg.getRemetenteId();
+        resultado.mensagens++;
+        resultado.bytesEnviados[origem] += CodecMensagem.tamanhoQuadro(msg);
+        if (perda > 0 && sorteio.nextDouble() < perda) {
+            resultado.perdidas++;
+            return;
+        }
+        long latencia = latenciaMinimaMicros;
+        if (falhas != null) {
+            long atraso = falhas.sortear(origem, idDestino, agora / 1000, sorteio);
+            if (atraso < 0) {
+                resultado.perdidas++;
+                return;
+            }
+            latencia += atraso;
+        }
+        if (traidores[origem]) {
+            latencia += estrategiaTraidor.getAtrasoMs() * 1000;
+        }
+        if (latenciaMaximaMicros > latenciaMinimaMicros) {
+            latencia += (long) (sorteio.nextDouble() * (latenciaMaximaMicros - latenciaMinimaMicros));
+        }
+        agendar(agora + latencia, ENTREGA, idDestino, msg, 0);
+    }
+
+    private void agendar(long instante, int tipo, int destino, Mensagem msg, int rodada) {
+        agenda.add(new Evento(instante, sequencia++, tipo, destino, msg, rodada));
+    }
+}
@@ -0,0 +1,255 @@
+package simulador;
+
+import java.io.FileNotFoundException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executa n Processos na mesma JVM, sem interface e sem sockets, sobre uma
+ * RedeMemoria com latência e perda configuráveis. Serve para estudar escala
+ * e correção com n grande (ex.: 1000) sem abrir n janelas e n portas.
+ *
+ * Cada Processo roda numa thread virtual quando a JVM as oferece (Java 21+);
+ * em versões anteriores, numa thread comum com pilha pequena.
+ *
+ * Uso: java simulador.SimuladorCluster [n] [m] [traidores] [latenciaMs] [perda] [semente] [prazoRodadaMs]
+ *          [algoritmo] [esquema] [disseminacao] [estrategia] [falhas]
+ *   traidores:  lista de IDs ("0,3"), "aleatorio:k" ou "-" para nenhum
+ *   latenciaMs: "min-max" (ex.: "1-5") ou um valor fixo
+ *   prazoRodadaMs: padrão max(2000, n² / 25)
+ *   algoritmo: OM (padrão) ou SM; no SM as chaves são geradas a partir da
+ *   semente, com o esquema ED25519 (padrão) ou HMAC
+ *   disseminacao: DIRETA (padrão) ou SOBREPOSICAO (só no SM)
+ *   estrategia: como os traidores agem (EstrategiaTraidor.deNome; padrão PADRAO)
+ *   falhas: atraso, jitter, perda e partições injetados (Falhas.deTexto,
+ *   ex.: "jitter=20,particao=1+2@0-3000") ou "-" para nenhuma
+ * O Comandante é sempre o processo 0. Com -Dsimulador.log=stdout (ou =arquivo)
+ * os logs dos processos saem em JSON Lines; com -Dsimulador.metricas=stdout
+ * (ou =arquivo), as métricas de cada processo, periodicamente (DespejoMetricas).
+ */
+public class SimuladorCluster {
+
+    // Pilha das threads comuns quando não há threads virtuais
+    private static final long PILHA_THREAD_COMUM = 256 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        String traidores = args.length > 2 ? args[2] : "-";
+        String latencia = args.length > 3 ? args[3] : "0";
+        double perda = args.length > 4 ? Double.parseDouble(args[4]) : 0.0;
+        long semente = args.length > 5 ? Long.parseLong(args[5]) : 42L;
+        // Todos os n processos dividem a mesma CPU e cada rodada custa ~n² mensagens:
+        // o prazo padrão cresce com n para não confundir lentidão com mensagens perdidas
+        long prazoRodadaMs = args.length > 6 ? Long.parseLong(args[6]) : Math.max(2000, (long) n * n / 25);
+        Algoritmo algoritmo = args.length > 7 ? Algoritmo.valueOf(args[7].toUpperCase()) : Algoritmo.OM;
+        ChavesAssinatura.Esquema esquema = args.length > 8
+                ? ChavesAssinatura.Esquema.valueOf(args[8].toUpperCase()) : ChavesAssinatura.Esquema.ED25519;
+        Disseminacao disseminacao = args.length > 9 ? Disseminacao.valueOf(args[9].toUpperCase()) : Disseminacao.DIRETA;
+        EstrategiaTraidor estrategia = args.length > 10 ? EstrategiaTraidor.deNome(args[10]) : EstrategiaTraidor.PADRAO;
+        Falhas falhas = args.length > 11 && !args[11].equals("-") ? Falhas.deTexto(args[11]).comSemente(semente) : null;
+
+        String[] faixa = latencia.split("-");
+        RedeMemoria rede = new RedeMemoria(semente)
+                .comLatenciaMs(Double.parseDouble(faixa[0]), Double.parseDouble(faixa[faixa.length - 1]))
+                .comPerda(perda);
+        Set<Integer> conjuntoTraidores = lerTraidores(traidores, n, new Random(semente));
+
+        ChavesAssinatura chaves = null;
+        if (algoritmo == Algoritmo.SM) {
+            int[] ids = new int[n];
+            for (int id = 0; id < n; id++) {
+                ids[id] = id;
+            }
+            chaves = ChavesAssinatura.gerar(esquema, ids, semente);
+        }
+
+        OpcoesProcesso opcoes = new OpcoesProcesso()
+                .comMaxTraidores(m)
+                .comModoExecucao(ModoExecucao.RAPIDO)
+                .comPrazoRodadaMs(prazoRodadaMs)
+                .comRedeMemoria(rede)
+                .comAlgoritmo(algoritmo)
+                .comChaves(chaves)
+                .comDisseminacao(disseminacao)
+                .comEstrategiaTraidor(estrategia)
+                .comFalhas(falhas);
+        executar(n, conjuntoTraidores, rede, opcoes);
+        System.exit(0);
+    }
+
+    private static void executar(int n, Set<Integer> traidores, RedeMemoria rede, OpcoesProcesso opcoes) throws InterruptedException, FileNotFoundException {
+        // Logs dos processos só com -Dsimulador.log=stdout ou -Dsimulador.log=arquivo
+        RegistroLog registro = RegistroLog.daPropriedade();
+        Map<Integer, String[]> mapaRede = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            mapaRede.put(id, new String[]{"memoria", String.valueOf(id)});
+        }
+        // Uma membresia para todos: os endereços são resolvidos uma vez só
+        Membresia membresia = Membresia.de(mapaRede);
+        opcoes.comRegistroLog(registro);
+        int m = opcoes.getMaxTraidores();
+
+        ThreadFactory fabrica = criarFabricaDeThreads();
+        System.out.println(opcoes.getAlgoritmo() + "(" + m + ")"
+                + (opcoes.getChaves() != null ? " " + opcoes.getChaves().getEsquema() : "")
+                + (opcoes.getDisseminacao() != Disseminacao.DIRETA ? " " + opcoes.getDisseminacao() : "")
+                + ", n = " + n + ", traidores " + traidores
+                + (traidores.isEmpty() ? "" : " (" + opcoes.getEstrategiaTraidor() + ")")
+                + (opcoes.getFalhas() != null ? ", falhas " + opcoes.getFalhas() : "") + ", threads " + (fabrica == null ? "comuns" : "virtuais"));
+
+        List<Processo> processos = new ArrayList<>();
+        List<Metricas> metricas = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int id = 0; id < n; id++) {
+            Processo p = new Processo(id, 0, traidores.contains(id), membresia, null, opcoes);
+            Thread t = (fabrica != null)
+                    ? fabrica.newThread(p::iniciar)
+                    : new Thread(null, p::iniciar, "processo-" + id, PILHA_THREAD_COMUM);
+            processos.add(p);
+            metricas.add(p.getMetricas());
+            threads.add(t);
+        }
+        DespejoMetricas despejo = DespejoMetricas.daPropriedade(metricas);
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        long duracao = System.nanoTime() - inicio;
+        if (despejo != null) {
+            despejo.fechar();
+        }
+        if (registro != null) {
+            registro.fechar();
+            System.out.println("Linhas de log escritas: " + registro.getEscritas()
+                    + ", descartadas: " + registro.getDescartadas());
+        }
+
+        // Só as decisões dos Tenentes leais importam para o acordo
+        Map<Ordem, Integer> decisoes = new HashMap<>();
+        List<Long> latencias = new ArrayList<>();
+        int leais = 0;
+        int indecisos = 0;
+        for (int id = 1; id < n; id++) {
+            if (traidores.contains(id)) {
+                continue;
+            }
+            leais++;
+            Ordem decisao = processos.get(id).getDecisao();
+            if (decisao == null) {
+                indecisos++;
+                continue;
+            }
+            decisoes.merge(decisao, 1, Integer::sum);
+            latencias.add(processos.get(id).getLatenciaDecisaoNanos());
+        }
+        boolean acordo = decisoes.size() <= 1 && indecisos == 0;
+        // Com Comandante leal, os leais têm que seguir a ordem dele (ATACAR)
+        boolean validade = traidores.contains(0) || (acordo && decisoes.containsKey(Ordem.ATACAR));
+
+        System.out.println("Tenentes leais: " + leais + ", decisões: " + decisoes
+                + (indecisos > 0 ? ", sem decisão: " + indecisos : ""));
+        System.out.println("Acordo: " + (acordo ? "sim" : "NÃO") + ", validade: " + (validade ? "sim" : "NÃO"));
+        if (!latencias.isEmpty()) {
+            latencias.sort(null);
+            System.out.printf("Latência da decisão (ms): p50 %.1f, p99 %.1f, máx %.1f%n",
+                    percentil(latencias, 0.50) / 1e6, percentil(latencias, 0.99) / 1e6,
+                    latencias.get(latencias.size() - 1) / 1e6);
+        }
+        imprimirRodadas(processos, traidores, m);
+        imprimirBanda(processos, traidores);
+        System.out.println("Mensagens enviadas: " + rede.getEnviadas() + ", perdidas: " + rede.getPerdidas());
+        Falhas falhas = opcoes.getFalhas();
+        if (falhas != null) {
+            System.out.println("Falhas injetadas: " + falhas.getPerdidas() + " perdidas, " + falhas.getBloqueadas()
+                    + " barradas por partição, " + falhas.getAtrasadas() + " atrasadas");
+        }
+        System.gc();
+        System.out.printf("Tempo total: %d ms, heap após GC: %.1f MB%n", TimeUnit.NANOSECONDS.toMillis(duracao),
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1e6);
+    }
+
+    /**
+     * Latência de cada rodada somando os histogramas dos Tenentes leais.
+     */
+    private static void imprimirRodadas(List<Processo> processos, Set<Integer> traidores, int m) {
+        for (int rodada = 1; rodada <= m + 1; rodada++) {
+            Histograma total = new Histograma();
+            for (int id = 1; id < processos.size(); id++) {
+                Histograma h = processos.get(id).getMetricas().getRodada(rodada);
+                if (h != null && !traidores.contains(id)) {
+                    total.somar(h);
+                }
+            }
+            System.out.println("Rodada " + rodada + ": " + total.formatarTexto());
+        }
+    }
+
+    /**
+     * Bytes enviados por Tenente leal (média e máximo), das Metricas de cada processo.
+     */
+    private static void imprimirBanda(List<Processo> processos, Set<Integer> traidores) {
+        long soma = 0;
+        long maximo = 0;
+        int leais = 0;
+        for (int id = 1; id < processos.size(); id++) {
+            if (!traidores.contains(id)) {
+                long bytes = processos.get(id).getMetricas().getBytesEnviados();
+                soma += bytes;
+                maximo = Math.max(maximo, bytes);
+                leais++;
+            }
+        }
+        if (leais > 0) {
+            System.out.printf("Bytes enviados por Tenente leal: média %.1f KB, máx %.1f KB%n",
+                    soma / 1024.0 / leais, maximo / 1024.0);
+        }
+    }
+
+    private static Set<Integer> lerTraidores(String texto, int n, Random sorteio) {
+        Set<Integer> traidores = new HashSet<>();
+        if (texto.equals("-")) {
+            return traidores;
+        }
+        if (texto.startsWith("aleatorio:")) {
+            int quantidade = Integer.parseInt(texto.substring("aleatorio:".length()));
+            while (traidores.size() < Math.min(quantidade, n)) {
+                traidores.add(sorteio.nextInt(n));
+            }
+            return traidores;
+        }
+        Arrays.stream(texto.split(",")).map(String::trim).map(Integer::valueOf).forEach(traidores::add);
+        return traidores;
+    }
+
+    private static long percentil(List<Long> ordenados, double p) {
+        return ordenados.get(Math.min(ordenados.size() - 1, (int) (p * ordenados.size())));
+    }
+
+    /**
+     * Fábrica de threads virtuais (Thread.ofVirtual(), Java 21+), obtida por
+     * reflexão para que o projeto continue compilando no Java 17. Retorna
+     * null se a JVM não tiver threads virtuais.
+     */
+    static ThreadFactory criarFabricaDeThreads() {
+        try {
+            Object construtor = Thread.class.getMethod("ofVirtual").invoke(null);
+            // Pela interface pública Thread.Builder: a classe concreta não é acessível
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(construtor);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package simulador;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Varredura de Monte Carlo sobre a posição dos traidores, usando a
+ * SimulacaoDiscreta: para cada combinação de n e número de traidores, sorteia
+ * quais processos são traidores em cada execução e agrega taxa de acordo,
+ * taxa de validade, mensagens e rodadas num relatório CSV.
+ *
+ * Tudo vem de uma única semente, então a mesma linha de comando gera
+ * sempre o mesmo CSV.
+ *
+ * Uso: java simulador.SimuladorMonteCarlo [n1,n2,...] [m] [traidores1,traidores2,...] [execucoes]
+ *          [semente] [latenciaMs] [perda] [prazoRodadaMs] [arquivo.csv] [algoritmo] [esquema]
+ *   latenciaMs: "min-max" (ex.: "1-10") ou um valor fixo
+ *   arquivo.csv: "-" (padrão) para a saída padrão
+ *   algoritmo: OM (padrão) ou SM; no SM, esquema ED25519 (padrão) ou HMAC
+ */
+public class SimuladorMonteCarlo {
+
+    private static final String CABECALHO = "n,m,traidores,execucoes,taxa_acordo,taxa_validade,"
+            + "mensagens_media,perdidas_media,rodadas_media,rodadas_expiradas_media,tempo_virtual_medio_ms,algoritmo";
+
+    public static void main(String[] args) throws FileNotFoundException {
+        String[] tamanhos = (args.length > 0 ? args[0] : "4,7,10").split(",");
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        String[] quantidadesTraidores = (args.length > 2 ? args[2] : "0,1,2,3").split(",");
+        int execucoes = args.length > 3 ? Integer.parseInt(args[3]) : 10000;
+        long semente = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+        String[] latencia = (args.length > 5 ? args[5] : "1-10").split("-");
+        double perda = args.length > 6 ? Double.parseDouble(args[6]) : 0.0;
+        long prazoRodadaMs = args.length > 7 ? Long.parseLong(args[7]) : 50;
+        String arquivo = args.length > 8 ? args[8] : "-";
+        Algoritmo algoritmo = args.length > 9 ? Algoritmo.valueOf(args[9].toUpperCase()) : Algoritmo.OM;
+        ChavesAssinatura.Esquema esquema = args.length > 10
+                ? ChavesAssinatura.Esquema.valueOf(args[10].toUpperCase()) : ChavesAssinatura.Esquema.ED25519;
+
+        Random sorteio = new Random(semente);
+        SimulacaoDiscreta simulacao = new SimulacaoDiscreta(sorteio,
+                (long) (Double.parseDouble(latencia[0]) * 1000),
+                (long) (Double.parseDouble(latencia[latencia.length - 1]) * 1000),
+                perda, prazoRodadaMs * 1000);
+        if (algoritmo == Algoritmo.SM) {
+            // Chaves para o maior n da varredura; também derivadas da semente
+            int maiorN = 0;
+            for (String tamanho : tamanhos) {
+                maiorN = Math.max(maiorN, Integer.parseInt(tamanho.trim()));
+            }
+            int[] ids = new int[maiorN];
+            for (int i = 0; i < maiorN; i++) {
+                ids[i] = i;
+            }
+            simulacao.comAssinaturas(ChavesAssinatura.gerar(esquema, ids, semente));
+        }
+
+        PrintStream saida = arquivo.equals("-") ? System.out : new PrintStream(arquivo);
+        saida.println(CABECALHO);
+        long totalExecucoes = 0;
+        long inicio = System.nanoTime();
+        for (String tamanho : tamanhos) {
+            int n = Integer.parseInt(tamanho.trim());
+            for (String quantidade : quantidadesTraidores) {
+                int k = Integer.parseInt(quantidade.trim());
+                if (k > n) {
+                    continue;
+                }
+                saida.println(varrer(simulacao, sorteio, n, m, k, execucoes) + "," + algoritmo);
+                totalExecucoes += execucoes;
+            }
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        if (saida != System.out) {
+            saida.close();
+        }
+        System.err.printf(Locale.ROOT, "%d execuções em %.2f s (%.0f execuções/s)%n", totalExecucoes, segundos,
+                totalExecucoes / segundos);
+    }
+
+    /**
+     * Executa a simulação 'execucoes' vezes com k traidores sorteados e devolve a linha do CSV.
+     */
+    private static String varrer(SimulacaoDiscreta simulacao, Random sorteio, int n, int m, int k, int execucoes) {
+        int acordos = 0;
+        int validas = 0;
+        long mensagens = 0;
+        long perdidas = 0;
+        long rodadas = 0;
+        long expiradas = 0;
+        long tempoVirtual = 0;
+        boolean[] traidores = new boolean[n];
+
+        for (int e = 0; e < execucoes; e++) {
+            sortearTraidores(traidores, k, sorteio);
+            SimulacaoDiscreta.Resultado r = simulacao.executar(n, m, traidores);
+            acordos += r.acordo ? 1 : 0;
+            validas += r.validade ? 1 : 0;
+            mensagens += r.mensagens;
+            perdidas += r.perdidas;
+            rodadas += r.rodadas;
+            expiradas += r.rodadasExpiradas;
+            tempoVirtual += r.tempoVirtualMicros;
+        }
+
+        double total = execucoes;
+        return String.format(Locale.ROOT, "%d,%d,%d,%d,%.4f,%.4f,%.1f,%.1f,%.2f,%.2f,%.3f", n, m, k, execucoes,
+                acordos / total, validas / total, mensagens / total, perdidas / total, rodadas / total,
+                expiradas / total, tempoVirtual / total / 1000);
+    }
+
+    /**
+     * Marca exatamente k posições de 'traidores' como true (Fisher-Yates parcial sobre os IDs).
+     */
+    private static void sortearTraidores(boolean[] traidores, int k, Random sorteio) {
+        int n = traidores.length;
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+            traidores[i] = false;
+        }
+        for (int i = 0; i < k; i++) {
+            int j = i + sorteio.nextInt(n - i);
+            int escolhido = ids[j];
+            ids[j] = ids[i];
+            ids[i] = escolhido;
+            traidores[escolhido] = true;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package simulador;
+
+import java.util.Arrays;
+
+/**
+ * Rede lógica sobre os Tenentes usada pela Disseminacao.SOBREPOSICAO: com os
+ * Tenentes em ordem crescente de ID num anel, cada um é vizinho dos que
+ * estão a distância 1, 2, ..., ⌈(m + 1) / 2⌉ e 2, 4, 8, ... para os dois
+ * lados.
+ *
+ * As distâncias curtas formam um grafo de Harary, que continua conexo
+ * depois de retirados quaisquer m nós: os traidores podem se calar, mas não
+ * isolar um Tenente leal. As potências de 2 limitam o diâmetro a
+ * ~log2(n) saltos, que é quanto uma mensagem leva para atravessar a rede.
+ */
+public final class Sobreposicao {
+
+    private Sobreposicao() {
+    }
+
+    /**
+     * Os vizinhos do Tenente 'id' (o Comandante não participa), em ordem crescente.
+     *
+     * @param participantes IDs de todos os processos, em ordem crescente
+     */
+    public static int[] vizinhos(int id, int comandanteId, int[] participantes, int maxTraidores) {
+        int[] tenentes = Arrays.stream(participantes).filter(p -> p != comandanteId).toArray();
+        int total = tenentes.length;
+        int posicao = Arrays.binarySearch(tenentes, id);
+        if (posicao < 0) {
+            return new int[0];
+        }
+
+        boolean[] vizinho = new boolean[total];
+        int curtas = (maxTraidores + 2) / 2;
+        for (int d = 1; d <= curtas && d < total; d++) {
+            vizinho[(posicao + d) % total] = true;
+            vizinho[Math.floorMod(posicao - d, total)] = true;
+        }
+        for (int d = 2; d < total; d *= 2) {
+            vizinho[(posicao + d) % total] = true;
+            vizinho[Math.floorMod(posicao - d, total)] = true;
+        }
+        vizinho[posicao] = false;
+
+        int grau = 0;
+        int[] resultado = new int[total];
+        for (int i = 0; i < total; i++) {
+            if (vizinho[i]) {
+                resultado[grau++] = tenentes[i];
+            }
+        }
+        return Arrays.copyOf(resultado, grau);
+    }
+}
@@ -0,0 +1,29 @@
+package simulador;
+
+/**
+ * O que a mensagem transporta.
+ */
+public enum TipoMensagem {
+    /** Um valor do OM(m), com rodada e caminho de retransmissão. */
+    ORDEM,
+    /** Anúncio de que o processo está no ar; quem recebe responde com CONFIRMA_PRONTO. */
+    PRONTO,
+    /** Resposta a um PRONTO. Não gera nova resposta. */
+    CONFIRMA_PRONTO,
+    /**
+     * Aviso de um Tenente ao Comandante: decidiu a instância, com a ordem
+     * decidida. Também é a resposta a um PEDIDO_DECISAO.
+     */
+    DECIDIDO,
+    /** Um Tenente que ficou para trás pede aos outros a decisão de uma instância. */
+    PEDIDO_DECISAO;
+
+    private static final TipoMensagem[] VALORES = values();
+
+    public static TipoMensagem doCodigo(int codigo) {
+        if (codigo < 0 || codigo >= VALORES.length) {
+            throw new IllegalArgumentException("Tipo de mensagem desconhecido: " + codigo);
+        }
+        return VALORES[codigo];
+    }
+}
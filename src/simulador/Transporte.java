@@ -0,0 +1,88 @@
+package simulador;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Contrato da camada de rede de um processo: entrega as mensagens recebidas na
+ * fila do processo e envia mensagens para os outros processos pelo ID.
+ */
+public interface Transporte {
+
+    /**
+     * Começa a aceitar conexões e a colocar as mensagens recebidas na fila.
+     */
+    void iniciarServidor();
+
+    /**
+     * Envia uma mensagem para o processo de destino, no endereço da visão atual da Membresia.
+     */
+    void enviarMensagem(int idDestino, Mensagem msg);
+
+    /**
+     * Encerra o servidor e fecha todos os canais abertos.
+     */
+    void desligarServidor();
+
+    /**
+     * Cria o transporte do modo escolhido para o processo que escuta em 'porta'.
+     */
+    static Transporte criar(ModoTransporte modo, int porta, Map<Integer, String[]> outrosProcessos,
+                            BlockingQueue<Mensagem> filaDeMensagens) {
+        return criar(modo, porta, Membresia.de(outrosProcessos), filaDeMensagens, new Metricas(-1),
+                GerenciadorConexoes.PRAZO_CONEXAO_MS);
+    }
+
+    /**
+     * Como acima, contando o tráfego e as falhas nas métricas do processo.
+     * 'prazoConexaoMs' limita o connect() do modo BLOQUEANTE (o NIO não
+     * bloqueia quem envia).
+     */
+    static Transporte criar(ModoTransporte modo, int porta, Membresia membresia,
+                            BlockingQueue<Mensagem> filaDeMensagens, Metricas metricas, long prazoConexaoMs) {
+        switch (modo) {
+            case NIO:
+                return new ComunicadorNio(porta, membresia, filaDeMensagens, metricas);
+            case BLOQUEANTE:
+            default:
+                return new Comunicador(porta, membresia, filaDeMensagens, metricas, prazoConexaoMs);
+        }
+    }
+
+    /**
+     * Cria o transporte do processo 'id' conforme as opções: a RedeMemoria, se
+     * houver uma, ou o modo escolhido na porta do processo na membresia.
+     */
+    static Transporte criar(int id, OpcoesProcesso opcoes, Membresia membresia,
+                            BlockingQueue<Mensagem> filaDeMensagens, Metricas metricas) {
+        return criar(id, opcoes, membresia, filaDeMensagens, metricas, null);
+    }
+
+    /**
+     * Como acima, envolvendo o transporte num TransporteFalhas quando as
+     * opções têm Falhas e, se o processo é um traidor ('traicao' não nula)
+     * que atrasa os envios, noutro com esse atraso.
+     */
+    static Transporte criar(int id, OpcoesProcesso opcoes, Membresia membresia,
+                            BlockingQueue<Mensagem> filaDeMensagens, Metricas metricas, EstrategiaTraidor traicao) {
+        Transporte transporte;
+        if (opcoes.getRedeMemoria() != null) {
+            transporte = opcoes.getRedeMemoria().conectar(id, filaDeMensagens, metricas);
+        } else {
+            InetSocketAddress meuEndereco = membresia.getVisao().endereco(id);
+            if (meuEndereco == null) {
+                throw new IllegalArgumentException("O processo " + id + " não está na membresia");
+            }
+            transporte = criar(opcoes.getModoTransporte(), meuEndereco.getPort(), membresia, filaDeMensagens, metricas,
+                    opcoes.getPrazoConexaoMs());
+        }
+        if (opcoes.getFalhas() != null) {
+            transporte = new TransporteFalhas(id, opcoes.getFalhas(), transporte);
+        }
+        if (traicao != null && traicao.getAtrasoMs() > 0) {
+            transporte = new TransporteFalhas(id, new Falhas().comAtrasoMs(traicao.getAtrasoMs()), transporte);
+        }
+        return transporte;
+    }
+}
@@ -0,0 +1,150 @@
+package simulador;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decorador de um Transporte que injeta as Falhas nos envios: descarta as
+ * mensagens que uma partição ou a perda sorteada barram e entrega as outras
+ * depois do atraso sorteado. O recebimento não muda; como toda mensagem passa
+ * pelo transporte de quem a envia, envolver todos os processos cobre os dois
+ * sentidos.
+ *
+ * Uma única thread agendadora marca a hora de cada envio atrasado, mas não
+ * envia: passa a mensagem à faixa do destino, esvaziada por uma thread de um
+ * pool compartilhado. Assim um destino lento ou inalcançável (no Comunicador,
+ * o envio conecta, escreve e tenta de novo na hora) só atrasa as mensagens
+ * dele, e os atrasos de cada par ficam independentes. Mensagens com jitter
+ * podem chegar fora de ordem.
+ */
+public class TransporteFalhas implements Transporte {
+
+    private static final ScheduledExecutorService AGENDADOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "falhas-agendador");
+        t.setDaemon(true);
+        return t;
+    });
+    // Uma thread por faixa com envios pendentes; paradas, morrem depois de um minuto
+    private static final ExecutorService ENTREGADORES = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "falhas-entrega");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final int id;
+    private final Falhas falhas;
+    private final Transporte base;
+    private final Random sorteio;
+    private final Map<Integer, Faixa> faixas = new ConcurrentHashMap<>();
+    // Envios atrasados que ainda não saíram; desligarServidor() espera por eles
+    private final AtomicInteger pendentes = new AtomicInteger();
+    private volatile long inicioNanos = System.nanoTime();
+    private volatile boolean ativo = true;
+
+    public TransporteFalhas(int id, Falhas falhas, Transporte base) {
+        this.id = id;
+        this.falhas = falhas;
+        this.base = base;
+        this.sorteio = new Random(falhas.getSemente() * 31 + id);
+    }
+
+    /**
+     * Os instantes das partições passam a contar daqui.
+     */
+    @Override
+    public void iniciarServidor() {
+        inicioNanos = System.nanoTime();
+        ativo = true;
+        base.iniciarServidor();
+    }
+
+    @Override
+    public void enviarMensagem(int idDestino, Mensagem msg) {
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioNanos);
+        long atrasoMicros = falhas.sortear(id, idDestino, ms, sorteio);
+        if (atrasoMicros == 0) {
+            base.enviarMensagem(idDestino, msg);
+        } else if (atrasoMicros > 0) {
+            Faixa faixa = faixas.computeIfAbsent(idDestino, Faixa::new);
+            pendentes.incrementAndGet();
+            AGENDADOR.schedule(() -> faixa.entregar(msg), atrasoMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    /**
+     * Espera os envios atrasados que já saíram de quem envia (como pacotes
+     * já na rede), no máximo o maior atraso sorteável e mais um segundo, e
+     * descarta o que sobrar. Sem isso, um Comandante que termina logo depois
+     * de enviar as ordens perderia todas elas.
+     */
+    @Override
+    public void desligarServidor() {
+        long limite = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(falhas.getAtrasoMs() + falhas.getJitterMs() + 1000);
+        synchronized (pendentes) {
+            try {
+                while (pendentes.get() > 0 && System.nanoTime() < limite) {
+                    pendentes.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime())));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ativo = false;
+        base.desligarServidor();
+    }
+
+    public Falhas getFalhas() {
+        return falhas;
+    }
+
+    /**
+     * Os envios atrasados para um destino, na ordem em que venceram; no
+     * máximo uma thread de ENTREGADORES os envia de cada vez.
+     */
+    private final class Faixa implements Runnable {
+        private final int destino;
+        private final Queue<Mensagem> fila = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean agendada = new AtomicBoolean();
+
+        Faixa(int destino) {
+            this.destino = destino;
+        }
+
+        /** Chamado pelo AGENDADOR quando o atraso da mensagem vence. */
+        void entregar(Mensagem msg) {
+            fila.add(msg);
+            if (agendada.compareAndSet(false, true)) {
+                ENTREGADORES.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                Mensagem msg;
+                while ((msg = fila.poll()) != null) {
+                    if (ativo) {
+                        base.enviarMensagem(destino, msg);
+                    }
+                    if (pendentes.decrementAndGet() == 0) {
+                        synchronized (pendentes) {
+                            pendentes.notifyAll();
+                        }
+                    }
+                }
+                agendada.set(false);
+                // Uma mensagem que chegou depois do poll() e antes do set(false) não pode ficar parada
+            } while (!fila.isEmpty() && agendada.compareAndSet(false, true));
+        }
+    }
+}
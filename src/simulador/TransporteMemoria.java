@@ -0,0 +1,55 @@
+package simulador;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Transporte de um processo numa RedeMemoria: sem sockets nem threads, as
+ * mensagens vão direto para a fila do destino (ou passam pela latência
+ * simulada da rede). Os bytes contados nas métricas são os do quadro que a
+ * mensagem ocuparia na rede.
+ */
+public class TransporteMemoria implements Transporte {
+    private final RedeMemoria rede;
+    private final int id;
+    private final BlockingQueue<Mensagem> filaDeMensagens;
+    private final Metricas metricas;
+
+    TransporteMemoria(RedeMemoria rede, int id, BlockingQueue<Mensagem> filaDeMensagens, Metricas metricas) {
+        this.rede = rede;
+        this.id = id;
+        this.filaDeMensagens = filaDeMensagens;
+        this.metricas = metricas;
+        // Já aceita mensagens antes de iniciarServidor(), como o backlog de um
+        // socket: com milhares de processos subindo, evita perder os anúncios
+        rede.registrar(id, this);
+    }
+
+    @Override
+    public void iniciarServidor() {
+        rede.registrar(id, this);
+    }
+
+    @Override
+    public void enviarMensagem(int idDestino, Mensagem msg) {
+        Metricas.ContadoresPar par = metricas.par(idDestino);
+        if (rede.enviar(idDestino, msg)) {
+            par.enviada(CodecMensagem.tamanhoQuadro(msg));
+        } else {
+            par.falhaEnvio(1);
+        }
+    }
+
+    @Override
+    public void desligarServidor() {
+        rede.remover(id);
+    }
+
+    /**
+     * Chamado pela RedeMemoria quando a mensagem chega a este processo.
+     */
+    void entregar(Mensagem msg) {
+        int remetente = msg.getRemetenteId();
+        metricas.parRemetente(remetente, rede.contem(remetente)).recebida(CodecMensagem.tamanhoQuadro(msg));
+        filaDeMensagens.offer(msg);
+    }
+}
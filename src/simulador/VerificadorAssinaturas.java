@@ -0,0 +1,138 @@
+package simulador;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Assina e verifica as cadeias de assinaturas do SM(m) de um processo.
+ *
+ * O salto i do caminho assina (instância, ordem, os i + 1 primeiros saltos
+ * do caminho). Cada assinatura pode ser conferida sozinha, então a mesma
+ * assinatura (a do Comandante aparece em todas as retransmissões, a de um
+ * Tenente em todas as que passam por ele) só passa pela criptografia uma
+ * vez: o resultado fica num cache, que é esvaziado quando passa de
+ * 'capacidade' entradas.
+ *
+ * Pode ser usado por várias threads.
+ */
+public class VerificadorAssinaturas {
+    public static final int CAPACIDADE_PADRAO = 64 * 1024;
+
+    private static final int TAMANHO_DADOS = 8 + 1 + 8;
+
+    /** Uma assinatura de um salto, com o que ela assina. */
+    private static final class Salto {
+        final long instancia;
+        final long prefixo;
+        final Ordem ordem;
+        final byte[] assinatura;
+        final int hash;
+
+        Salto(long instancia, long prefixo, Ordem ordem, byte[] assinatura) {
+            this.instancia = instancia;
+            this.prefixo = prefixo;
+            this.ordem = ordem;
+            this.assinatura = assinatura;
+            this.hash = 31 * (31 * Long.hashCode(instancia) + Long.hashCode(prefixo)) + Arrays.hashCode(assinatura)
+                    + ordem.ordinal();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Salto)) {
+                return false;
+            }
+            Salto outro = (Salto) o;
+            return instancia == outro.instancia && prefixo == outro.prefixo && ordem == outro.ordem
+                    && Arrays.equals(assinatura, outro.assinatura);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final ChavesAssinatura chaves;
+    private final int capacidade;
+    private final Map<Salto, Boolean> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder verificacoes = new LongAdder();
+    private final LongAdder acertosCache = new LongAdder();
+    private final LongAdder invalidas = new LongAdder();
+
+    public VerificadorAssinaturas(ChavesAssinatura chaves) {
+        this(chaves, CAPACIDADE_PADRAO);
+    }
+
+    public VerificadorAssinaturas(ChavesAssinatura chaves, int capacidade) {
+        this.chaves = chaves;
+        this.capacidade = capacidade;
+    }
+
+    /**
+     * Assinatura de 'id' como último salto de 'caminho' (que já termina em 'id').
+     */
+    public byte[] assinar(int id, long instancia, Ordem ordem, long caminho) {
+        return chaves.assinar(id, dados(instancia, ordem, caminho));
+    }
+
+    /**
+     * True se a mensagem traz uma assinatura válida de cada salto do caminho,
+     * todas sobre a mesma instância e ordem.
+     */
+    public boolean verificar(Mensagem msg) {
+        long caminho = msg.getCaminho();
+        int saltos = Caminho.tamanho(caminho);
+        byte[][] assinaturas = msg.getAssinaturas();
+        if (msg.getOrdem() == null || saltos == 0 || assinaturas.length != saltos) {
+            invalidas.increment();
+            return false;
+        }
+        for (int i = 0; i < saltos; i++) {
+            Salto salto = new Salto(msg.getInstancia(), Caminho.prefixo(caminho, i + 1), msg.getOrdem(), assinaturas[i]);
+            if (!verificar(Caminho.salto(caminho, i), salto)) {
+                invalidas.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Quantas assinaturas passaram pela criptografia. */
+    public long getVerificacoes() {
+        return verificacoes.sum();
+    }
+
+    /** Quantas assinaturas foram resolvidas pelo cache. */
+    public long getAcertosCache() {
+        return acertosCache.sum();
+    }
+
+    /** Quantas mensagens foram rejeitadas. */
+    public long getInvalidas() {
+        return invalidas.sum();
+    }
+
+    private boolean verificar(int signatario, Salto salto) {
+        Boolean conhecido = cache.get(salto);
+        if (conhecido != null) {
+            acertosCache.increment();
+            return conhecido;
+        }
+        verificacoes.increment();
+        boolean valida = chaves.verificar(signatario, dados(salto.instancia, salto.ordem, salto.prefixo), salto.assinatura);
+        if (cache.size() >= capacidade) {
+            cache.clear();
+        }
+        cache.put(salto, valida);
+        return valida;
+    }
+
+    private static byte[] dados(long instancia, Ordem ordem, long caminho) {
+        return ByteBuffer.allocate(TAMANHO_DADOS).putLong(instancia).put(ordem.codigo()).putLong(caminho).array();
+    }
+}
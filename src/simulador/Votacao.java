@@ -0,0 +1,104 @@
+package simulador;
+
+/**
+ * Apuração da votação final do OM(m) sem alocar: o vetor de votos é um
+ * byte[] com o código de cada Ordem e a contagem é um int[] indexado pelo
+ * ordinal. Criada uma vez por Tenente e reaproveitada com limpar().
+ *
+ * O desempate é o mesmo da versão com HashMap e lista ordenada: entre as
+ * ordens com mais votos vence a de menor ordinal (ATACAR < RECUAR).
+ */
+public class Votacao {
+    private static final Ordem[] ORDENS = Ordem.values();
+
+    private final byte[] votos;
+    private final int[] contagem = new int[ORDENS.length];
+    private int total;
+
+    /**
+     * @param capacidade maior número de votos de uma apuração (os Tenentes)
+     */
+    public Votacao(int capacidade) {
+        this.votos = new byte[capacidade];
+    }
+
+    public void limpar() {
+        total = 0;
+        for (int i = 0; i < contagem.length; i++) {
+            contagem[i] = 0;
+        }
+    }
+
+    public void votar(Ordem valor) {
+        votos[total++] = valor.codigo();
+        contagem[valor.ordinal()]++;
+    }
+
+    /**
+     * A ordem com mais votos; empates vão para o menor ordinal. Null se ninguém votou.
+     */
+    public Ordem vencedor() {
+        int melhor = -1;
+        int maxVotos = 0;
+        for (int i = 0; i < contagem.length; i++) {
+            if (contagem[i] > maxVotos) { // '>' estrito: no empate fica o menor ordinal
+                maxVotos = contagem[i];
+                melhor = i;
+            }
+        }
+        return melhor < 0 ? null : ORDENS[melhor];
+    }
+
+    public int votos(Ordem valor) {
+        return contagem[valor.ordinal()];
+    }
+
+    /**
+     * O i-ésimo voto, na ordem em que foi registrado.
+     */
+    public Ordem voto(int i) {
+        return ORDENS[votos[i]];
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Maioria simples: mais da metade dos votos.
+     */
+    public int maioriaNecessaria() {
+        return (total / 2) + 1;
+    }
+
+    /**
+     * Vetor de votos no formato de List.toString(), ex.: "[ATACAR, RECUAR]".
+     */
+    public String formatarVotos() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < total; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(ORDENS[votos[i]]);
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Contagem no formato de Map.toString(), só com as ordens que receberam
+     * votos, ex.: "{ATACAR=2, RECUAR=1}".
+     */
+    public String formatarContagem() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < contagem.length; i++) {
+            if (contagem[i] > 0) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(ORDENS[i]).append('=').append(contagem[i]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,105 @@
+package simulador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ArvoreEIGTest {
+
+    private static final Ordem PADRAO = Ordem.RECUAR;
+    private static final int SORTEIOS = 50;
+
+    /**
+     * A decisão antecipada (getDecisaoGarantida() durante a última rodada)
+     * nunca muda e é sempre a da apuração completa (resolver()), em todas as
+     * posições de até m traidores, com n até 7 e m até 2. Os traidores
+     * mandam valores sorteados ou deixam de mandar, e parte das mensagens da
+     * última rodada não chega.
+     */
+    @Test
+    void decisaoAntecipadaIgualApuracaoCompleta() {
+        for (int m = 1; m <= 2; m++) {
+            for (int n = m + 2; n <= 7; n++) {
+                int[] participantes = new int[n];
+                for (int i = 0; i < n; i++) {
+                    participantes[i] = i;
+                }
+                for (int eu = 1; eu < n; eu++) {
+                    for (int traidores = 0; traidores < 1 << n; traidores++) {
+                        if ((traidores & (1 << eu)) == 0 && Integer.bitCount(traidores) <= m) {
+                            for (long semente = 0; semente < SORTEIOS; semente++) {
+                                conferir(participantes, m, eu, traidores, semente);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void conferir(int[] participantes, int m, int eu, int traidores, long semente) {
+        String caso = "n=" + participantes.length + " m=" + m + " eu=" + eu
+                + " traidores=" + Integer.toBinaryString(traidores) + " semente=" + semente;
+        Random sorteio = new Random(semente);
+        Ordem proposta = sorteio.nextBoolean() ? Ordem.ATACAR : Ordem.RECUAR;
+        ArvoreEIG arvore = new ArvoreEIG(participantes, 0, eu, m);
+
+        for (int nivel = 1; nivel <= m; nivel++) {
+            for (long caminho : embaralhados(arvore, nivel, sorteio)) {
+                Ordem valor = recebido(caminho, eu, proposta, traidores, semente);
+                if (valor != null) {
+                    arvore.registrar(caminho, valor);
+                }
+            }
+        }
+        arvore.iniciarApuracao(PADRAO);
+
+        Ordem garantida = arvore.getDecisaoGarantida();
+        for (long caminho : embaralhados(arvore, m + 1, sorteio)) {
+            Ordem valor = recebido(caminho, eu, proposta, traidores, semente);
+            if (valor != null && sorteio.nextInt(8) != 0) {
+                arvore.registrar(caminho, valor);
+            }
+            Ordem agora = arvore.getDecisaoGarantida();
+            if (garantida != null) {
+                assertEquals(garantida, agora, caso);
+            }
+            garantida = agora;
+        }
+
+        Ordem completa = arvore.resolver(Caminho.de(0), PADRAO);
+        if (garantida != null) {
+            assertEquals(completa, garantida, caso);
+        }
+    }
+
+    private static List<Long> embaralhados(ArvoreEIG arvore, int nivel, Random sorteio) {
+        List<Long> caminhos = new ArrayList<>();
+        arvore.paraCadaCaminho(nivel, (caminho, valor) -> caminhos.add(caminho));
+        Collections.shuffle(caminhos, sorteio);
+        return caminhos;
+    }
+
+    /**
+     * O que 'destino' recebe pelo caminho: um leal repassa o que recebeu pelo
+     * caminho sem ele (o Comandante leal, a proposta); um traidor manda um
+     * valor sorteado ou nada (null), o mesmo para o mesmo caminho e destino.
+     */
+    private static Ordem recebido(long caminho, int destino, Ordem proposta, int traidores, long semente) {
+        int tamanho = Caminho.tamanho(caminho);
+        int remetente = Caminho.ultimo(caminho);
+        if ((traidores & (1 << remetente)) != 0) {
+            int escolha = new Random(semente * 31 + caminho * 17 + destino).nextInt(4);
+            return escolha == 0 ? null : escolha == 1 ? Ordem.RECUAR : Ordem.ATACAR;
+        }
+        if (tamanho == 1) {
+            return proposta;
+        }
+        return recebido(Caminho.prefixo(caminho, tamanho - 1), remetente, proposta, traidores, semente);
+    }
+}
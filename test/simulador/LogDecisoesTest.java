@@ -0,0 +1,139 @@
+package simulador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LogDecisoesTest {
+
+    private static final long SEGMENTO = 4096;
+
+    @TempDir
+    File pasta;
+
+    private static Ordem valor(long instancia) {
+        return instancia % 2 == 0 ? Ordem.ATACAR : Ordem.RECUAR;
+    }
+
+    private static Mensagem ordem(long instancia) {
+        return new Mensagem(TipoMensagem.ORDEM, instancia, 0, valor(instancia), 1, Caminho.de(0));
+    }
+
+    /**
+     * Grava as decisões 1..99 e a 100, e devolve a posição (no segmento 0)
+     * em que o registro da 100 começa.
+     */
+    private static long gravarCem(File arquivo) throws Exception {
+        LogDecisoes log = LogDecisoes.abrir(arquivo, SEGMENTO);
+        long antes = 0;
+        for (long k = 1; k < 100; k++) {
+            antes = log.anexarDecisao(k, valor(k));
+        }
+        log.aguardarDuravel(log.anexarDecisao(100, valor(100)));
+        log.fechar();
+        return antes;
+    }
+
+    /** Reabre depois do defeito no último registro e confere que o log segue dali. */
+    private static void conferirReabertura(File arquivo) throws Exception {
+        LogDecisoes log = LogDecisoes.abrir(arquivo, SEGMENTO);
+        assertEquals(99, log.getRegistrosRecuperados());
+        assertEquals(99, log.getUltimaContigua());
+        assertEquals(valor(99), log.decisao(99));
+        assertNull(log.decisao(100));
+        log.aguardarDuravel(log.anexarDecisao(100, Ordem.RECUAR));
+        log.fechar();
+
+        log = LogDecisoes.abrir(arquivo, SEGMENTO);
+        assertEquals(100, log.getUltimaContigua());
+        assertEquals(Ordem.RECUAR, log.decisao(100));
+        log.fechar();
+    }
+
+    @Test
+    void reabreDepoisDeCaudaCortada() throws Exception {
+        File arquivo = new File(pasta, "log");
+        long ultimo = gravarCem(arquivo);
+        try (RandomAccessFile segmento = new RandomAccessFile(arquivo.getPath() + ".0", "rw")) {
+            segmento.setLength(ultimo + 6); // A queda cortou o cabeçalho do último registro
+        }
+        conferirReabertura(arquivo);
+    }
+
+    @Test
+    void reabreDepoisDeCaudaCorrompida() throws Exception {
+        File arquivo = new File(pasta, "log");
+        long ultimo = gravarCem(arquivo);
+        try (RandomAccessFile segmento = new RandomAccessFile(arquivo.getPath() + ".0", "rw")) {
+            segmento.seek(ultimo + 8 + 1 + 7); // Último byte da instância, dentro do conteúdo
+            int original = segmento.read();
+            segmento.seek(ultimo + 8 + 1 + 7);
+            segmento.write(original ^ 0xFF);
+        }
+        conferirReabertura(arquivo);
+    }
+
+    /**
+     * Os segmentos só com instâncias já decididas em sequência são apagados;
+     * o que tem a ordem de uma instância em andamento fica, e depois de
+     * reaberto o log continua da mesma numeração, com a ordem pendente.
+     */
+    @Test
+    void apagaSegmentosJaEntregues() throws Exception {
+        File arquivo = new File(pasta, "log");
+        LogDecisoes log = LogDecisoes.abrir(arquivo, SEGMENTO);
+        long posicao = 0;
+        for (long k = 1; k <= 1000; k++) {
+            posicao = log.anexarDecisao(k, valor(k));
+        }
+        long pendente = 1001;
+        log.anexarOrdem(ordem(pendente));
+        for (long k = pendente + 1; k <= 1500; k++) {
+            posicao = log.anexarDecisao(k, valor(k));
+        }
+        log.aguardarDuravel(posicao);
+        int antes = log.getSegmentos();
+        assertTrue(antes > 3, "segmentos: " + antes);
+        assertEquals(1000, log.getUltimaContigua());
+
+        int apagados = log.descartarSegmentos();
+        assertTrue(apagados > 0);
+        assertEquals(antes - apagados, log.getSegmentos());
+        assertEquals(antes - apagados, contarSegmentos(arquivo));
+        assertFalse(new File(arquivo.getPath() + ".0").exists());
+        assertEquals(0, log.descartarSegmentos());
+        log.fechar();
+
+        log = LogDecisoes.abrir(arquivo, SEGMENTO);
+        assertEquals(1000, log.getUltimaContigua());
+        assertEquals(1500, log.getMaiorInstancia());
+        assertEquals(valor(1500), log.decisao(1500));
+        assertEquals(1, log.getPendentes().size());
+        assertEquals(pendente, log.getPendentes().get(0).getInstancia());
+
+        log.aguardarDuravel(log.anexarDecisao(pendente, valor(pendente)));
+        assertEquals(1500, log.getUltimaContigua());
+        assertTrue(log.descartarSegmentos() > 0);
+        assertEquals(1, log.getSegmentos());
+        log.fechar();
+
+        log = LogDecisoes.abrir(arquivo, SEGMENTO);
+        assertEquals(1500, log.getUltimaContigua());
+        assertTrue(log.getPendentes().isEmpty());
+        log.fechar();
+        LogDecisoes.apagar(arquivo);
+        assertEquals(0, contarSegmentos(arquivo));
+    }
+
+    private static int contarSegmentos(File arquivo) {
+        String[] nomes = arquivo.getParentFile().list((dir, nome) -> nome.startsWith(arquivo.getName() + "."));
+        return nomes == null ? 0 : nomes.length;
+    }
+}
@@ -0,0 +1,85 @@
+package simulador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class NoConsensoTest {
+
+    private static final int N = 4;
+    private static final int PROPOSTAS = 3000;
+
+    private static Ordem proposta(long instancia) {
+        return instancia % 3 == 1 ? Ordem.RECUAR : Ordem.ATACAR;
+    }
+
+    /**
+     * Um Tenente leal que fica 50 ms isolado, com os outros seguindo bem à
+     * frente da janela dele, precisa alcançá-los e decidir o que o
+     * Comandante propôs em todas as instâncias.
+     */
+    @Test
+    void tenenteIsoladoAlcancaOsOutros() throws Exception {
+        Map<Integer, String[]> mapa = new HashMap<>();
+        for (int i = 0; i < N; i++) {
+            mapa.put(i, new String[] {"memoria", String.valueOf(i)});
+        }
+        OpcoesProcesso opcoes = new OpcoesProcesso()
+                .comMaxTraidores(1)
+                .comJanela(16)
+                .comPrazoRodadaMs(50)
+                .comRedeMemoria(new RedeMemoria(1).comLatenciaMs(0.1, 1))
+                .comFalhas(new Falhas().comParticao(Set.of(3), 300, 350));
+
+        Ordem[][] decisoes = new Ordem[N][PROPOSTAS + 1];
+        List<NoConsenso> nos = new ArrayList<>();
+        for (int i = 0; i < N; i++) {
+            int id = i;
+            nos.add(new NoConsenso(i, 0, false, mapa, opcoes, (instancia, valor) -> {
+                if (instancia <= PROPOSTAS) {
+                    decisoes[id][(int) instancia] = valor;
+                }
+            }));
+        }
+        try {
+            for (NoConsenso no : nos) {
+                no.iniciar();
+            }
+            assertTrue(nos.get(0).aguardarProntos(10_000));
+            for (long k = 1; k <= PROPOSTAS; k++) {
+                nos.get(0).propor(proposta(k));
+            }
+            long limite = System.nanoTime() + 60_000_000_000L;
+            while (System.nanoTime() < limite && !todosDecidiram(nos)) {
+                Thread.sleep(20);
+            }
+
+            for (int i = 1; i < N; i++) {
+                assertEquals(PROPOSTAS, nos.get(i).getDecididas(), "decididas no nó " + i);
+                for (int k = 1; k <= PROPOSTAS; k++) {
+                    assertEquals(proposta(k), decisoes[i][k], "instância " + k + " no nó " + i);
+                }
+            }
+        } finally {
+            for (NoConsenso no : nos) {
+                no.desligar();
+            }
+        }
+    }
+
+    private static boolean todosDecidiram(List<NoConsenso> nos) {
+        for (int i = 1; i < nos.size(); i++) {
+            if (nos.get(i).getDecididas() < PROPOSTAS) {
+                return false;
+            }
+        }
+        return true;
+    }
+}